@@ -0,0 +1,123 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Picks a random item where each item has a weight, in constant time, using
+ * Walker's alias method (with Vose's way of building the table). Each item
+ * has a column holding the chance of picking that item and an alias to pick
+ * otherwise, so a pick costs one random column and one random number. A table
+ * never changes once made and may be shared between threads.
+ *
+ * @author Adam Lock
+ */
+public final class AliasTable {
+
+	/** Chance of picking the item of each column rather than its alias */
+	private final double chance[];
+
+	/** Item to pick when the column's own item isn't picked */
+	private final int alias[];
+
+	/** Sum of the weights */
+	private final double totalWeight;
+
+	/**
+	 * Constructor
+	 *
+	 * @param weights
+	 *            weight of each item, none negative and at least one greater
+	 *            than 0
+	 */
+	public AliasTable(double weights[]) {
+		if (weights == null || weights.length == 0) {
+			throw new IllegalArgumentException("Must supply weights");
+		}
+		final int n = weights.length;
+		double total = 0;
+		for (double weight : weights) {
+			if (!(weight >= 0) || Double.isInfinite(weight)) {
+				throw new IllegalArgumentException("Invalid weight " + weight);
+			}
+			total += weight;
+		}
+		if (total <= 0) {
+			throw new IllegalArgumentException("Weights must not all be 0");
+		}
+		this.totalWeight = total;
+		this.chance = new double[n];
+		this.alias = new int[n];
+
+		// Scale so the average weight is 1, then fill the columns of small
+		// weights from large ones
+		final double scaled[] = new double[n];
+		final int small[] = new int[n];
+		final int large[] = new int[n];
+		int numSmall = 0;
+		int numLarge = 0;
+		for (int i = 0; i < n; i++) {
+			scaled[i] = weights[i] * n / total;
+			if (scaled[i] < 1) {
+				small[numSmall++] = i;
+			} else {
+				large[numLarge++] = i;
+			}
+		}
+		while (numSmall > 0 && numLarge > 0) {
+			final int less = small[--numSmall];
+			final int more = large[--numLarge];
+			chance[less] = scaled[less];
+			alias[less] = more;
+			scaled[more] = (scaled[more] + scaled[less]) - 1;
+			if (scaled[more] < 1) {
+				small[numSmall++] = more;
+			} else {
+				large[numLarge++] = more;
+			}
+		}
+		// Whatever is left is 1 give or take rounding
+		while (numLarge > 0) {
+			final int i = large[--numLarge];
+			chance[i] = 1;
+			alias[i] = i;
+		}
+		while (numSmall > 0) {
+			final int i = small[--numSmall];
+			chance[i] = 1;
+			alias[i] = i;
+		}
+	}
+
+	/**
+	 * Get the number of items
+	 *
+	 * @return number of items
+	 */
+	public int size() {
+		return chance.length;
+	}
+
+	/**
+	 * Get the sum of the weights
+	 *
+	 * @return total weight
+	 */
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	/**
+	 * Pick an item. Each item is picked with a chance of its weight divided
+	 * by the total weight.
+	 *
+	 * @param random
+	 * @return index of the item
+	 */
+	public int sample(Random random) {
+		final int column = random.nextInt(chance.length);
+		return random.nextDouble() < chance[column] ? column : alias[column];
+	}
+}
@@ -0,0 +1,622 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * A standard deck of 52 unique cards held as two bit masks, one for the
+ * undrawn cards and one for the drawn cards. See {@link CardMask} for the
+ * layout. Removing, replacing and counting cards are constant time operations.
+ * <p>
+ * The deck keeps no order for its cards. An unshuffled deck deals cards in the
+ * same order as a fresh {@link DeckImpl}. Once shuffled, every card is picked
+ * at random from the undrawn cards as it is dealt, which deals cards with the
+ * same odds as a shuffled pile would. Cards that are replaced are as likely to
+ * be dealt as any other, rather than going to the bottom of the pile.
+ *
+ * @author Adam Lock
+ */
+public class BitboardDeck implements Cloneable, Deck {
+
+	private static final Card allCards[] = Card.values();
+
+	/** Cards still to be dealt */
+	private long undrawn = CardMask.FULL;
+
+	/** Cards which have been dealt or removed */
+	private long drawn = CardMask.EMPTY;
+
+	/** Flag set once the deck is shuffled, cards are then dealt randomly */
+	private boolean shuffled = false;
+
+	/** Source of randomness for dealing */
+	private Random random = ShuffleInfo.RANDOM;
+
+	/** Finds cards for pattern arrays, created when first needed */
+	private PatternMatcher matcher;
+
+	/** Chooses cards for the matcher as the deck would deal them */
+	private PatternMatcher.Chooser picker;
+
+	/** State of the deck for each mark, see {@link #mark()} */
+	private long markUndrawn[] = new long[0];
+	private long markDrawn[] = new long[0];
+	private boolean markShuffled[] = new boolean[0];
+	private int markCount = 0;
+
+	/**
+	 * Constructor
+	 */
+	public BitboardDeck() {
+	}
+
+	/**
+	 * Constructor which optionally shuffles the deck
+	 *
+	 * @param shuffle
+	 */
+	public BitboardDeck(boolean shuffle) {
+		this();
+		if (shuffle) {
+			shuffle();
+		}
+	}
+
+	/**
+	 * Constructor which uses the specified source of randomness.
+	 *
+	 * @param random
+	 */
+	public BitboardDeck(Random random) {
+		this();
+		setRandom(random);
+	}
+
+	/**
+	 * Set the source of randomness used to deal cards.
+	 *
+	 * @param random
+	 */
+	public void setRandom(Random random) {
+		if (random == null) {
+			throw new IllegalArgumentException("Must supply a random");
+		}
+		this.random = random;
+	}
+
+	/**
+	 * Get the source of randomness used to deal cards.
+	 *
+	 * @return the source of randomness
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#getUndrawnMask()
+	 */
+	public long getUndrawnMask() {
+		return undrawn;
+	}
+
+	/**
+	 * Get the drawn cards as a mask
+	 *
+	 * @return mask of drawn cards
+	 */
+	public long getDrawnMask() {
+		return drawn;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#reset()
+	 */
+	public void reset() {
+		undrawn = CardMask.FULL;
+		drawn = CardMask.EMPTY;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#shuffle()
+	 */
+	public void shuffle() {
+		shuffled = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return undrawn == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#size()
+	 */
+	public int size() {
+		return Long.bitCount(undrawn);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#totalSize()
+	 */
+	public int totalSize() {
+		return allCards.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#isUndrawn(com.adamlock.cards.Card)
+	 */
+	public boolean isUndrawn(Card card) {
+		return (undrawn & (1L << card.ordinal())) != 0;
+	}
+
+	/**
+	 * Pick the next card to deal from the cards in the mask. This is the
+	 * highest card if unshuffled or a random one if shuffled.
+	 *
+	 * @param mask
+	 *            a mask which must not be empty
+	 * @return index of the card
+	 */
+	private int pick(long mask) {
+		if (shuffled) {
+			return CardMask.select(mask, random.nextInt(Long.bitCount(mask)));
+		}
+		return CardMask.highest(mask);
+	}
+
+	/**
+	 * Move a card from the undrawn to the drawn cards
+	 *
+	 * @param cardIndex
+	 * @return the card
+	 */
+	private Card draw(int cardIndex) {
+		return allCards[drawIndex(cardIndex)];
+	}
+
+	/**
+	 * Move a card from the undrawn to the drawn cards
+	 *
+	 * @param cardIndex
+	 * @return the card index
+	 */
+	private int drawIndex(int cardIndex) {
+		final long bit = 1L << cardIndex;
+		undrawn &= ~bit;
+		drawn |= bit;
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(int)
+	 */
+	public Card[] deal(int numCards) throws EmptyDeckException {
+		return deal(numCards, new Card[numCards]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(int, com.adamlock.cards.Card[])
+	 */
+	public Card[] deal(int numCards, Card[] inCards) throws EmptyDeckException {
+		if (inCards == null) {
+			throw new IllegalArgumentException();
+		}
+		if (inCards.length < numCards) {
+			throw new IllegalArgumentException();
+		}
+		if (numCards < 1) {
+			throw new IllegalArgumentException();
+		}
+		if (size() < numCards) {
+			throw new EmptyDeckException();
+		}
+		for (int i = 0; i < numCards; ++i) {
+			inCards[i] = draw(pick(undrawn));
+		}
+		return inCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(com.adamlock.cards.CardPattern, int)
+	 */
+	public Card[] deal(CardPattern pattern, int numCards)
+			throws EmptyDeckException {
+		if (pattern.isRandom()) {
+			return deal(numCards);
+		}
+		final Card[] cards = new Card[numCards];
+		for (int i = 0; i < numCards; i++) {
+			cards[i] = dealOne(pattern);
+		}
+		return cards;
+	}
+
+	/**
+	 * Make a mask of the undrawn cards which match the pattern
+	 *
+	 * @param pattern
+	 * @return mask of matching cards
+	 */
+	private long matching(CardPattern pattern) {
+		return pattern.getMask() & undrawn;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#countMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int countMatching(CardPattern pattern) {
+		return Long.bitCount(matching(pattern));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int dealMatching(CardPattern pattern) {
+		final long matches = matching(pattern);
+		if (matches == 0) {
+			return -1;
+		}
+		return drawIndex(pick(matches));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.adamlock.cards.Deck#dealRandomMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int dealRandomMatching(CardPattern pattern) {
+		final long matches = matching(pattern);
+		if (matches == 0) {
+			return -1;
+		}
+		return drawIndex(CardMask.select(matches,
+				random.nextInt(Long.bitCount(matches))));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealOne(com.adamlock.cards.CardPattern)
+	 */
+	public Card dealOne(CardPattern pattern) throws EmptyDeckException {
+		if (pattern.isRandom()) {
+			return dealOne();
+		}
+		final long matches = matching(pattern);
+		if (matches == 0) {
+			return null;
+		}
+		return draw(pick(matches));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(com.adamlock.cards.CardPattern[])
+	 */
+	public Card[] deal(CardPattern patterns[]) throws EmptyDeckException,
+			InvalidCardException {
+		return dealPatterns(patterns, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealRandom(com.adamlock.cards.CardPattern[])
+	 */
+	public Card[] dealRandom(CardPattern patterns[])
+			throws InvalidCardException {
+		return dealPatterns(patterns, true);
+	}
+
+	/**
+	 * Deal a different card for each pattern
+	 *
+	 * @param patterns
+	 * @param randomly
+	 *            true to pick uniformly from all the ways the patterns could
+	 *            be dealt, false to pick as the deck deals
+	 * @return drawn cards or null for null patterns
+	 * @throws InvalidCardException
+	 *             if the patterns can't all be given different cards, in
+	 *             which case nothing is dealt
+	 */
+	private Card[] dealPatterns(CardPattern patterns[], boolean randomly)
+			throws InvalidCardException {
+		if (matcher == null) {
+			matcher = new PatternMatcher();
+			picker = new PatternMatcher.Chooser() {
+				public int choose(long candidates) {
+					return pick(candidates);
+				}
+			};
+		}
+		final int failed = randomly ? matcher.matchRandom(patterns, undrawn,
+				null, random) : matcher.match(patterns, undrawn, null, picker);
+		if (failed != -1) {
+			throw new InvalidCardException(patterns[failed],
+					"Pattern does not match any card left in the deck");
+		}
+		final Card[] result = new Card[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			final int cardIndex = matcher.getAssigned(i);
+			if (cardIndex != -1) {
+				result[i] = draw(cardIndex);
+			}
+		}
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealOne()
+	 */
+	public Card dealOne() throws EmptyDeckException {
+		if (undrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		return draw(pick(undrawn));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealIndex()
+	 */
+	public int dealIndex() throws EmptyDeckException {
+		if (undrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		return drawIndex(pick(undrawn));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#tryDealOne()
+	 */
+	public int tryDealOne() {
+		if (undrawn == 0) {
+			return -1;
+		}
+		return drawIndex(pick(undrawn));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealIndices(int, int[], int)
+	 */
+	public int dealIndices(int numCards, int indices[], int offset) {
+		if (indices == null || numCards < 0 || offset < 0
+				|| offset + numCards > indices.length) {
+			throw new IllegalArgumentException();
+		}
+		numCards = Math.min(numCards, Long.bitCount(undrawn));
+		for (int i = offset; i < offset + numCards; ++i) {
+			indices[i] = drawIndex(pick(undrawn));
+		}
+		return numCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealRandom()
+	 */
+	public Card dealRandom() throws EmptyDeckException {
+		if (undrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		return draw(CardMask.select(undrawn,
+				random.nextInt(Long.bitCount(undrawn))));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card)
+	 */
+	public boolean removeCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+		final long bit = 1L << card.ordinal();
+		if ((undrawn & bit) == 0) {
+			return false;
+		}
+		undrawn &= ~bit;
+		drawn |= bit;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card[])
+	 */
+	public int removeCard(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return removeCard(cards, 0, cards.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card[], int,
+	 * int)
+	 */
+	public int removeCard(Card[] cards, int offset, int length) {
+		DeckImpl.checkRange(cards, offset, length);
+		final long removed = CardMask.of(cards, offset, length) & undrawn;
+		undrawn &= ~removed;
+		drawn |= removed;
+		return Long.bitCount(removed);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card)
+	 */
+	public boolean replaceCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+		final long bit = 1L << card.ordinal();
+		if ((drawn & bit) == 0) {
+			return false;
+		}
+		drawn &= ~bit;
+		undrawn |= bit;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card[])
+	 */
+	public int replaceCard(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return replaceCard(cards, 0, cards.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card[], int,
+	 * int)
+	 */
+	public int replaceCard(Card[] cards, int offset, int length) {
+		DeckImpl.checkRange(cards, offset, length);
+		final long replaced = CardMask.of(cards, offset, length) & drawn;
+		drawn &= ~replaced;
+		undrawn |= replaced;
+		return Long.bitCount(replaced);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#mark()
+	 */
+	public int mark() {
+		if (markCount == markUndrawn.length) {
+			final int newLength = markCount + 4;
+			final long newUndrawn[] = new long[newLength];
+			final long newDrawn[] = new long[newLength];
+			final boolean newShuffled[] = new boolean[newLength];
+			System.arraycopy(markUndrawn, 0, newUndrawn, 0, markCount);
+			System.arraycopy(markDrawn, 0, newDrawn, 0, markCount);
+			System.arraycopy(markShuffled, 0, newShuffled, 0, markCount);
+			markUndrawn = newUndrawn;
+			markDrawn = newDrawn;
+			markShuffled = newShuffled;
+		}
+		markUndrawn[markCount] = undrawn;
+		markDrawn[markCount] = drawn;
+		markShuffled[markCount] = shuffled;
+		return markCount++;
+	}
+
+	private void checkMark(int mark) {
+		if (mark < 0 || mark >= markCount) {
+			throw new IllegalArgumentException("Invalid mark " + mark);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#rewind(int)
+	 */
+	public void rewind(int mark) {
+		checkMark(mark);
+		undrawn = markUndrawn[mark];
+		drawn = markDrawn[mark];
+		shuffled = markShuffled[mark];
+		markCount = mark + 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#release(int)
+	 */
+	public void release(int mark) {
+		checkMark(mark);
+		markCount = mark;
+	}
+
+	/**
+	 * Validate all the cards
+	 */
+	void internalValidate() {
+		if ((undrawn & drawn) != 0) {
+			throw new RuntimeException("Card is both drawn and undrawn");
+		}
+		if ((undrawn | drawn) != CardMask.FULL) {
+			throw new RuntimeException("Card is missing");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuffer sb = new StringBuffer();
+		for (Card card : CardMask.toCards(undrawn)) {
+			sb.append(card.toString());
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	public Object clone() {
+		final BitboardDeck newDeck = new BitboardDeck();
+		newDeck.undrawn = undrawn;
+		newDeck.drawn = drawn;
+		newDeck.shuffled = shuffled;
+		newDeck.random = random;
+		return newDeck;
+	}
+}
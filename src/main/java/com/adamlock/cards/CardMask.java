@@ -0,0 +1,141 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Helpers for treating a long as a set of cards. Bit n of the mask is set when
+ * the card whose ordinal is n is in the set, so the 52 cards fit in the low 52
+ * bits. Each suit occupies 13 consecutive bits ordered by value.
+ *
+ * @author Adam Lock
+ */
+public final class CardMask {
+
+	/** A mask holding all 52 cards */
+	public static final long FULL = (1L << 52) - 1;
+
+	/** A mask holding no cards */
+	public static final long EMPTY = 0L;
+
+	private static final Card allCards[] = Card.values();
+
+	private CardMask() {
+	}
+
+	/**
+	 * Make a mask holding a single card
+	 *
+	 * @param card
+	 * @return mask
+	 */
+	public static long of(Card card) {
+		return 1L << card.ordinal();
+	}
+
+	/**
+	 * Make a mask holding the cards. Null entries are ignored.
+	 *
+	 * @param cards
+	 * @return mask
+	 */
+	public static long of(Card[] cards) {
+		return of(cards, 0, cards.length);
+	}
+
+	/**
+	 * Make a mask holding length cards from the array starting at offset.
+	 * Null entries are ignored.
+	 *
+	 * @param cards
+	 * @param offset
+	 * @param length
+	 * @return mask
+	 */
+	public static long of(Card[] cards, int offset, int length) {
+		long mask = 0L;
+		for (int i = offset; i < offset + length; i++) {
+			if (cards[i] != null) {
+				mask |= 1L << cards[i].ordinal();
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Test if the mask holds a card
+	 *
+	 * @param mask
+	 * @param card
+	 * @return true if the card is in the mask
+	 */
+	public static boolean contains(long mask, Card card) {
+		return (mask & (1L << card.ordinal())) != 0;
+	}
+
+	/**
+	 * Count the cards in the mask
+	 *
+	 * @param mask
+	 * @return number of cards
+	 */
+	public static int size(long mask) {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * Return the cards held in a mask in ascending order
+	 *
+	 * @param mask
+	 * @return cards
+	 */
+	public static Card[] toCards(long mask) {
+		final Card cards[] = new Card[Long.bitCount(mask)];
+		for (int i = 0; mask != 0; i++) {
+			cards[i] = allCards[Long.numberOfTrailingZeros(mask)];
+			mask &= mask - 1;
+		}
+		return cards;
+	}
+
+	/**
+	 * Find the position of the highest card in the mask
+	 *
+	 * @param mask
+	 *            a mask which must not be empty
+	 * @return position of the highest set bit
+	 */
+	public static int highest(long mask) {
+		return 63 - Long.numberOfLeadingZeros(mask);
+	}
+
+	/**
+	 * Find the position of the nth card in the mask counting up from the
+	 * lowest, i.e. select(mask, 0) is the lowest card.
+	 *
+	 * @param mask
+	 *            mask to search
+	 * @param n
+	 *            which card to find, must be less than the size of the mask
+	 * @return position of the nth set bit
+	 */
+	public static int select(long mask, int n) {
+		if (n < 0 || n >= Long.bitCount(mask)) {
+			throw new IllegalArgumentException("Mask has no card " + n);
+		}
+		// Skip 16 bits at a time and then clear set bits one by one
+		int shift = 0;
+		int count;
+		while ((count = Long.bitCount(mask & 0xFFFFL)) <= n) {
+			n -= count;
+			mask >>>= 16;
+			shift += 16;
+		}
+		while (n-- > 0) {
+			mask &= mask - 1;
+		}
+		return shift + Long.numberOfTrailingZeros(mask);
+	}
+}
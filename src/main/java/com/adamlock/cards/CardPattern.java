@@ -1,271 +1,400 @@
-package com.adamlock.cards;
-
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
-
-/**
- * A card pattern is something which represents one or more cards. Like a wild
- * card.
- * 
- * @author Adam
- * 
- */
-public class CardPattern {
-	public enum Type {
-		/** Any random card at all */
-		RANDOM,
-		/** Any suit with a particular value */
-		ANY_SUIT,
-		/** Any value with a particular suit */
-		ANY_VALUE,
-		/** Part of a set */
-		CONTAINED_BY_SET,
-		/** An exact card */
-		EXACT
-	}
-
-	/**
-	 * Make a pattern from a card, i.e. pattern matches just that card
-	 * 
-	 * @param card
-	 * @return a new pattern
-	 */
-	public static CardPattern fromCard(Card card) {
-		return new CardPattern(card);
-	}
-
-	/**
-	 * Make a pattern from a suit and value, same as a card basically.
-	 * 
-	 * @param value
-	 * @param suit
-	 * @return
-	 */
-	public static CardPattern fromCard(CardValue value, CardSuit suit) {
-		return new CardPattern(value, suit);
-	}
-
-	/**
-	 * Make a pattern that matches any value card in a suit
-	 * 
-	 * @param suit
-	 * @return
-	 */
-	public static CardPattern fromSuit(CardSuit suit) {
-		return new CardPattern(suit);
-	}
-
-	/**
-	 * Make a pattern than matches any suited card with a value.
-	 * 
-	 * @param value
-	 * @return
-	 */
-	public static CardPattern fromValue(CardValue value) {
-		return new CardPattern(value);
-	}
-
-	public static CardPattern[] fromCards(Card[] cards) {
-
-		CardPattern cardPatterns[] = new CardPattern[cards.length];
-		for (int i = 0; i < cards.length; i++) {
-			if (cards[i] != null) {
-				cardPatterns[i] = fromCard(cards[i]);
-			}
-		}
-		return cardPatterns;
-	}
-
-	/**
-	 * Make a pattern is one or more other patterns
-	 * 
-	 * @param cards
-	 * @return
-	 */
-	public static CardPattern setPatternfromCards(Card[] cards) {
-		CardPattern cardPatterns[] = new CardPattern[cards.length];
-		for (int i = 0; i < cards.length; i++) {
-			if (cards[i] != null) {
-				cardPatterns[i] = fromCard(cards[i]);
-			}
-		}
-		final Set<CardPattern> set = new HashSet<CardPattern>();
-		set.addAll(Arrays.asList(cardPatterns));
-		return new CardPattern(set);
-	}
-
-	/** A pattern that matches anything */
-	public static CardPattern RANDOM = new CardPattern();
-
-	private final Type type;
-
-	private final CardValue value;
-
-	private final CardSuit suit;
-
-	private final Set<CardPattern> cardPatterns;
-
-	private CardPattern() {
-		this(CardValue.RANDOM, CardSuit.RANDOM);
-	}
-
-	private CardPattern(Card card) {
-		this(card != null ? card.getValue() : null,
-				card != null ? card.getSuit() : null);
-	}
-
-	private CardPattern(CardValue value, CardSuit suit) {
-		if (value == CardValue.RANDOM && suit == CardSuit.RANDOM) {
-			this.type = Type.RANDOM;
-		} else if (value == CardValue.RANDOM && suit != null) {
-			this.type = Type.ANY_VALUE;
-		} else if (value != null && suit == CardSuit.RANDOM) {
-			this.type = Type.ANY_SUIT;
-		} else if (value != null && suit != null) {
-			this.type = Type.EXACT;
-		} else {
-			throw new IllegalArgumentException(
-					"Suit or value were null and should not be");
-		}
-		this.suit = suit;
-		this.value = value;
-		this.cardPatterns = null;
-	}
-
-	private CardPattern(CardSuit suit) {
-		this(CardValue.RANDOM, suit);
-	}
-
-	private CardPattern(CardValue value) {
-		this(value, CardSuit.RANDOM);
-	}
-
-	private CardPattern(Set<CardPattern> cardPatterns) {
-		this(Type.CONTAINED_BY_SET, null, null, cardPatterns);
-	}
-
-	private CardPattern(Type type, CardValue value, CardSuit suit,
-			Set<CardPattern> cardPatterns) {
-		this.type = type;
-		this.suit = suit;
-		this.value = value;
-		this.cardPatterns = cardPatterns;
-	}
-
-	public Type getType() {
-		return type;
-	}
-
-	public CardValue getValue() {
-		return value;
-	}
-
-	public CardSuit getSuit() {
-		return suit;
-	}
-
-	public Set<CardPattern> getCardPatterns() {
-		return cardPatterns;
-	}
-
-	/**
-	 * Test if a card matches this pattern.
-	 * 
-	 * @param card
-	 * @return
-	 */
-	public boolean matches(Card card) {
-		if (card == null) {
-			return false;
-		}
-		switch (type) {
-		case ANY_SUIT:
-			return card.getValue() == value;
-		case ANY_VALUE:
-			return card.getSuit() == suit;
-		case RANDOM:
-			return true;
-		case CONTAINED_BY_SET:
-			for (CardPattern pattern : cardPatterns) {
-				if (pattern.matches(card)) {
-					return true;
-				}
-			}
-			return false;
-		case EXACT:
-			return card.getValue() == value && card.getSuit() == suit;
-		}
-		return false;
-	}
-
-	public boolean isExact() {
-		return type == Type.EXACT;
-	}
-
-	public boolean isAnySuit() {
-		return type == Type.ANY_SUIT;
-	}
-
-	public boolean isAnyValue() {
-		return type == Type.ANY_VALUE;
-	}
-
-	public boolean isContainedBySet() {
-		return type == Type.CONTAINED_BY_SET;
-	}
-
-	public boolean isRandom() {
-		return type == Type.RANDOM;
-	}
-
-	public Card getCard() {
-		if (suit != null && suit != CardSuit.RANDOM && value != null
-				&& value != CardValue.RANDOM) {
-			try {
-				return Card.getCard(value, suit);
-			} catch (InvalidCardException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-		return null;
-	}
-
-	public boolean isValid() {
-		switch (type) {
-		case EXACT:
-			return (suit != null && value != null);
-		case ANY_SUIT:
-			return (value != null);
-		case ANY_VALUE:
-			return (suit != null);
-		case CONTAINED_BY_SET:
-			return (cardPatterns != null & cardPatterns.size() > 0);
-		}
-		return true;
-	}
-
-	@Override
-	public String toString() {
-		switch (type) {
-		case EXACT:
-			try {
-				return Card.getCard(value, suit).toLongString();
-			} catch (InvalidCardException e) {
-				e.printStackTrace();
-				break;
-			}
-		case ANY_SUIT:
-			return value.toString() + " of ???";
-		case ANY_VALUE:
-			return "??? of " + suit.toString();
-		case CONTAINED_BY_SET:
-			return "<multiple>";
-		case RANDOM:
-			return "??? of ???";
-		}
-		return "";
-	}
-
-}
+package com.adamlock.cards;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A card pattern is something which represents one or more cards. Like a wild
+ * card.
+ * 
+ * Patterns are immutable and the factory methods hand out shared instances.
+ * There is only one pattern for each card, value and suit, and set patterns
+ * are kept in a small cache keyed by the cards they match, so making a
+ * pattern rarely allocates anything. Patterns are equal if they are of the
+ * same type and match the same cards.
+ * 
+ * @author Adam
+ * 
+ */
+public class CardPattern {
+	public enum Type {
+		/** Any random card at all */
+		RANDOM,
+		/** Any suit with a particular value */
+		ANY_SUIT,
+		/** Any value with a particular suit */
+		ANY_VALUE,
+		/** Part of a set */
+		CONTAINED_BY_SET,
+		/** An exact card */
+		EXACT
+	}
+
+	/**
+	 * Make a pattern from a card, i.e. pattern matches just that card
+	 * 
+	 * @param card
+	 * @return a new pattern
+	 */
+	public static CardPattern fromCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException(
+					"Suit or value were null and should not be");
+		}
+		return EXACT_PATTERNS[card.ordinal()];
+	}
+
+	/**
+	 * Make a pattern from a suit and value, same as a card basically.
+	 * 
+	 * @param value
+	 * @param suit
+	 * @return
+	 */
+	public static CardPattern fromCard(CardValue value, CardSuit suit) {
+		if (value == null || suit == null) {
+			throw new IllegalArgumentException(
+					"Suit or value were null and should not be");
+		}
+		if (value == CardValue.RANDOM) {
+			return suit == CardSuit.RANDOM ? RANDOM : fromSuit(suit);
+		} else if (suit == CardSuit.RANDOM) {
+			return fromValue(value);
+		}
+		try {
+			return fromCard(Card.getCard(value, suit));
+		} catch (InvalidCardException e) {
+			throw new IllegalArgumentException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Make a pattern that matches any value card in a suit
+	 * 
+	 * @param suit
+	 * @return
+	 */
+	public static CardPattern fromSuit(CardSuit suit) {
+		if (suit == null) {
+			throw new IllegalArgumentException(
+					"Suit was null and should not be");
+		}
+		if (suit == CardSuit.RANDOM) {
+			return RANDOM;
+		}
+		return SUIT_PATTERNS[suit.ordinal()];
+	}
+
+	/**
+	 * Make a pattern than matches any suited card with a value.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public static CardPattern fromValue(CardValue value) {
+		if (value == null) {
+			throw new IllegalArgumentException(
+					"Value was null and should not be");
+		}
+		if (value == CardValue.RANDOM) {
+			return RANDOM;
+		}
+		return VALUE_PATTERNS[value.getOrdinal()];
+	}
+
+	public static CardPattern[] fromCards(Card[] cards) {
+
+		CardPattern cardPatterns[] = new CardPattern[cards.length];
+		for (int i = 0; i < cards.length; i++) {
+			if (cards[i] != null) {
+				cardPatterns[i] = fromCard(cards[i]);
+			}
+		}
+		return cardPatterns;
+	}
+
+	/**
+	 * Make a pattern is one or more other patterns
+	 * 
+	 * @param cards
+	 * @return
+	 */
+	public static CardPattern setPatternfromCards(Card[] cards) {
+		return setPatternFromMask(CardMask.of(cards));
+	}
+
+	/**
+	 * Make a pattern which matches any of the cards in a mask, see
+	 * {@link CardMask}. Bits above the last card are ignored.
+	 * 
+	 * @param mask
+	 * @return
+	 */
+	public static CardPattern setPatternFromMask(long mask) {
+		// The pattern keeps only the card bits, so the cache must be keyed
+		// by them too or masks with other bits set would never hit
+		mask &= CardMask.FULL;
+
+		// Direct mapped, a clash just replaces the older pattern. Threads may
+		// race to fill a slot but patterns are immutable so either will do.
+		final int slot = (int) ((mask * 0x9E3779B97F4A7C15L) >>> (64 - SET_CACHE_BITS));
+		final CardPattern cached = SET_CACHE[slot];
+		if (cached != null && cached.mask == mask) {
+			return cached;
+		}
+		final Set<CardPattern> set = new HashSet<CardPattern>();
+		for (Card card : CardMask.toCards(mask)) {
+			set.add(fromCard(card));
+		}
+		final CardPattern pattern = new CardPattern(
+				Collections.unmodifiableSet(set));
+		SET_CACHE[slot] = pattern;
+		return pattern;
+	}
+
+	/** A pattern that matches anything */
+	public static CardPattern RANDOM = new CardPattern();
+
+	/** Patterns for each card */
+	private static final CardPattern EXACT_PATTERNS[] = new CardPattern[52];
+
+	/** Patterns for each value, in the order of {@link CardValue#getOrdinal()} */
+	private static final CardPattern VALUE_PATTERNS[] = new CardPattern[13];
+
+	/** Patterns for each suit, in the order of the suits */
+	private static final CardPattern SUIT_PATTERNS[] = new CardPattern[4];
+
+	static {
+		for (Card card : Card.values()) {
+			EXACT_PATTERNS[card.ordinal()] = new CardPattern(card);
+		}
+		for (CardValue value : CardValue.values()) {
+			if (value != CardValue.RANDOM) {
+				VALUE_PATTERNS[value.getOrdinal()] = new CardPattern(value);
+			}
+		}
+		for (CardSuit suit : CardSuit.values()) {
+			if (suit != CardSuit.RANDOM) {
+				SUIT_PATTERNS[suit.ordinal()] = new CardPattern(suit);
+			}
+		}
+	}
+
+	/** Size of the set pattern cache as a power of 2 */
+	private static final int SET_CACHE_BITS = 10;
+
+	/** Recently made set patterns */
+	private static final CardPattern SET_CACHE[] = new CardPattern[1 << SET_CACHE_BITS];
+
+	private final Type type;
+
+	private final CardValue value;
+
+	private final CardSuit suit;
+
+	private final Set<CardPattern> cardPatterns;
+
+	/** The cards which match the pattern, see {@link CardMask} */
+	private final long mask;
+
+	private CardPattern() {
+		this(CardValue.RANDOM, CardSuit.RANDOM);
+	}
+
+	private CardPattern(Card card) {
+		this(card != null ? card.getValue() : null,
+				card != null ? card.getSuit() : null);
+	}
+
+	private CardPattern(CardValue value, CardSuit suit) {
+		if (value == CardValue.RANDOM && suit == CardSuit.RANDOM) {
+			this.type = Type.RANDOM;
+		} else if (value == CardValue.RANDOM && suit != null) {
+			this.type = Type.ANY_VALUE;
+		} else if (value != null && suit == CardSuit.RANDOM) {
+			this.type = Type.ANY_SUIT;
+		} else if (value != null && suit != null) {
+			this.type = Type.EXACT;
+		} else {
+			throw new IllegalArgumentException(
+					"Suit or value were null and should not be");
+		}
+		this.suit = suit;
+		this.value = value;
+		this.cardPatterns = null;
+		this.mask = computeMask();
+	}
+
+	private CardPattern(CardSuit suit) {
+		this(CardValue.RANDOM, suit);
+	}
+
+	private CardPattern(CardValue value) {
+		this(value, CardSuit.RANDOM);
+	}
+
+	private CardPattern(Set<CardPattern> cardPatterns) {
+		this(Type.CONTAINED_BY_SET, null, null, cardPatterns);
+	}
+
+	private CardPattern(Type type, CardValue value, CardSuit suit,
+			Set<CardPattern> cardPatterns) {
+		this.type = type;
+		this.suit = suit;
+		this.value = value;
+		this.cardPatterns = cardPatterns;
+		this.mask = computeMask();
+	}
+
+	/**
+	 * Work out which cards match the pattern
+	 * 
+	 * @return mask of matching cards
+	 */
+	private long computeMask() {
+		switch (type) {
+		case RANDOM:
+			return CardMask.FULL;
+		case CONTAINED_BY_SET:
+			long setMask = 0;
+			for (CardPattern pattern : cardPatterns) {
+				if (pattern != null) {
+					setMask |= pattern.mask;
+				}
+			}
+			return setMask;
+		default:
+			long cardMask = 0;
+			for (Card card : Card.values()) {
+				if ((type == Type.ANY_VALUE || card.getValue() == value)
+						&& (type == Type.ANY_SUIT || card.getSuit() == suit)) {
+					cardMask |= CardMask.of(card);
+				}
+			}
+			return cardMask;
+		}
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public CardValue getValue() {
+		return value;
+	}
+
+	public CardSuit getSuit() {
+		return suit;
+	}
+
+	public Set<CardPattern> getCardPatterns() {
+		return cardPatterns;
+	}
+
+	/**
+	 * Get the cards which match this pattern as a mask, see {@link CardMask}.
+	 * 
+	 * @return mask of matching cards
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Test if a card matches this pattern.
+	 * 
+	 * @param card
+	 * @return
+	 */
+	public boolean matches(Card card) {
+		return card != null && (mask & (1L << card.ordinal())) != 0;
+	}
+
+	public boolean isExact() {
+		return type == Type.EXACT;
+	}
+
+	public boolean isAnySuit() {
+		return type == Type.ANY_SUIT;
+	}
+
+	public boolean isAnyValue() {
+		return type == Type.ANY_VALUE;
+	}
+
+	public boolean isContainedBySet() {
+		return type == Type.CONTAINED_BY_SET;
+	}
+
+	public boolean isRandom() {
+		return type == Type.RANDOM;
+	}
+
+	public Card getCard() {
+		if (suit != null && suit != CardSuit.RANDOM && value != null
+				&& value != CardValue.RANDOM) {
+			try {
+				return Card.getCard(value, suit);
+			} catch (InvalidCardException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof CardPattern)) {
+			return false;
+		}
+		final CardPattern other = (CardPattern) obj;
+		return type == other.type && mask == other.mask;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (mask ^ (mask >>> 32)) * 31 + type.ordinal();
+	}
+
+	public boolean isValid() {
+		switch (type) {
+		case EXACT:
+			return (suit != null && value != null);
+		case ANY_SUIT:
+			return (value != null);
+		case ANY_VALUE:
+			return (suit != null);
+		case CONTAINED_BY_SET:
+			return (cardPatterns != null & cardPatterns.size() > 0);
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		switch (type) {
+		case EXACT:
+			try {
+				return Card.getCard(value, suit).toLongString();
+			} catch (InvalidCardException e) {
+				e.printStackTrace();
+				break;
+			}
+		case ANY_SUIT:
+			return value.toString() + " of ???";
+		case ANY_VALUE:
+			return "??? of " + suit.toString();
+		case CONTAINED_BY_SET:
+			return "<multiple>";
+		case RANDOM:
+			return "??? of ???";
+		}
+		return "";
+	}
+
+}
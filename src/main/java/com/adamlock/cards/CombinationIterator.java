@@ -0,0 +1,151 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Steps through every combination of a number of cards chosen from a set of
+ * cards, e.g. every turn and river which could be dealt from the undrawn
+ * cards. Cards and combinations are masks, see {@link CardMask}.
+ * <p>
+ * The iterator allocates nothing once made and can be reset and used again,
+ * so it is cheap to use in a tight loop:
+ *
+ * <pre>
+ * CombinationIterator boards = new CombinationIterator(deck.getUndrawnMask(), 2);
+ * while (boards.next()) {
+ * 	long board = boards.getMask();
+ * 	...
+ * }
+ * </pre>
+ *
+ * @author Adam Lock
+ */
+public final class CombinationIterator {
+
+	/** Index of each card in the set, lowest first */
+	private final int cards[] = new int[52];
+
+	/** Position in cards of each card in the current combination */
+	private final int positions[] = new int[52];
+
+	private int numCards;
+
+	private int size;
+
+	private long mask;
+
+	private boolean started;
+
+	/**
+	 * Constructor for an iterator which must be reset before use
+	 */
+	public CombinationIterator() {
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param cards
+	 *            mask of the cards to choose from
+	 * @param size
+	 *            number of cards in each combination
+	 */
+	public CombinationIterator(long cards, int size) {
+		reset(cards, size);
+	}
+
+	/**
+	 * Start again with a different set of cards
+	 *
+	 * @param cards
+	 *            mask of the cards to choose from
+	 * @param size
+	 *            number of cards in each combination, at most the number of
+	 *            cards in the set
+	 */
+	public void reset(long cards, int size) {
+		if ((cards & ~CardMask.FULL) != 0) {
+			throw new IllegalArgumentException("Invalid cards");
+		}
+		if (size < 0 || size > Long.bitCount(cards)) {
+			throw new IllegalArgumentException("Invalid size");
+		}
+		numCards = 0;
+		for (long remaining = cards; remaining != 0; remaining &= remaining - 1) {
+			this.cards[numCards++] = Long.numberOfTrailingZeros(remaining);
+		}
+		this.size = size;
+		this.mask = 0;
+		this.started = false;
+	}
+
+	/**
+	 * Move to the next combination. Combinations come in lexicographic order
+	 * of their card positions.
+	 *
+	 * @return true if there is a combination, false when all of them have
+	 *         been visited
+	 */
+	public boolean next() {
+		if (!started) {
+			started = true;
+			mask = 0;
+			for (int i = 0; i < size; i++) {
+				positions[i] = i;
+				mask |= 1L << cards[i];
+			}
+			return true;
+		}
+		// Find the last card which can move up and move it
+		int i = size - 1;
+		while (i >= 0 && positions[i] == numCards - size + i) {
+			i--;
+		}
+		if (i < 0) {
+			return false;
+		}
+		mask &= ~(1L << cards[positions[i]]);
+		positions[i]++;
+		mask |= 1L << cards[positions[i]];
+
+		// The cards after it follow on directly
+		for (int j = i + 1; j < size; j++) {
+			mask &= ~(1L << cards[positions[j]]);
+			positions[j] = positions[j - 1] + 1;
+			mask |= 1L << cards[positions[j]];
+		}
+		return true;
+	}
+
+	/**
+	 * Get the current combination
+	 *
+	 * @return mask of the cards in the combination
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Count the combinations of size cards chosen from n cards
+	 *
+	 * @param n
+	 *            number of cards to choose from
+	 * @param size
+	 *            number of cards in each combination
+	 * @return number of combinations, 0 if size is more than n
+	 */
+	public static long count(int n, int size) {
+		if (size < 0 || size > n) {
+			return 0;
+		}
+		long count = 1;
+		for (int i = 1; i <= size; i++) {
+			count = count * (n - size + i) / i;
+		}
+		return count;
+	}
+}
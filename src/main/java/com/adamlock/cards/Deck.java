@@ -1,165 +1,320 @@
-package com.adamlock.cards;
-
-/**
- * Represents a deck of cards consisting of a unique or non unique set of Card.
- * It is possible that multi deck cards may also be derived from this type, in
- * which case particular behaviour about replacing cards, or removing cards
- * matching certain conditions may change to reflect the fact there are multiple
- * instances of the same card in the deck.
- * 
- * @author alock
- * @see Card
- * @see CardPattern
- */
-public interface Deck {
-
-	/**
-	 * Resets the deck, ie puts all the drawn cards back in the deck. Note the
-	 * deck may still be shuffled
-	 */
-	void reset();
-
-	/**
-	 * Randomly shuffles the undrawn cards.
-	 */
-	void shuffle();
-
-	/**
-	 * Test if all cards in the deck have been drawn.
-	 * 
-	 * @return true if empty, false otherwise.
-	 */
-	boolean isEmpty();
-
-	/**
-	 * Return the number of undrawn cards remaining in the deck.
-	 * 
-	 * @return cards remaining
-	 */
-	int size();
-
-	/**
-	 * Return the total number drawn and undrawn cards in the deck.
-	 */
-	int totalSize();
-
-	/**
-	 * Deal a number of cards from the top of the deck.
-	 * 
-	 * @param numCards
-	 *            number of cards to deal
-	 * @return array of drawn cards
-	 * @throws EmptyDeckException
-	 *             if the deck becomes empty before all the cards can be drawn.
-	 */
-	Card[] deal(int numCards) throws EmptyDeckException;
-
-	/**
-	 * Deal a number of cards from the deck that match the pattern.
-	 * 
-	 * @param pattern
-	 *            the pattern the cards must correspond to
-	 * @param numCards
-	 *            number of cards, 1 or greater
-	 * @return
-	 * @throws EmptyDeckException
-	 *             if the deck becomes empty before all the cards can be drawn.
-	 */
-	Card[] deal(CardPattern pattern, int numCards) throws EmptyDeckException;
-
-	/**
-	 * Deal a number of cards from the deck that match the pattern.
-	 * 
-	 * @param numCards
-	 *            number of cards, 1 or greater
-	 * @param inCards
-	 *            an array to use / reuse to hold the result. If numCards is
-	 *            larger than the array the method will fail.
-	 * 
-	 * @return cards dealt using the input array. Only numCards will be filled,
-	 *         so remainder of array could contain junk
-	 * @throws EmptyDeckException
-	 *             if the deck becomes empty before all the cards can be drawn.
-	 */
-	Card[] deal(int numCards, Card[] inCards) throws EmptyDeckException;
-
-	/**
-	 * Deal a card which matches the specified pattern
-	 * 
-	 * @param pattern
-	 * @return a card matching the pattern or null if no match was possible
-	 */
-	Card dealOne(CardPattern pattern) throws EmptyDeckException;
-
-	/**
-	 * Deal cards which match the specified patterns. Note the resulting array
-	 * could contain nulls if no match is possible for the corresponding input.
-	 * 
-	 * When dealing cards, more exact card patterns may be given first chance to
-	 * match over inexact patterns. So if the array held { Q?, Qc } then Queen
-	 * of Clubs would be removed to satisfy Qc before attempting to draw
-	 * something matching Q?.
-	 * 
-	 * @param patterns
-	 *            patterns to use to deal cards
-	 * @return drawn cards or null for cards which could not be drawn.
-	 */
-	Card[] deal(CardPattern patterns[]) throws EmptyDeckException,
-			InvalidCardException;
-
-	/**
-	 * Deal one card from the deck.
-	 * 
-	 * @return drawn card
-	 * @throws EmptyDeckException
-	 */
-	Card dealOne() throws EmptyDeckException;
-
-	/**
-	 * Tap a card randomly from anywhere in the undrawn cards and deal it.
-	 * 
-	 * @return randomly drawn card
-	 * @throws EmptyDeckException
-	 */
-	Card dealRandom() throws EmptyDeckException;
-
-	/**
-	 * Remove a card from the undrawn pile in the deck. Card is placed at end of
-	 * drawn pile. If the card is undrawn it will not be moved.
-	 * 
-	 * @param card
-	 * @return true if card was returned, false if it didn't need to be
-	 */
-	boolean removeCard(Card card);
-
-	/**
-	 * Remove an array of cards from the undrawn pile in the deck and put them
-	 * at the end of the drawn pile.
-	 * 
-	 * @param cards
-	 * @return the number of cards actually removed
-	 */
-	int removeCard(Card[] cards);
-
-	/**
-	 * Replaces a card from the drawn pile back onto the end of the undrawn
-	 * pile..
-	 * 
-	 * @param card
-	 *            card to be added
-	 * @return true if the card was returned to the undrawn pile, false if it
-	 *         wasn't
-	 */
-	boolean replaceCard(Card card);
-
-	/**
-	 * Replaces cards from the drawn pile back to the undrawn pile. The go at
-	 * the end of the drawn pile. Cards which are not in the drawn pile will not
-	 * be moved.
-	 * 
-	 * @param cards
-	 * @return the number of cards returned to the undrawn pile.
-	 */
-	int replaceCard(Card[] cards);
-
+package com.adamlock.cards;
+
+/**
+ * Represents a deck of cards consisting of a unique or non unique set of Card.
+ * It is possible that multi deck cards may also be derived from this type, in
+ * which case particular behaviour about replacing cards, or removing cards
+ * matching certain conditions may change to reflect the fact there are multiple
+ * instances of the same card in the deck. {@link Shoe} is such a deck.
+ * 
+ * @author alock
+ * @see Card
+ * @see CardPattern
+ */
+public interface Deck {
+
+	/**
+	 * Resets the deck, ie puts all the drawn cards back in the deck. Note the
+	 * deck may still be shuffled
+	 */
+	void reset();
+
+	/**
+	 * Randomly shuffles the undrawn cards.
+	 */
+	void shuffle();
+
+	/**
+	 * Test if all cards in the deck have been drawn.
+	 * 
+	 * @return true if empty, false otherwise.
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Return the number of undrawn cards remaining in the deck.
+	 * 
+	 * @return cards remaining
+	 */
+	int size();
+
+	/**
+	 * Return the total number drawn and undrawn cards in the deck.
+	 */
+	int totalSize();
+
+	/**
+	 * Test if a card is in the undrawn pile, i.e. it could still be dealt.
+	 * 
+	 * @param card
+	 * @return true if the card is undrawn
+	 */
+	boolean isUndrawn(Card card);
+
+	/**
+	 * Get the cards which are undrawn as a mask, see {@link CardMask}. Where
+	 * the deck holds duplicates a card is in the mask if any copy of it is
+	 * undrawn.
+	 * 
+	 * @return mask of undrawn cards
+	 */
+	long getUndrawnMask();
+
+	/**
+	 * Count the undrawn cards which match the pattern.
+	 * 
+	 * @param pattern
+	 * @return number of matching cards
+	 */
+	int countMatching(CardPattern pattern);
+
+	/**
+	 * Deal a card which matches the pattern and return its index, see
+	 * {@link Card#fromIndex(int)}. The card dealt is the same one that
+	 * {@link #dealOne(CardPattern)} would deal.
+	 * 
+	 * @param pattern
+	 * @return index of the drawn card or -1 if no undrawn card matches
+	 */
+	int dealMatching(CardPattern pattern);
+
+	/**
+	 * Deal a card chosen at random from the undrawn cards which match the
+	 * pattern and return its index, see {@link Card#fromIndex(int)}. Every
+	 * matching card is equally likely, however the deck is ordered, and the
+	 * order of the other undrawn cards is left alone. This is cheaper than
+	 * shuffling before each deal to avoid always dealing the top-most match.
+	 * 
+	 * @param pattern
+	 * @return index of the drawn card or -1 if no undrawn card matches
+	 */
+	int dealRandomMatching(CardPattern pattern);
+
+	/**
+	 * Deal a number of cards from the top of the deck.
+	 * 
+	 * @param numCards
+	 *            number of cards to deal
+	 * @return array of drawn cards
+	 * @throws EmptyDeckException
+	 *             if the deck becomes empty before all the cards can be drawn.
+	 */
+	Card[] deal(int numCards) throws EmptyDeckException;
+
+	/**
+	 * Deal a number of cards from the deck that match the pattern.
+	 * 
+	 * @param pattern
+	 *            the pattern the cards must correspond to
+	 * @param numCards
+	 *            number of cards, 1 or greater
+	 * @return
+	 * @throws EmptyDeckException
+	 *             if the deck becomes empty before all the cards can be drawn.
+	 */
+	Card[] deal(CardPattern pattern, int numCards) throws EmptyDeckException;
+
+	/**
+	 * Deal a number of cards from the deck that match the pattern.
+	 * 
+	 * @param numCards
+	 *            number of cards, 1 or greater
+	 * @param inCards
+	 *            an array to use / reuse to hold the result. If numCards is
+	 *            larger than the array the method will fail.
+	 * 
+	 * @return cards dealt using the input array. Only numCards will be filled,
+	 *         so remainder of array could contain junk
+	 * @throws EmptyDeckException
+	 *             if the deck becomes empty before all the cards can be drawn.
+	 */
+	Card[] deal(int numCards, Card[] inCards) throws EmptyDeckException;
+
+	/**
+	 * Deal a card which matches the specified pattern
+	 * 
+	 * @param pattern
+	 * @return a card matching the pattern or null if no match was possible
+	 */
+	Card dealOne(CardPattern pattern) throws EmptyDeckException;
+
+	/**
+	 * Deal cards which match the specified patterns. Note the resulting array
+	 * will contain nulls for null patterns.
+	 * 
+	 * When dealing cards, more exact card patterns may be given first chance to
+	 * match over inexact patterns. So if the array held { Q?, Qc } then Queen
+	 * of Clubs would be removed to satisfy Qc before attempting to draw
+	 * something matching Q?. Each pattern gets the card the deck would deal
+	 * for it unless that would leave another pattern without a card, so a
+	 * different card is found for every pattern whenever that is possible.
+	 * 
+	 * @param patterns
+	 *            patterns to use to deal cards
+	 * @return drawn cards or null for null patterns.
+	 * @throws InvalidCardException
+	 *             if the patterns can't all be given different cards, in which
+	 *             case no cards are dealt
+	 */
+	Card[] deal(CardPattern patterns[]) throws EmptyDeckException,
+			InvalidCardException;
+
+	/**
+	 * Deal cards which match the specified patterns, picked at random so that
+	 * every way of giving the patterns different cards is equally likely. This
+	 * suits sampling hands from ranges, e.g. { ?h, A? }.
+	 * 
+	 * @param patterns
+	 *            patterns to use to deal cards
+	 * @return drawn cards or null for null patterns.
+	 * @throws InvalidCardException
+	 *             if the patterns can't all be given different cards, in which
+	 *             case no cards are dealt
+	 */
+	Card[] dealRandom(CardPattern patterns[]) throws InvalidCardException;
+
+	/**
+	 * Deal one card from the deck.
+	 * 
+	 * @return drawn card
+	 * @throws EmptyDeckException
+	 */
+	Card dealOne() throws EmptyDeckException;
+
+	/**
+	 * Deal one card from the deck and return its index, see
+	 * {@link Card#fromIndex(int)}.
+	 * 
+	 * @return index of the drawn card
+	 * @throws EmptyDeckException
+	 */
+	int dealIndex() throws EmptyDeckException;
+
+	/**
+	 * Deal one card from the deck and return its index, or -1 if the deck is
+	 * empty. Unlike {@link #dealIndex()} this never throws, so it suits loops
+	 * which expect to run the deck dry.
+	 * 
+	 * @return index of the drawn card or -1 if the deck is empty
+	 */
+	int tryDealOne();
+
+	/**
+	 * Deal up to numCards from the top of the deck into an array of card
+	 * indices. Fewer cards are dealt if the deck runs out.
+	 * 
+	 * @param numCards
+	 *            number of cards to deal
+	 * @param indices
+	 *            array to hold the indices of the drawn cards
+	 * @param offset
+	 *            position in the array of the first card
+	 * @return the number of cards dealt
+	 */
+	int dealIndices(int numCards, int indices[], int offset);
+
+	/**
+	 * Tap a card randomly from anywhere in the undrawn cards and deal it.
+	 * 
+	 * @return randomly drawn card
+	 * @throws EmptyDeckException
+	 */
+	Card dealRandom() throws EmptyDeckException;
+
+	/**
+	 * Remove a card from the undrawn pile in the deck. Card is placed at end of
+	 * drawn pile. If the card is undrawn it will not be moved.
+	 * 
+	 * @param card
+	 * @return true if card was returned, false if it didn't need to be
+	 */
+	boolean removeCard(Card card);
+
+	/**
+	 * Remove an array of cards from the undrawn pile in the deck and put them
+	 * at the end of the drawn pile.
+	 * 
+	 * @param cards
+	 * @return the number of cards actually removed
+	 */
+	int removeCard(Card[] cards);
+
+	/**
+	 * Remove length cards from the array starting at offset from the undrawn
+	 * pile in the deck and put them at the end of the drawn pile.
+	 * 
+	 * @param cards
+	 * @param offset
+	 *            index of the first card in the array
+	 * @param length
+	 *            number of cards in the array to remove
+	 * @return the number of cards actually removed
+	 */
+	int removeCard(Card[] cards, int offset, int length);
+
+	/**
+	 * Replaces a card from the drawn pile back onto the end of the undrawn
+	 * pile..
+	 * 
+	 * @param card
+	 *            card to be added
+	 * @return true if the card was returned to the undrawn pile, false if it
+	 *         wasn't
+	 */
+	boolean replaceCard(Card card);
+
+	/**
+	 * Replaces cards from the drawn pile back to the undrawn pile. The go at
+	 * the end of the drawn pile. Cards which are not in the drawn pile will not
+	 * be moved.
+	 * 
+	 * @param cards
+	 * @return the number of cards returned to the undrawn pile.
+	 */
+	int replaceCard(Card[] cards);
+
+	/**
+	 * Replaces length cards from the array starting at offset from the drawn
+	 * pile back to the undrawn pile. Cards which are not in the drawn pile
+	 * will not be moved.
+	 * 
+	 * @param cards
+	 * @param offset
+	 *            index of the first card in the array
+	 * @param length
+	 *            number of cards in the array to replace
+	 * @return the number of cards returned to the undrawn pile.
+	 */
+	int replaceCard(Card[] cards, int offset, int length);
+
+	/**
+	 * Mark the current state of the deck so it can be restored later by
+	 * {@link #rewind(int)}. This is a cheap alternative to cloning the deck,
+	 * e.g. to run many trials from the same starting point. Marks nest, so a
+	 * deck can be marked preflop, dealt a flop and marked again, and rewound
+	 * to either. Rewinding only costs as much as the cards dealt since the
+	 * mark, unless cards have been removed, replaced or shuffled since.
+	 * 
+	 * @return the mark
+	 */
+	int mark();
+
+	/**
+	 * Restore the deck to how it was when the mark was made. The mark is kept
+	 * so the deck can be rewound to it again, but any marks made after it are
+	 * released.
+	 * 
+	 * @param mark
+	 *            a mark returned by {@link #mark()}
+	 */
+	void rewind(int mark);
+
+	/**
+	 * Release the mark and any marks made after it, leaving the deck as it is.
+	 * 
+	 * @param mark
+	 *            a mark returned by {@link #mark()}
+	 */
+	void release(int mark);
+
 }
\ No newline at end of file
@@ -1,516 +1,1064 @@
-/**
- * Copyright 2011. Adam Lock <locka99@gmail.com>
- *
- * Available as open source under the terms of LGPLv3
- */
-package com.adamlock.cards;
-
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
-
-/**
- * Represents a standard deck of 52 unique cards. Cards are undrawn or drawn,
- * and can be replaced / removed between drawn and undrawn piles.
- * 
- * @author Adam Lock
- */
-public class DeckImpl implements Cloneable, Deck {
-
-	/** The deck is 52 indices onto the 52 possible card combinations. */
-	private static final Card allCards[] = Card.values();
-
-	/** Reverse lookup turns a card into an index */
-	private static final HashMap<Card, Integer> reverseCardLookup;
-
-	static {
-		// Make the reverse card lookup
-		reverseCardLookup = new HashMap<Card, Integer>();
-		final Card[] allCards = Card.values();
-		for (int i = 0; i < allCards.length; i++) {
-			reverseCardLookup.put(allCards[i], i);
-		}
-	}
-
-	/**
-	 * Represents the entire deck of 52 cards
-	 */
-	private int deck[] = new int[allCards.length];
-	private int startOfDrawn = deck.length;
-
-	private static final Comparator<ShuffleInfo> shuffleComparator = new Comparator<ShuffleInfo>() {
-		@Override
-		public int compare(ShuffleInfo o1, ShuffleInfo o2) {
-			// Walk the array of bytes until one is deemed to be
-			// larger than the other
-			final int length = o1.getOrder().length;
-			final byte[] b1 = o1.getOrder();
-			final byte[] b2 = o2.getOrder();
-			for (int i = 0; i < length; i++) {
-				if (b1[i] < b2[i])
-					return -1;
-				else if (b1[i] > b2[i])
-					return 1;
-			}
-			return 0;
-		}
-	};
-
-	/**
-	 * Constructor
-	 */
-	public DeckImpl() {
-		try {
-			createDeck();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-	}
-
-	/**
-	 * Constructor which optionally shuffles the deck
-	 * 
-	 * @param shuffle
-	 */
-	public DeckImpl(boolean shuffle) {
-		this();
-		if (shuffle) {
-			shuffle();
-		}
-	}
-
-	/**
-	 * Create a fresh sorted deck of 52 cards.
-	 */
-	private void createDeck() {
-		for (int i = 0; i < deck.length; i++) {
-			deck[i] = i;
-		}
-		startOfDrawn = deck.length;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#reset()
-	 */
-	public void reset() {
-		// Put drawn marker to end
-		startOfDrawn = deck.length;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#shuffle()
-	 */
-	public void shuffle() {
-
-		final int undrawnSize = startOfDrawn;
-
-		final ArrayList<ShuffleInfo> shuffleList = new ArrayList<ShuffleInfo>(
-				undrawnSize);
-
-		// For every card in the deck, create a shuffle info consisting of a
-		// random number and the card.
-		for (int i = 0; i < undrawnSize; i++) {
-			shuffleList.add(new ShuffleInfo(deck[i]));
-		}
-
-		// Sort by the random number
-		Collections.sort(shuffleList, shuffleComparator);
-
-		// Now create the deck again in the new order
-		for (int i = 0; i < undrawnSize; i++) {
-			deck[i] = shuffleList.get(i).getCardIndex();
-		}
-	}
-
-	/**
-	 * Get the indices for each of the requested cards
-	 * 
-	 * @param cards
-	 * @return
-	 */
-	private int[] getCardIndices(Card[] cards) {
-		int cardIndices[] = new int[cards.length];
-		for (int i = 0; i < cards.length; i++) {
-			cardIndices[i] = reverseCardLookup.get(cards[i]);
-		}
-		return cardIndices;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#isEmpty()
-	 */
-	public boolean isEmpty() {
-		return startOfDrawn == 0;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#size()
-	 */
-	public int size() {
-		return startOfDrawn;
-	}
-
-	@Override
-	public int totalSize() {
-		return allCards.length;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#deal(int)
-	 */
-	public Card[] deal(int numCards) throws EmptyDeckException {
-		return deal(numCards, new Card[numCards]);
-	}
-
-	public Card[] deal(int numCards, Card[] inCards) throws EmptyDeckException {
-		if (inCards == null) {
-			throw new IllegalArgumentException();
-		}
-		if (inCards.length < numCards) {
-			throw new IllegalArgumentException();
-		}
-		if (numCards < 1) {
-			throw new IllegalArgumentException();
-		}
-		if (startOfDrawn < numCards) {
-			throw new EmptyDeckException();
-		}
-		for (int i = 0; i < numCards; ++i) {
-			inCards[i] = allCards[deck[startOfDrawn - i - 1]];
-		}
-		startOfDrawn -= numCards;
-		return inCards;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#deal(com.adamlock.cards.CardPattern, int)
-	 */
-	public Card[] deal(CardPattern pattern, int numCards)
-			throws EmptyDeckException {
-		if (pattern.isRandom()) {
-			return deal(numCards);
-		}
-		final Card[] cards = new Card[numCards];
-		for (int i = 0; i < numCards; i++) {
-			cards[i] = dealOne(pattern);
-		}
-		return cards;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#dealOne(com.adamlock.cards.CardPattern)
-	 */
-	public Card dealOne(CardPattern pattern) throws EmptyDeckException {
-		if (pattern.isRandom()) {
-			return dealOne();
-		}
-		for (int i = startOfDrawn - 1; i >= 0; i--) {
-			final Card card = allCards[deck[i]];
-			if (pattern.matches(card)) {
-				removeCard(card);
-				return card;
-			}
-		}
-		return null;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#deal(com.adamlock.cards.CardPattern[])
-	 */
-	public Card[] deal(CardPattern patterns[]) throws EmptyDeckException,
-			InvalidCardException {
-		final Card[] result = new Card[patterns.length];
-
-		// Two passes, draw exact cards before looking at patterns
-		for (int pass = 0; pass < 2; pass++) {
-			int patternIdx = 0;
-			for (CardPattern pattern : patterns) {
-				if (pattern == null) {
-					result[patternIdx] = null;
-				} else if ((pass == 0 && pattern.isExact())
-						|| (pass == 1 && !pattern.isExact())) {
-					Card foundCard = null;
-					for (int i = startOfDrawn - 1; i >= 0; i--) {
-						final Card card = allCards[deck[i]];
-						if (pattern.matches(card)) {
-							foundCard = card;
-							break;
-						}
-					}
-					if (foundCard != null) {
-						removeCard(foundCard);
-						result[patternIdx] = foundCard;
-					} else {
-						throw new InvalidCardException(pattern,
-								"Pattern does not match any card in the deck");
-					}
-				}
-				patternIdx++;
-			}
-		}
-		return result;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#dealOne()
-	 */
-	public Card dealOne() throws EmptyDeckException {
-		// Remove the first card from the deck
-		if (startOfDrawn == 0) {
-			throw new EmptyDeckException();
-		}
-		final Card c = allCards[deck[startOfDrawn - 1]];
-		startOfDrawn--;
-		return c;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#dealRandom()
-	 */
-	public Card dealRandom() throws EmptyDeckException {
-		if (startOfDrawn == 0) {
-			throw new EmptyDeckException();
-		}
-		final int randomIdx = ShuffleInfo.RANDOM.nextInt(startOfDrawn);
-		final Card card = allCards[deck[randomIdx]];
-		removeCardAt(randomIdx);
-		return card;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#removeCard(com.adamlock.cards.Card)
-	 */
-	public boolean removeCard(Card card) {
-		if (card == null) {
-			throw new IllegalArgumentException("Must supply a card");
-		}
-
-		final int cardIndex = reverseCardLookup.get(card);
-
-		// Look for the card in the undrawn pile
-		int foundIndex = -1;
-		for (int i = 0; i < startOfDrawn; i++) {
-			if (deck[i] == cardIndex) {
-				foundIndex = i;
-				break;
-			}
-		}
-		if (foundIndex == -1) {
-			return false;
-		}
-
-		// Move everything left over by 1 and put card on end
-		removeCardAt(foundIndex);
-		return true;
-	}
-
-	/**
-	 * Remove a card at the specified position from the undrawn to the drawn
-	 * pile
-	 * 
-	 * @param position
-	 *            position to remove card from.
-	 */
-	private void removeCardAt(int position) {
-		final int cardIndex = deck[position];
-		startOfDrawn--;
-		for (int i = position; i < deck.length - 1; i++) {
-			deck[i] = deck[i + 1];
-		}
-		deck[deck.length - 1] = cardIndex;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#removeCard(com.adamlock.cards.Card[])
-	 */
-	public int removeCard(Card[] cards) {
-		if (cards == null) {
-			throw new IllegalArgumentException("Must supply cards");
-		}
-
-		// Produce indices for input cards
-		int cardIndices[] = getCardIndices(cards);
-
-		// Build a new deck
-		int newDeck[] = new int[deck.length];
-		int newDeckIdx = 0;
-		int cardsRemoved[] = new int[cards.length];
-		int cardsRemovedCount = 0;
-		outer: for (int i = 0; i < startOfDrawn; i++) {
-			for (int card = 0; card < cardIndices.length; card++) {
-				if (deck[i] == cardIndices[card]) {
-					// Card was found
-					cardsRemoved[cardsRemovedCount++] = cardIndices[card];
-					continue outer;
-				}
-			}
-			newDeck[newDeckIdx++] = deck[i];
-		}
-		if (cardsRemovedCount == 0) {
-			return 0;
-		}
-
-		final int newStartOfDrawn = newDeckIdx;
-		for (int i = 0; i < cardsRemovedCount; i++) {
-			newDeck[newStartOfDrawn + i] = cardsRemoved[i];
-		}
-		for (int i = 0; i < newDeck.length - startOfDrawn; i++) {
-			newDeck[newStartOfDrawn + cardsRemovedCount + i] = deck[startOfDrawn
-					+ i];
-		}
-		deck = newDeck;
-		startOfDrawn = newStartOfDrawn;
-
-		return cardsRemovedCount;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#replaceCard(com.adamlock.cards.Card)
-	 */
-	public boolean replaceCard(Card card) {
-		if (card == null) {
-			throw new IllegalArgumentException("Must supply a card");
-		}
-		if (startOfDrawn == deck.length) {
-			return false;
-		}
-
-		// Look for a card in the drawn pile
-		final int cardIndex = reverseCardLookup.get(card);
-		int foundIndex = -1;
-		for (int i = startOfDrawn; i < deck.length; i++) {
-			if (deck[i] == cardIndex) {
-				foundIndex = i;
-				break;
-			}
-		}
-		if (foundIndex == -1) {
-			return false;
-		}
-
-		// We found it so move everything to the right by one so it can be put
-		// at 0
-		startOfDrawn++;
-		for (int i = foundIndex; i > 0; i--) {
-			deck[i] = deck[i - 1];
-		}
-		deck[0] = cardIndex;
-
-		return true;
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.adamlock.cards.IDeck#replaceCard(com.adamlock.cards.Card[])
-	 */
-	public int replaceCard(Card[] cards) {
-		if (cards == null) {
-			throw new IllegalArgumentException("Must supply cards");
-		}
-		if (startOfDrawn == deck.length) {
-			return 0;
-		}
-
-		final int cardIndices[] = getCardIndices(cards);
-
-		// Build a new deck
-		final int newDeck[] = new int[deck.length];
-		int newDeckIdx = deck.length - 1;
-		final int cardsReplaced[] = new int[cards.length];
-		int cardsReplacedCount = 0;
-
-		outer: for (int i = deck.length - 1; i >= startOfDrawn; i--) {
-			for (int card = 0; card < cardIndices.length; card++) {
-				if (deck[i] == cardIndices[card]) {
-					// Card was found
-					cardsReplaced[cardsReplacedCount++] = cardIndices[card];
-					continue outer;
-				}
-			}
-			newDeck[newDeckIdx--] = deck[i];
-		}
-		if (cardsReplacedCount == 0) {
-			return 0;
-		}
-
-		final int newStartOfDrawn = startOfDrawn + cardsReplacedCount;
-		for (int i = 0; i < cardsReplacedCount; i++) {
-			newDeck[i] = cardsReplaced[i];
-		}
-		for (int i = cardsReplacedCount; i < newStartOfDrawn; i++) {
-			newDeck[i] = deck[i - cardsReplacedCount];
-		}
-		deck = newDeck;
-		startOfDrawn = newStartOfDrawn;
-		return cardsReplacedCount;
-	}
-
-	/**
-	 * Validate all the cards
-	 */
-	void internalValidate() {
-		final Set<Card> found = new HashSet<Card>();
-		for (int i = 0; i < deck.length; i++) {
-			Card c = allCards[deck[i]];
-			if (!found.add(allCards[deck[i]])) {
-				System.out.println("Duplicate of card " + c + " in the deck!");
-				throw new RuntimeException("Duplicate card");
-			}
-		}
-	}
-
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see java.lang.Object#toString()
-	 */
-	@Override
-	public String toString() {
-		final StringBuffer sb = new StringBuffer();
-		for (int i = 0; i < startOfDrawn; i++) {
-			sb.append(allCards[deck[i]].toString());
-			sb.append("\n");
-		}
-		return sb.toString();
-	}
-
-	public Object clone() {
-		final DeckImpl newDeck = new DeckImpl();
-		newDeck.deck = new int[deck.length];
-		for (int i = 0; i < deck.length; i++) {
-			newDeck.deck[i] = deck[i];
-		}
-		newDeck.startOfDrawn = startOfDrawn;
-		return newDeck;
-	}
-}
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Represents a standard deck of 52 unique cards. Cards are undrawn or drawn,
+ * and can be replaced / removed between drawn and undrawn piles.
+ * 
+ * @author Adam Lock
+ */
+public class DeckImpl implements Cloneable, Deck {
+
+	/** The deck is 52 indices onto the 52 possible card combinations. */
+	private static final Card allCards[] = Card.values();
+
+	/**
+	 * Represents the entire deck of 52 cards
+	 */
+	private final int deck[] = new int[allCards.length];
+	private int startOfDrawn = deck.length;
+
+	/**
+	 * The inverse of the deck, i.e. where each card is in the deck. Card
+	 * indices are the card ordinals so position[card.ordinal()] is the card's
+	 * slot and the card is undrawn if that is below startOfDrawn.
+	 */
+	private final int position[] = new int[allCards.length];
+
+	/** The undrawn cards as a mask, see {@link CardMask} */
+	private long undrawn = CardMask.FULL;
+
+	/** Finds cards for pattern arrays, created when first needed */
+	private PatternMatcher matcher;
+
+	/** Chooses the top-most card for the matcher */
+	private PatternMatcher.Chooser topMost;
+
+	/** Working space for moving cards about without allocating */
+	private final int scratch[] = new int[allCards.length];
+
+	/** Shuffler used when none is specified */
+	private static final Shuffler DEFAULT_SHUFFLER = FisherYatesShuffler.INSTANCE;
+
+	/** Shuffles the undrawn cards */
+	private Shuffler shuffler = DEFAULT_SHUFFLER;
+
+	/**
+	 * Source of randomness for shuffling and dealing. The default is shared by
+	 * every deck so decks used on many threads should be given their own.
+	 */
+	private Random random = ShuffleInfo.RANDOM;
+
+	/** Flag for lazy shuffling, see {@link #setLazyShuffle(boolean)} */
+	private boolean lazyShuffle = false;
+
+	/**
+	 * The undrawn cards from startOfLazy up to but not including endOfLazy
+	 * are shuffled but have not been put in order yet. A card is picked at
+	 * random from this range whenever one is needed from it.
+	 */
+	private int startOfLazy = 0;
+	private int endOfLazy = 0;
+
+	/**
+	 * The state of the deck when a mark was made. Only the undrawn boundary
+	 * is needed to undo deals. If cards are moved around after the mark, a
+	 * copy of the deck as it was at the mark is kept as well.
+	 */
+	private static class Mark {
+		int startOfDrawn;
+		long undrawn;
+		int startOfLazy;
+		int endOfLazy;
+		int journalLength;
+		boolean hasSnapshot;
+		int snapshot[];
+	}
+
+	/** Marks made with {@link #mark()}, reused as marks come and go */
+	private Mark marks[] = new Mark[0];
+	private int markCount = 0;
+
+	/**
+	 * Pairs of slots swapped by lazy deals since the latest mark was made, so
+	 * they can be swapped back on rewind
+	 */
+	private int journal[] = new int[0];
+	private int journalLength = 0;
+
+	/**
+	 * Constructor
+	 */
+	public DeckImpl() {
+		try {
+			createDeck();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Constructor which optionally shuffles the deck
+	 * 
+	 * @param shuffle
+	 */
+	public DeckImpl(boolean shuffle) {
+		this();
+		if (shuffle) {
+			shuffle();
+		}
+	}
+
+	/**
+	 * Constructor which uses the specified shuffler
+	 * 
+	 * @param shuffler
+	 */
+	public DeckImpl(Shuffler shuffler) {
+		this();
+		setShuffler(shuffler);
+	}
+
+	/**
+	 * Constructor which uses the specified source of randomness for shuffling
+	 * and dealing. The deck assumes it is the only user of the source unless
+	 * the source is thread safe.
+	 * 
+	 * @param random
+	 */
+	public DeckImpl(Random random) {
+		this();
+		setRandom(random);
+	}
+
+	/**
+	 * Constructor which uses the specified source of randomness and shuffler
+	 * 
+	 * @param random
+	 * @param shuffler
+	 */
+	public DeckImpl(Random random, Shuffler shuffler) {
+		this();
+		setRandom(random);
+		setShuffler(shuffler);
+	}
+
+	/**
+	 * Set the source of randomness used to shuffle and deal random cards.
+	 * 
+	 * @param random
+	 */
+	public void setRandom(Random random) {
+		if (random == null) {
+			throw new IllegalArgumentException("Must supply a random");
+		}
+		this.random = random;
+	}
+
+	/**
+	 * Get the source of randomness used to shuffle and deal random cards.
+	 * 
+	 * @return the source of randomness
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Set the shuffler used to randomize the undrawn cards. The default is a
+	 * {@link FisherYatesShuffler}, the {@link SortShuffler} gives the
+	 * original behaviour.
+	 * 
+	 * @param shuffler
+	 */
+	public void setShuffler(Shuffler shuffler) {
+		if (shuffler == null) {
+			throw new IllegalArgumentException("Must supply a shuffler");
+		}
+		this.shuffler = shuffler;
+	}
+
+	/**
+	 * Get the shuffler used to randomize the undrawn cards.
+	 * 
+	 * @return the shuffler
+	 */
+	public Shuffler getShuffler() {
+		return shuffler;
+	}
+
+	/**
+	 * Set lazy shuffling on or off. When lazy, {@link #shuffle()} takes
+	 * constant time and only remembers that the undrawn cards are shuffled.
+	 * Each card dealt afterwards is picked at random from the cards that
+	 * haven't been dealt, so dealing a few cards from a shuffled deck costs a
+	 * few random numbers rather than a full shuffle. Cards are dealt with the
+	 * same odds as from a fully shuffled deck. The shuffler is not used in
+	 * lazy mode.
+	 * 
+	 * @param lazyShuffle
+	 */
+	public void setLazyShuffle(boolean lazyShuffle) {
+		if (!lazyShuffle) {
+			completeShuffle();
+		}
+		this.lazyShuffle = lazyShuffle;
+	}
+
+	/**
+	 * Test if the deck shuffles lazily
+	 * 
+	 * @return true if lazy
+	 */
+	public boolean isLazyShuffle() {
+		return lazyShuffle;
+	}
+
+	/**
+	 * Put any cards which are shuffled but not in order yet into order.
+	 */
+	private void completeShuffle() {
+		if (endOfLazy - startOfLazy > 1) {
+			saveForRewind();
+		}
+		for (int i = endOfLazy - 1; i > startOfLazy; i--) {
+			swapCards(i, startOfLazy + random.nextInt(i + 1 - startOfLazy));
+		}
+		startOfLazy = 0;
+		endOfLazy = 0;
+	}
+
+	/**
+	 * Make sure the top undrawn card is ready to deal. If it is in the lazily
+	 * shuffled range a card is picked at random from the range and swapped
+	 * to the top.
+	 */
+	private void prepareTopCard() {
+		final int top = startOfDrawn - 1;
+		if (top < endOfLazy && top >= startOfLazy) {
+			if (top > startOfLazy) {
+				final int slot = startOfLazy
+						+ random.nextInt(top + 1 - startOfLazy);
+				swapCards(top, slot);
+				if (markCount > 0 && !marks[markCount - 1].hasSnapshot) {
+					recordSwap(top, slot);
+				}
+			}
+			endOfLazy = top;
+		}
+	}
+
+	private void swapCards(int i, int j) {
+		final int cardIndex = deck[i];
+		deck[i] = deck[j];
+		deck[j] = cardIndex;
+		position[deck[i]] = i;
+		position[cardIndex] = j;
+	}
+
+	/**
+	 * Update the positions of the cards in part of the deck after they have
+	 * been moved
+	 * 
+	 * @param from
+	 *            first slot, inclusive
+	 * @param to
+	 *            last slot, exclusive
+	 */
+	private void updatePositions(int from, int to) {
+		for (int i = from; i < to; i++) {
+			position[deck[i]] = i;
+		}
+	}
+
+	/**
+	 * Add a swap to the journal
+	 * 
+	 * @param i
+	 * @param j
+	 */
+	private void recordSwap(int i, int j) {
+		if (journalLength + 2 > journal.length) {
+			final int newJournal[] = new int[Math.max(64, journal.length * 2)];
+			System.arraycopy(journal, 0, newJournal, 0, journalLength);
+			journal = newJournal;
+		}
+		journal[journalLength++] = i;
+		journal[journalLength++] = j;
+	}
+
+	/**
+	 * Undo the journaled swaps back to the specified journal length on an
+	 * array of card indices.
+	 * 
+	 * @param cards
+	 *            the deck or a copy of it
+	 * @param toLength
+	 *            journal length to undo back to
+	 */
+	private void undoSwaps(int cards[], int toLength) {
+		for (int i = journalLength; i > toLength; i -= 2) {
+			final int slot1 = journal[i - 2];
+			final int slot2 = journal[i - 1];
+			final int cardIndex = cards[slot1];
+			cards[slot1] = cards[slot2];
+			cards[slot2] = cardIndex;
+		}
+	}
+
+	/**
+	 * Called before cards are moved around in ways the journal can't undo.
+	 * The first time this happens after a mark, the deck as it was at the
+	 * mark is copied so rewind can restore it.
+	 */
+	private void saveForRewind() {
+		if (markCount == 0) {
+			return;
+		}
+		final Mark mark = marks[markCount - 1];
+		if (mark.hasSnapshot) {
+			return;
+		}
+		if (mark.snapshot == null) {
+			mark.snapshot = new int[deck.length];
+		}
+		System.arraycopy(deck, 0, mark.snapshot, 0, deck.length);
+		undoSwaps(mark.snapshot, mark.journalLength);
+		journalLength = mark.journalLength;
+		mark.hasSnapshot = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#mark()
+	 */
+	public int mark() {
+		if (markCount == marks.length) {
+			final Mark newMarks[] = new Mark[marks.length + 4];
+			System.arraycopy(marks, 0, newMarks, 0, marks.length);
+			for (int i = marks.length; i < newMarks.length; i++) {
+				newMarks[i] = new Mark();
+			}
+			marks = newMarks;
+		}
+		final Mark mark = marks[markCount];
+		mark.startOfDrawn = startOfDrawn;
+		mark.undrawn = undrawn;
+		mark.startOfLazy = startOfLazy;
+		mark.endOfLazy = endOfLazy;
+		mark.journalLength = journalLength;
+		mark.hasSnapshot = false;
+		return markCount++;
+	}
+
+	private void checkMark(int mark) {
+		if (mark < 0 || mark >= markCount) {
+			throw new IllegalArgumentException("Invalid mark " + mark);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#rewind(int)
+	 */
+	public void rewind(int mark) {
+		checkMark(mark);
+		for (int i = markCount - 1; i >= mark; i--) {
+			final Mark m = marks[i];
+			if (m.hasSnapshot) {
+				System.arraycopy(m.snapshot, 0, deck, 0, deck.length);
+				updatePositions(0, deck.length);
+				m.hasSnapshot = false;
+			} else {
+				for (int j = journalLength; j > m.journalLength; j -= 2) {
+					swapCards(journal[j - 2], journal[j - 1]);
+				}
+			}
+			journalLength = m.journalLength;
+			startOfDrawn = m.startOfDrawn;
+			undrawn = m.undrawn;
+			startOfLazy = m.startOfLazy;
+			endOfLazy = m.endOfLazy;
+		}
+		markCount = mark + 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#release(int)
+	 */
+	public void release(int mark) {
+		checkMark(mark);
+		while (markCount > mark) {
+			final Mark released = marks[--markCount];
+			if (markCount == 0) {
+				journalLength = 0;
+			} else if (released.hasSnapshot) {
+				final Mark below = marks[markCount - 1];
+				if (!below.hasSnapshot) {
+					// Cards were moved after the released mark without being
+					// journaled, so the mark below takes over its snapshot,
+					// wound back to the state it was made in.
+					journalLength = released.journalLength;
+					undoSwaps(released.snapshot, below.journalLength);
+					journalLength = below.journalLength;
+					final int snapshot[] = below.snapshot;
+					below.snapshot = released.snapshot;
+					below.hasSnapshot = true;
+					released.snapshot = snapshot;
+				}
+				released.hasSnapshot = false;
+			}
+		}
+	}
+
+	/**
+	 * Create a fresh sorted deck of 52 cards.
+	 */
+	private void createDeck() {
+		for (int i = 0; i < deck.length; i++) {
+			deck[i] = i;
+			position[i] = i;
+		}
+		startOfDrawn = deck.length;
+		undrawn = CardMask.FULL;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#reset()
+	 */
+	public void reset() {
+		// Put drawn marker to end. Any lazily shuffled range stays where it
+		// is with the drawn cards going back on top of it.
+		startOfDrawn = deck.length;
+		undrawn = CardMask.FULL;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#shuffle()
+	 */
+	public void shuffle() {
+		if (lazyShuffle) {
+			startOfLazy = 0;
+			endOfLazy = startOfDrawn;
+		} else {
+			saveForRewind();
+			shuffler.shuffle(deck, startOfDrawn, random);
+			updatePositions(0, startOfDrawn);
+			startOfLazy = 0;
+			endOfLazy = 0;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return startOfDrawn == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#size()
+	 */
+	public int size() {
+		return startOfDrawn;
+	}
+
+	@Override
+	public int totalSize() {
+		return allCards.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#deal(int)
+	 */
+	public Card[] deal(int numCards) throws EmptyDeckException {
+		return deal(numCards, new Card[numCards]);
+	}
+
+	public Card[] deal(int numCards, Card[] inCards) throws EmptyDeckException {
+		if (inCards == null) {
+			throw new IllegalArgumentException();
+		}
+		if (inCards.length < numCards) {
+			throw new IllegalArgumentException();
+		}
+		if (numCards < 1) {
+			throw new IllegalArgumentException();
+		}
+		if (startOfDrawn < numCards) {
+			throw new EmptyDeckException();
+		}
+		if (startOfDrawn - numCards < endOfLazy) {
+			// Some of the cards come from the lazily shuffled range
+			for (int i = 0; i < numCards; ++i) {
+				prepareTopCard();
+				inCards[i] = allCards[draw()];
+			}
+			return inCards;
+		}
+		for (int i = 0; i < numCards; ++i) {
+			inCards[i] = allCards[draw()];
+		}
+		return inCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#deal(com.adamlock.cards.CardPattern, int)
+	 */
+	public Card[] deal(CardPattern pattern, int numCards)
+			throws EmptyDeckException {
+		if (pattern.isRandom()) {
+			return deal(numCards);
+		}
+		final Card[] cards = new Card[numCards];
+		for (int i = 0; i < numCards; i++) {
+			cards[i] = dealOne(pattern);
+		}
+		return cards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#dealOne(com.adamlock.cards.CardPattern)
+	 */
+	public Card dealOne(CardPattern pattern) throws EmptyDeckException {
+		if (pattern.isRandom()) {
+			return dealOne();
+		}
+		final int cardIndex = dealMatching(pattern);
+		return cardIndex != -1 ? allCards[cardIndex] : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#dealMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int dealMatching(CardPattern pattern) {
+		if (pattern.isRandom()) {
+			return tryDealOne();
+		}
+		final int slot = findMatch(pattern.getMask() & undrawn);
+		if (slot == -1) {
+			return -1;
+		}
+		final int cardIndex = deck[slot];
+		removeCardAt(slot);
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * com.adamlock.cards.Deck#dealRandomMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int dealRandomMatching(CardPattern pattern) {
+		final long matches = pattern.getMask() & undrawn;
+		if (matches == 0) {
+			return -1;
+		}
+		final int cardIndex = CardMask.select(matches,
+				random.nextInt(Long.bitCount(matches)));
+		removeCardAt(position[cardIndex]);
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#countMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int countMatching(CardPattern pattern) {
+		return Long.bitCount(pattern.getMask() & undrawn);
+	}
+
+	/**
+	 * Find the top-most undrawn card which matches the pattern. If the only
+	 * matches are in the lazily shuffled range then one of them is chosen at
+	 * random, just as the top-most match of a shuffled deck would be. Only
+	 * the matching cards are visited, using their positions.
+	 * 
+	 * @param matches
+	 *            mask of the undrawn cards which match
+	 * @return position of the card or -1 if nothing matches
+	 */
+	private int findMatch(long matches) {
+		int found = -1;
+		int lazyMatches = 0;
+		for (long mask = matches; mask != 0; mask &= mask - 1) {
+			final int slot = position[Long.numberOfTrailingZeros(mask)];
+			if (slot >= startOfLazy && slot < endOfLazy) {
+				lazyMatches++;
+			} else if (slot > found) {
+				found = slot;
+			}
+		}
+		if (found >= endOfLazy || lazyMatches == 0) {
+			return found;
+		}
+		// Pick one of the matches in the lazily shuffled range
+		int pick = random.nextInt(lazyMatches);
+		for (long mask = matches;; mask &= mask - 1) {
+			final int slot = position[Long.numberOfTrailingZeros(mask)];
+			if (slot >= startOfLazy && slot < endOfLazy && pick-- == 0) {
+				return slot;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#deal(com.adamlock.cards.CardPattern[])
+	 */
+	public Card[] deal(CardPattern patterns[]) throws EmptyDeckException,
+			InvalidCardException {
+		return dealPatterns(patterns, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#dealRandom(com.adamlock.cards.CardPattern[])
+	 */
+	public Card[] dealRandom(CardPattern patterns[])
+			throws InvalidCardException {
+		return dealPatterns(patterns, true);
+	}
+
+	/**
+	 * Deal a different card for each pattern
+	 * 
+	 * @param patterns
+	 * @param randomly
+	 *            true to pick uniformly from all the ways the patterns could
+	 *            be dealt, false to prefer the top-most cards
+	 * @return drawn cards or null for null patterns
+	 * @throws InvalidCardException
+	 *             if the patterns can't all be given different cards, in
+	 *             which case nothing is dealt
+	 */
+	private Card[] dealPatterns(CardPattern patterns[], boolean randomly)
+			throws InvalidCardException {
+		if (matcher == null) {
+			matcher = new PatternMatcher();
+			topMost = new PatternMatcher.Chooser() {
+				public int choose(long candidates) {
+					return deck[findMatch(candidates)];
+				}
+			};
+		}
+		final int failed = randomly ? matcher.matchRandom(patterns, undrawn,
+				null, random) : matcher.match(patterns, undrawn, null, topMost);
+		if (failed != -1) {
+			throw new InvalidCardException(patterns[failed],
+					"Pattern does not match any card left in the deck");
+		}
+		final Card[] result = new Card[patterns.length];
+		long mask = 0;
+		for (int i = 0; i < patterns.length; i++) {
+			final int cardIndex = matcher.getAssigned(i);
+			if (cardIndex != -1) {
+				result[i] = allCards[cardIndex];
+				mask |= 1L << cardIndex;
+			}
+		}
+		removeMask(mask);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#dealOne()
+	 */
+	public Card dealOne() throws EmptyDeckException {
+		return allCards[dealIndex()];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#dealIndex()
+	 */
+	public int dealIndex() throws EmptyDeckException {
+		// Remove the first card from the deck
+		if (startOfDrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		prepareTopCard();
+		return draw();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#tryDealOne()
+	 */
+	public int tryDealOne() {
+		if (startOfDrawn == 0) {
+			return -1;
+		}
+		prepareTopCard();
+		return draw();
+	}
+
+	/**
+	 * Deal the top card, which must be ready to deal
+	 * 
+	 * @return the card index
+	 */
+	private int draw() {
+		final int cardIndex = deck[--startOfDrawn];
+		undrawn &= ~(1L << cardIndex);
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#dealIndices(int, int[], int)
+	 */
+	public int dealIndices(int numCards, int indices[], int offset) {
+		if (indices == null || numCards < 0 || offset < 0
+				|| offset + numCards > indices.length) {
+			throw new IllegalArgumentException();
+		}
+		if (numCards > startOfDrawn) {
+			numCards = startOfDrawn;
+		}
+		if (startOfDrawn - numCards < endOfLazy) {
+			for (int i = offset; i < offset + numCards; ++i) {
+				prepareTopCard();
+				indices[i] = draw();
+			}
+			return numCards;
+		}
+		for (int i = offset; i < offset + numCards; ++i) {
+			indices[i] = draw();
+		}
+		return numCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#dealRandom()
+	 */
+	public Card dealRandom() throws EmptyDeckException {
+		if (startOfDrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		final int randomIdx = random.nextInt(startOfDrawn);
+		final Card card = allCards[deck[randomIdx]];
+		removeCardAt(randomIdx);
+		return card;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#removeCard(com.adamlock.cards.Card)
+	 */
+	public boolean removeCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+
+		final int foundIndex = position[card.ordinal()];
+		if (foundIndex >= startOfDrawn) {
+			return false;
+		}
+
+		// Move the cards above it down by 1 and put card on the drawn pile
+		removeCardAt(foundIndex);
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#isUndrawn(com.adamlock.cards.Card)
+	 */
+	public boolean isUndrawn(Card card) {
+		return (undrawn & (1L << card.ordinal())) != 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#getUndrawnMask()
+	 */
+	public long getUndrawnMask() {
+		return undrawn;
+	}
+
+	/**
+	 * Remove a card at the specified position from the undrawn to the drawn
+	 * pile
+	 * 
+	 * @param slot
+	 *            position to remove card from.
+	 */
+	private void removeCardAt(int slot) {
+		saveForRewind();
+		final int cardIndex = deck[slot];
+		startOfDrawn--;
+		if (slot < startOfLazy) {
+			startOfLazy--;
+		}
+		if (slot < endOfLazy) {
+			endOfLazy--;
+		}
+		System.arraycopy(deck, slot + 1, deck, slot, startOfDrawn - slot);
+		deck[startOfDrawn] = cardIndex;
+		updatePositions(slot, startOfDrawn + 1);
+		undrawn &= ~(1L << cardIndex);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#removeCard(com.adamlock.cards.Card[])
+	 */
+	public int removeCard(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return removeCard(cards, 0, cards.length);
+	}
+
+	/**
+	 * Check that offset and length describe a range within the array
+	 * 
+	 * @param cards
+	 * @param offset
+	 * @param length
+	 */
+	static void checkRange(Card[] cards, int offset, int length) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		if (offset < 0 || length < 0 || offset > cards.length - length) {
+			throw new IllegalArgumentException("Invalid offset or length");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card[], int,
+	 * int)
+	 */
+	public int removeCard(Card[] cards, int offset, int length) {
+		checkRange(cards, offset, length);
+		return removeMask(CardMask.of(cards, offset, length) & undrawn);
+	}
+
+	/**
+	 * Move undrawn cards to the drawn pile, keeping the order of the cards
+	 * left undrawn.
+	 * 
+	 * @param mask
+	 *            cards to remove, which must all be undrawn
+	 * @return the number of cards removed
+	 */
+	private int removeMask(long mask) {
+		if (mask == 0) {
+			return 0;
+		}
+		saveForRewind();
+
+		// Split the undrawn pile into the cards which stay, packed down in
+		// place, and the cards removed, which are held in the scratch array.
+		int keptCount = 0;
+		int cardsRemovedCount = 0;
+		int removedBelowLazy = 0;
+		int removedBelowEndOfLazy = 0;
+		for (int i = 0; i < startOfDrawn; i++) {
+			final int cardIndex = deck[i];
+			if ((mask & (1L << cardIndex)) != 0) {
+				scratch[cardsRemovedCount++] = cardIndex;
+				if (i < startOfLazy) {
+					removedBelowLazy++;
+				}
+				if (i < endOfLazy) {
+					removedBelowEndOfLazy++;
+				}
+			} else {
+				deck[keptCount++] = cardIndex;
+			}
+		}
+		// Removed cards go on top of the drawn pile
+		System.arraycopy(scratch, 0, deck, keptCount, cardsRemovedCount);
+		updatePositions(0, startOfDrawn);
+		startOfDrawn = keptCount;
+		undrawn &= ~mask;
+		startOfLazy -= removedBelowLazy;
+		endOfLazy -= removedBelowEndOfLazy;
+
+		return cardsRemovedCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#replaceCard(com.adamlock.cards.Card)
+	 */
+	public boolean replaceCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+		if (startOfDrawn == deck.length) {
+			return false;
+		}
+
+		// Look for a card in the drawn pile
+		final int cardIndex = card.ordinal();
+		final int foundIndex = position[cardIndex];
+		if (foundIndex < startOfDrawn) {
+			return false;
+		}
+
+		// We found it so move everything to the right by one so it can be put
+		// at 0
+		saveForRewind();
+		startOfDrawn++;
+		startOfLazy++;
+		endOfLazy++;
+		System.arraycopy(deck, 0, deck, 1, foundIndex);
+		deck[0] = cardIndex;
+		updatePositions(0, foundIndex + 1);
+		undrawn |= 1L << cardIndex;
+
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.IDeck#replaceCard(com.adamlock.cards.Card[])
+	 */
+	public int replaceCard(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return replaceCard(cards, 0, cards.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card[], int,
+	 * int)
+	 */
+	public int replaceCard(Card[] cards, int offset, int length) {
+		checkRange(cards, offset, length);
+		if (startOfDrawn == deck.length) {
+			return 0;
+		}
+		final long mask = CardMask.of(cards, offset, length) & ~undrawn;
+		if (mask == 0) {
+			return 0;
+		}
+		saveForRewind();
+
+		// Walk down the drawn pile packing the cards which stay drawn towards
+		// the end and holding the replaced cards in the scratch array.
+		int cardsReplacedCount = 0;
+		int endOfKept = deck.length;
+		for (int i = deck.length - 1; i >= startOfDrawn; i--) {
+			final int cardIndex = deck[i];
+			if ((mask & (1L << cardIndex)) != 0) {
+				scratch[cardsReplacedCount++] = cardIndex;
+			} else {
+				deck[--endOfKept] = cardIndex;
+			}
+		}
+		// Move the undrawn pile up and put the replaced cards underneath it
+		System.arraycopy(deck, 0, deck, cardsReplacedCount, startOfDrawn);
+		System.arraycopy(scratch, 0, deck, 0, cardsReplacedCount);
+		updatePositions(0, deck.length);
+		startOfDrawn += cardsReplacedCount;
+		undrawn |= mask;
+		startOfLazy += cardsReplacedCount;
+		endOfLazy += cardsReplacedCount;
+		return cardsReplacedCount;
+	}
+
+	/**
+	 * Validate all the cards
+	 */
+	void internalValidate() {
+		final Set<Card> found = new HashSet<Card>();
+		for (int i = 0; i < deck.length; i++) {
+			Card c = allCards[deck[i]];
+			if (!found.add(allCards[deck[i]])) {
+				System.out.println("Duplicate of card " + c + " in the deck!");
+				throw new RuntimeException("Duplicate card");
+			}
+			if (position[deck[i]] != i) {
+				throw new RuntimeException("Card " + c + " is not at "
+						+ position[deck[i]]);
+			}
+			if (isUndrawn(c) != (i < startOfDrawn)) {
+				throw new RuntimeException("Undrawn mask is wrong for card "
+						+ c);
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuffer sb = new StringBuffer();
+		for (int i = 0; i < startOfDrawn; i++) {
+			sb.append(allCards[deck[i]].toString());
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	public Object clone() {
+		final DeckImpl newDeck = new DeckImpl();
+		System.arraycopy(deck, 0, newDeck.deck, 0, deck.length);
+		System.arraycopy(position, 0, newDeck.position, 0, position.length);
+		newDeck.startOfDrawn = startOfDrawn;
+		newDeck.undrawn = undrawn;
+		newDeck.shuffler = shuffler;
+		newDeck.random = random;
+		newDeck.lazyShuffle = lazyShuffle;
+		newDeck.startOfLazy = startOfLazy;
+		newDeck.endOfLazy = endOfLazy;
+		return newDeck;
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Shuffles cards in place using the Fisher-Yates algorithm. Each card is
+ * swapped with a randomly chosen card at or below it, so a shuffle of n cards
+ * takes n - 1 random numbers, runs in linear time and allocates nothing.
+ *
+ * @author Adam Lock
+ */
+public class FisherYatesShuffler implements Shuffler {
+
+	/** Shared instance, the shuffler holds no state */
+	public static final FisherYatesShuffler INSTANCE = new FisherYatesShuffler();
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Shuffler#shuffle(int[], int,
+	 * com.adamlock.cards.Random)
+	 */
+	public void shuffle(int cards[], int length, Random random) {
+		for (int i = length - 1; i > 0; i--) {
+			final int j = random.nextInt(i + 1);
+			final int cardIndex = cards[i];
+			cards[i] = cards[j];
+			cards[j] = cardIndex;
+		}
+	}
+}
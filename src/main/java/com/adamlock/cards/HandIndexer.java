@@ -0,0 +1,668 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gives each class of hands which are the same but for their suits a number
+ * from 0 to one less than the number of classes, so results can be kept in
+ * an array indexed by class. A hand is made of groups of cards dealt in turn,
+ * e.g. two hole cards then a flop of three. Cards within a group are in no
+ * order, but which group a card is in matters, so AhKh with a board of Qh is
+ * not the same as AhQh with a board of Kh.
+ * <p>
+ * Two hole cards have 169 classes, hole cards and a flop have 1,286,792,
+ * adding the turn as a group of its own gives 55,190,538 and the river
+ * 2,428,287,420. Treating the board as a single group gives fewer classes,
+ * 13,960,050 for hole cards and four board cards and 123,156,254 for five.
+ * <p>
+ * The index follows Waugh's hand isomorphism algorithm. The values of a suit
+ * in each group are numbered, the suits are sorted by how many cards they
+ * hold in each group and by that number, and the sorted suits are numbered
+ * as a whole. {@link #unindex(long, Card[])} goes back from an index to the
+ * canonical hand of its class, whose suits come in {@link CardSuit} order.
+ * <p>
+ * An indexer allocates nothing once made, but it holds scratch space, so
+ * each thread needs its own. See {@link SuitIsomorphism} for the symmetries
+ * of a particular hand.
+ *
+ * @author Adam Lock
+ */
+public final class HandIndexer {
+
+	/** Most groups of cards */
+	public static final int MAX_GROUPS = 4;
+
+	/** Most cards in all the groups together */
+	public static final int MAX_CARDS = 13;
+
+	private static final int SUITS = SuitIsomorphism.SUITS;
+
+	private static final int SUIT_BITS = SuitIsomorphism.SUIT_BITS;
+
+	/** Bits of a suit's shape used by each group */
+	private static final int SHAPE_BITS = 4;
+
+	/** Bits of a suit's key below its shape */
+	private static final int SHAPE_SHIFT = 40;
+
+	private static final long INDEX_MASK = (1L << SHAPE_SHIFT) - 1;
+
+	/** Ways of choosing k values from n, for n and k up to 13 */
+	private static final int CHOOSE[][] = new int[SUIT_BITS + 1][SUIT_BITS + 1];
+
+	/** The same, with n times 14 plus k for each n and k */
+	private static final int CHOOSE_FLAT[] = new int[(SUIT_BITS + 1)
+			* (SUIT_BITS + 1)];
+
+	/** Colex number of each set of positions among sets of its size */
+	private static final int COLEX[] = new int[1 << SUIT_BITS];
+
+	/** Values are taken out of the used values in two parts, low and high */
+	private static final int LOW_BITS = 7;
+	private static final int HIGH_BITS = SUIT_BITS - LOW_BITS;
+
+	/** Values with the used values taken out, by used then values */
+	private static final char COMPRESS_LOW[] = new char[1 << (2 * LOW_BITS)];
+	private static final char COMPRESS_HIGH[] = new char[1 << (2 * HIGH_BITS)];
+
+	static {
+		for (int n = 0; n <= SUIT_BITS; n++) {
+			CHOOSE[n][0] = 1;
+			for (int k = 1; k <= n; k++) {
+				CHOOSE[n][k] = CHOOSE[n - 1][k - 1]
+						+ (k <= n - 1 ? CHOOSE[n - 1][k] : 0);
+			}
+			System.arraycopy(CHOOSE[n], 0, CHOOSE_FLAT, n * (SUIT_BITS + 1),
+					SUIT_BITS + 1);
+		}
+		for (int positions = 0; positions < COLEX.length; positions++) {
+			int k = 1;
+			for (int rest = positions; rest != 0; rest &= rest - 1) {
+				COLEX[positions] += CHOOSE[Integer.numberOfTrailingZeros(rest)][k++];
+			}
+		}
+		fillCompress(COMPRESS_LOW, LOW_BITS);
+		fillCompress(COMPRESS_HIGH, HIGH_BITS);
+	}
+
+	private static void fillCompress(char table[], int bits) {
+		for (int used = 0; used < 1 << bits; used++) {
+			for (int values = 0; values < 1 << bits; values++) {
+				int compressed = 0;
+				int position = 0;
+				for (int value = 0; value < bits; value++) {
+					if ((used & (1 << value)) == 0) {
+						if ((values & (1 << value)) != 0) {
+							compressed |= 1 << position;
+						}
+						position++;
+					}
+				}
+				table[(used << bits) | values] = (char) compressed;
+			}
+		}
+	}
+
+	/** Number of cards in each group */
+	private final int sizes[];
+
+	private final int numCards;
+
+	/**
+	 * Each way the cards can be spread over the suits. The shape of a suit
+	 * is the number of cards it holds in each group, 4 bits a group, and a
+	 * configuration is the shapes of the four suits, highest first, 16 bits
+	 * a suit. Configurations are sorted.
+	 */
+	private final long configurations[];
+
+	/** First index of each configuration */
+	private final long offsets[];
+
+	/**
+	 * Number of suits of the same shape in each run of suits of each
+	 * configuration, at the first suit of the run, or 0 if the run is empty
+	 */
+	private final int runs[][];
+
+	/** Number each run's index is multiplied by, at the first suit of the run */
+	private final long radices[][];
+
+	/** Whether each configuration has two or more suits of a shape with cards */
+	private final boolean shared[];
+
+	/** Open addressed table from configuration to its position */
+	private final long tableKeys[];
+	private final int tablePositions[];
+	private final int tableShift;
+
+	private final long size;
+
+	/** Scratch space: the shape and index of each suit, highest first */
+	private final long keys[] = new long[SUITS];
+
+	/** Scratch space: mask of each group */
+	private final long masks[];
+
+	/**
+	 * Constructor
+	 *
+	 * @param sizes
+	 *            number of cards in each group, e.g. 2 and 3 for hole cards
+	 *            and a flop
+	 */
+	public HandIndexer(int... sizes) {
+		if (sizes == null || sizes.length == 0 || sizes.length > MAX_GROUPS) {
+			throw new IllegalArgumentException("Must have 1 to " + MAX_GROUPS
+					+ " groups");
+		}
+		int total = 0;
+		for (int groupSize : sizes) {
+			if (groupSize < 1) {
+				throw new IllegalArgumentException("Invalid group size "
+						+ groupSize);
+			}
+			total += groupSize;
+		}
+		if (total > MAX_CARDS) {
+			throw new IllegalArgumentException("Too many cards");
+		}
+		this.sizes = sizes.clone();
+		this.numCards = total;
+		this.masks = new long[sizes.length];
+
+		final List<Long> found = new ArrayList<Long>();
+		addConfigurations(0, 0, 0xFFFF, this.sizes.clone(), found);
+		configurations = new long[found.size()];
+		for (int i = 0; i < configurations.length; i++) {
+			configurations[i] = found.get(i);
+		}
+		Arrays.sort(configurations);
+		offsets = new long[configurations.length];
+		runs = new int[configurations.length][SUITS];
+		radices = new long[configurations.length][SUITS];
+		shared = new boolean[configurations.length];
+		long next = 0;
+		for (int i = 0; i < configurations.length; i++) {
+			offsets[i] = next;
+			next += countConfiguration(configurations[i], runs[i], radices[i]);
+			for (int run : runs[i]) {
+				shared[i] |= run > 1;
+			}
+		}
+		this.size = next;
+
+		// Configurations never have all their bits clear, so 0 marks an
+		// empty slot
+		final int bits = 2 + (32 - Integer.numberOfLeadingZeros(configurations.length));
+		tableKeys = new long[1 << bits];
+		tablePositions = new int[1 << bits];
+		tableShift = 64 - bits;
+		for (int i = 0; i < configurations.length; i++) {
+			int slot = slot(configurations[i]);
+			while (tableKeys[slot] != 0) {
+				slot = (slot + 1) & (tableKeys.length - 1);
+			}
+			tableKeys[slot] = configurations[i];
+			tablePositions[slot] = i;
+		}
+	}
+
+	private int slot(long configuration) {
+		return (int) ((configuration * 0x9E3779B97F4A7C15L) >>> tableShift);
+	}
+
+	/**
+	 * Find every configuration by giving each suit in turn a shape no higher
+	 * than the suit before
+	 *
+	 * @param suit
+	 *            suit to give a shape
+	 * @param configuration
+	 *            shapes of the suits before
+	 * @param highest
+	 *            shape of the suit before
+	 * @param remaining
+	 *            cards of each group not yet in a suit
+	 * @param found
+	 *            receives each configuration
+	 */
+	private void addConfigurations(int suit, long configuration, int highest,
+			int remaining[], List<Long> found) {
+		if (suit == SUITS) {
+			for (int count : remaining) {
+				if (count != 0) {
+					return;
+				}
+			}
+			found.add(configuration);
+			return;
+		}
+		addShapes(suit, configuration, highest, remaining, 0, 0, 0, found);
+	}
+
+	/**
+	 * Try each number of cards of a group in a suit
+	 */
+	private void addShapes(int suit, long configuration, int highest,
+			int remaining[], int group, int shape, int inSuit, List<Long> found) {
+		if (group == sizes.length) {
+			if (shape <= highest) {
+				addConfigurations(suit + 1, configuration
+						| ((long) shape << (16 * (SUITS - 1 - suit))), shape,
+						remaining, found);
+			}
+			return;
+		}
+		for (int count = 0; count <= remaining[group]
+				&& inSuit + count <= SUIT_BITS; count++) {
+			remaining[group] -= count;
+			addShapes(suit, configuration, highest, remaining, group + 1,
+					(shape << SHAPE_BITS) | count, inSuit + count, found);
+			remaining[group] += count;
+		}
+	}
+
+	/**
+	 * Get the shape of a suit of a configuration
+	 */
+	private static int shape(long configuration, int suit) {
+		return (int) (configuration >>> (16 * (SUITS - 1 - suit))) & 0xFFFF;
+	}
+
+	/**
+	 * Count the ways the values of a suit with a shape can be chosen
+	 */
+	private long countShape(int shape) {
+		long count = 1;
+		int used = 0;
+		for (int group = 0; group < sizes.length; group++) {
+			final int cards = groupCount(shape, group);
+			count *= CHOOSE[SUIT_BITS - used][cards];
+			used += cards;
+		}
+		return count;
+	}
+
+	/**
+	 * Get the number of cards a shape holds in a group
+	 */
+	private int groupCount(int shape, int group) {
+		return (shape >>> (SHAPE_BITS * (sizes.length - 1 - group)))
+				& ((1 << SHAPE_BITS) - 1);
+	}
+
+	/**
+	 * Count the classes of a configuration. Suits of the same shape can be
+	 * swapped, so only the multiset of their values counts.
+	 *
+	 * @param configuration
+	 * @param runs
+	 *            receives the length of each run of suits of the same shape
+	 *            with cards, at the first suit of the run
+	 * @param radices
+	 *            receives the number each run's index is multiplied by
+	 * @return number of classes
+	 */
+	private long countConfiguration(long configuration, int runs[],
+			long radices[]) {
+		long count = 1;
+		int suit = 0;
+		while (suit < SUITS) {
+			final int shape = shape(configuration, suit);
+			int same = suit + 1;
+			while (same < SUITS && shape(configuration, same) == shape) {
+				same++;
+			}
+			final int k = same - suit;
+			runs[suit] = shape != 0 ? k : 0;
+			radices[suit] = count;
+			count *= choose(countShape(shape) + k - 1, k);
+			suit = same;
+		}
+		return count;
+	}
+
+	/**
+	 * Ways of choosing k values from n, where k is at most the number of
+	 * suits
+	 */
+	private static long choose(long n, int k) {
+		if (n < k) {
+			return 0;
+		}
+		switch (k) {
+		case 0:
+			return 1;
+		case 1:
+			return n;
+		case 2:
+			return n * (n - 1) / 2;
+		case 3:
+			return n * (n - 1) * (n - 2) / 6;
+		default:
+			return n * (n - 1) * (n - 2) / 6 * (n - 3) / 4;
+		}
+	}
+
+	/**
+	 * Get the number of classes, one more than the highest index
+	 *
+	 * @return number of classes
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Get the number of groups
+	 *
+	 * @return number of groups
+	 */
+	public int getGroups() {
+		return sizes.length;
+	}
+
+	/**
+	 * Get the number of cards in a group
+	 *
+	 * @param group
+	 * @return number of cards
+	 */
+	public int getGroupSize(int group) {
+		return sizes[group];
+	}
+
+	/**
+	 * Get the number of cards in all the groups
+	 *
+	 * @return number of cards
+	 */
+	public int getCards() {
+		return numCards;
+	}
+
+	/**
+	 * Get the index of the class of a hand
+	 *
+	 * @param cards
+	 *            the cards of each group in turn, e.g. two hole cards then
+	 *            three flop cards
+	 * @return the index, from 0 to one less than {@link #size()}
+	 */
+	public long index(Card cards[]) {
+		if (cards == null || cards.length != numCards) {
+			throw new IllegalArgumentException("Must supply " + numCards
+					+ " cards");
+		}
+		int position = 0;
+		for (int group = 0; group < sizes.length; group++) {
+			long mask = 0;
+			for (int i = 0; i < sizes[group]; i++) {
+				mask |= 1L << cards[position++].index();
+			}
+			masks[group] = mask;
+		}
+		return index(masks);
+	}
+
+	/**
+	 * Get the index of the class of a hand
+	 *
+	 * @param groups
+	 *            mask of each group of cards, see {@link CardMask}
+	 * @return the index, from 0 to one less than {@link #size()}
+	 */
+	public long index(long groups[]) {
+		if (groups == null || groups.length != sizes.length) {
+			throw new IllegalArgumentException("Must supply " + sizes.length
+					+ " groups");
+		}
+		long all = 0;
+		for (int group = 0; group < sizes.length; group++) {
+			if ((groups[group] & all) != 0
+					|| (groups[group] & ~CardMask.FULL) != 0
+					|| Long.bitCount(groups[group]) != sizes[group]) {
+				throw new IllegalArgumentException("Invalid cards in group "
+						+ group);
+			}
+			all |= groups[group];
+		}
+
+		// Sort the suits highest first with swaps which don't branch. Keys
+		// are never negative, so the sign of a difference says which is lower.
+		long a = suitKey(groups, 0);
+		long b = suitKey(groups, 1);
+		long c = suitKey(groups, 2);
+		long d = suitKey(groups, 3);
+		long swap = (a ^ b) & ((a - b) >> 63);
+		a ^= swap;
+		b ^= swap;
+		swap = (c ^ d) & ((c - d) >> 63);
+		c ^= swap;
+		d ^= swap;
+		swap = (a ^ c) & ((a - c) >> 63);
+		a ^= swap;
+		c ^= swap;
+		swap = (b ^ d) & ((b - d) >> 63);
+		b ^= swap;
+		d ^= swap;
+		swap = (b ^ c) & ((b - c) >> 63);
+		b ^= swap;
+		c ^= swap;
+		keys[0] = a;
+		keys[1] = b;
+		keys[2] = c;
+		keys[3] = d;
+
+		long configuration = 0;
+		for (int suit = 0; suit < SUITS; suit++) {
+			configuration |= (keys[suit] >>> SHAPE_SHIFT)
+					<< (16 * (SUITS - 1 - suit));
+		}
+		int slot = slot(configuration);
+		while (tableKeys[slot] != configuration) {
+			slot = (slot + 1) & (tableKeys.length - 1);
+		}
+		final int found = tablePositions[slot];
+
+		// When no two suits with cards have the same shape, each suit is a
+		// run of its own and numbers itself. Suits without cards always
+		// number 0.
+		final long foundRadices[] = radices[found];
+		if (!shared[found]) {
+			return offsets[found] + foundRadices[0] * (a & INDEX_MASK)
+					+ foundRadices[1] * (b & INDEX_MASK) + foundRadices[2]
+					* (c & INDEX_MASK) + foundRadices[3] * (d & INDEX_MASK);
+		}
+
+		// Otherwise number the multiset of indices of each run
+		final int foundRuns[] = runs[found];
+		long index = offsets[found];
+		for (int suit = 0; suit < SUITS; suit++) {
+			final int k = foundRuns[suit];
+			if (k == 0) {
+				continue;
+			}
+			long run = 0;
+			for (int i = 0; i < k; i++) {
+				run += choose((keys[suit + i] & INDEX_MASK) + k - 1 - i, k - i);
+			}
+			index += foundRadices[suit] * run;
+		}
+		return index;
+	}
+
+	/**
+	 * Get the shape of a suit and the number of its values, each group's
+	 * values chosen from those not in an earlier group
+	 *
+	 * @param groups
+	 *            mask of each group
+	 * @param block
+	 *            block of 13 bits of the suit
+	 * @return the shape above the number
+	 */
+	private long suitKey(long groups[], int block) {
+		final int shift = block * SUIT_BITS;
+		final int first = (int) (groups[0] >>> shift)
+				& (int) SuitIsomorphism.SUIT_MASK;
+		int used = first;
+		int numUsed = Integer.bitCount(first);
+		int shape = numUsed;
+		long suitIndex = COLEX[first];
+		long multiplier = CHOOSE_FLAT[SUIT_BITS * (SUIT_BITS + 1) + numUsed];
+		for (int group = 1; group < sizes.length; group++) {
+			final int values = (int) (groups[group] >>> shift)
+					& (int) SuitIsomorphism.SUIT_MASK;
+			final int count = Integer.bitCount(values);
+			final int subset;
+			if (sizes[group] == 1) {
+				// A single value's position is the unused values below it
+				subset = Integer.bitCount(~used & (values - 1)) & -count;
+			} else {
+				subset = COLEX[compress(values, used)];
+			}
+			suitIndex += multiplier * subset;
+			multiplier *= CHOOSE_FLAT[(SUIT_BITS - numUsed) * (SUIT_BITS + 1)
+					+ count];
+			shape = (shape << SHAPE_BITS) | count;
+			used |= values;
+			numUsed += count;
+		}
+		return ((long) shape << SHAPE_SHIFT) | suitIndex;
+	}
+
+	/**
+	 * Take the used values out of a set of values, so the values above a used
+	 * value move down a place
+	 */
+	private static int compress(int values, int used) {
+		final int lowUsed = used & ((1 << LOW_BITS) - 1);
+		final int low = COMPRESS_LOW[(lowUsed << LOW_BITS)
+				| (values & ((1 << LOW_BITS) - 1))];
+		final int high = COMPRESS_HIGH[((used >>> LOW_BITS) << HIGH_BITS)
+				| (values >>> LOW_BITS)];
+		return low | (high << (LOW_BITS - Integer.bitCount(lowUsed)));
+	}
+
+	/**
+	 * Get the canonical hand of a class. Its suits are given out in
+	 * {@link CardSuit} order, so the hand's first suit is clubs.
+	 *
+	 * @param index
+	 *            index of the class
+	 * @param cards
+	 *            receives the cards of each group in turn, each group's cards
+	 *            lowest index first
+	 */
+	public void unindex(long index, Card cards[]) {
+		if (index < 0 || index >= size) {
+			throw new IllegalArgumentException("Invalid index " + index);
+		}
+		if (cards == null || cards.length != numCards) {
+			throw new IllegalArgumentException("Must supply room for "
+					+ numCards + " cards");
+		}
+		int found = Arrays.binarySearch(offsets, index);
+		if (found < 0) {
+			found = -found - 2;
+		}
+		final long configuration = configurations[found];
+		long remaining = index - offsets[found];
+		for (int group = 0; group < sizes.length; group++) {
+			masks[group] = 0;
+		}
+
+		int suit = 0;
+		while (suit < SUITS) {
+			final int shape = shape(configuration, suit);
+			int same = suit + 1;
+			while (same < SUITS && shape(configuration, same) == shape) {
+				same++;
+			}
+			final int k = same - suit;
+			final long count = countShape(shape);
+			final long classes = choose(count + k - 1, k);
+			long run = remaining % classes;
+			remaining /= classes;
+
+			// Take the largest value each time, highest suit first
+			for (int i = 0; i < k; i++) {
+				final int choose = k - i;
+				long low = choose - 1;
+				long high = count + k - 1 - i;
+				while (low < high) {
+					final long middle = (low + high + 1) >>> 1;
+					if (choose(middle, choose) <= run) {
+						low = middle;
+					} else {
+						high = middle - 1;
+					}
+				}
+				run -= choose(low, choose);
+				addSuit(shape, low - (choose - 1), suit + i);
+			}
+			suit = same;
+		}
+
+		int position = 0;
+		for (int group = 0; group < sizes.length; group++) {
+			for (long mask = masks[group]; mask != 0; mask &= mask - 1) {
+				cards[position++] = Card.fromIndex(Long
+						.numberOfTrailingZeros(mask));
+			}
+		}
+	}
+
+	/**
+	 * Add the values of a suit to the groups
+	 *
+	 * @param shape
+	 *            shape of the suit
+	 * @param suitIndex
+	 *            number of the suit's values
+	 * @param suit
+	 *            position of the suit, which picks its canonical suit
+	 */
+	private void addSuit(int shape, long suitIndex, int suit) {
+		final int shift = SuitIsomorphism.SUIT_BLOCKS[suit] * SUIT_BITS;
+		int used = 0;
+		for (int group = 0; group < sizes.length; group++) {
+			final int count = groupCount(shape, group);
+			final int choices = CHOOSE[SUIT_BITS - Integer.bitCount(used)][count];
+			int subset = (int) (suitIndex % choices);
+			suitIndex /= choices;
+
+			int values = 0;
+			int position = SUIT_BITS - Integer.bitCount(used);
+			for (int k = count; k > 0; k--) {
+				do {
+					position--;
+				} while (CHOOSE[position][k] > subset);
+				subset -= CHOOSE[position][k];
+				values |= 1 << selectUnused(used, position);
+			}
+			masks[group] |= (long) values << shift;
+			used |= values;
+		}
+	}
+
+	/**
+	 * Find the value at a position among the values not yet used
+	 */
+	private static int selectUnused(int used, int position) {
+		int unused = ~used & (int) SuitIsomorphism.SUIT_MASK;
+		for (int i = 0; i < position; i++) {
+			unused &= unused - 1;
+		}
+		return Integer.numberOfTrailingZeros(unused);
+	}
+}
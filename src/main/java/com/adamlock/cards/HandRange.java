@@ -0,0 +1,159 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.Arrays;
+
+/**
+ * An immutable range of two card starting hands, e.g. "TT+,AKs". Each hand, or
+ * combo, is held as a mask of its two cards, see {@link CardMask}. The combos
+ * are sorted and never repeated. Each combo has a weight, how likely the
+ * player is to hold it relative to the other combos, which is 1 unless the
+ * range says otherwise, e.g. "AA,KK:0.5". Ranges are made by
+ * {@link RangeParser#parseRange(String)}.
+ *
+ * @author Adam Lock
+ */
+public final class HandRange {
+
+	/** The text the range was parsed from */
+	private final String source;
+
+	/** Mask of the two cards of each combo, sorted */
+	private final long combos[];
+
+	/** Weight of each combo, or null if every weight is 1 */
+	private final double weights[];
+
+	/** Every card used by any combo */
+	private final long mask;
+
+	/**
+	 * Constructor
+	 *
+	 * @param source
+	 *            the text the range was parsed from
+	 * @param combos
+	 *            sorted combos without repeats, which the range keeps
+	 * @param weights
+	 *            weight of each combo, which the range keeps, or null if every
+	 *            weight is 1
+	 */
+	HandRange(String source, long combos[], double weights[]) {
+		this.source = source;
+		this.combos = combos;
+		this.weights = weights;
+		long mask = 0;
+		for (long combo : combos) {
+			mask |= combo;
+		}
+		this.mask = mask;
+	}
+
+	/**
+	 * Get the number of combos in the range
+	 *
+	 * @return number of combos
+	 */
+	public int size() {
+		return combos.length;
+	}
+
+	/**
+	 * Get a combo from the range
+	 *
+	 * @param index
+	 *            from 0 to size() - 1
+	 * @return mask of the two cards of the combo
+	 */
+	public long getCombo(int index) {
+		return combos[index];
+	}
+
+	/**
+	 * Get the cards of a combo, highest first
+	 *
+	 * @param index
+	 *            from 0 to size() - 1
+	 * @return the two cards
+	 */
+	public Card[] getCards(int index) {
+		final long combo = combos[index];
+		return new Card[] { Card.fromIndex(CardMask.highest(combo)),
+				Card.fromIndex(Long.numberOfTrailingZeros(combo)) };
+	}
+
+	/**
+	 * Get the weight of a combo
+	 *
+	 * @param index
+	 *            from 0 to size() - 1
+	 * @return weight, greater than 0
+	 */
+	public double getWeight(int index) {
+		return weights != null ? weights[index] : 1.0;
+	}
+
+	/**
+	 * Test if any combo has a weight other than 1
+	 *
+	 * @return true if the combos are weighted
+	 */
+	public boolean isWeighted() {
+		return weights != null;
+	}
+
+	/**
+	 * Get every card used by any combo in the range
+	 *
+	 * @return mask of cards
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Test if a combo is in the range
+	 *
+	 * @param combo
+	 *            mask of two cards
+	 * @return true if the range holds the combo
+	 */
+	public boolean contains(long combo) {
+		return Arrays.binarySearch(combos, combo) >= 0;
+	}
+
+	/**
+	 * Count the combos which don't use any of the specified cards, e.g. the
+	 * combos still possible once the board and other hands are known.
+	 *
+	 * @param dead
+	 *            mask of cards which are not available
+	 * @return number of combos left
+	 */
+	public int countAvailable(long dead) {
+		if ((mask & dead) == 0) {
+			return combos.length;
+		}
+		int count = 0;
+		for (long combo : combos) {
+			if ((combo & dead) == 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return source;
+	}
+}
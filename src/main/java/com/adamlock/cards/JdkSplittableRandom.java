@@ -0,0 +1,64 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.SplittableRandom;
+
+/**
+ * A random source backed by java.util.SplittableRandom. It is not thread safe,
+ * but {@link #split()} cheaply makes an independent source for another deck or
+ * thread. Not available to GWT.
+ *
+ * @author Adam Lock
+ */
+public class JdkSplittableRandom extends Random {
+	private final SplittableRandom random;
+
+	/**
+	 * Constructor which seeds the generator from the clock
+	 */
+	public JdkSplittableRandom() {
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Constructor which seeds the generator from the specified value
+	 *
+	 * @param seed
+	 */
+	public JdkSplittableRandom(long seed) {
+		this(new SplittableRandom(seed));
+	}
+
+	private JdkSplittableRandom(SplittableRandom random) {
+		super((java.util.Random) null);
+		this.random = random;
+	}
+
+	/**
+	 * Make a new source which produces a different sequence to this one.
+	 *
+	 * @return new source
+	 */
+	public JdkSplittableRandom split() {
+		return new JdkSplittableRandom(random.split());
+	}
+
+	@Override
+	public int nextInt(int modulo) {
+		return random.nextInt(modulo);
+	}
+
+	@Override
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return random.nextDouble();
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A random source backed by java.util.concurrent.ThreadLocalRandom. Every
+ * thread draws from its own generator, so a single instance can be shared by
+ * any number of decks and threads without contention. Not available to GWT.
+ *
+ * @author Adam Lock
+ */
+public class JdkThreadLocalRandom extends Random {
+
+	/** Shared instance, the source holds no state of its own */
+	public static final JdkThreadLocalRandom INSTANCE = new JdkThreadLocalRandom();
+
+	private JdkThreadLocalRandom() {
+		super((java.util.Random) null);
+	}
+
+	@Override
+	public int nextInt(int modulo) {
+		return ThreadLocalRandom.current().nextInt(modulo);
+	}
+
+	@Override
+	public long nextLong() {
+		return ThreadLocalRandom.current().nextLong();
+	}
+
+	@Override
+	public double nextDouble() {
+		return ThreadLocalRandom.current().nextDouble();
+	}
+
+	@Override
+	public void next(byte[] bytes) {
+		ThreadLocalRandom.current().nextBytes(bytes);
+	}
+
+	@Override
+	public java.util.Random getRandom() {
+		return ThreadLocalRandom.current();
+	}
+}
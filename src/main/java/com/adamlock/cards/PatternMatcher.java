@@ -0,0 +1,263 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Finds a different undrawn card for each of a list of patterns, as needed to
+ * deal a {@link CardPattern} array. Each pattern is first given the card the
+ * deck would deal for it, exact patterns first. If a pattern is left without a
+ * card, cards are moved between patterns along an augmenting path (Kuhn's
+ * bipartite matching) so a valid assignment is found whenever one exists.
+ * <p>
+ * Cards and sets of cards are held as masks, see {@link CardMask}. A deck
+ * keeps one matcher and reuses it, so matching allocates nothing once the
+ * matcher has grown to the number of patterns. A matcher is not thread safe.
+ *
+ * @author Adam Lock
+ */
+final class PatternMatcher {
+
+	/**
+	 * Chooses which of several candidate cards a pattern should take, e.g.
+	 * the one the deck would deal first.
+	 */
+	interface Chooser {
+		/**
+		 * @param candidates
+		 *            mask of cards, never empty
+		 * @return index of the chosen card
+		 */
+		int choose(long candidates);
+	}
+
+	/** How many times to try for a uniformly random assignment */
+	static final int RANDOM_ATTEMPTS = 1000;
+
+	/** Mask of the cards matching each pattern, 0 for null patterns */
+	private long masks[] = new long[0];
+
+	/** Card given to each pattern, -1 if none */
+	private int assigned[] = new int[0];
+
+	/** Number of patterns being matched */
+	private int count;
+
+	/** Cards which could be dealt */
+	private long available;
+
+	/** Copies of each card which are not yet assigned */
+	private final int free[] = new int[52];
+
+	/** Cards visited by the current augmenting path search */
+	private long visited;
+
+	/** Copies and randomness used by the random chooser */
+	private int randomCopies[];
+	private Random random;
+
+	/** Picks a random candidate, copies of a card are equally likely */
+	private final Chooser randomChooser = new Chooser() {
+		public int choose(long candidates) {
+			return pickRandom(candidates, randomCopies, random);
+		}
+	};
+
+	/**
+	 * Get the card assigned to a pattern by the last match
+	 *
+	 * @param patternIdx
+	 * @return card index or -1 if the pattern was null
+	 */
+	int getAssigned(int patternIdx) {
+		return assigned[patternIdx];
+	}
+
+	/**
+	 * Set up to match the patterns against the available cards
+	 *
+	 * @param patterns
+	 * @param available
+	 *            mask of the cards which could be dealt
+	 * @param copies
+	 *            number of copies of each card which could be dealt, or null
+	 *            if there is one of each available card
+	 */
+	private void prepare(CardPattern patterns[], long available, int copies[]) {
+		count = patterns.length;
+		if (masks.length < count) {
+			masks = new long[count];
+			assigned = new int[count];
+		}
+		for (int i = 0; i < count; i++) {
+			masks[i] = patterns[i] != null ? patterns[i].getMask() : 0;
+			assigned[i] = -1;
+		}
+		this.available = available;
+		for (int i = 0; i < free.length; i++) {
+			if (copies != null) {
+				free[i] = copies[i];
+			} else {
+				free[i] = (int) (available >>> i) & 1;
+			}
+		}
+	}
+
+	/**
+	 * Find a card for every pattern. Null patterns are skipped.
+	 *
+	 * @param patterns
+	 * @param available
+	 *            mask of the cards which could be dealt
+	 * @param copies
+	 *            number of copies of each card which could be dealt, or null
+	 *            if there is one of each available card
+	 * @param chooser
+	 *            picks the preferred card for each pattern
+	 * @return -1 if every pattern was given a card, otherwise the index of a
+	 *         pattern which could not be
+	 */
+	int match(CardPattern patterns[], long available, int copies[],
+			Chooser chooser) {
+		prepare(patterns, available, copies);
+
+		// Give each pattern its preferred card, exact cards first
+		long freeMask = available;
+		for (int pass = 0; pass < 2; pass++) {
+			for (int i = 0; i < count; i++) {
+				if (patterns[i] == null || patterns[i].isExact() != (pass == 0)) {
+					continue;
+				}
+				final long candidates = masks[i] & freeMask;
+				if (candidates != 0) {
+					final int cardIndex = chooser.choose(candidates);
+					assigned[i] = cardIndex;
+					if (--free[cardIndex] == 0) {
+						freeMask &= ~(1L << cardIndex);
+					}
+				}
+			}
+		}
+
+		// Move cards around for patterns which missed out
+		for (int i = 0; i < count; i++) {
+			if (patterns[i] != null && assigned[i] == -1) {
+				visited = 0;
+				if (!augment(i)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find a card for a pattern, taking a card from another pattern if that
+	 * pattern can be given a different card.
+	 *
+	 * @param patternIdx
+	 * @return true if the pattern was given a card
+	 */
+	private boolean augment(int patternIdx) {
+		final long candidates = masks[patternIdx] & available & ~visited;
+		for (long mask = candidates; mask != 0; mask &= mask - 1) {
+			final int cardIndex = Long.numberOfTrailingZeros(mask);
+			if (free[cardIndex] > 0) {
+				free[cardIndex]--;
+				assigned[patternIdx] = cardIndex;
+				return true;
+			}
+		}
+		visited |= candidates;
+		for (long mask = candidates; mask != 0; mask &= mask - 1) {
+			final int cardIndex = Long.numberOfTrailingZeros(mask);
+			for (int i = 0; i < count; i++) {
+				if (assigned[i] == cardIndex && augment(i)) {
+					assigned[patternIdx] = cardIndex;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find a card for every pattern with every valid assignment equally
+	 * likely. Each pattern independently picks a random card until the picks
+	 * don't clash. If that takes too many attempts, as it can with many
+	 * patterns competing for a few cards, the cards are picked one pattern at
+	 * a time instead, which is not quite uniform.
+	 *
+	 * @param patterns
+	 * @param available
+	 *            mask of the cards which could be dealt
+	 * @param copies
+	 *            number of copies of each card which could be dealt, or null
+	 *            if there is one of each available card
+	 * @param random
+	 * @return -1 if every pattern was given a card, otherwise the index of a
+	 *         pattern which could not be
+	 */
+	int matchRandom(CardPattern patterns[], long available, int copies[],
+			Random random) {
+		this.randomCopies = copies;
+		this.random = random;
+		// Make sure an assignment exists before looking for a random one
+		final int failed = match(patterns, available, copies, randomChooser);
+		if (failed != -1) {
+			return failed;
+		}
+		attempts: for (int attempt = 0; attempt < RANDOM_ATTEMPTS; attempt++) {
+			prepare(patterns, available, copies);
+			for (int i = 0; i < count; i++) {
+				if (patterns[i] == null) {
+					continue;
+				}
+				final int cardIndex = pickRandom(masks[i] & available, copies,
+						random);
+				// Start again if the copy picked is already taken
+				final int total = copies != null ? copies[cardIndex] : 1;
+				final int taken = total - free[cardIndex];
+				if (taken > 0 && random.nextInt(total) < taken) {
+					continue attempts;
+				}
+				free[cardIndex]--;
+				assigned[i] = cardIndex;
+			}
+			return -1;
+		}
+		return match(patterns, available, copies, randomChooser);
+	}
+
+	/**
+	 * Pick a random card from a mask. Where there are several copies of a
+	 * card each copy is equally likely to be picked.
+	 *
+	 * @param candidates
+	 *            mask of cards, never empty
+	 * @param copies
+	 *            copies of each card, or null for one of each
+	 * @param random
+	 * @return index of the card
+	 */
+	static int pickRandom(long candidates, int copies[], Random random) {
+		if (copies == null) {
+			return CardMask.select(candidates,
+					random.nextInt(Long.bitCount(candidates)));
+		}
+		int total = 0;
+		for (long mask = candidates; mask != 0; mask &= mask - 1) {
+			total += copies[Long.numberOfTrailingZeros(mask)];
+		}
+		int pick = random.nextInt(total);
+		for (long mask = candidates;; mask &= mask - 1) {
+			final int cardIndex = Long.numberOfTrailingZeros(mask);
+			pick -= copies[cardIndex];
+			if (pick < 0) {
+				return cardIndex;
+			}
+		}
+	}
+}
@@ -1,36 +1,101 @@
-/**
- * Copyright 2011. Adam Lock <locka99@gmail.com>
- *
- * Available as open source under the terms of LGPLv3
- */
-package com.adamlock.cards;
-
-public class Random {
-	private final java.util.Random random;
-
-	public Random(java.util.Random random) {
-		this.random = random;
-	}
-
-	public Random() {
-		random = new java.util.Random();
-		random.setSeed(System.currentTimeMillis());
-		random.nextInt();
-	}
-
-	public int nextInt(int modulo) {
-		return random.nextInt(modulo);
-	}
-
-	public long nextLong() {
-		return random.nextLong();
-	}
-
-	public void next(byte[] bytes) {
-		random.nextBytes(bytes);
-	}
-
-	public java.util.Random getRandom() {
-		return random;
-	}
-}
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * A source of random numbers for shuffling and dealing. By default this wraps
+ * a java.util.Random, which is safe to share but synchronizes every call on an
+ * atomic seed. Subclasses provide faster sources that are intended to be owned
+ * by one deck or one thread, e.g. {@link XoshiroRandom},
+ * {@link JdkSplittableRandom} and {@link JdkThreadLocalRandom}. Subclasses
+ * which do not wrap a java.util.Random must override {@link #nextInt(int)} and
+ * {@link #nextLong()}.
+ *
+ * @author Adam Lock
+ */
+public class Random {
+	/** Scales 53 random bits to a double between 0 and 1 */
+	private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+	private java.util.Random random;
+
+	public Random(java.util.Random random) {
+		this.random = random;
+	}
+
+	public Random() {
+		random = new java.util.Random();
+		random.setSeed(System.currentTimeMillis());
+		random.nextInt();
+	}
+
+	/**
+	 * Return a random number between 0 (inclusive) and modulo (exclusive).
+	 *
+	 * @param modulo
+	 *            upper bound, must be positive
+	 * @return random number
+	 */
+	public int nextInt(int modulo) {
+		return random.nextInt(modulo);
+	}
+
+	/**
+	 * Return a random number using all 64 bits.
+	 *
+	 * @return random number
+	 */
+	public long nextLong() {
+		return random.nextLong();
+	}
+
+	/**
+	 * Return a random number between 0 (inclusive) and 1 (exclusive).
+	 *
+	 * @return random number
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * DOUBLE_UNIT;
+	}
+
+	/**
+	 * Fill the array with random bytes.
+	 *
+	 * @param bytes
+	 */
+	public void next(byte[] bytes) {
+		if (random != null) {
+			random.nextBytes(bytes);
+			return;
+		}
+		for (int i = 0; i < bytes.length;) {
+			long bits = nextLong();
+			for (int n = Math.min(bytes.length - i, 8); n > 0; n--, bits >>>= 8) {
+				bytes[i++] = (byte) bits;
+			}
+		}
+	}
+
+	/**
+	 * Return a java.util.Random for this source. Sources that do not wrap a
+	 * java.util.Random return an adapter which draws from this source.
+	 *
+	 * @return java.util.Random
+	 */
+	public java.util.Random getRandom() {
+		if (random == null) {
+			random = new java.util.Random() {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected int next(int bits) {
+					return (int) (Random.this.nextLong() >>> (64 - bits));
+				}
+			};
+		}
+		return random;
+	}
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compiles card patterns and starting hand ranges from text.
+ * <p>
+ * Patterns use the same two character notation as
+ * {@link Card#fromString(String)}, with ? standing for any value or any suit,
+ * e.g. "Qh", "Q?", "?h" or "??". Several patterns may be separated by commas
+ * or spaces.
+ * <p>
+ * Ranges are comma separated lists of two card hands in the usual poker
+ * notation:
+ * <ul>
+ * <li>"AhKd" a single hand</li>
+ * <li>"TT" a pair, "AKs" suited, "AKo" offsuit or "AK" either</li>
+ * <li>"TT+" the pair and every higher pair, "ATs+" the kicker and every higher
+ * kicker up to AKs</li>
+ * <li>"22-55" or "A2s-A5s" every pair or kicker from one to the other</li>
+ * </ul>
+ * Any part may be followed by a weight, e.g. "AA,KK:0.5,AKs:0.25", which is
+ * how likely each of its combos is relative to combos with the default weight
+ * of 1. Where parts overlap the later weight is used, and combos with a
+ * weight of 0 are left out.
+ * Compiled results are kept in a cache of the most recently used strings, so
+ * parsing the same text again is a single lookup.
+ *
+ * @author Adam Lock
+ */
+public final class RangeParser {
+
+	/** Number of strings each cache holds */
+	public static final int CACHE_SIZE = 256;
+
+	/**
+	 * A map which drops the least recently used entry once it holds more than
+	 * CACHE_SIZE entries
+	 */
+	private static class Cache<V> extends LinkedHashMap<String, V> {
+		private static final long serialVersionUID = 1L;
+
+		Cache() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	}
+
+	private static final Cache<CardPattern[]> patternCache = new Cache<CardPattern[]>();
+
+	private static final Cache<HandRange> rangeCache = new Cache<HandRange>();
+
+	/** The character standing for any value or any suit */
+	private static final char ANY = '?';
+
+	/** The most combos a range can hold */
+	private static final int MAX_COMBOS = 52 * 51 / 2;
+
+	private RangeParser() {
+	}
+
+	/**
+	 * Parse a single pattern such as "Qh", "Q?", "?h" or "??"
+	 *
+	 * @param text
+	 * @return the pattern
+	 * @throws InvalidCardException
+	 *             if the text is not a pattern
+	 */
+	public static CardPattern parsePattern(String text)
+			throws InvalidCardException {
+		if (text == null || text.length() != 2) {
+			throw new InvalidCardException("Invalid pattern " + text);
+		}
+		final char c1 = text.charAt(0);
+		final char c2 = text.charAt(1);
+		if (c1 == ANY && c2 == ANY) {
+			return CardPattern.RANDOM;
+		} else if (c1 == ANY || c2 == ANY) {
+			// One wildcard, the other character is a value or a suit
+			final char c = c1 == ANY ? c2 : c1;
+			if (CardSuit.isValidSuit(c)) {
+				return CardPattern.fromSuit(CardSuit.toCardSuit(c));
+			}
+			return CardPattern.fromValue(CardValue.toCardValue(c));
+		}
+		return CardPattern.fromCard(Card.fromString(text));
+	}
+
+	/**
+	 * Parse a list of patterns separated by commas or spaces, e.g. "Ah ?h Q?",
+	 * ready for {@link Deck#deal(CardPattern[])}
+	 *
+	 * @param text
+	 * @return the patterns
+	 * @throws InvalidCardException
+	 *             if any of the patterns are invalid
+	 */
+	public static CardPattern[] parsePatterns(String text)
+			throws InvalidCardException {
+		CardPattern patterns[];
+		synchronized (patternCache) {
+			patterns = patternCache.get(text);
+		}
+		if (patterns == null) {
+			final String tokens[] = split(text, "[,\\s]+");
+			patterns = new CardPattern[tokens.length];
+			for (int i = 0; i < tokens.length; i++) {
+				patterns[i] = parsePattern(tokens[i]);
+			}
+			synchronized (patternCache) {
+				patternCache.put(text, patterns);
+			}
+		}
+		// The cached array must not be changed by the caller
+		return patterns.clone();
+	}
+
+	/**
+	 * Parse a range of starting hands, e.g. "TT+,AKs,A2s-A5s,AhKd"
+	 *
+	 * @param text
+	 * @return the range
+	 * @throws InvalidCardException
+	 *             if any part of the range is invalid
+	 */
+	public static HandRange parseRange(String text)
+			throws InvalidCardException {
+		HandRange range;
+		synchronized (rangeCache) {
+			range = rangeCache.get(text);
+		}
+		if (range == null) {
+			range = compileRange(text);
+			synchronized (rangeCache) {
+				rangeCache.put(text, range);
+			}
+		}
+		return range;
+	}
+
+	/**
+	 * Split text into trimmed tokens, ignoring empty ones
+	 */
+	private static String[] split(String text, String separators)
+			throws InvalidCardException {
+		if (text == null) {
+			throw new InvalidCardException("Must supply some text");
+		}
+		final String trimmed = text.trim();
+		if (trimmed.length() == 0) {
+			return new String[0];
+		}
+		return trimmed.split(separators);
+	}
+
+	private static HandRange compileRange(String text)
+			throws InvalidCardException {
+		// Combos in order with the latest weight of each
+		final Map<Long, Double> weights = new TreeMap<Long, Double>();
+		final long combos[] = new long[MAX_COMBOS];
+		boolean weighted = false;
+		for (String token : split(text, "\\s*,\\s*")) {
+			double weight = 1.0;
+			final int colon = token.indexOf(':');
+			if (colon != -1) {
+				weight = parseWeight(token.substring(colon + 1));
+				token = token.substring(0, colon);
+				weighted = true;
+			}
+			final int count = addToken(token, combos, 0);
+			for (int i = 0; i < count; i++) {
+				weights.put(combos[i], weight);
+			}
+		}
+
+		int size = 0;
+		for (Double weight : weights.values()) {
+			if (weight > 0) {
+				size++;
+			}
+		}
+		final long result[] = new long[size];
+		final double resultWeights[] = weighted ? new double[size] : null;
+		int i = 0;
+		for (Map.Entry<Long, Double> entry : weights.entrySet()) {
+			if (entry.getValue() > 0) {
+				if (weighted) {
+					resultWeights[i] = entry.getValue();
+				}
+				result[i++] = entry.getKey();
+			}
+		}
+		return new HandRange(text, result, resultWeights);
+	}
+
+	private static double parseWeight(String text) throws InvalidCardException {
+		try {
+			final double weight = Double.parseDouble(text.trim());
+			if (weight >= 0 && !Double.isInfinite(weight)) {
+				return weight;
+			}
+		} catch (NumberFormatException e) {
+		}
+		throw new InvalidCardException("Invalid weight " + text);
+	}
+
+	/**
+	 * Add the combos for one part of a range
+	 *
+	 * @param token
+	 * @param combos
+	 *            array to add to
+	 * @param count
+	 *            number of combos in the array so far
+	 * @return number of combos in the array afterwards
+	 */
+	private static int addToken(String token, long combos[], int count)
+			throws InvalidCardException {
+		final int dash = token.indexOf('-');
+		if (dash != -1) {
+			// A span of pairs or kickers, e.g. 22-55 or A2s-A5s
+			final HandClass from = HandClass.parse(token.substring(0, dash));
+			final HandClass to = HandClass.parse(token.substring(dash + 1));
+			if (from.isPair() != to.isPair() || from.suited != to.suited
+					|| (!from.isPair() && from.high != to.high)) {
+				throw new InvalidCardException("Invalid range " + token);
+			}
+			final int lowest = Math.min(from.low, to.low);
+			final int highest = Math.max(from.low, to.low);
+			for (int low = lowest; low <= highest; low++) {
+				final int high = from.isPair() ? low : from.high;
+				count = addCombos(high, low, from.suited, combos, count);
+			}
+		} else if (token.endsWith("+")) {
+			// Higher pairs, or higher kickers up to one below the top card
+			final HandClass from = HandClass.parse(token.substring(0,
+					token.length() - 1));
+			final int top = from.isPair() ? 12 : from.high - 1;
+			for (int low = from.low; low <= top; low++) {
+				final int high = from.isPair() ? low : from.high;
+				count = addCombos(high, low, from.suited, combos, count);
+			}
+		} else if (token.length() == 4 && CardSuit.isValidSuit(token.charAt(1))
+				&& CardSuit.isValidSuit(token.charAt(3))) {
+			// A single hand
+			final Card card1 = Card.fromString(token.substring(0, 2));
+			final Card card2 = Card.fromString(token.substring(2));
+			if (card1 == card2) {
+				throw new InvalidCardException("Invalid range " + token);
+			}
+			combos[count++] = CardMask.of(card1) | CardMask.of(card2);
+		} else {
+			final HandClass hand = HandClass.parse(token);
+			count = addCombos(hand.high, hand.low, hand.suited, combos, count);
+		}
+		return count;
+	}
+
+	/**
+	 * Add every combo of two values
+	 *
+	 * @param high
+	 *            ordinal of the higher value
+	 * @param low
+	 *            ordinal of the lower value, same as high for a pair
+	 * @param suited
+	 *            TRUE for suited combos, FALSE for offsuit or null for both
+	 * @param combos
+	 *            array to add to
+	 * @param count
+	 *            number of combos in the array so far
+	 * @return number of combos in the array afterwards
+	 */
+	private static int addCombos(int high, int low, Boolean suited,
+			long combos[], int count) throws InvalidCardException {
+		final CardValue values[] = CardValue.values();
+		final CardSuit suits[] = CardSuit.values();
+		for (int s1 = 0; s1 < 4; s1++) {
+			for (int s2 = 0; s2 < 4; s2++) {
+				if (high == low && s2 <= s1) {
+					continue;
+				}
+				if (suited != null && suited != (s1 == s2)) {
+					continue;
+				}
+				combos[count++] = CardMask.of(Card.getCard(values[high],
+						suits[s1]))
+						| CardMask.of(Card.getCard(values[low], suits[s2]));
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Two values and whether they are suited, e.g. AKs, AK or TT
+	 */
+	private static class HandClass {
+		int high;
+		int low;
+		/** TRUE for suited, FALSE for offsuit, null for either */
+		Boolean suited;
+
+		boolean isPair() {
+			return high == low;
+		}
+
+		static HandClass parse(String text) throws InvalidCardException {
+			if (text.length() < 2 || text.length() > 3) {
+				throw new InvalidCardException("Invalid hand " + text);
+			}
+			final HandClass hand = new HandClass();
+			final int v1 = CardValue.toCardValue(text.charAt(0)).getOrdinal();
+			final int v2 = CardValue.toCardValue(text.charAt(1)).getOrdinal();
+			hand.high = Math.max(v1, v2);
+			hand.low = Math.min(v1, v2);
+			if (text.length() == 3) {
+				final char s = Character.toLowerCase(text.charAt(2));
+				if (s == 's' && !hand.isPair()) {
+					hand.suited = Boolean.TRUE;
+				} else if (s == 'o') {
+					hand.suited = Boolean.FALSE;
+				} else {
+					throw new InvalidCardException("Invalid hand " + text);
+				}
+			}
+			return hand;
+		}
+	}
+}
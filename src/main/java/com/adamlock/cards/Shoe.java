@@ -0,0 +1,1015 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * A shoe of several standard decks shuffled together, as used for blackjack
+ * and other casino games, so every card appears once per deck.
+ * <p>
+ * The shoe is held as an array of card indices with the undrawn cards at the
+ * bottom and the top of the shoe last, just like {@link DeckImpl}, along with
+ * a count of the undrawn copies of each card so composition queries are
+ * constant time.
+ * <p>
+ * Where a card is duplicated, removing it removes the undrawn copy nearest the
+ * top of the shoe, i.e. the one which would be dealt first, and replacing it
+ * returns one drawn copy to the bottom of the undrawn cards. Each entry in an
+ * array passed to the bulk operations stands for one copy, so removing { As, As
+ * } removes two aces of spades if two are undrawn.
+ * <p>
+ * A cut card can be placed so the dealer knows when to reshuffle, see
+ * {@link #setPenetration(double)} and {@link #isCutCardReached()}.
+ *
+ * @author Adam Lock
+ */
+public class Shoe implements Cloneable, Deck {
+
+	/** The most decks a shoe can hold */
+	public static final int MAX_DECKS = 8;
+
+	private static final Card allCards[] = Card.values();
+
+	/** Number of decks in the shoe */
+	private final int decks;
+
+	/** Card indices, the undrawn cards are at the bottom and top is last */
+	private final int cards[];
+
+	/** Index of the first drawn card, i.e. the number of undrawn cards */
+	private int startOfDrawn;
+
+	/** Number of undrawn copies of each card */
+	private final int undrawnCount[] = new int[52];
+
+	/** Copies of each card still to be found by a bulk remove or replace */
+	private final int pendingCount[] = new int[52];
+
+	/** Working space for bulk remove and replace */
+	private final int scratch[];
+
+	/** The cut card is reached when this many undrawn cards are left */
+	private int cutCard = 0;
+
+	/** Shuffling algorithm */
+	private Shuffler shuffler = FisherYatesShuffler.INSTANCE;
+
+	/** Source of randomness for shuffling and dealing */
+	private Random random = ShuffleInfo.RANDOM;
+
+	/** Finds cards for pattern arrays, created when first needed */
+	private PatternMatcher matcher;
+
+	/** Chooses the top-most card for the matcher */
+	private PatternMatcher.Chooser topMost;
+
+	/** State of the shoe for each mark, see {@link #mark()} */
+	private int markStartOfDrawn[] = new int[0];
+	private int markSnapshot[][] = new int[0][];
+	private boolean markHasSnapshot[] = new boolean[0];
+	private int markCount = 0;
+
+	/**
+	 * Constructor
+	 *
+	 * @param decks
+	 *            number of decks in the shoe, from 1 to {@link #MAX_DECKS}
+	 */
+	public Shoe(int decks) {
+		if (decks < 1 || decks > MAX_DECKS) {
+			throw new IllegalArgumentException("Shoe must hold 1 to "
+					+ MAX_DECKS + " decks");
+		}
+		this.decks = decks;
+		cards = new int[decks * allCards.length];
+		scratch = new int[cards.length];
+		createShoe();
+	}
+
+	/**
+	 * Constructor which optionally shuffles the shoe
+	 *
+	 * @param decks
+	 *            number of decks in the shoe
+	 * @param shuffle
+	 */
+	public Shoe(int decks, boolean shuffle) {
+		this(decks);
+		if (shuffle) {
+			shuffle();
+		}
+	}
+
+	/**
+	 * Constructor which uses the specified source of randomness.
+	 *
+	 * @param decks
+	 *            number of decks in the shoe
+	 * @param random
+	 */
+	public Shoe(int decks, Random random) {
+		this(decks);
+		setRandom(random);
+	}
+
+	/**
+	 * Constructor which uses the specified source of randomness and shuffling
+	 * algorithm.
+	 *
+	 * @param decks
+	 *            number of decks in the shoe
+	 * @param random
+	 * @param shuffler
+	 */
+	public Shoe(int decks, Random random, Shuffler shuffler) {
+		this(decks);
+		setRandom(random);
+		setShuffler(shuffler);
+	}
+
+	/**
+	 * Set the source of randomness used to shuffle and deal cards.
+	 *
+	 * @param random
+	 */
+	public void setRandom(Random random) {
+		if (random == null) {
+			throw new IllegalArgumentException("Must supply a random");
+		}
+		this.random = random;
+	}
+
+	/**
+	 * Get the source of randomness used to shuffle and deal cards.
+	 *
+	 * @return the source of randomness
+	 */
+	public Random getRandom() {
+		return random;
+	}
+
+	/**
+	 * Set the algorithm used to shuffle the shoe.
+	 *
+	 * @param shuffler
+	 */
+	public void setShuffler(Shuffler shuffler) {
+		if (shuffler == null) {
+			throw new IllegalArgumentException("Must supply a shuffler");
+		}
+		this.shuffler = shuffler;
+	}
+
+	/**
+	 * Get the algorithm used to shuffle the shoe.
+	 *
+	 * @return the shuffler
+	 */
+	public Shuffler getShuffler() {
+		return shuffler;
+	}
+
+	/**
+	 * Get the number of decks in the shoe
+	 *
+	 * @return number of decks
+	 */
+	public int getDecks() {
+		return decks;
+	}
+
+	/**
+	 * Place the cut card so it is reached when the specified number of
+	 * undrawn cards are left in the shoe.
+	 *
+	 * @param cutCard
+	 *            number of cards behind the cut card, from 0 to the total
+	 *            size of the shoe
+	 */
+	public void setCutCard(int cutCard) {
+		if (cutCard < 0 || cutCard > cards.length) {
+			throw new IllegalArgumentException("Cut card is outside the shoe");
+		}
+		this.cutCard = cutCard;
+	}
+
+	/**
+	 * Get the number of cards behind the cut card
+	 *
+	 * @return number of cards
+	 */
+	public int getCutCard() {
+		return cutCard;
+	}
+
+	/**
+	 * Place the cut card so it is reached once the specified fraction of the
+	 * shoe has been dealt, e.g. 0.75 to deal three quarters of the shoe
+	 * before reshuffling.
+	 *
+	 * @param penetration
+	 *            fraction of the shoe dealt before the cut card, from 0 to 1
+	 */
+	public void setPenetration(double penetration) {
+		if (penetration < 0 || penetration > 1) {
+			throw new IllegalArgumentException(
+					"Penetration must be between 0 and 1");
+		}
+		setCutCard(cards.length - (int) Math.round(cards.length * penetration));
+	}
+
+	/**
+	 * Test if the cut card has come out, i.e. the shoe should be reset and
+	 * shuffled once the current round is over.
+	 *
+	 * @return true if the cut card has been reached
+	 */
+	public boolean isCutCardReached() {
+		return startOfDrawn <= cutCard;
+	}
+
+	/**
+	 * Count the undrawn copies of a card
+	 *
+	 * @param card
+	 * @return number of copies which could still be dealt
+	 */
+	public int count(Card card) {
+		return undrawnCount[card.ordinal()];
+	}
+
+	/**
+	 * Count the undrawn cards of a value in any suit
+	 *
+	 * @param value
+	 *            a value which must not be random
+	 * @return number of cards which could still be dealt
+	 */
+	public int count(CardValue value) {
+		final int valueIndex = value.getOrdinal();
+		if (valueIndex == -1) {
+			throw new IllegalArgumentException("Must supply a card value");
+		}
+		int count = 0;
+		for (int i = valueIndex; i < undrawnCount.length; i += 13) {
+			count += undrawnCount[i];
+		}
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#getUndrawnMask()
+	 */
+	public long getUndrawnMask() {
+		long mask = 0;
+		for (int i = 0; i < undrawnCount.length; i++) {
+			if (undrawnCount[i] > 0) {
+				mask |= 1L << i;
+			}
+		}
+		return mask;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#countMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int countMatching(CardPattern pattern) {
+		if (pattern.isRandom()) {
+			return startOfDrawn;
+		}
+		int count = 0;
+		for (long mask = pattern.getMask(); mask != 0; mask &= mask - 1) {
+			count += undrawnCount[Long.numberOfTrailingZeros(mask)];
+		}
+		return count;
+	}
+
+	/**
+	 * Fill the shoe with each deck in order
+	 */
+	private void createShoe() {
+		for (int i = 0; i < cards.length; i++) {
+			cards[i] = i % allCards.length;
+		}
+		startOfDrawn = cards.length;
+		resetCounts();
+	}
+
+	private void resetCounts() {
+		for (int i = 0; i < undrawnCount.length; i++) {
+			undrawnCount[i] = decks;
+		}
+	}
+
+	/**
+	 * Count the undrawn copies of each card from scratch
+	 */
+	private void recount() {
+		for (int i = 0; i < undrawnCount.length; i++) {
+			undrawnCount[i] = 0;
+		}
+		for (int i = 0; i < startOfDrawn; i++) {
+			undrawnCount[cards[i]]++;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#reset()
+	 */
+	public void reset() {
+		// The drawn cards come back without the marks knowing, so rewind
+		// must count again rather than put back only the cards dealt since
+		saveForRewind();
+		startOfDrawn = cards.length;
+		resetCounts();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#shuffle()
+	 */
+	public void shuffle() {
+		saveForRewind();
+		shuffler.shuffle(cards, startOfDrawn, random);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return startOfDrawn == 0;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#size()
+	 */
+	public int size() {
+		return startOfDrawn;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#totalSize()
+	 */
+	public int totalSize() {
+		return cards.length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#isUndrawn(com.adamlock.cards.Card)
+	 */
+	public boolean isUndrawn(Card card) {
+		return undrawnCount[card.ordinal()] > 0;
+	}
+
+	/**
+	 * Deal the top card
+	 *
+	 * @return the card
+	 */
+	private Card draw() {
+		return allCards[drawIndex()];
+	}
+
+	/**
+	 * Deal the top card
+	 *
+	 * @return the card index
+	 */
+	private int drawIndex() {
+		final int cardIndex = cards[--startOfDrawn];
+		undrawnCount[cardIndex]--;
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(int)
+	 */
+	public Card[] deal(int numCards) throws EmptyDeckException {
+		return deal(numCards, new Card[numCards]);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(int, com.adamlock.cards.Card[])
+	 */
+	public Card[] deal(int numCards, Card[] inCards) throws EmptyDeckException {
+		if (inCards == null) {
+			throw new IllegalArgumentException();
+		}
+		if (inCards.length < numCards) {
+			throw new IllegalArgumentException();
+		}
+		if (numCards < 1) {
+			throw new IllegalArgumentException();
+		}
+		if (startOfDrawn < numCards) {
+			throw new EmptyDeckException();
+		}
+		for (int i = 0; i < numCards; ++i) {
+			inCards[i] = draw();
+		}
+		return inCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(com.adamlock.cards.CardPattern, int)
+	 */
+	public Card[] deal(CardPattern pattern, int numCards)
+			throws EmptyDeckException {
+		if (pattern.isRandom()) {
+			return deal(numCards);
+		}
+		final Card[] result = new Card[numCards];
+		for (int i = 0; i < numCards; i++) {
+			result[i] = dealOne(pattern);
+		}
+		return result;
+	}
+
+	/**
+	 * Find the top-most undrawn card which is in the mask
+	 *
+	 * @param mask
+	 *            cards to look for
+	 * @return position of the card or -1 if nothing matches
+	 */
+	private int findMatch(long mask) {
+		for (int i = startOfDrawn - 1; i >= 0; i--) {
+			if ((mask & (1L << cards[i])) != 0) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the top-most undrawn copy of a card
+	 *
+	 * @param cardIndex
+	 * @return position of the card or -1 if no copy is undrawn
+	 */
+	private int findUndrawn(int cardIndex) {
+		if (undrawnCount[cardIndex] == 0) {
+			return -1;
+		}
+		int slot = startOfDrawn - 1;
+		while (cards[slot] != cardIndex) {
+			slot--;
+		}
+		return slot;
+	}
+
+	/**
+	 * Move the undrawn card at the slot to the start of the drawn pile,
+	 * keeping the order of the other undrawn cards.
+	 *
+	 * @param slot
+	 */
+	private void removeCardAt(int slot) {
+		saveForRewind();
+		final int cardIndex = cards[slot];
+		startOfDrawn--;
+		System.arraycopy(cards, slot + 1, cards, slot, startOfDrawn - slot);
+		cards[startOfDrawn] = cardIndex;
+		undrawnCount[cardIndex]--;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealOne(com.adamlock.cards.CardPattern)
+	 */
+	public Card dealOne(CardPattern pattern) throws EmptyDeckException {
+		if (pattern.isRandom()) {
+			return dealOne();
+		}
+		final int cardIndex = dealMatching(pattern);
+		return cardIndex != -1 ? allCards[cardIndex] : null;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int dealMatching(CardPattern pattern) {
+		if (pattern.isRandom()) {
+			return tryDealOne();
+		}
+		final int slot = findMatch(pattern.getMask());
+		if (slot == -1) {
+			return -1;
+		}
+		final int cardIndex = cards[slot];
+		removeCardAt(slot);
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.adamlock.cards.Deck#dealRandomMatching(com.adamlock.cards.CardPattern)
+	 */
+	public int dealRandomMatching(CardPattern pattern) {
+		final long matches = pattern.getMask() & getUndrawnMask();
+		if (matches == 0) {
+			return -1;
+		}
+		// Each undrawn copy is equally likely, copies are interchangeable so
+		// the top-most copy of the chosen card is dealt
+		final int cardIndex = PatternMatcher.pickRandom(matches, undrawnCount,
+				random);
+		removeCardAt(findUndrawn(cardIndex));
+		return cardIndex;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#deal(com.adamlock.cards.CardPattern[])
+	 */
+	public Card[] deal(CardPattern patterns[]) throws EmptyDeckException,
+			InvalidCardException {
+		return dealPatterns(patterns, false);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealRandom(com.adamlock.cards.CardPattern[])
+	 */
+	public Card[] dealRandom(CardPattern patterns[])
+			throws InvalidCardException {
+		return dealPatterns(patterns, true);
+	}
+
+	/**
+	 * Deal a different card for each pattern. Several patterns can share a
+	 * card which has several undrawn copies.
+	 *
+	 * @param patterns
+	 * @param randomly
+	 *            true to pick uniformly from all the ways the patterns could
+	 *            be dealt, false to prefer the top-most cards
+	 * @return drawn cards or null for null patterns
+	 * @throws InvalidCardException
+	 *             if the patterns can't all be given different cards, in
+	 *             which case nothing is dealt
+	 */
+	private Card[] dealPatterns(CardPattern patterns[], boolean randomly)
+			throws InvalidCardException {
+		if (matcher == null) {
+			matcher = new PatternMatcher();
+			topMost = new PatternMatcher.Chooser() {
+				public int choose(long candidates) {
+					return cards[findMatch(candidates)];
+				}
+			};
+		}
+		final long available = getUndrawnMask();
+		final int failed = randomly ? matcher.matchRandom(patterns, available,
+				undrawnCount, random) : matcher.match(patterns, available,
+				undrawnCount, topMost);
+		if (failed != -1) {
+			throw new InvalidCardException(patterns[failed],
+					"Pattern does not match any card left in the shoe");
+		}
+		final Card[] result = new Card[patterns.length];
+		int count = 0;
+		for (int i = 0; i < patterns.length; i++) {
+			final int cardIndex = matcher.getAssigned(i);
+			if (cardIndex != -1) {
+				result[i] = allCards[cardIndex];
+				pendingCount[cardIndex]++;
+				count++;
+			}
+		}
+		removePending(count);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealOne()
+	 */
+	public Card dealOne() throws EmptyDeckException {
+		if (startOfDrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		return draw();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealIndex()
+	 */
+	public int dealIndex() throws EmptyDeckException {
+		if (startOfDrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		return drawIndex();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#tryDealOne()
+	 */
+	public int tryDealOne() {
+		if (startOfDrawn == 0) {
+			return -1;
+		}
+		return drawIndex();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealIndices(int, int[], int)
+	 */
+	public int dealIndices(int numCards, int indices[], int offset) {
+		if (indices == null || numCards < 0 || offset < 0
+				|| offset + numCards > indices.length) {
+			throw new IllegalArgumentException();
+		}
+		numCards = Math.min(numCards, startOfDrawn);
+		for (int i = offset; i < offset + numCards; ++i) {
+			indices[i] = drawIndex();
+		}
+		return numCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#dealRandom()
+	 */
+	public Card dealRandom() throws EmptyDeckException {
+		if (startOfDrawn == 0) {
+			throw new EmptyDeckException();
+		}
+		final int slot = random.nextInt(startOfDrawn);
+		final Card card = allCards[cards[slot]];
+		removeCardAt(slot);
+		return card;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card)
+	 */
+	public boolean removeCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+		final int slot = findUndrawn(card.ordinal());
+		if (slot == -1) {
+			return false;
+		}
+		removeCardAt(slot);
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card[])
+	 */
+	public int removeCard(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return removeCard(cards, 0, cards.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#removeCard(com.adamlock.cards.Card[], int,
+	 * int)
+	 */
+	public int removeCard(Card[] cards, int offset, int length) {
+		DeckImpl.checkRange(cards, offset, length);
+		return removePending(countPending(cards, offset, length, undrawnCount));
+	}
+
+	/**
+	 * Remove the copies of each card held in pendingCount, taking the copies
+	 * nearest the top.
+	 *
+	 * @param count
+	 *            total number of cards to remove, which must all be undrawn
+	 * @return the number of cards removed
+	 */
+	private int removePending(int count) {
+		if (count == 0) {
+			return 0;
+		}
+		saveForRewind();
+
+		// Walk down from the top taking the cards out and moving the others
+		// up to close the gaps
+		int found = 0;
+		int write = startOfDrawn;
+		int slot = startOfDrawn - 1;
+		for (; found < count; slot--) {
+			final int cardIndex = cards[slot];
+			if (pendingCount[cardIndex] > 0) {
+				pendingCount[cardIndex]--;
+				scratch[found++] = cardIndex;
+			} else {
+				cards[--write] = cardIndex;
+			}
+		}
+		// Close the gap left below the cards that were kept
+		System.arraycopy(cards, write, cards, slot + 1, startOfDrawn - write);
+		startOfDrawn -= count;
+		System.arraycopy(scratch, 0, cards, startOfDrawn, count);
+		for (int i = 0; i < count; i++) {
+			undrawnCount[scratch[i]]--;
+		}
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card)
+	 */
+	public boolean replaceCard(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+		final int cardIndex = card.ordinal();
+		if (undrawnCount[cardIndex] == decks) {
+			return false;
+		}
+		saveForRewind();
+		int slot = startOfDrawn;
+		while (cards[slot] != cardIndex) {
+			slot++;
+		}
+		cards[slot] = cards[startOfDrawn];
+		System.arraycopy(cards, 0, cards, 1, startOfDrawn);
+		cards[0] = cardIndex;
+		startOfDrawn++;
+		undrawnCount[cardIndex]++;
+		return true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card[])
+	 */
+	public int replaceCard(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return replaceCard(cards, 0, cards.length);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#replaceCard(com.adamlock.cards.Card[], int,
+	 * int)
+	 */
+	public int replaceCard(Card[] cards, int offset, int length) {
+		DeckImpl.checkRange(cards, offset, length);
+		final int count = countPending(cards, offset, length, null);
+		if (count == 0) {
+			return 0;
+		}
+		saveForRewind();
+
+		// Walk up the drawn pile taking the cards out and moving the others
+		// down to close the gaps
+		int found = 0;
+		int slot = startOfDrawn;
+		for (; found < count; slot++) {
+			final int cardIndex = this.cards[slot];
+			if (pendingCount[cardIndex] > 0) {
+				pendingCount[cardIndex]--;
+				scratch[found++] = cardIndex;
+			} else {
+				this.cards[slot - found] = cardIndex;
+			}
+		}
+		// Make room at the bottom for the replaced cards
+		System.arraycopy(this.cards, startOfDrawn, this.cards, startOfDrawn
+				+ count, slot - count - startOfDrawn);
+		System.arraycopy(this.cards, 0, this.cards, count, startOfDrawn);
+		System.arraycopy(scratch, 0, this.cards, 0, count);
+		startOfDrawn += count;
+		for (int i = 0; i < count; i++) {
+			undrawnCount[scratch[i]]++;
+		}
+		return count;
+	}
+
+	/**
+	 * Work out how many copies of each card a bulk remove or replace will
+	 * move, limited to the copies available, and store them in pendingCount.
+	 *
+	 * @param cards
+	 * @param offset
+	 * @param length
+	 * @param available
+	 *            undrawn counts when removing, or null to use the drawn
+	 *            counts when replacing
+	 * @return total number of cards to move
+	 */
+	private int countPending(Card[] cards, int offset, int length,
+			int available[]) {
+		int count = 0;
+		for (int i = offset; i < offset + length; i++) {
+			if (cards[i] == null) {
+				continue;
+			}
+			final int cardIndex = cards[i].ordinal();
+			final int copies = available != null ? available[cardIndex]
+					: decks - undrawnCount[cardIndex];
+			if (pendingCount[cardIndex] < copies) {
+				pendingCount[cardIndex]++;
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Called before cards are moved around. The first time this happens after
+	 * a mark, the shoe as it was at the mark is copied so rewind can restore
+	 * it.
+	 */
+	private void saveForRewind() {
+		if (markCount == 0) {
+			return;
+		}
+		final int mark = markCount - 1;
+		if (markHasSnapshot[mark]) {
+			return;
+		}
+		if (markSnapshot[mark] == null) {
+			markSnapshot[mark] = new int[cards.length];
+		}
+		System.arraycopy(cards, 0, markSnapshot[mark], 0, cards.length);
+		markHasSnapshot[mark] = true;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#mark()
+	 */
+	public int mark() {
+		if (markCount == markStartOfDrawn.length) {
+			final int newLength = markCount + 4;
+			final int newStartOfDrawn[] = new int[newLength];
+			final int newSnapshot[][] = new int[newLength][];
+			final boolean newHasSnapshot[] = new boolean[newLength];
+			System.arraycopy(markStartOfDrawn, 0, newStartOfDrawn, 0, markCount);
+			System.arraycopy(markSnapshot, 0, newSnapshot, 0, markCount);
+			System.arraycopy(markHasSnapshot, 0, newHasSnapshot, 0, markCount);
+			markStartOfDrawn = newStartOfDrawn;
+			markSnapshot = newSnapshot;
+			markHasSnapshot = newHasSnapshot;
+		}
+		markStartOfDrawn[markCount] = startOfDrawn;
+		markHasSnapshot[markCount] = false;
+		return markCount++;
+	}
+
+	private void checkMark(int mark) {
+		if (mark < 0 || mark >= markCount) {
+			throw new IllegalArgumentException("Invalid mark " + mark);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#rewind(int)
+	 */
+	public void rewind(int mark) {
+		checkMark(mark);
+		boolean moved = false;
+		for (int i = markCount - 1; i >= mark; i--) {
+			if (markHasSnapshot[i]) {
+				System.arraycopy(markSnapshot[i], 0, cards, 0, cards.length);
+				markHasSnapshot[i] = false;
+				moved = true;
+			} else if (!moved) {
+				// Only deals since the mark, put the cards back
+				for (int j = startOfDrawn; j < markStartOfDrawn[i]; j++) {
+					undrawnCount[cards[j]]++;
+				}
+			}
+			startOfDrawn = markStartOfDrawn[i];
+		}
+		if (moved) {
+			recount();
+		}
+		markCount = mark + 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Deck#release(int)
+	 */
+	public void release(int mark) {
+		checkMark(mark);
+		while (markCount > mark) {
+			final int released = --markCount;
+			if (markHasSnapshot[released] && markCount > 0
+					&& !markHasSnapshot[markCount - 1]) {
+				// Only cards were dealt between the mark below and the
+				// released mark, so the cards were in the same order
+				final int snapshot[] = markSnapshot[markCount - 1];
+				markSnapshot[markCount - 1] = markSnapshot[released];
+				markHasSnapshot[markCount - 1] = true;
+				markSnapshot[released] = snapshot;
+			}
+			markHasSnapshot[released] = false;
+		}
+	}
+
+	/**
+	 * Validate all the cards
+	 */
+	void internalValidate() {
+		final int counts[] = new int[undrawnCount.length];
+		for (int i = 0; i < cards.length; i++) {
+			counts[cards[i]]++;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != decks) {
+				throw new RuntimeException("Card " + allCards[i]
+						+ " is in the shoe " + counts[i] + " times");
+			}
+			counts[i] = 0;
+		}
+		for (int i = 0; i < startOfDrawn; i++) {
+			counts[cards[i]]++;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != undrawnCount[i]) {
+				throw new RuntimeException("Undrawn count of card "
+						+ allCards[i] + " is wrong");
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuffer sb = new StringBuffer();
+		for (int i = startOfDrawn - 1; i >= 0; i--) {
+			sb.append(allCards[cards[i]].toString());
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+	public Object clone() {
+		final Shoe newShoe = new Shoe(decks, random, shuffler);
+		System.arraycopy(cards, 0, newShoe.cards, 0, cards.length);
+		System.arraycopy(undrawnCount, 0, newShoe.undrawnCount, 0,
+				undrawnCount.length);
+		newShoe.startOfDrawn = startOfDrawn;
+		newShoe.cutCard = cutCard;
+		return newShoe;
+	}
+}
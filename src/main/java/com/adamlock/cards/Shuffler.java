@@ -0,0 +1,29 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * A strategy for putting the undrawn cards of a deck into a random order. A
+ * deck holds its cards as an array of card indices, and a shuffler reorders
+ * the first part of that array in place.
+ *
+ * @author Adam Lock
+ * @see DeckImpl#setShuffler(Shuffler)
+ */
+public interface Shuffler {
+
+	/**
+	 * Shuffle the first length entries of the array in place.
+	 *
+	 * @param cards
+	 *            array of card indices
+	 * @param length
+	 *            number of entries from the start of the array to shuffle
+	 * @param random
+	 *            source of randomness to shuffle with
+	 */
+	void shuffle(int cards[], int length, Random random);
+}
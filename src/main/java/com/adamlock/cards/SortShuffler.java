@@ -0,0 +1,67 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Shuffles cards by giving each one a large random number and sorting on it.
+ * This was the original shuffle used by the deck and is kept for
+ * compatibility. It allocates for every card and is considerably slower than
+ * the {@link FisherYatesShuffler}.
+ *
+ * @author Adam Lock
+ */
+public class SortShuffler implements Shuffler {
+
+	/** Shared instance, the shuffler holds no state */
+	public static final SortShuffler INSTANCE = new SortShuffler();
+
+	private static final Comparator<ShuffleInfo> shuffleComparator = new Comparator<ShuffleInfo>() {
+		@Override
+		public int compare(ShuffleInfo o1, ShuffleInfo o2) {
+			// Walk the array of bytes until one is deemed to be
+			// larger than the other
+			final int length = o1.getOrder().length;
+			final byte[] b1 = o1.getOrder();
+			final byte[] b2 = o2.getOrder();
+			for (int i = 0; i < length; i++) {
+				if (b1[i] < b2[i])
+					return -1;
+				else if (b1[i] > b2[i])
+					return 1;
+			}
+			return 0;
+		}
+	};
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Shuffler#shuffle(int[], int,
+	 * com.adamlock.cards.Random)
+	 */
+	public void shuffle(int cards[], int length, Random random) {
+		final ArrayList<ShuffleInfo> shuffleList = new ArrayList<ShuffleInfo>(
+				length);
+
+		// For every card in the deck, create a shuffle info consisting of a
+		// random number and the card.
+		for (int i = 0; i < length; i++) {
+			shuffleList.add(new ShuffleInfo(cards[i], random));
+		}
+
+		// Sort by the random number
+		Collections.sort(shuffleList, shuffleComparator);
+
+		// Now create the deck again in the new order
+		for (int i = 0; i < length; i++) {
+			cards[i] = shuffleList.get(i).getCardIndex();
+		}
+	}
+}
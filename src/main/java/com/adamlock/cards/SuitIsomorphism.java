@@ -0,0 +1,243 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Relabels suits so that situations which differ only by their suits look the
+ * same. A situation is a list of groups of cards, e.g. each player's hole
+ * cards, the board and the dead cards, held as masks (see {@link CardMask}).
+ * Swapping suits around never changes who wins, so AhKd against QsQc is the
+ * same as AcKs against QhQd.
+ * <p>
+ * Each suit is described by the values it holds in each group. The suits are
+ * sorted by their description and given the suits of {@link CardSuit} in
+ * order, so the first is always clubs. Situations which are the same but for
+ * their suits come out the same, which makes the canonical masks a good key
+ * for caching results.
+ * <p>
+ * Suits with the same description can be swapped without changing any group.
+ * These swaps are the symmetries of the situation, and a mask of further
+ * cards, e.g. the rest of a board, belongs to a class of masks which the
+ * swaps turn into one another and which all give the same result. Only the
+ * lowest mask of each class need be evaluated, counted once for each mask in
+ * its class, see {@link #getClassSize(long)}.
+ *
+ * @author Adam Lock
+ */
+public final class SuitIsomorphism {
+
+	/** Number of real suits */
+	public static final int SUITS = 4;
+
+	/** Bits used by one suit of a mask */
+	static final int SUIT_BITS = 13;
+
+	static final long SUIT_MASK = (1L << SUIT_BITS) - 1;
+
+	/** Suit held in each block of 13 bits of a mask */
+	static final CardSuit BLOCK_SUITS[] = new CardSuit[SUITS];
+
+	/** Block of 13 bits holding each suit, by ordinal */
+	static final int SUIT_BLOCKS[] = new int[SUITS];
+
+	static {
+		for (int block = 0; block < SUITS; block++) {
+			final CardSuit suit = Card.fromIndex(block * SUIT_BITS).getSuit();
+			BLOCK_SUITS[block] = suit;
+			SUIT_BLOCKS[suit.ordinal()] = block;
+		}
+	}
+
+	/** Block each block moves to in the canonical masks */
+	private final int canonical[] = new int[SUITS];
+
+	/**
+	 * Each way of moving blocks which leaves every group the same, starting
+	 * with the one which moves nothing
+	 */
+	private final int symmetries[][];
+
+	/**
+	 * Constructor
+	 *
+	 * @param groups
+	 *            masks of the groups of cards which make up the situation
+	 */
+	public SuitIsomorphism(long... groups) {
+		if (groups == null) {
+			throw new IllegalArgumentException("Must supply groups");
+		}
+		for (long group : groups) {
+			if ((group & ~CardMask.FULL) != 0) {
+				throw new IllegalArgumentException("Invalid cards");
+			}
+		}
+
+		// Sort the blocks by their values in each group, highest first
+		final int order[] = new int[SUITS];
+		for (int i = 0; i < SUITS; i++) {
+			order[i] = i;
+		}
+		for (int i = 1; i < SUITS; i++) {
+			final int block = order[i];
+			int j = i;
+			while (j > 0 && compare(groups, order[j - 1], block) < 0) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = block;
+		}
+		for (int i = 0; i < SUITS; i++) {
+			canonical[order[i]] = SUIT_BLOCKS[i];
+		}
+
+		// Every way of swapping blocks with the same values
+		final int found[][] = new int[24][];
+		int numFound = 0;
+		for (int a = 0; a < SUITS; a++) {
+			for (int b = 0; b < SUITS; b++) {
+				for (int c = 0; c < SUITS; c++) {
+					final int d = 6 - a - b - c;
+					if (a == b || a == c || b == c || d == a || d == b
+							|| d == c) {
+						continue;
+					}
+					final int moves[] = { a, b, c, d };
+					boolean same = true;
+					for (int block = 0; block < SUITS && same; block++) {
+						same = compare(groups, block, moves[block]) == 0;
+					}
+					if (same) {
+						found[numFound++] = moves;
+					}
+				}
+			}
+		}
+		symmetries = new int[numFound][];
+		System.arraycopy(found, 0, symmetries, 0, numFound);
+	}
+
+	/**
+	 * Compare the values two blocks hold in each group in turn
+	 */
+	private static int compare(long groups[], int block1, int block2) {
+		for (long group : groups) {
+			final long values1 = (group >>> (block1 * SUIT_BITS)) & SUIT_MASK;
+			final long values2 = (group >>> (block2 * SUIT_BITS)) & SUIT_MASK;
+			if (values1 != values2) {
+				return values1 < values2 ? -1 : 1;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Move the blocks of a mask
+	 */
+	private static long move(long mask, int moves[]) {
+		return ((mask & SUIT_MASK) << (moves[0] * SUIT_BITS))
+				| (((mask >>> SUIT_BITS) & SUIT_MASK) << (moves[1] * SUIT_BITS))
+				| (((mask >>> (2 * SUIT_BITS)) & SUIT_MASK) << (moves[2] * SUIT_BITS))
+				| ((mask >>> (3 * SUIT_BITS)) << (moves[3] * SUIT_BITS));
+	}
+
+	/**
+	 * Get the canonical suit of a suit
+	 *
+	 * @param suit
+	 *            a real suit
+	 * @return the suit it becomes
+	 */
+	public CardSuit map(CardSuit suit) {
+		if (suit == CardSuit.RANDOM) {
+			throw new IllegalArgumentException("Invalid suit");
+		}
+		return BLOCK_SUITS[canonical[SUIT_BLOCKS[suit.ordinal()]]];
+	}
+
+	/**
+	 * Get the canonical card of a card
+	 *
+	 * @param card
+	 * @return the card with its suit made canonical
+	 */
+	public Card map(Card card) {
+		final int index = card.index();
+		return Card.fromIndex(canonical[index / SUIT_BITS] * SUIT_BITS + index
+				% SUIT_BITS);
+	}
+
+	/**
+	 * Get the canonical mask of a mask, e.g. of one of the groups
+	 *
+	 * @param mask
+	 * @return the mask with its suits made canonical
+	 */
+	public long map(long mask) {
+		return move(mask, canonical);
+	}
+
+	/**
+	 * Get the number of ways of swapping suits which leave every group the
+	 * same, including swapping none
+	 *
+	 * @return number of symmetries from 1 to 24
+	 */
+	public int getSymmetries() {
+		return symmetries.length;
+	}
+
+	/**
+	 * Test if two suits can be swapped without changing any group. Suits
+	 * which can be swapped with one another can be put in any order, so the
+	 * symmetries are every order of each set of such suits.
+	 *
+	 * @param suit1
+	 *            a real suit
+	 * @param suit2
+	 *            a real suit
+	 * @return true if some symmetry moves the first suit to the second
+	 */
+	public boolean isSymmetric(CardSuit suit1, CardSuit suit2) {
+		if (suit1 == CardSuit.RANDOM || suit2 == CardSuit.RANDOM) {
+			throw new IllegalArgumentException("Invalid suit");
+		}
+		final int block1 = SUIT_BLOCKS[suit1.ordinal()];
+		final int block2 = SUIT_BLOCKS[suit2.ordinal()];
+		for (int moves[] : symmetries) {
+			if (moves[block1] == block2) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Get the size of the class of masks a mask belongs to, if it is the
+	 * lowest mask of its class. The masks of a class are those the symmetries
+	 * turn the mask into.
+	 *
+	 * @param mask
+	 *            cards which aren't in any group
+	 * @return the number of masks in the class, or 0 if the mask isn't the
+	 *         lowest of its class
+	 */
+	public int getClassSize(long mask) {
+		if (symmetries.length == 1) {
+			return 1;
+		}
+		int same = 1;
+		for (int i = 1; i < symmetries.length; i++) {
+			final long image = move(mask, symmetries[i]);
+			if (image < mask) {
+				return 0;
+			} else if (image == mask) {
+				same++;
+			}
+		}
+		return symmetries.length / same;
+	}
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * A xoshiro256** random number generator. It is small, fast and has a period
+ * of 2^256 - 1, but it is not thread safe, so each deck or thread should own
+ * an instance.
+ *
+ * @author Adam Lock
+ */
+public class XoshiroRandom extends Random {
+
+	/** Makes successive unseeded generators differ from each other */
+	private static long seedUniquifier = 0x5DEECE66DL;
+
+	private long s0;
+	private long s1;
+	private long s2;
+	private long s3;
+
+	/**
+	 * Constructor which seeds the generator from the clock
+	 */
+	public XoshiroRandom() {
+		this(nextSeed());
+	}
+
+	/**
+	 * Constructor which seeds the generator from the specified value. Two
+	 * generators with the same seed produce the same sequence.
+	 *
+	 * @param seed
+	 */
+	public XoshiroRandom(long seed) {
+		super((java.util.Random) null);
+		// Expand the seed with splitmix64 so the state is never all zero
+		long x = seed;
+		x += 0x9E3779B97F4A7C15L;
+		s0 = mix(x);
+		x += 0x9E3779B97F4A7C15L;
+		s1 = mix(x);
+		x += 0x9E3779B97F4A7C15L;
+		s2 = mix(x);
+		x += 0x9E3779B97F4A7C15L;
+		s3 = mix(x);
+	}
+
+	private static synchronized long nextSeed() {
+		seedUniquifier = mix(seedUniquifier + 0x9E3779B97F4A7C15L);
+		return seedUniquifier ^ System.currentTimeMillis();
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Random#nextLong()
+	 */
+	@Override
+	public long nextLong() {
+		final long result = Long.rotateLeft(s1 * 5, 7) * 9;
+		final long t = s1 << 17;
+		s2 ^= s0;
+		s3 ^= s1;
+		s1 ^= s2;
+		s0 ^= s3;
+		s2 ^= t;
+		s3 = Long.rotateLeft(s3, 45);
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.Random#nextInt(int)
+	 */
+	@Override
+	public int nextInt(int modulo) {
+		if (modulo <= 0) {
+			throw new IllegalArgumentException("modulo must be positive");
+		}
+		// Multiply 32 random bits by the modulo and take the top half,
+		// rejecting the few low halves which would bias the result
+		long m = (nextLong() >>> 32) * modulo;
+		long low = m & 0xFFFFFFFFL;
+		if (low < modulo) {
+			final long threshold = (0x100000000L - modulo) % modulo;
+			while (low < threshold) {
+				m = (nextLong() >>> 32) * modulo;
+				low = m & 0xFFFFFFFFL;
+			}
+		}
+		return (int) (m >>> 32);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides when a simulation should stop, at a deadline or once the equity of
+ * every player is known to a precision. Runners add the totals of each batch
+ * of trials to adders which threads update without locking, and the first
+ * runner to see the precision reached tells the others to stop.
+ *
+ * @author Adam Lock
+ */
+final class Budget {
+
+	/** Trials between checks of the budget */
+	static final int CHECK_INTERVAL = 256;
+
+	/** Fewest trials before the precision is trusted */
+	static final long MIN_TRIALS = 1000;
+
+	private final long deadline;
+
+	private final boolean hasDeadline;
+
+	/** Largest error bound wanted on the equity, 0 to ignore */
+	private final double precision;
+
+	/** Number of standard errors in the error bound */
+	private final double z;
+
+	/** Totals of all the batches added so far */
+	private final LongAdder trials = new LongAdder();
+	private final DoubleAdder shares[];
+	private final DoubleAdder squares[];
+
+	private volatile boolean spent;
+
+	/**
+	 * Constructor
+	 *
+	 * @param players
+	 *            number of players
+	 * @param deadline
+	 *            time to stop, from System.nanoTime()
+	 * @param hasDeadline
+	 *            false to ignore the deadline
+	 * @param precision
+	 *            largest error bound wanted on each player's equity, 0 to
+	 *            ignore
+	 * @param z
+	 *            number of standard errors in the error bound
+	 */
+	Budget(int players, long deadline, boolean hasDeadline, double precision,
+			double z) {
+		this.deadline = deadline;
+		this.hasDeadline = hasDeadline;
+		this.precision = precision;
+		this.z = z;
+		this.shares = new DoubleAdder[players];
+		this.squares = new DoubleAdder[players];
+		for (int player = 0; player < players; player++) {
+			shares[player] = new DoubleAdder();
+			squares[player] = new DoubleAdder();
+		}
+	}
+
+	/**
+	 * Test if runners must add their batches to the budget
+	 *
+	 * @return true if there is a precision to reach
+	 */
+	boolean isTracking() {
+		return precision > 0;
+	}
+
+	/**
+	 * Test if the budget is spent
+	 *
+	 * @return true if runners should stop
+	 */
+	boolean isSpent() {
+		if (!spent && hasDeadline && System.nanoTime() - deadline >= 0) {
+			spent = true;
+		}
+		return spent;
+	}
+
+	/**
+	 * Add the totals of a batch of trials and check the precision
+	 *
+	 * @param batch
+	 */
+	void add(EquityStats batch) {
+		trials.add(batch.trials);
+		for (int player = 0; player < shares.length; player++) {
+			shares[player].add(batch.shares[player]);
+			squares[player].add(batch.squares[player]);
+		}
+
+		final long n = trials.sum();
+		if (n < MIN_TRIALS) {
+			return;
+		}
+		for (int player = 0; player < shares.length; player++) {
+			final double error = z
+					* EquityResult.standardError(n, shares[player].sum(),
+							squares[player].sum());
+			if (error > precision) {
+				return;
+			}
+		}
+		spent = true;
+	}
+}
@@ -0,0 +1,344 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveTask;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardSuit;
+import com.adamlock.cards.CombinationIterator;
+import com.adamlock.cards.SuitIsomorphism;
+import com.adamlock.cards.eval.Showdown;
+
+/**
+ * Evaluates every board which could be dealt in a situation. A board is built
+ * a suit at a time, one 13 bit block of the mask after another, by choosing
+ * the values it holds in each suit.
+ * <p>
+ * Boards which are the same but for swapping suits that the hands, board and
+ * dead cards don't tell apart give the same result. Suits which can be
+ * swapped may be put in any order, so only the boards whose values in each
+ * such suit are no lower than in the suit before it are made, and each counts
+ * once for every board its suits can be reordered into. The other boards are
+ * never made, so the work is in proportion to the boards evaluated.
+ * <p>
+ * A task holds a range of choices of the values in one suit, splitting the
+ * range in half, or moving on to the next suit for a single choice, until it
+ * holds few enough boards to run on a single worker.
+ *
+ * @author Adam Lock
+ */
+final class EnumerationTask extends RecursiveTask<EquityStats> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int SUITS = SuitIsomorphism.SUITS;
+
+	private static final int SUIT_BITS = 13;
+
+	private static final int SUIT_MASK = (1 << SUIT_BITS) - 1;
+
+	/** State shared by every task of an enumeration */
+	private static final class Boards {
+
+		final Situation situation;
+
+		/**
+		 * Block before each block whose suit can be swapped with it, or -1 if
+		 * none
+		 */
+		final int previous[] = new int[SUITS];
+
+		/** Number of ways of ordering the suits which can be swapped */
+		final int symmetries;
+
+		/**
+		 * Values which could be dealt in each block, by number of values and
+		 * then lowest first
+		 */
+		final int values[][][] = new int[SUITS][][];
+
+		/** Number of cards which could be dealt in the blocks after each block */
+		final int later[] = new int[SUITS];
+
+		final long blockSize;
+
+		Boards(Situation situation, SuitIsomorphism symmetry, long blockSize) {
+			this.situation = situation;
+			this.blockSize = blockSize;
+			final long available = situation.available();
+			final CardSuit suits[] = new CardSuit[SUITS];
+			int symmetries = 1;
+			final int position[] = new int[SUITS];
+			for (int block = 0; block < SUITS; block++) {
+				suits[block] = Card.fromIndex(block * SUIT_BITS).getSuit();
+				previous[block] = -1;
+				for (int other = block - 1; other >= 0
+						&& previous[block] == -1; other--) {
+					if (symmetry.isSymmetric(suits[other], suits[block])) {
+						previous[block] = other;
+					}
+				}
+				position[block] = previous[block] >= 0 ? position[previous[block]] + 1
+						: 1;
+				symmetries *= position[block];
+
+				final int free = (int) (available >>> (block * SUIT_BITS))
+						& SUIT_MASK;
+				final int size = Math.min(Integer.bitCount(free),
+						situation.boardToDeal);
+				final int counts[] = new int[size + 1];
+				for (int values = 0; values <= free; values++) {
+					if ((values & ~free) == 0 && Integer.bitCount(values) <= size) {
+						counts[Integer.bitCount(values)]++;
+					}
+				}
+				this.values[block] = new int[size + 1][];
+				for (int i = 0; i <= size; i++) {
+					this.values[block][i] = new int[counts[i]];
+					counts[i] = 0;
+				}
+				for (int values = 0; values <= free; values++) {
+					if ((values & ~free) == 0 && Integer.bitCount(values) <= size) {
+						final int bits = Integer.bitCount(values);
+						this.values[block][bits][counts[bits]++] = values;
+					}
+				}
+			}
+			this.symmetries = symmetries;
+			for (int block = SUITS - 2; block >= 0; block--) {
+				later[block] = later[block + 1]
+						+ Long.bitCount(available
+								& ((long) SUIT_MASK << ((block + 1) * SUIT_BITS)));
+			}
+		}
+
+		/**
+		 * Get the values of a block of a mask
+		 */
+		static int valuesOf(long dealt, int block) {
+			return (int) (dealt >>> (block * SUIT_BITS)) & SUIT_MASK;
+		}
+
+		/**
+		 * Get the values a block could be dealt, given the blocks before it
+		 *
+		 * @param block
+		 * @param dealt
+		 *            mask of the cards dealt in the blocks before
+		 * @param remaining
+		 *            cards still to deal
+		 * @return the values in the order they are enumerated
+		 */
+		int[] choices(int block, long dealt, int remaining) {
+			int count = 0;
+			for (int size = first(block, remaining); size <= last(block,
+					remaining); size++) {
+				count += values[block][size].length
+						- lowest(block, size, dealt);
+			}
+			final int choices[] = new int[count];
+			count = 0;
+			for (int size = first(block, remaining); size <= last(block,
+					remaining); size++) {
+				final int from = lowest(block, size, dealt);
+				final int length = values[block][size].length - from;
+				System.arraycopy(values[block][size], from, choices, count,
+						length);
+				count += length;
+			}
+			return choices;
+		}
+
+		/**
+		 * Get the fewest values a block can be dealt, so the blocks after can
+		 * hold the rest
+		 */
+		int first(int block, int remaining) {
+			return Math.max(0, remaining - later[block]);
+		}
+
+		/**
+		 * Get the most values a block can be dealt
+		 */
+		int last(int block, int remaining) {
+			return Math.min(remaining, values[block].length - 1);
+		}
+
+		/**
+		 * Get the position of the lowest values of a size a block can be
+		 * dealt, which must be no lower than the values of the block before
+		 * whose suit can be swapped with it
+		 */
+		int lowest(int block, int size, long dealt) {
+			if (previous[block] < 0) {
+				return 0;
+			}
+			final int position = Arrays.binarySearch(values[block][size],
+					valuesOf(dealt, previous[block]));
+			return position >= 0 ? position : -position - 1;
+		}
+
+		/**
+		 * Get the number of boards a board stands for, i.e. the number of
+		 * ways of ordering its suits which can be swapped
+		 */
+		int weight(long dealt) {
+			if (symmetries == 1) {
+				return 1;
+			}
+			// Suits holding the same values come one after another, so the
+			// number of orders which change nothing is the product of the
+			// factorials of their runs. Each run is kept in 4 bits.
+			int same = 1;
+			int runs = 0;
+			for (int block = 0; block < SUITS; block++) {
+				final int before = previous[block];
+				int run = 1;
+				if (before >= 0
+						&& valuesOf(dealt, before) == valuesOf(dealt, block)) {
+					run = ((runs >>> (before * 4)) & 0xF) + 1;
+				}
+				runs |= run << (block * 4);
+				same *= run;
+			}
+			return symmetries / same;
+		}
+
+		/**
+		 * Evaluate every board from a block on
+		 *
+		 * @param block
+		 *            next block to deal
+		 * @param dealt
+		 *            mask of the cards dealt in the blocks before
+		 * @param remaining
+		 *            cards still to deal
+		 */
+		void enumerate(int block, long dealt, int remaining,
+				Showdown showdown, EquityStats stats) {
+			if (block == SUITS) {
+				stats.showdown(showdown, situation.board | dealt, weight(dealt));
+				return;
+			}
+			final int shift = block * SUIT_BITS;
+			for (int size = first(block, remaining); size <= last(block,
+					remaining); size++) {
+				final int blockValues[] = values[block][size];
+				for (int i = lowest(block, size, dealt); i < blockValues.length; i++) {
+					enumerate(block + 1, dealt
+							| ((long) blockValues[i] << shift), remaining
+							- size, showdown, stats);
+				}
+			}
+		}
+	}
+
+	private final Boards boards;
+
+	/** Block whose values are chosen */
+	private final int block;
+
+	/** Mask of the cards dealt in the blocks before */
+	private final long dealt;
+
+	/** Cards still to deal */
+	private final int remaining;
+
+	/** Values the block could be dealt */
+	private final int choices[];
+
+	/** Range of positions in choices */
+	private final int from;
+	private final int to;
+
+	/**
+	 * Constructor
+	 *
+	 * @param situation
+	 *            situation with at least one board card to come
+	 * @param symmetry
+	 *            swaps of suits which leave the situation the same
+	 * @param blockSize
+	 *            most boards to evaluate without splitting
+	 */
+	EnumerationTask(Situation situation, SuitIsomorphism symmetry,
+			long blockSize) {
+		this(new Boards(situation, symmetry, blockSize), 0, 0,
+				situation.boardToDeal);
+	}
+
+	private EnumerationTask(Boards boards, int block, long dealt,
+			int remaining) {
+		this(boards, block, dealt, remaining, boards.choices(block, dealt,
+				remaining));
+	}
+
+	private EnumerationTask(Boards boards, int block, long dealt,
+			int remaining, int choices[]) {
+		this(boards, block, dealt, remaining, choices, 0, choices.length);
+	}
+
+	private EnumerationTask(Boards boards, int block, long dealt,
+			int remaining, int choices[], int from, int to) {
+		this.boards = boards;
+		this.block = block;
+		this.dealt = dealt;
+		this.remaining = remaining;
+		this.choices = choices;
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Count the boards for a range of choices, before any are left out for
+	 * their suits
+	 */
+	private long countBoards(int from, int to) {
+		long count = 0;
+		for (int i = from; i < to; i++) {
+			count += CombinationIterator.count(boards.later[block], remaining
+					- Integer.bitCount(choices[i]));
+		}
+		return count;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.concurrent.RecursiveTask#compute()
+	 */
+	@Override
+	protected EquityStats compute() {
+		final boolean large = countBoards(from, to) > boards.blockSize;
+		if (large && to - from > 1) {
+			final int middle = (from + to) >>> 1;
+			final EnumerationTask left = new EnumerationTask(boards, block,
+					dealt, remaining, choices, from, middle);
+			final EnumerationTask right = new EnumerationTask(boards, block,
+					dealt, remaining, choices, middle, to);
+			left.fork();
+			final EquityStats stats = right.compute();
+			stats.add(left.join());
+			return stats;
+		} else if (large && to - from == 1 && block + 1 < SUITS) {
+			final int size = Integer.bitCount(choices[from]);
+			return new EnumerationTask(boards, block + 1, dealt
+					| ((long) choices[from] << (block * SUIT_BITS)), remaining
+					- size).compute();
+		}
+
+		final EquityStats stats = new EquityStats(boards.situation.players);
+		final Showdown showdown = new Showdown(boards.situation.hands);
+		for (int i = from; i < to; i++) {
+			boards.enumerate(block + 1, dealt
+					| ((long) choices[i] << (block * SUIT_BITS)), remaining
+					- Integer.bitCount(choices[i]), showdown, stats);
+		}
+		return stats;
+	}
+}
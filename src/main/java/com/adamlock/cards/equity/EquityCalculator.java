@@ -0,0 +1,445 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.CardPattern;
+import com.adamlock.cards.Deck;
+import com.adamlock.cards.HandRange;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.SuitIsomorphism;
+import com.adamlock.cards.eval.Showdown;
+
+/**
+ * Calculates the Hold'em equity of several hands by Monte Carlo simulation
+ * or by enumerating every board. Each trial deals the unknown hole cards and
+ * the rest of the board and evaluates every hand, and the pot is split between
+ * the best hands.
+ * <p>
+ * Trials are split into blocks which run on a fork join pool. Each block has
+ * its own deck and random source, so the blocks share nothing until their
+ * totals are added together at the end. The calculation stops after a number
+ * of trials, after a time limit or once the equity is known to a precision,
+ * whichever comes first. See {@link #setPrecision(double)}.
+ * <p>
+ * When every hole card is known and there are few enough boards left, e.g.
+ * on the turn, every board is evaluated instead, giving the exact equity for
+ * about the cost of the trials. The boards are split between workers by
+ * the values of their suits, and boards which differ only by suits the hands
+ * don't tell apart are evaluated once, see {@link SuitIsomorphism}. See
+ * {@link #setEnumerationLimit(long)}.
+ * <p>
+ * A calculator may be shared between threads once it is set up. Not available
+ * to GWT.
+ *
+ * @author Adam Lock
+ */
+public class EquityCalculator {
+
+	/** Number of trials run unless another budget is set */
+	public static final long DEFAULT_TRIALS = 100000;
+
+	/** Most boards which are enumerated rather than sampled by default */
+	public static final long DEFAULT_ENUMERATION_LIMIT = DEFAULT_TRIALS;
+
+	/** Confidence of the error bounds unless another is set */
+	public static final double DEFAULT_CONFIDENCE = 0.95;
+
+	/** Fewest trials worth running as a block of their own */
+	static final long MIN_BLOCK_SIZE = 1000;
+
+	/** Blocks per worker, so workers which finish early can steal more work */
+	static final int BLOCKS_PER_WORKER = 4;
+
+	private final ForkJoinPool pool;
+
+	private long trials = DEFAULT_TRIALS;
+
+	private long timeLimit = 0;
+
+	private long enumerationLimit = DEFAULT_ENUMERATION_LIMIT;
+
+	private double precision = 0;
+
+	private double confidence = DEFAULT_CONFIDENCE;
+
+	private long seed = System.nanoTime();
+
+	/**
+	 * Constructor which runs calculations on the common fork join pool
+	 */
+	public EquityCalculator() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param pool
+	 *            pool to run calculations on
+	 */
+	public EquityCalculator(ForkJoinPool pool) {
+		if (pool == null) {
+			throw new IllegalArgumentException("Must supply a pool");
+		}
+		this.pool = pool;
+	}
+
+	/**
+	 * Set the number of trials to run
+	 *
+	 * @param trials
+	 *            number of trials, 0 to run until the time limit or precision
+	 */
+	public void setTrials(long trials) {
+		if (trials < 0) {
+			throw new IllegalArgumentException("Invalid number of trials");
+		}
+		this.trials = trials;
+	}
+
+	/**
+	 * Get the number of trials to run
+	 *
+	 * @return number of trials, 0 if there is no limit
+	 */
+	public long getTrials() {
+		return trials;
+	}
+
+	/**
+	 * Set a time limit. The calculation stops at the time limit even if it has
+	 * not run all its trials.
+	 *
+	 * @param timeLimit
+	 *            time limit in milliseconds, 0 for no limit
+	 */
+	public void setTimeLimit(long timeLimit) {
+		if (timeLimit < 0) {
+			throw new IllegalArgumentException("Invalid time limit");
+		}
+		this.timeLimit = timeLimit;
+	}
+
+	/**
+	 * Get the time limit
+	 *
+	 * @return time limit in milliseconds, 0 if there is no limit
+	 */
+	public long getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * Set the most boards which are enumerated rather than sampled. Every
+	 * board is evaluated, whatever the trials or time limit, when the hole
+	 * cards are known and there are no more boards than this.
+	 *
+	 * @param enumerationLimit
+	 *            number of boards, 0 to always sample
+	 */
+	public void setEnumerationLimit(long enumerationLimit) {
+		if (enumerationLimit < 0) {
+			throw new IllegalArgumentException("Invalid enumeration limit");
+		}
+		this.enumerationLimit = enumerationLimit;
+	}
+
+	/**
+	 * Get the most boards which are enumerated rather than sampled
+	 *
+	 * @return number of boards
+	 */
+	public long getEnumerationLimit() {
+		return enumerationLimit;
+	}
+
+	/**
+	 * Set the precision to stop at. The calculation stops as soon as the error
+	 * bound of every player's equity is no more than this, even if it has not
+	 * run all its trials. The workers add up their totals as they go without
+	 * locking, and the bound is checked after every few hundred trials, so
+	 * lopsided hands which need few trials finish early. A result which stops
+	 * early depends on how the workers were scheduled.
+	 *
+	 * @param precision
+	 *            largest error bound wanted, e.g. 0.005 for equity within half
+	 *            a percent, 0 to run every trial
+	 */
+	public void setPrecision(double precision) {
+		if (!(precision >= 0 && precision < 1)) {
+			throw new IllegalArgumentException("Invalid precision");
+		}
+		this.precision = precision;
+	}
+
+	/**
+	 * Get the precision to stop at
+	 *
+	 * @return largest error bound wanted, 0 if there is none
+	 */
+	public double getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Set the confidence of the error bounds, which is used by the precision
+	 * and the bounds of each result
+	 *
+	 * @param confidence
+	 *            chance the true value lies within the bounds, between 0 and 1
+	 */
+	public void setConfidence(double confidence) {
+		if (!(confidence > 0 && confidence < 1)) {
+			throw new IllegalArgumentException("Invalid confidence");
+		}
+		this.confidence = confidence;
+	}
+
+	/**
+	 * Get the confidence of the error bounds
+	 *
+	 * @return confidence between 0 and 1
+	 */
+	public double getConfidence() {
+		return confidence;
+	}
+
+	/**
+	 * Set the seed the random source of each block is made from. Calculations
+	 * with the same seed and trials and no time limit give the same result.
+	 *
+	 * @param seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * Get the seed
+	 *
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Calculate the equity of players with known hole cards
+	 *
+	 * @param holeCards
+	 *            two hole cards for each player, at least two players
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            cards known to be out of play, may be null
+	 * @return the equity of each player
+	 * @throws InvalidCardException
+	 *             if the cards can't be dealt
+	 */
+	public EquityResult calculate(Card holeCards[][], Card board[],
+			Card dead[]) throws InvalidCardException {
+		return calculate(toPatterns(holeCards), board, dead);
+	}
+
+	/**
+	 * Calculate the equity of players with known hole cards, where the rest
+	 * of the board comes from the undrawn cards of a deck. The hole cards and
+	 * board need not have been dealt from the deck.
+	 *
+	 * @param deck
+	 *            deck holding the cards which could be dealt
+	 * @param holeCards
+	 *            two hole cards for each player, at least two players
+	 * @param board
+	 *            known board cards, may be null
+	 * @return the equity of each player
+	 * @throws InvalidCardException
+	 *             if the cards can't be dealt
+	 */
+	public EquityResult calculate(Deck deck, Card holeCards[][], Card board[])
+			throws InvalidCardException {
+		return run(new Situation(toPatterns(holeCards), board, dead(deck)),
+				false);
+	}
+
+	/**
+	 * Calculate the exact equity of players with known hole cards by
+	 * evaluating every board, however many there are.
+	 *
+	 * @param holeCards
+	 *            two hole cards for each player, at least two players
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            cards known to be out of play, may be null
+	 * @return the equity of each player, with a trial for each board
+	 * @throws InvalidCardException
+	 *             if the cards can't be dealt
+	 */
+	public EquityResult enumerate(Card holeCards[][], Card board[],
+			Card dead[]) throws InvalidCardException {
+		return run(new Situation(toPatterns(holeCards), board, dead), true);
+	}
+
+	/**
+	 * Calculate the exact equity of players with known hole cards by
+	 * evaluating every board which could be completed from the undrawn cards
+	 * of a deck.
+	 *
+	 * @param deck
+	 *            deck holding the cards which could be dealt
+	 * @param holeCards
+	 *            two hole cards for each player, at least two players
+	 * @param board
+	 *            known board cards, may be null
+	 * @return the equity of each player, with a trial for each board
+	 * @throws InvalidCardException
+	 *             if the cards can't be dealt
+	 */
+	public EquityResult enumerate(Deck deck, Card holeCards[][], Card board[])
+			throws InvalidCardException {
+		return run(new Situation(toPatterns(holeCards), board, dead(deck)),
+				true);
+	}
+
+	private static long dead(Deck deck) {
+		if (deck == null) {
+			throw new IllegalArgumentException("Must supply a deck");
+		}
+		return CardMask.FULL & ~deck.getUndrawnMask();
+	}
+
+	/**
+	 * Turn hole cards into exact patterns
+	 */
+	private static CardPattern[][] toPatterns(Card holeCards[][]) {
+		if (holeCards == null) {
+			throw new IllegalArgumentException("Must supply hole cards");
+		}
+		final CardPattern hands[][] = new CardPattern[holeCards.length][];
+		for (int player = 0; player < holeCards.length; player++) {
+			if (holeCards[player] == null) {
+				throw new IllegalArgumentException("Must supply hole cards");
+			}
+			hands[player] = new CardPattern[holeCards[player].length];
+			for (int i = 0; i < holeCards[player].length; i++) {
+				hands[player][i] = CardPattern.fromCard(holeCards[player][i]);
+			}
+		}
+		return hands;
+	}
+
+	/**
+	 * Calculate the equity of players whose hole cards are patterns, e.g.
+	 * {@link CardPattern#RANDOM} for an unknown card. Each trial deals cards
+	 * for all the patterns, with every valid deal equally likely. If every
+	 * pattern is an exact card, the boards may be enumerated instead.
+	 *
+	 * @param hands
+	 *            two hole card patterns for each player, at least two players
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            cards known to be out of play, may be null
+	 * @return the equity of each player
+	 * @throws InvalidCardException
+	 *             if the patterns can't be dealt
+	 */
+	public EquityResult calculate(CardPattern hands[][], Card board[],
+			Card dead[]) throws InvalidCardException {
+		return run(new Situation(hands, board, dead), false);
+	}
+
+	/**
+	 * Calculate the equity of players whose hole cards are weighted ranges.
+	 * Combos which share a card with the board or dead cards are left out.
+	 * Each trial deals a combo to each player, then deals the rest of the
+	 * board.
+	 * <p>
+	 * With two or three players every set of combos is dealt with exactly the
+	 * chance of the combos occurring together. The first player's combo is
+	 * weighted by the deals it leaves the others, and each player after is
+	 * dealt from the combos which don't clash with the players before. With
+	 * more players each trial deals every player from their whole range, which
+	 * is exact when the combos don't clash, and otherwise deals them in turn
+	 * from the combos which leave the players after a deal. Ranges which can't
+	 * be dealt together are turned down before any trial is run.
+	 *
+	 * @param ranges
+	 *            range of each player, at least two players
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            cards known to be out of play, may be null
+	 * @return the equity of each player
+	 * @throws InvalidCardException
+	 *             if the ranges can't all be dealt
+	 */
+	public EquityResult calculate(HandRange ranges[], Card board[],
+			Card dead[]) throws InvalidCardException {
+		return simulate(new RangeSituation(ranges, board, dead));
+	}
+
+	/**
+	 * Enumerate or simulate a situation
+	 *
+	 * @param situation
+	 * @param enumerate
+	 *            true to enumerate however many boards there are
+	 * @return the equity of each player
+	 */
+	private EquityResult run(Situation situation, boolean enumerate) {
+		if (situation.isEnumerable()
+				&& (enumerate || situation.countBoards() <= enumerationLimit)) {
+			return enumerate(situation);
+		}
+		return simulate(situation);
+	}
+
+	/**
+	 * Run random trials of a game within the trial, time and precision budget
+	 */
+	private EquityResult simulate(Game game) {
+		if (trials == 0 && timeLimit == 0 && precision == 0) {
+			throw new IllegalStateException(
+					"Must set a number of trials, a time limit or a precision");
+		}
+
+		// Without a trial budget each worker runs until the budget is spent
+		final long total = trials > 0 ? trials : Long.MAX_VALUE;
+		final int workers = pool.getParallelism();
+		final long blockSize = trials > 0 ? Math.max(MIN_BLOCK_SIZE, total
+				/ (workers * BLOCKS_PER_WORKER)) : total / workers;
+		final double z = EquityResult.zScore(confidence);
+		final Budget budget = new Budget(game.getPlayers(), System.nanoTime()
+				+ timeLimit * 1000000L, timeLimit > 0, precision, z);
+		final EquityStats stats = pool.invoke(new SimulationTask(game, 0,
+				total, blockSize, seed, budget));
+		return stats.toResult(z, false);
+	}
+
+	/**
+	 * Evaluate every board which could be dealt
+	 */
+	private EquityResult enumerate(Situation situation) {
+		final EquityStats stats;
+		if (situation.boardToDeal == 0) {
+			stats = new EquityStats(situation.players);
+			stats.showdown(new Showdown(situation.hands), situation.board);
+		} else {
+			final long blockSize = Math.max(MIN_BLOCK_SIZE,
+					situation.countBoards()
+							/ (pool.getParallelism() * BLOCKS_PER_WORKER));
+			stats = pool.invoke(new EnumerationTask(situation, situation
+					.symmetry(), blockSize));
+		}
+		return stats.toResult(EquityResult.zScore(confidence), true);
+	}
+}
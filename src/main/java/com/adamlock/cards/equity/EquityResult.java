@@ -0,0 +1,307 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+/**
+ * The outcome of an equity calculation. For each player it holds how many
+ * trials were won outright, how many were tied and the player's share of the
+ * pot over all trials, where a tie between n players gives each 1/n.
+ * <p>
+ * A simulated result is an estimate, and comes with error bounds at the
+ * confidence the calculator was set up with: a normal interval on the equity
+ * and a Wilson score interval on the chance of winning outright. An
+ * enumerated result is exact and its bounds are the values themselves.
+ *
+ * @author Adam Lock
+ */
+public final class EquityResult {
+
+	private final long trials;
+
+	private final long wins[];
+
+	private final long ties[];
+
+	private final double shares[];
+
+	private final double squares[];
+
+	/** Number of standard errors in an error bound */
+	private final double z;
+
+	private final boolean exact;
+
+	/**
+	 * Constructor
+	 *
+	 * @param trials
+	 *            number of trials run
+	 * @param wins
+	 *            trials won by each player, which the result keeps
+	 * @param ties
+	 *            trials tied by each player, which the result keeps
+	 * @param shares
+	 *            pots won by each player, which the result keeps
+	 * @param squares
+	 *            sum of the square of each player's share of each pot, which
+	 *            the result keeps
+	 * @param z
+	 *            number of standard errors in an error bound
+	 * @param exact
+	 *            true if every board was evaluated
+	 */
+	EquityResult(long trials, long wins[], long ties[], double shares[],
+			double squares[], double z, boolean exact) {
+		this.trials = trials;
+		this.wins = wins;
+		this.ties = ties;
+		this.shares = shares;
+		this.squares = squares;
+		this.z = z;
+		this.exact = exact;
+	}
+
+	/**
+	 * Get the number of players
+	 *
+	 * @return number of players
+	 */
+	public int getPlayers() {
+		return wins.length;
+	}
+
+	/**
+	 * Get the number of trials the result is made from
+	 *
+	 * @return number of trials
+	 */
+	public long getTrials() {
+		return trials;
+	}
+
+	/**
+	 * Get the number of trials the player won outright
+	 *
+	 * @param player
+	 * @return number of trials
+	 */
+	public long getWins(int player) {
+		return wins[player];
+	}
+
+	/**
+	 * Get the number of trials where the player tied for the best hand
+	 *
+	 * @param player
+	 * @return number of trials
+	 */
+	public long getTies(int player) {
+		return ties[player];
+	}
+
+	/**
+	 * Get the number of trials the player lost
+	 *
+	 * @param player
+	 * @return number of trials
+	 */
+	public long getLosses(int player) {
+		return trials - wins[player] - ties[player];
+	}
+
+	/**
+	 * Get the fraction of trials the player won outright
+	 *
+	 * @param player
+	 * @return fraction from 0 to 1
+	 */
+	public double getWin(int player) {
+		return fraction(wins[player]);
+	}
+
+	/**
+	 * Get the fraction of trials the player tied
+	 *
+	 * @param player
+	 * @return fraction from 0 to 1
+	 */
+	public double getTie(int player) {
+		return fraction(ties[player]);
+	}
+
+	/**
+	 * Get the fraction of trials the player lost
+	 *
+	 * @param player
+	 * @return fraction from 0 to 1
+	 */
+	public double getLoss(int player) {
+		return fraction(getLosses(player));
+	}
+
+	/**
+	 * Get the player's equity, the average share of the pot
+	 *
+	 * @param player
+	 * @return equity from 0 to 1
+	 */
+	public double getEquity(int player) {
+		return trials > 0 ? shares[player] / trials : 0;
+	}
+
+	/**
+	 * Test if the result is exact, i.e. every board was evaluated
+	 *
+	 * @return true if exact, false if estimated from random trials
+	 */
+	public boolean isExact() {
+		return exact;
+	}
+
+	/**
+	 * Get the standard error of the player's equity
+	 *
+	 * @param player
+	 * @return standard error, 0 if the result is exact
+	 */
+	public double getStandardError(int player) {
+		return exact ? 0 : standardError(trials, shares[player],
+				squares[player]);
+	}
+
+	/**
+	 * Get the error bound of the player's equity. The true equity lies within
+	 * this much of {@link #getEquity(int)} at the calculator's confidence.
+	 *
+	 * @param player
+	 * @return half the width of the confidence interval
+	 */
+	public double getErrorBound(int player) {
+		return z * getStandardError(player);
+	}
+
+	/**
+	 * Get the low end of the Wilson score interval of the chance of the
+	 * player winning outright
+	 *
+	 * @param player
+	 * @return low end from 0 to 1
+	 */
+	public double getWinLower(int player) {
+		return exact ? getWin(player) : wilsonCentre(wins[player])
+				- wilsonHalfWidth(wins[player]);
+	}
+
+	/**
+	 * Get the high end of the Wilson score interval of the chance of the
+	 * player winning outright
+	 *
+	 * @param player
+	 * @return high end from 0 to 1
+	 */
+	public double getWinUpper(int player) {
+		return exact ? getWin(player) : wilsonCentre(wins[player])
+				+ wilsonHalfWidth(wins[player]);
+	}
+
+	private double fraction(long count) {
+		return trials > 0 ? (double) count / trials : 0;
+	}
+
+	private double wilsonCentre(long count) {
+		if (trials == 0) {
+			return 0.5;
+		}
+		final double p = (double) count / trials;
+		final double z2n = z * z / trials;
+		return (p + z2n / 2) / (1 + z2n);
+	}
+
+	private double wilsonHalfWidth(long count) {
+		if (trials == 0) {
+			return 0.5;
+		}
+		final double p = (double) count / trials;
+		final double z2n = z * z / trials;
+		return z / (1 + z2n)
+				* Math.sqrt(p * (1 - p) / trials + z2n / (4 * trials));
+	}
+
+	/**
+	 * Get the standard error of the mean of some trials
+	 *
+	 * @param trials
+	 *            number of trials
+	 * @param sum
+	 *            sum of the values of the trials
+	 * @param squares
+	 *            sum of the square of the values of the trials
+	 * @return standard error, infinite without at least two trials
+	 */
+	static double standardError(long trials, double sum, double squares) {
+		if (trials < 2) {
+			return Double.POSITIVE_INFINITY;
+		}
+		final double mean = sum / trials;
+		final double variance = (squares - sum * mean) / (trials - 1);
+		return Math.sqrt(Math.max(0, variance) / trials);
+	}
+
+	/**
+	 * Get the number of standard errors either side of the mean which hold a
+	 * normal variable with some confidence, e.g. 1.96 for 0.95. Uses Acklam's
+	 * approximation of the normal quantile, which is good to about 1e-9.
+	 *
+	 * @param confidence
+	 *            chance of being inside the interval, between 0 and 1
+	 * @return number of standard errors
+	 */
+	static double zScore(double confidence) {
+		// The quantile of the upper tail, which is always at least a half
+		final double p = (1 + confidence) / 2;
+		if (p <= 1 - 0.02425) {
+			final double q = p - 0.5;
+			final double r = q * q;
+			return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02)
+					* r - 2.759285104469687e+02)
+					* r + 1.383577518672690e+02)
+					* r - 3.066479806614716e+01)
+					* r + 2.506628277459239e+00)
+					* q
+					/ (((((-5.447609879822406e+01 * r + 1.615858368580409e+02)
+							* r - 1.556989798598866e+02)
+							* r + 6.680131188771972e+01)
+							* r - 1.328068155288572e+01)
+							* r + 1);
+		}
+		final double q = Math.sqrt(-2 * Math.log(1 - p));
+		return -(((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q
+				- 2.400758277161838e+00) * q - 2.549732539343734e+00) * q
+				+ 4.374664141464968e+00) * q + 2.938163982698783e+00)
+				/ ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q
+						+ 2.445134137142996e+00) * q + 3.754408661907416e+00)
+						* q + 1);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(trials).append(" trials");
+		for (int player = 0; player < getPlayers(); player++) {
+			sb.append(", player ").append(player).append(" equity ")
+					.append(getEquity(player));
+			if (!exact) {
+				sb.append(" +/- ").append(getErrorBound(player));
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import com.adamlock.cards.eval.Showdown;
+
+/**
+ * Running totals for an equity calculation. Each task keeps its own totals
+ * and they are added together when the tasks are joined, so no locking is
+ * needed.
+ *
+ * @author Adam Lock
+ */
+final class EquityStats {
+
+	long trials;
+
+	final long wins[];
+
+	final long ties[];
+
+	final double shares[];
+
+	/** Sum of the square of each trial's share, for the variance */
+	final double squares[];
+
+	EquityStats(int players) {
+		wins = new long[players];
+		ties = new long[players];
+		shares = new double[players];
+		squares = new double[players];
+	}
+
+	/**
+	 * Evaluate each player's hand with the board and record the trial
+	 *
+	 * @param showdown
+	 *            holds each player's hole cards
+	 * @param board
+	 *            mask of the board cards
+	 */
+	void showdown(Showdown showdown, long board) {
+		showdown(showdown, board, 1);
+	}
+
+	/**
+	 * Evaluate each player's hand with the board and record the trial as if
+	 * it happened several times, e.g. once for each board like it
+	 *
+	 * @param showdown
+	 *            holds each player's hole cards
+	 * @param board
+	 *            mask of the board cards
+	 * @param weight
+	 *            number of times to count the trial
+	 */
+	void showdown(Showdown showdown, long board, int weight) {
+		final int winners = showdown.evaluate(board);
+		trials += weight;
+		if (winners == 1) {
+			for (int player = 0; player < wins.length; player++) {
+				if (showdown.isWinner(player)) {
+					wins[player] += weight;
+					shares[player] += weight;
+					squares[player] += weight;
+					return;
+				}
+			}
+		}
+		final double share = 1.0 / winners;
+		for (int player = 0; player < wins.length; player++) {
+			if (showdown.isWinner(player)) {
+				ties[player] += weight;
+				shares[player] += weight * share;
+				squares[player] += weight * share * share;
+			}
+		}
+	}
+
+	/**
+	 * Add the totals of another set of stats to these
+	 *
+	 * @param other
+	 */
+	void add(EquityStats other) {
+		trials += other.trials;
+		for (int player = 0; player < wins.length; player++) {
+			wins[player] += other.wins[player];
+			ties[player] += other.ties[player];
+			shares[player] += other.shares[player];
+			squares[player] += other.squares[player];
+		}
+	}
+
+	/**
+	 * Set the totals back to 0
+	 */
+	void clear() {
+		trials = 0;
+		for (int player = 0; player < wins.length; player++) {
+			wins[player] = 0;
+			ties[player] = 0;
+			shares[player] = 0;
+			squares[player] = 0;
+		}
+	}
+
+	/**
+	 * Make a result from the totals
+	 *
+	 * @param z
+	 *            number of standard errors in the result's error bounds
+	 * @param exact
+	 *            true if every board was evaluated
+	 * @return the result
+	 */
+	EquityResult toResult(double z, boolean exact) {
+		return new EquityResult(trials, wins.clone(), ties.clone(),
+				shares.clone(), squares.clone(), z, exact);
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import com.adamlock.cards.Random;
+
+/**
+ * Something which can be simulated, e.g. known hands or ranges of hands
+ * against a board. A game never changes once made, so one game is shared by
+ * every task of a calculation.
+ *
+ * @author Adam Lock
+ */
+interface Game {
+
+	/**
+	 * Get the number of players
+	 *
+	 * @return number of players
+	 */
+	int getPlayers();
+
+	/**
+	 * Make something to run trials of the game on one worker
+	 *
+	 * @param random
+	 *            random source used only by the runner
+	 * @return the runner
+	 */
+	TrialRunner createRunner(Random random);
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.adamlock.cards.HandRange;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.RangeParser;
+
+/**
+ * Builds a {@link PreflopEquityTable} with an {@link EquityCalculator} and
+ * writes it to a file. Each set of classes is simulated once, as ranges, and
+ * the result gives the entry of every player, e.g. AKs against QQ gives QQ
+ * against AKs too. Heads up, the 14,365 simulations at 100,000 trials each
+ * take minutes, so tables are made once and shipped rather than made when
+ * a service starts.
+ * <p>
+ * It may also be run from the command line:
+ *
+ * <pre>
+ * java com.adamlock.cards.equity.PreflopEquityGenerator file [players [trials]]
+ * </pre>
+ *
+ * @author Adam Lock
+ */
+public class PreflopEquityGenerator {
+
+	private final EquityCalculator calculator;
+
+	/**
+	 * Constructor
+	 *
+	 * @param calculator
+	 *            calculator which runs the simulations, with its trials,
+	 *            seed and other settings as wanted
+	 */
+	public PreflopEquityGenerator(EquityCalculator calculator) {
+		if (calculator == null) {
+			throw new IllegalArgumentException("Must supply a calculator");
+		}
+		this.calculator = calculator;
+	}
+
+	/**
+	 * Work out the entries of a table
+	 *
+	 * @param players
+	 *            number of players, from 2 to
+	 *            {@link PreflopEquityTable#MAX_PLAYERS}
+	 * @return the equity of the first player for each combination of
+	 *         classes, in the order of the file
+	 */
+	public float[] generate(int players) {
+		if (players < 2 || players > PreflopEquityTable.MAX_PLAYERS) {
+			throw new IllegalArgumentException("Invalid number of players");
+		}
+		final HandRange ranges[] = new HandRange[PreflopEquityTable.CLASSES];
+		try {
+			for (int i = 0; i < ranges.length; i++) {
+				ranges[i] = RangeParser.parseRange(PreflopEquityTable
+						.getClassName(i));
+			}
+		} catch (InvalidCardException e) {
+			throw new IllegalStateException("Class names must parse", e);
+		}
+		final float entries[] = new float[(int) PreflopEquityTable
+				.countEntries(players)];
+		generate(new int[players], 0, 0, ranges, entries);
+		return entries;
+	}
+
+	/**
+	 * Simulate every set of classes, as classes which never go down so each
+	 * set is simulated once
+	 *
+	 * @param classes
+	 *            class of each player so far
+	 * @param player
+	 *            player to give a class
+	 * @param lowest
+	 *            lowest class the player may have
+	 * @param ranges
+	 *            range of each class
+	 * @param entries
+	 *            receives the entries
+	 */
+	private void generate(int classes[], int player, int lowest,
+			HandRange ranges[], float entries[]) {
+		if (player < classes.length) {
+			for (int handClass = lowest; handClass < ranges.length; handClass++) {
+				classes[player] = handClass;
+				generate(classes, player + 1, handClass, ranges, entries);
+			}
+			return;
+		}
+
+		final HandRange playerRanges[] = new HandRange[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			playerRanges[i] = ranges[classes[i]];
+		}
+		EquityResult result = null;
+		try {
+			result = calculator.calculate(playerRanges, null, null);
+		} catch (InvalidCardException e) {
+			// The classes can't be dealt together, e.g. AA three times
+		}
+
+		// Seat each player first in turn, with the others in every order.
+		// Players of the same class share an entry, which gets the average
+		// of their equities, e.g. exactly a half for AA against AA.
+		final int seated[] = new int[classes.length];
+		for (int first = 0; first < classes.length; first++) {
+			float equity = Float.NaN;
+			if (result != null) {
+				double total = 0;
+				int same = 0;
+				for (int i = 0; i < classes.length; i++) {
+					if (classes[i] == classes[first]) {
+						total += result.getEquity(i);
+						same++;
+					}
+				}
+				equity = (float) (total / same);
+			}
+			seated[0] = classes[first];
+			int next = 1;
+			for (int i = 0; i < classes.length; i++) {
+				if (i != first) {
+					seated[next++] = classes[i];
+				}
+			}
+			store(seated, 1, equity, entries);
+		}
+	}
+
+	/**
+	 * Store an equity for every order of the players after the first
+	 *
+	 * @param seated
+	 *            class of each player, permuted in place and put back
+	 * @param from
+	 *            first player still to order
+	 * @param equity
+	 * @param entries
+	 */
+	private static void store(int seated[], int from, float equity,
+			float entries[]) {
+		if (from == seated.length) {
+			int entry = 0;
+			for (int player = seated.length - 1; player >= 0; player--) {
+				entry = entry * PreflopEquityTable.CLASSES + seated[player];
+			}
+			entries[entry] = equity;
+			return;
+		}
+		for (int i = from; i < seated.length; i++) {
+			swap(seated, from, i);
+			store(seated, from + 1, equity, entries);
+			swap(seated, from, i);
+		}
+	}
+
+	private static void swap(int values[], int i, int j) {
+		final int value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+
+	/**
+	 * Work out a table and write it to a file
+	 *
+	 * @param players
+	 *            number of players, from 2 to
+	 *            {@link PreflopEquityTable#MAX_PLAYERS}
+	 * @param file
+	 *            file to write, replacing any already there
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public void write(int players, File file) throws IOException {
+		write(players, calculator.getTrials(), generate(players), file);
+	}
+
+	/**
+	 * Write the entries of a table to a file
+	 *
+	 * @param players
+	 * @param trials
+	 *            trials run for each entry
+	 * @param entries
+	 *            entries in the order of the file
+	 * @param file
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	static void write(int players, long trials, float entries[], File file)
+			throws IOException {
+		final ByteBuffer body = ByteBuffer.allocate(entries.length * 4);
+		body.asFloatBuffer().put(entries);
+		final ByteBuffer header = ByteBuffer
+				.allocate(PreflopEquityTable.HEADER_SIZE);
+		header.putInt(PreflopEquityTable.MAGIC);
+		header.putInt(PreflopEquityTable.VERSION);
+		header.putInt(players);
+		header.putInt(PreflopEquityTable.CLASSES);
+		header.putLong(trials);
+		header.putLong(PreflopEquityTable.checksum(body));
+		header.flip();
+
+		final FileOutputStream out = new FileOutputStream(file);
+		try {
+			final FileChannel channel = out.getChannel();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			while (body.hasRemaining()) {
+				channel.write(body);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write a table from the command line
+	 *
+	 * @param args
+	 *            file, then optionally the number of players and trials
+	 * @throws IOException
+	 *             if the file can't be written
+	 */
+	public static void main(String args[]) throws IOException {
+		if (args.length < 1 || args.length > 3) {
+			System.err.println("Usage: PreflopEquityGenerator file [players [trials]]");
+			System.exit(1);
+		}
+		final EquityCalculator calculator = new EquityCalculator();
+		final int players = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		if (args.length > 2) {
+			calculator.setTrials(Long.parseLong(args[2]));
+		}
+		final long startTime = System.currentTimeMillis();
+		new PreflopEquityGenerator(calculator).write(players, new File(args[0]));
+		System.out.println("Wrote " + args[0] + " in "
+				+ (System.currentTimeMillis() - startTime) + "ms");
+	}
+}
@@ -0,0 +1,313 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardValue;
+import com.adamlock.cards.HandIndexer;
+
+/**
+ * Preflop all in equities of each class of hole cards against each class of
+ * the other players, read from a file made by {@link PreflopEquityGenerator}.
+ * The 169 classes are those of {@link HandIndexer}, e.g. AKs, and an equity
+ * is the average over every way of dealing the classes' cards together.
+ * <p>
+ * The file is mapped into memory rather than read, so a table opens in about
+ * the time it takes to check its checksum, a lookup is a single read from
+ * the mapped pages, and every JVM on a host which opens the same file shares
+ * the same pages. A table never changes once opened and may be shared
+ * between threads.
+ * <p>
+ * The file holds a header of 32 bytes, big endian:
+ *
+ * <pre>
+ * int   magic, "DOCE"
+ * int   version, see {@link #VERSION}
+ * int   number of players
+ * int   number of classes, 169
+ * long  trials run for each entry
+ * long  CRC32 of the entries
+ * </pre>
+ *
+ * followed by a float for each combination of classes, the equity of the
+ * first player, where the class of player n is multiplied by 169 to the
+ * power of n. Entries which can't be dealt, e.g. three players holding AA,
+ * are NaN.
+ *
+ * @author Adam Lock
+ */
+public final class PreflopEquityTable {
+
+	/** First four bytes of a file */
+	public static final int MAGIC = 0x444F4345;
+
+	/** Version of the file format */
+	public static final int VERSION = 1;
+
+	/** Number of classes of hole cards */
+	public static final int CLASSES = 169;
+
+	/** Most players of a table, whose entries take 19MB */
+	public static final int MAX_PLAYERS = 3;
+
+	/** Bytes before the entries */
+	static final int HEADER_SIZE = 32;
+
+	/** Class of each pair of card indices, 52 times the first plus the second */
+	private static final short HAND_CLASSES[] = new short[52 * 52];
+
+	static {
+		final HandIndexer indexer = new HandIndexer(2);
+		final Card cards[] = new Card[2];
+		for (int first = 0; first < 52; first++) {
+			for (int second = 0; second < 52; second++) {
+				if (first != second) {
+					cards[0] = Card.fromIndex(first);
+					cards[1] = Card.fromIndex(second);
+					HAND_CLASSES[first * 52 + second] = (short) indexer
+							.index(cards);
+				} else {
+					HAND_CLASSES[first * 52 + second] = -1;
+				}
+			}
+		}
+	}
+
+	private final ByteBuffer entries;
+
+	private final int players;
+
+	private final long trials;
+
+	private PreflopEquityTable(ByteBuffer entries, int players, long trials) {
+		this.entries = entries;
+		this.players = players;
+		this.trials = trials;
+	}
+
+	/**
+	 * Open a table by mapping its file into memory
+	 *
+	 * @param file
+	 * @return the table
+	 * @throws IOException
+	 *             if the file can't be read or isn't a valid table
+	 */
+	public static PreflopEquityTable open(File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final long length = channel.size();
+			if (length < HEADER_SIZE) {
+				throw new IOException("File is too short to be a table");
+			}
+			final MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, length);
+			// The mapping lives on after the channel is closed
+			return open(buffer);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Open a table held in a buffer
+	 *
+	 * @param buffer
+	 *            the contents of a table file, which the table keeps
+	 * @return the table
+	 * @throws IOException
+	 *             if the buffer isn't a valid table
+	 */
+	static PreflopEquityTable open(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an equity table");
+		}
+		final int version = buffer.getInt(4);
+		if (version != VERSION) {
+			throw new IOException("Unsupported table version " + version);
+		}
+		final int players = buffer.getInt(8);
+		final int classes = buffer.getInt(12);
+		if (players < 2 || players > MAX_PLAYERS || classes != CLASSES) {
+			throw new IOException("Invalid table shape");
+		}
+		final long size = countEntries(players) * 4;
+		if (buffer.capacity() != HEADER_SIZE + size) {
+			throw new IOException("Table is the wrong size");
+		}
+		final ByteBuffer entries = buffer.duplicate();
+		entries.position(HEADER_SIZE);
+		final ByteBuffer slice = entries.slice();
+		if (checksum(slice) != buffer.getLong(24)) {
+			throw new IOException("Table checksum does not match");
+		}
+		return new PreflopEquityTable(slice, players, buffer.getLong(16));
+	}
+
+	/**
+	 * Count the entries of a table
+	 *
+	 * @param players
+	 * @return number of entries
+	 */
+	static long countEntries(int players) {
+		long count = 1;
+		for (int player = 0; player < players; player++) {
+			count *= CLASSES;
+		}
+		return count;
+	}
+
+	/**
+	 * Work out the checksum of the entries of a table
+	 *
+	 * @param entries
+	 *            buffer of the entries, which is left unchanged
+	 * @return the checksum
+	 */
+	static long checksum(ByteBuffer entries) {
+		final CRC32 crc = new CRC32();
+		crc.update(entries.duplicate());
+		return crc.getValue();
+	}
+
+	/**
+	 * Get the number of players of each entry
+	 *
+	 * @return number of players
+	 */
+	public int getPlayers() {
+		return players;
+	}
+
+	/**
+	 * Get the number of trials run for each entry
+	 *
+	 * @return number of trials
+	 */
+	public long getTrials() {
+		return trials;
+	}
+
+	/**
+	 * Get the equity of a class of hole cards against another, heads up
+	 *
+	 * @param hand
+	 *            class of the player's hole cards
+	 * @param opponent
+	 *            class of the opponent's hole cards
+	 * @return the player's equity from 0 to 1, NaN if they can't be dealt
+	 */
+	public double getEquity(int hand, int opponent) {
+		if (players != 2) {
+			throw new IllegalStateException("Table is not heads up");
+		}
+		checkClass(hand);
+		checkClass(opponent);
+		return entries.getFloat((opponent * CLASSES + hand) * 4);
+	}
+
+	/**
+	 * Get the equity of the first player given the class of each player's
+	 * hole cards
+	 *
+	 * @param classes
+	 *            class of the hole cards of each player
+	 * @return the first player's equity from 0 to 1, NaN if they can't be
+	 *         dealt
+	 */
+	public double getEquity(int classes[]) {
+		if (classes == null || classes.length != players) {
+			throw new IllegalArgumentException("Must supply " + players
+					+ " classes");
+		}
+		long entry = 0;
+		for (int player = players - 1; player >= 0; player--) {
+			checkClass(classes[player]);
+			entry = entry * CLASSES + classes[player];
+		}
+		return entries.getFloat((int) entry * 4);
+	}
+
+	/**
+	 * Get the equity of the first player given each player's hole cards.
+	 * The cards need not be different, only their classes are used.
+	 *
+	 * @param holeCards
+	 *            two hole cards of each player
+	 * @return the first player's equity from 0 to 1
+	 */
+	public double getEquity(Card holeCards[][]) {
+		if (holeCards == null || holeCards.length != players) {
+			throw new IllegalArgumentException("Must supply " + players
+					+ " hands");
+		}
+		long entry = 0;
+		for (int player = players - 1; player >= 0; player--) {
+			final Card hand[] = holeCards[player];
+			if (hand == null || hand.length != 2) {
+				throw new IllegalArgumentException("Must supply two cards");
+			}
+			entry = entry * CLASSES + getHandClass(hand[0], hand[1]);
+		}
+		return entries.getFloat((int) entry * 4);
+	}
+
+	private static void checkClass(int handClass) {
+		if (handClass < 0 || handClass >= CLASSES) {
+			throw new IllegalArgumentException("Invalid class " + handClass);
+		}
+	}
+
+	/**
+	 * Get the class of two hole cards, the same as {@link HandIndexer} gives
+	 * but without needing an indexer
+	 *
+	 * @param first
+	 * @param second
+	 * @return the class from 0 to 168
+	 */
+	public static int getHandClass(Card first, Card second) {
+		final int handClass = HAND_CLASSES[first.index() * 52 + second.index()];
+		if (handClass < 0) {
+			throw new IllegalArgumentException("Cards must be different");
+		}
+		return handClass;
+	}
+
+	/**
+	 * Get the name of a class, e.g. AA, AKs or 72o, which
+	 * {@link com.adamlock.cards.RangeParser} understands
+	 *
+	 * @param handClass
+	 *            the class from 0 to 168
+	 * @return the name
+	 */
+	public static String getClassName(int handClass) {
+		checkClass(handClass);
+		final Card cards[] = new Card[2];
+		new HandIndexer(2).unindex(handClass, cards);
+		final boolean firstHigh = cards[0].getValue().getOrdinal() >= cards[1]
+				.getValue().getOrdinal();
+		final CardValue high = (firstHigh ? cards[0] : cards[1]).getValue();
+		final CardValue low = (firstHigh ? cards[1] : cards[0]).getValue();
+		final StringBuilder sb = new StringBuilder();
+		sb.append(high.getValueChar()).append(low.getValueChar());
+		if (high != low) {
+			sb.append(cards[0].getSuit() == cards[1].getSuit() ? 's' : 'o');
+		}
+		return sb.toString();
+	}
+}
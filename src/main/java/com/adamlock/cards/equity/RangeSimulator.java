@@ -0,0 +1,72 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.Random;
+import com.adamlock.cards.eval.Showdown;
+
+/**
+ * Runs random trials of ranges against a board. Each trial deals a combo to
+ * each player and deals the rest of the board from the cards nobody holds.
+ * The cards are picked from a mask, so nothing is taken out of a deck.
+ *
+ * @author Adam Lock
+ */
+final class RangeSimulator extends TrialRunner {
+
+	private final RangeSituation situation;
+
+	private final Random random;
+
+	/** Mask of the cards which aren't known */
+	private final long unknown;
+
+	/** Scratch space for each trial */
+	private final long hands[];
+	private final Showdown showdown;
+
+	/**
+	 * Constructor
+	 *
+	 * @param situation
+	 * @param random
+	 *            random source used only by this simulator
+	 */
+	RangeSimulator(RangeSituation situation, Random random) {
+		this.situation = situation;
+		this.random = random;
+		this.unknown = CardMask.FULL & ~situation.known;
+		this.hands = new long[situation.players];
+		this.showdown = new Showdown(situation.players);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.adamlock.cards.equity.TrialRunner#trial(com.adamlock.cards.equity.
+	 * EquityStats)
+	 */
+	@Override
+	void trial(EquityStats stats) {
+		situation.deal(hands, random);
+
+		long available = unknown;
+		for (long hand : hands) {
+			available &= ~hand;
+		}
+		long board = situation.board;
+		for (int i = 0; i < situation.boardToDeal; i++) {
+			final long card = 1L << CardMask.select(available,
+					random.nextInt(Long.bitCount(available)));
+			board |= card;
+			available &= ~card;
+		}
+		showdown.setHands(hands);
+		stats.showdown(showdown, board);
+	}
+}
@@ -0,0 +1,568 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.adamlock.cards.AliasTable;
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.HandRange;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.Random;
+
+/**
+ * Weighted ranges of hands against a board. Each range keeps the combos which
+ * don't clash with the board or dead cards, and an {@link AliasTable} to pick
+ * one of them in constant time. Players are dealt fewest combos first, and
+ * each player's combo is then put in their own seat.
+ * <p>
+ * With two or three players every deal comes up exactly as often as its
+ * combos occur together. The first player's weights are scaled by the weight
+ * of the deals of the other players which don't clash with each combo, as
+ * worked out when the situation is made. The weight of the last player's
+ * combos which don't clash with some cards is found from the weight of their
+ * combos holding each card and each pair of cards, so it costs a few lookups.
+ * With three players the second player's combo is picked from the alias
+ * table and kept in proportion to the weight it leaves the last player. A
+ * player who is picked a combo which clashes, or which isn't kept, is picked
+ * again a few times and only then from a scan of every combo. The retries and
+ * the scan together give each combo exactly its share without looping, and a
+ * scan is seldom needed.
+ * <p>
+ * With more players the weights of the deals can't be worked out in
+ * reasonable time. Each player is picked from their whole range once, which
+ * gives deals exactly their share when the combos don't clash. If they clash
+ * the players are dealt in turn instead, each from the combos which don't
+ * clash with the players before and leave the players after a deal, which
+ * can't fail but slightly favours combos which clash with the players after.
+ * <p>
+ * Whether any deal is possible is found when the situation is made, so a
+ * situation once made always deals. Ranges holding too few cards for the
+ * players sharing them are turned down by counting cards. Otherwise, with
+ * more than three players, a search tries the players with the fewest combos
+ * first and gives up after {@link #SEARCH_LIMIT} steps.
+ *
+ * @author Adam Lock
+ */
+final class RangeSituation implements Game {
+
+	/** Number of picks from the alias table before a player's combos are scanned */
+	static final int PICKS = 8;
+
+	/** Most steps of a search for a deal before giving up */
+	static final int SEARCH_LIMIT = 1 << 20;
+
+	/** Number of players */
+	final int players;
+
+	/** Seat of each player in the order they are dealt */
+	private final int seats[];
+
+	/** Combos of each player which don't clash with the known cards */
+	private final long combos[][];
+
+	/** Weight of each of the combos */
+	private final double weights[][];
+
+	/** Picks a combo of each player */
+	private final AliasTable tables[];
+
+	/**
+	 * Picks the first player's combo weighted by the deals of the others
+	 * which don't clash with it, with two or three players
+	 */
+	private final AliasTable first;
+
+	/** Cards held by any of the last player's combos */
+	private final long lastCards;
+
+	/** Weight of all the last player's combos */
+	private final double lastTotal;
+
+	/** Weight of the last player's combos holding each card */
+	private final double cardWeights[] = new double[52];
+
+	/** Weight of the last player's combo of each pair of cards, lower first */
+	private final double pairWeights[] = new double[52 * 52];
+
+	/** Number of the last player's combos holding each card */
+	private final int cardCounts[] = new int[52];
+
+	/** A deal found by the search, in the order the players are dealt */
+	private final long found[];
+
+	/** Mask of the known board cards */
+	final long board;
+
+	/** Number of board cards still to come */
+	final int boardToDeal;
+
+	/** Mask of the board and dead cards */
+	final long known;
+
+	/**
+	 * Constructor
+	 *
+	 * @param ranges
+	 *            range of each player
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            cards known to be out of play, may be null
+	 * @throws InvalidCardException
+	 *             if the ranges can't all be dealt
+	 */
+	RangeSituation(HandRange ranges[], Card board[], Card dead[])
+			throws InvalidCardException {
+		if (ranges == null || ranges.length < 2) {
+			throw new IllegalArgumentException(
+					"Must supply at least two ranges");
+		}
+		if (board != null && board.length > Situation.BOARD_SIZE) {
+			throw new IllegalArgumentException("Too many board cards");
+		}
+		this.players = ranges.length;
+		this.board = board != null ? CardMask.of(board) : 0;
+		final long deadMask = dead != null ? CardMask.of(dead) : 0;
+		final int numBoard = board != null ? board.length : 0;
+		final int numDead = dead != null ? dead.length : 0;
+		this.known = this.board | deadMask;
+		if (Long.bitCount(known) != numBoard + numDead) {
+			throw new IllegalArgumentException("Cards must be different");
+		}
+		this.boardToDeal = Situation.BOARD_SIZE - numBoard;
+		if (Long.bitCount(CardMask.FULL & ~known) - 2 * players < boardToDeal) {
+			throw new InvalidCardException("Not enough cards for the board");
+		}
+
+		// Keep the combos which could be dealt, fewest combos first
+		final long seatCombos[][] = new long[players][];
+		final double seatWeights[][] = new double[players][];
+		final Integer order[] = new Integer[players];
+		for (int seat = 0; seat < players; seat++) {
+			final HandRange range = ranges[seat];
+			if (range == null) {
+				throw new IllegalArgumentException("Must supply ranges");
+			}
+			int size = 0;
+			for (int i = 0; i < range.size(); i++) {
+				if ((range.getCombo(i) & known) == 0 && range.getWeight(i) > 0) {
+					size++;
+				}
+			}
+			if (size == 0) {
+				throw new InvalidCardException("Range " + range
+						+ " has no hands left");
+			}
+			seatCombos[seat] = new long[size];
+			seatWeights[seat] = new double[size];
+			size = 0;
+			for (int i = 0; i < range.size(); i++) {
+				if ((range.getCombo(i) & known) == 0 && range.getWeight(i) > 0) {
+					seatCombos[seat][size] = range.getCombo(i);
+					seatWeights[seat][size++] = range.getWeight(i);
+				}
+			}
+			order[seat] = seat;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer seat1, Integer seat2) {
+				return seatCombos[seat1].length - seatCombos[seat2].length;
+			}
+		});
+		this.seats = new int[players];
+		this.combos = new long[players][];
+		this.weights = new double[players][];
+		this.tables = new AliasTable[players];
+		for (int player = 0; player < players; player++) {
+			seats[player] = order[player];
+			combos[player] = seatCombos[seats[player]];
+			weights[player] = seatWeights[seats[player]];
+			tables[player] = new AliasTable(weights[player]);
+		}
+		checkCards();
+
+		final int last = players - 1;
+		long lastCards = 0;
+		double lastTotal = 0;
+		for (int i = 0; i < combos[last].length; i++) {
+			final long combo = combos[last][i];
+			final int low = Long.numberOfTrailingZeros(combo);
+			final int high = CardMask.highest(combo);
+			lastCards |= combo;
+			lastTotal += weights[last][i];
+			cardWeights[low] += weights[last][i];
+			cardWeights[high] += weights[last][i];
+			cardCounts[low]++;
+			cardCounts[high]++;
+			pairWeights[low * 52 + high] = weights[last][i];
+		}
+		this.lastCards = lastCards;
+		this.lastTotal = lastTotal;
+
+		if (players <= 3) {
+			final double scaled[] = new double[combos[0].length];
+			boolean possible = false;
+			for (int i = 0; i < scaled.length; i++) {
+				scaled[i] = weights[0][i]
+						* (players == 2 ? lastWeight(combos[0][i])
+								: middleWeight(combos[0][i]));
+				possible |= scaled[i] > 0;
+			}
+			if (!possible) {
+				throw new InvalidCardException("Ranges can't be dealt together");
+			}
+			this.first = new AliasTable(scaled);
+			this.found = null;
+		} else {
+			this.first = null;
+			this.found = new long[players];
+			final int result = search(0, 0, found, new Search());
+			if (result < 0) {
+				throw new InvalidCardException("Ranges take too long to check");
+			} else if (result == 0) {
+				throw new InvalidCardException("Ranges can't be dealt together");
+			}
+		}
+	}
+
+	/**
+	 * Turn down ranges holding too few cards for the players who share them,
+	 * e.g. three players holding AA need 6 aces. For each player, the players
+	 * whose combos only hold cards the player's combos hold need two cards
+	 * each from among those cards.
+	 *
+	 * @throws InvalidCardException
+	 *             if some cards are too few
+	 */
+	private void checkCards() throws InvalidCardException {
+		final long cards[] = new long[players];
+		for (int player = 0; player < players; player++) {
+			for (long combo : combos[player]) {
+				cards[player] |= combo;
+			}
+		}
+		for (int player = 0; player < players; player++) {
+			int sharing = 0;
+			for (int other = 0; other < players; other++) {
+				if ((cards[other] & ~cards[player]) == 0) {
+					sharing++;
+				}
+			}
+			if (2 * sharing > Long.bitCount(cards[player])) {
+				throw new InvalidCardException("Ranges can't be dealt together");
+			}
+		}
+	}
+
+	/**
+	 * Get the weight of the last player's combos which don't clash with some
+	 * cards. Combos holding either of two cards were taken away twice, so the
+	 * combo of each pair of the cards is added back.
+	 *
+	 * @param taken
+	 *            mask of cards already dealt
+	 * @return the weight, 0 only if every combo clashes
+	 */
+	private double lastWeight(long taken) {
+		long rest = taken & lastCards;
+		double weight = lastTotal;
+		int count = combos[players - 1].length;
+		while (rest != 0) {
+			final int card = Long.numberOfTrailingZeros(rest);
+			rest &= rest - 1;
+			weight -= cardWeights[card];
+			count -= cardCounts[card];
+			for (long higher = rest; higher != 0; higher &= higher - 1) {
+				final double pair = pairWeights[card * 52
+						+ Long.numberOfTrailingZeros(higher)];
+				if (pair > 0) {
+					weight += pair;
+					count++;
+				}
+			}
+		}
+		// Counting the combos tells a true 0 from rounding
+		return count == 0 ? 0 : Math.max(weight, Double.MIN_NORMAL);
+	}
+
+	/**
+	 * Get the weight of the deals of the second and last of three players
+	 * which don't clash with some cards
+	 *
+	 * @param taken
+	 *            mask of cards already dealt
+	 * @return the weight
+	 */
+	private double middleWeight(long taken) {
+		double weight = 0;
+		for (int i = 0; i < combos[1].length; i++) {
+			if ((combos[1][i] & taken) == 0) {
+				weight += weights[1][i] * lastWeight(taken | combos[1][i]);
+			}
+		}
+		return weight;
+	}
+
+	/** Steps taken and states found not to deal by a search */
+	private static final class Search {
+		int steps;
+		Set<Long> failed;
+	}
+
+	/**
+	 * Search for a deal of the players from one on which don't clash, trying
+	 * each player's combos in turn
+	 *
+	 * @param player
+	 *            first player to deal
+	 * @param taken
+	 *            mask of cards already dealt
+	 * @param deal
+	 *            receives the combo of each player found, may be null
+	 * @param search
+	 *            steps taken so far
+	 * @return 1 if a deal was found, 0 if there is none or -1 if the search
+	 *         gave up
+	 */
+	private int search(int player, long taken, long deal[], Search search) {
+		if (player == players) {
+			return 1;
+		}
+		final long key = ((long) player << 52) | taken;
+		if (search.failed != null && search.failed.contains(key)) {
+			return 0;
+		}
+		final long playerCombos[] = combos[player];
+		for (int i = 0; i < playerCombos.length; i++) {
+			if ((playerCombos[i] & taken) != 0) {
+				continue;
+			}
+			if (++search.steps > SEARCH_LIMIT) {
+				return -1;
+			}
+			final int result = search(player + 1, taken | playerCombos[i],
+					deal, search);
+			if (result != 0) {
+				if (result > 0 && deal != null) {
+					deal[player] = playerCombos[i];
+				}
+				return result;
+			}
+		}
+		if (search.failed == null) {
+			search.failed = new HashSet<Long>();
+		}
+		search.failed.add(key);
+		return 0;
+	}
+
+	/**
+	 * Deal a combo to each player
+	 *
+	 * @param hands
+	 *            receives the combo of each player
+	 * @param random
+	 */
+	void deal(long hands[], Random random) {
+		if (players == 2) {
+			final long firstCombo = combos[0][first.sample(random)];
+			hands[seats[0]] = firstCombo;
+			hands[seats[1]] = pick(1, firstCombo, random);
+		} else if (players == 3) {
+			final long firstCombo = combos[0][first.sample(random)];
+			final long second = pickMiddle(firstCombo, random);
+			hands[seats[0]] = firstCombo;
+			hands[seats[1]] = second;
+			hands[seats[2]] = pick(2, firstCombo | second, random);
+		} else if (!dealTogether(hands, random)) {
+			dealInTurn(hands, random);
+		}
+	}
+
+	/**
+	 * Pick each player's combo from their whole range
+	 *
+	 * @return false if the combos clash
+	 */
+	private boolean dealTogether(long hands[], Random random) {
+		long taken = 0;
+		for (int player = 0; player < players; player++) {
+			final long combo = combos[player][tables[player].sample(random)];
+			if ((combo & taken) != 0) {
+				return false;
+			}
+			hands[seats[player]] = combo;
+			taken |= combo;
+		}
+		return true;
+	}
+
+	/**
+	 * Deal the players in turn, each a combo which leaves the players after a
+	 * deal. Should a search give up, the deal found when the situation was
+	 * made is used.
+	 */
+	private void dealInTurn(long hands[], Random random) {
+		long taken = 0;
+		for (int player = 0; player < players; player++) {
+			long combo = pick(player, taken, random);
+			if (player + 1 < players
+					&& search(player + 1, taken | combo, null, new Search()) <= 0) {
+				combo = pickLeavingDeal(player, taken, random);
+			}
+			if (combo == 0) {
+				for (int i = 0; i < players; i++) {
+					hands[seats[i]] = found[i];
+				}
+				return;
+			}
+			hands[seats[player]] = combo;
+			taken |= combo;
+		}
+	}
+
+	/**
+	 * Pick a combo of a player which doesn't clash with the taken cards and
+	 * leaves the players after a deal, from a scan of every combo
+	 *
+	 * @return the combo or 0 if no search found a deal
+	 */
+	private long pickLeavingDeal(int player, long taken, Random random) {
+		final long playerCombos[] = combos[player];
+		final double playerWeights[] = weights[player];
+		final boolean leaves[] = new boolean[playerCombos.length];
+		double total = 0;
+		for (int i = 0; i < playerCombos.length; i++) {
+			if ((playerCombos[i] & taken) == 0
+					&& search(player + 1, taken | playerCombos[i], null,
+							new Search()) > 0) {
+				leaves[i] = true;
+				total += playerWeights[i];
+			}
+		}
+		double target = random.nextDouble() * total;
+		long last = 0;
+		for (int i = 0; i < playerCombos.length; i++) {
+			if (leaves[i]) {
+				last = playerCombos[i];
+				target -= playerWeights[i];
+				if (target < 0) {
+					break;
+				}
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Pick a combo of a player which doesn't clash with the taken cards
+	 *
+	 * @param player
+	 * @param taken
+	 *            mask of cards already dealt
+	 * @param random
+	 * @return the combo, some combo must not clash
+	 */
+	private long pick(int player, long taken, Random random) {
+		final long playerCombos[] = combos[player];
+		for (int i = 0; i < PICKS; i++) {
+			final long combo = playerCombos[tables[player].sample(random)];
+			if ((combo & taken) == 0) {
+				return combo;
+			}
+		}
+
+		// Pick from only the combos which don't clash
+		final double playerWeights[] = weights[player];
+		double total = 0;
+		for (int i = 0; i < playerCombos.length; i++) {
+			if ((playerCombos[i] & taken) == 0) {
+				total += playerWeights[i];
+			}
+		}
+		double target = random.nextDouble() * total;
+		long last = 0;
+		for (int i = 0; i < playerCombos.length; i++) {
+			if ((playerCombos[i] & taken) == 0) {
+				last = playerCombos[i];
+				target -= playerWeights[i];
+				if (target < 0) {
+					break;
+				}
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * Pick the second of three players' combo, weighted by the weight of the
+	 * last player's combos it leaves. A combo from the alias table is kept in
+	 * proportion to that weight, which can only be less than the weight the
+	 * first player's combo leaves.
+	 *
+	 * @param taken
+	 *            the first player's combo
+	 * @param random
+	 * @return the combo
+	 */
+	private long pickMiddle(long taken, Random random) {
+		final long middleCombos[] = combos[1];
+		final double most = lastWeight(taken);
+		for (int i = 0; i < PICKS; i++) {
+			final long combo = middleCombos[tables[1].sample(random)];
+			if ((combo & taken) == 0
+					&& random.nextDouble() * most < lastWeight(taken | combo)) {
+				return combo;
+			}
+		}
+
+		// Pick from the combos weighted by what they leave
+		final double leaves[] = new double[middleCombos.length];
+		double total = 0;
+		for (int i = 0; i < middleCombos.length; i++) {
+			if ((middleCombos[i] & taken) == 0) {
+				leaves[i] = weights[1][i] * lastWeight(taken | middleCombos[i]);
+				total += leaves[i];
+			}
+		}
+		double target = random.nextDouble() * total;
+		long last = 0;
+		for (int i = 0; i < middleCombos.length; i++) {
+			if (leaves[i] > 0) {
+				last = middleCombos[i];
+				target -= leaves[i];
+				if (target < 0) {
+					break;
+				}
+			}
+		}
+		return last;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.equity.Game#getPlayers()
+	 */
+	public int getPlayers() {
+		return players;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.adamlock.cards.equity.Game#createRunner(com.adamlock.cards.Random)
+	 */
+	public TrialRunner createRunner(Random random) {
+		return new RangeSimulator(this, random);
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import java.util.concurrent.RecursiveTask;
+
+import com.adamlock.cards.XoshiroRandom;
+
+/**
+ * Runs a block of trials, splitting it in half until the blocks are small
+ * enough to run on a single worker. Each block is seeded from the calculator's
+ * seed and the position of its first trial, so a calculation which runs all
+ * its trials gives the same result however the blocks are scheduled.
+ *
+ * @author Adam Lock
+ */
+final class SimulationTask extends RecursiveTask<EquityStats> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** Spreads the seeds of neighbouring blocks */
+	private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final Game game;
+
+	private final long first;
+
+	private final long trials;
+
+	private final long blockSize;
+
+	private final long seed;
+
+	private final Budget budget;
+
+	/**
+	 * Constructor
+	 *
+	 * @param game
+	 * @param first
+	 *            position of the first trial of the block
+	 * @param trials
+	 *            number of trials in the block
+	 * @param blockSize
+	 *            most trials to run without splitting
+	 * @param seed
+	 *            seed of the whole calculation
+	 * @param budget
+	 *            decides when to stop early, shared by every block
+	 */
+	SimulationTask(Game game, long first, long trials, long blockSize,
+			long seed, Budget budget) {
+		this.game = game;
+		this.first = first;
+		this.trials = trials;
+		this.blockSize = blockSize;
+		this.seed = seed;
+		this.budget = budget;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.util.concurrent.RecursiveTask#compute()
+	 */
+	@Override
+	protected EquityStats compute() {
+		if (trials > blockSize) {
+			final long half = trials / 2;
+			final SimulationTask left = new SimulationTask(game, first,
+					half, blockSize, seed, budget);
+			final SimulationTask right = new SimulationTask(game, first
+					+ half, trials - half, blockSize, seed, budget);
+			left.fork();
+			final EquityStats stats = right.compute();
+			stats.add(left.join());
+			return stats;
+		}
+		final TrialRunner runner = game.createRunner(new XoshiroRandom(seed
+				+ first * SEED_GAMMA));
+		final EquityStats stats = new EquityStats(game.getPlayers());
+		runner.run(trials, budget, stats);
+		return stats;
+	}
+}
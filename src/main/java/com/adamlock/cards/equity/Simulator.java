@@ -0,0 +1,84 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.Random;
+import com.adamlock.cards.eval.Showdown;
+
+/**
+ * Runs random trials of a situation. The deck is marked once and rewound
+ * before every trial, which is much cheaper than replacing the dealt cards and
+ * shuffling again.
+ *
+ * @author Adam Lock
+ */
+final class Simulator extends TrialRunner {
+
+	private final Situation situation;
+
+	private final DeckImpl deck;
+
+	private final int mark;
+
+	/** Hole cards of each player, with the patterns dealt on each trial */
+	private final Showdown showdown;
+
+	/**
+	 * Constructor
+	 *
+	 * @param situation
+	 * @param random
+	 *            random source used only by this simulator
+	 */
+	Simulator(Situation situation, Random random) {
+		this.situation = situation;
+		this.deck = situation.createDeck(random);
+		this.mark = deck.mark();
+		this.showdown = new Showdown(situation.hands);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.adamlock.cards.equity.TrialRunner#trial(com.adamlock.cards.equity.
+	 * EquityStats)
+	 */
+	@Override
+	void trial(EquityStats stats) {
+		deck.rewind(mark);
+		if (situation.patterns.length > 0) {
+			final Card cards[];
+			try {
+				cards = deck.dealRandom(situation.patterns);
+			} catch (InvalidCardException e) {
+				// The situation was checked when it was made
+				throw new IllegalStateException(e);
+			}
+			// Only the players with patterns change, the rest keep their
+			// exact hole cards from one trial to the next. Each player's
+			// patterns are next to each other.
+			long dealt = 0;
+			for (int i = 0; i < cards.length; i++) {
+				final int player = situation.patternPlayers[i];
+				dealt |= 1L << cards[i].index();
+				if (i + 1 == cards.length
+						|| situation.patternPlayers[i + 1] != player) {
+					showdown.setHand(player, situation.hands[player] | dealt);
+					dealt = 0;
+				}
+			}
+		}
+		long board = situation.board;
+		for (int i = 0; i < situation.boardToDeal; i++) {
+			board |= 1L << deck.tryDealOne();
+		}
+		stats.showdown(showdown, board);
+	}
+}
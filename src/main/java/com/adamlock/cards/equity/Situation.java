@@ -0,0 +1,238 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.CardPattern;
+import com.adamlock.cards.CombinationIterator;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.Random;
+import com.adamlock.cards.SuitIsomorphism;
+import com.adamlock.cards.eval.HandEvaluator;
+
+/**
+ * The hands, board and dead cards an equity calculation starts from. The
+ * situation is checked when it is made and never changes afterwards, so one
+ * situation is shared by every task of a calculation.
+ *
+ * @author Adam Lock
+ */
+final class Situation implements Game {
+
+	/** Number of cards in a complete board */
+	static final int BOARD_SIZE = 5;
+
+	/** Number of players */
+	final int players;
+
+	/** Mask of the exact hole cards of each player */
+	final long hands[];
+
+	/** Hole cards which are patterns rather than exact cards */
+	final CardPattern patterns[];
+
+	/** The player each of the patterns belongs to */
+	final int patternPlayers[];
+
+	/** Mask of the known board cards */
+	final long board;
+
+	/** Number of board cards still to come */
+	final int boardToDeal;
+
+	/** Mask of every exact card, hole, board and dead */
+	final long known;
+
+	/**
+	 * Constructor
+	 *
+	 * @param hands
+	 *            hole cards of each player, as patterns
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            cards known to be out of play, may be null
+	 * @throws InvalidCardException
+	 *             if the hole card patterns can't all be dealt
+	 */
+	Situation(CardPattern hands[][], Card board[], Card dead[])
+			throws InvalidCardException {
+		this(hands, board, dead != null ? CardMask.of(dead) : 0);
+		if (dead != null && (Long.bitCount(dead()) != dead.length)) {
+			throw new IllegalArgumentException("Cards must be different");
+		}
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param hands
+	 *            hole cards of each player, as patterns
+	 * @param board
+	 *            known board cards, may be null
+	 * @param dead
+	 *            mask of cards out of play, which may include the hole and
+	 *            board cards, e.g. the cards dealt from a deck
+	 * @throws InvalidCardException
+	 *             if the hole card patterns can't all be dealt
+	 */
+	Situation(CardPattern hands[][], Card board[], long dead)
+			throws InvalidCardException {
+		if (hands == null || hands.length < 2) {
+			throw new IllegalArgumentException(
+					"Must supply at least two hands");
+		}
+		if (board != null && board.length > BOARD_SIZE) {
+			throw new IllegalArgumentException("Too many board cards");
+		}
+		this.players = hands.length;
+		this.hands = new long[players];
+
+		int numPatterns = 0;
+		int numExact = 0;
+		for (CardPattern hand[] : hands) {
+			if (hand == null || hand.length == 0
+					|| hand.length + BOARD_SIZE > HandEvaluator.MAX_CARDS) {
+				throw new IllegalArgumentException("Invalid hand");
+			}
+			for (CardPattern pattern : hand) {
+				if (pattern == null) {
+					throw new IllegalArgumentException("Must supply patterns");
+				} else if (pattern.isExact()) {
+					numExact++;
+				} else {
+					numPatterns++;
+				}
+			}
+		}
+
+		// Exact hole cards are removed from the deck up front, other patterns
+		// are dealt on each trial
+		this.patterns = new CardPattern[numPatterns];
+		this.patternPlayers = new int[numPatterns];
+		long known = 0;
+		int patternIdx = 0;
+		for (int player = 0; player < players; player++) {
+			for (CardPattern pattern : hands[player]) {
+				if (pattern.isExact()) {
+					this.hands[player] |= pattern.getMask();
+				} else {
+					patterns[patternIdx] = pattern;
+					patternPlayers[patternIdx++] = player;
+				}
+			}
+			known |= this.hands[player];
+		}
+		this.board = board != null ? CardMask.of(board) : 0;
+		known |= this.board;
+		final int numBoard = board != null ? board.length : 0;
+		if (Long.bitCount(known) != numExact + numBoard) {
+			throw new IllegalArgumentException("Cards must be different");
+		}
+		this.known = known | dead;
+		this.boardToDeal = BOARD_SIZE - numBoard;
+
+		// Make sure a deal is possible
+		final DeckImpl deck = createDeck(new Random());
+		if (numPatterns > 0) {
+			deck.dealRandom(patterns);
+		}
+		if (deck.size() < boardToDeal) {
+			throw new InvalidCardException("Not enough cards for the board");
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see com.adamlock.cards.equity.Game#getPlayers()
+	 */
+	public int getPlayers() {
+		return players;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * com.adamlock.cards.equity.Game#createRunner(com.adamlock.cards.Random)
+	 */
+	public TrialRunner createRunner(Random random) {
+		return new Simulator(this, random);
+	}
+
+	/**
+	 * Get the cards which are out of play but not in a hand or on the board
+	 *
+	 * @return mask of cards
+	 */
+	long dead() {
+		long inPlay = board;
+		for (long hand : hands) {
+			inPlay |= hand;
+		}
+		return known & ~inPlay;
+	}
+
+	/**
+	 * Get the cards which could still be dealt
+	 *
+	 * @return mask of cards
+	 */
+	long available() {
+		return CardMask.FULL & ~known;
+	}
+
+	/**
+	 * Find the swaps of suits which leave each hand, the board and the dead
+	 * cards the same
+	 *
+	 * @return the symmetries of the situation
+	 */
+	SuitIsomorphism symmetry() {
+		final long groups[] = new long[players + 2];
+		System.arraycopy(hands, 0, groups, 0, players);
+		groups[players] = board;
+		groups[players + 1] = dead();
+		return new SuitIsomorphism(groups);
+	}
+
+	/**
+	 * Test if the situation can be enumerated, i.e. every hole card is known
+	 *
+	 * @return true if only the board is unknown
+	 */
+	boolean isEnumerable() {
+		return patterns.length == 0;
+	}
+
+	/**
+	 * Count the boards which could be dealt
+	 *
+	 * @return number of boards
+	 */
+	long countBoards() {
+		return CombinationIterator.count(Long.bitCount(available()),
+				boardToDeal);
+	}
+
+	/**
+	 * Make a deck without the known cards, shuffled lazily so each trial only
+	 * costs the cards it deals
+	 *
+	 * @param random
+	 * @return the deck
+	 */
+	DeckImpl createDeck(Random random) {
+		final DeckImpl deck = new DeckImpl(random);
+		deck.removeCard(CardMask.toCards(known));
+		deck.setLazyShuffle(true);
+		deck.shuffle();
+		return deck;
+	}
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.equity;
+
+/**
+ * Runs random trials of a game on one worker. Each runner has its own deck
+ * and random source, so runners on different threads share nothing.
+ *
+ * @author Adam Lock
+ */
+abstract class TrialRunner {
+
+	/**
+	 * Run trials until the number of trials is reached or the budget is
+	 * spent. The budget is checked between batches of trials, and if it is
+	 * tracking the precision each batch is added to it.
+	 *
+	 * @param trials
+	 *            number of trials to run
+	 * @param budget
+	 *            decides when to stop early
+	 * @param stats
+	 *            totals to add each trial to
+	 */
+	void run(long trials, Budget budget, EquityStats stats) {
+		final EquityStats batch = budget.isTracking() ? new EquityStats(
+				stats.wins.length) : stats;
+		long trial = 0;
+		while (trial < trials && !budget.isSpent()) {
+			final long end = Math.min(trials, trial + Budget.CHECK_INTERVAL);
+			for (; trial < end; trial++) {
+				trial(batch);
+			}
+			if (batch != stats) {
+				budget.add(batch);
+				stats.add(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Deal and evaluate one trial
+	 *
+	 * @param stats
+	 *            totals to add the trial to
+	 */
+	abstract void trial(EquityStats stats);
+}
@@ -0,0 +1,29 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.eval;
+
+/**
+ * The category of a poker hand, from the weakest to the strongest
+ *
+ * @author Adam Lock
+ */
+public enum HandCategory {
+	HIGH_CARD("High card"), PAIR("Pair"), TWO_PAIR("Two pair"), THREE_OF_A_KIND(
+			"Three of a kind"), STRAIGHT("Straight"), FLUSH("Flush"), FULL_HOUSE(
+			"Full house"), FOUR_OF_A_KIND("Four of a kind"), STRAIGHT_FLUSH(
+			"Straight flush");
+
+	private final String name;
+
+	private HandCategory(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+}
@@ -0,0 +1,381 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.eval;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+
+/**
+ * Ranks poker hands of up to 7 cards, taking the best 5 cards.
+ * <p>
+ * The result is an int where a better hand always has a higher value and
+ * equal hands have the same value. The top bits hold the
+ * {@link HandCategory}, see {@link #getCategory(int)}, and the bits below
+ * hold the values which decide between hands of the same category, 4 bits
+ * each, most significant first.
+ * <p>
+ * Hands may be supplied as cards, card indices (see
+ * {@link Card#fromIndex(int)}) or a mask (see {@link CardMask}). The mask
+ * holds each suit as a 13 bit block of values, so the evaluator works on a
+ * whole suit or the values of all suits at a time using lookup tables indexed
+ * by a 13 bit block. The tables are built the first time a hand is evaluated.
+ * Evaluation allocates nothing and is thread safe.
+ *
+ * @author Adam Lock
+ */
+public final class HandEvaluator {
+
+	/** Most cards which can be evaluated */
+	public static final int MAX_CARDS = 7;
+
+	/** Position of the category in an evaluated value */
+	private static final int CATEGORY_SHIFT = 24;
+
+	/** Positions of the values deciding between hands of one category */
+	private static final int TOP_SHIFT = 16;
+	private static final int SECOND_SHIFT = 12;
+	private static final int THIRD_SHIFT = 8;
+	private static final int FOURTH_SHIFT = 4;
+
+	private static final int VALUES_MASK = 0x1FFF;
+
+	private static final int SUIT_SIZE = 13;
+
+	private static final HandCategory CATEGORIES[] = HandCategory.values();
+
+	private static final int STRAIGHT_FLUSH = HandCategory.STRAIGHT_FLUSH
+			.ordinal() << CATEGORY_SHIFT;
+	private static final int FOUR_OF_A_KIND = HandCategory.FOUR_OF_A_KIND
+			.ordinal() << CATEGORY_SHIFT;
+	private static final int FULL_HOUSE = HandCategory.FULL_HOUSE.ordinal() << CATEGORY_SHIFT;
+	private static final int FLUSH = HandCategory.FLUSH.ordinal() << CATEGORY_SHIFT;
+	private static final int STRAIGHT = HandCategory.STRAIGHT.ordinal() << CATEGORY_SHIFT;
+	private static final int THREE_OF_A_KIND = HandCategory.THREE_OF_A_KIND
+			.ordinal() << CATEGORY_SHIFT;
+	private static final int TWO_PAIR = HandCategory.TWO_PAIR.ordinal() << CATEGORY_SHIFT;
+	private static final int PAIR = HandCategory.PAIR.ordinal() << CATEGORY_SHIFT;
+	private static final int HIGH_CARD = HandCategory.HIGH_CARD.ordinal() << CATEGORY_SHIFT;
+
+	/**
+	 * Lookup tables indexed by a 13 bit block of values. Being a nested class
+	 * they are only built when first used.
+	 */
+	private static final class Tables {
+		/** Highest value in the block */
+		static final int TOP[] = new int[1 << SUIT_SIZE];
+
+		/** Top 5 values in the block, 4 bits each from bit 16 down */
+		static final int TOP_FIVE[] = new int[1 << SUIT_SIZE];
+
+		/** Highest value of a straight in the block, or -1 if none */
+		static final int STRAIGHT_TOP[] = new int[1 << SUIT_SIZE];
+
+		static {
+			for (int values = 0; values < TOP.length; values++) {
+				// An empty block counts as a two, which only happens for hands
+				// of fewer than 5 cards
+				TOP[values] = values == 0 ? 0 : 31 - Integer
+						.numberOfLeadingZeros(values);
+
+				int topFive = 0;
+				int remaining = values;
+				for (int shift = TOP_SHIFT; shift >= 0 && remaining != 0; shift -= 4) {
+					final int top = 31 - Integer.numberOfLeadingZeros(remaining);
+					topFive |= top << shift;
+					remaining &= ~(1 << top);
+				}
+				TOP_FIVE[values] = topFive;
+
+				// The ace also counts low in the 5 high straight
+				final int withLowAce = (values << 1)
+						| ((values >>> (SUIT_SIZE - 1)) & 1);
+				int straightTop = -1;
+				for (int top = SUIT_SIZE - 1; top >= 3; top--) {
+					final int run = 0x1F << (top - 3);
+					if ((withLowAce & run) == run) {
+						straightTop = top;
+						break;
+					}
+				}
+				STRAIGHT_TOP[values] = straightTop;
+			}
+		}
+	}
+
+	private HandEvaluator() {
+	}
+
+	/**
+	 * Evaluate the cards held in a mask
+	 *
+	 * @param mask
+	 *            mask of up to 7 cards, see {@link CardMask}
+	 * @return value of the best 5 card hand, higher is better
+	 */
+	public static int evaluate(long mask) {
+		final int hearts = (int) mask & VALUES_MASK;
+		final int diamonds = (int) (mask >>> SUIT_SIZE) & VALUES_MASK;
+		final int spades = (int) (mask >>> (2 * SUIT_SIZE)) & VALUES_MASK;
+		final int clubs = (int) (mask >>> (3 * SUIT_SIZE)) & VALUES_MASK;
+		return evaluate(hearts, diamonds, spades, clubs, Long.bitCount(mask));
+	}
+
+	/**
+	 * Evaluate a hand from the values held in each suit
+	 *
+	 * @param hearts
+	 *            13 bit block of values, bit 0 is the two
+	 * @param diamonds
+	 * @param spades
+	 * @param clubs
+	 * @param numCards
+	 *            number of cards in all the suits
+	 * @return value of the best 5 card hand, higher is better
+	 */
+	static int evaluate(int hearts, int diamonds, int spades, int clubs,
+			int numCards) {
+		final int values = hearts | diamonds | spades | clubs;
+		final int numValues = Integer.bitCount(values);
+		final int numDuplicates = numCards - numValues;
+
+		// With 7 cards a flush or straight leaves too few cards for a full
+		// house or four of a kind, so either one is the best hand
+		if (numValues >= 5) {
+			final int flush = flushValues(hearts, diamonds, spades, clubs);
+			if (flush != 0) {
+				final int straightTop = Tables.STRAIGHT_TOP[flush];
+				if (straightTop != -1) {
+					return STRAIGHT_FLUSH | (straightTop << TOP_SHIFT);
+				}
+				return FLUSH | Tables.TOP_FIVE[flush];
+			}
+			final int straightTop = Tables.STRAIGHT_TOP[values];
+			if (straightTop != -1) {
+				return STRAIGHT | (straightTop << TOP_SHIFT);
+			}
+		}
+
+		// Values held an odd number of times
+		final int odd = hearts ^ diamonds ^ spades ^ clubs;
+		switch (numDuplicates) {
+		case 0:
+			return HIGH_CARD | Tables.TOP_FIVE[values];
+		case 1: {
+			final int pair = values ^ odd;
+			return PAIR | (Tables.TOP[pair] << TOP_SHIFT)
+					| ((Tables.TOP_FIVE[values ^ pair] >>> 8) << FOURTH_SHIFT);
+		}
+		case 2: {
+			final int pairs = values ^ odd;
+			if (pairs != 0) {
+				return twoPair(values, pairs);
+			}
+			final int three = threeOfAKind(hearts, diamonds, spades, clubs);
+			return THREE_OF_A_KIND | (Tables.TOP[three] << TOP_SHIFT)
+					| ((Tables.TOP_FIVE[values ^ three] >>> 12) << THIRD_SHIFT);
+		}
+		default: {
+			final int four = hearts & diamonds & spades & clubs;
+			if (four != 0) {
+				final int top = Tables.TOP[four];
+				return FOUR_OF_A_KIND | (top << TOP_SHIFT)
+						| (Tables.TOP[values & ~(1 << top)] << SECOND_SHIFT);
+			}
+			final int pairs = values ^ odd;
+			if (Integer.bitCount(pairs) == numDuplicates) {
+				// Three pairs
+				return twoPair(values, pairs);
+			}
+			final int three = threeOfAKind(hearts, diamonds, spades, clubs);
+			final int top = Tables.TOP[three];
+			return FULL_HOUSE | (top << TOP_SHIFT)
+					| (Tables.TOP[(pairs | three) & ~(1 << top)] << SECOND_SHIFT);
+		}
+		}
+	}
+
+	/**
+	 * Evaluate a hand from the values it holds once, twice, three and four
+	 * times, e.g. as kept by {@link HandState}, rather than from its suits
+	 *
+	 * @param values
+	 *            13 bit block of the values held at least once
+	 * @param pairs
+	 *            values held at least twice
+	 * @param threes
+	 *            values held at least three times
+	 * @param fours
+	 *            values held four times
+	 * @param flush
+	 *            values of a suit holding 5 or more cards, or 0
+	 * @return value of the best 5 card hand of up to 7 cards, the same as
+	 *         {@link #evaluate(long)} gives
+	 */
+	static int evaluateValues(int values, int pairs, int threes, int fours,
+			int flush) {
+		// As above, 7 cards holding a flush or straight can't hold a full
+		// house or four of a kind
+		if (flush != 0) {
+			final int straightTop = Tables.STRAIGHT_TOP[flush];
+			if (straightTop != -1) {
+				return STRAIGHT_FLUSH | (straightTop << TOP_SHIFT);
+			}
+			return FLUSH | Tables.TOP_FIVE[flush];
+		}
+		if (fours != 0) {
+			final int top = Tables.TOP[fours];
+			return FOUR_OF_A_KIND | (top << TOP_SHIFT)
+					| (Tables.TOP[values & ~(1 << top)] << SECOND_SHIFT);
+		}
+		final int straightTop = Tables.STRAIGHT_TOP[values];
+		if (straightTop != -1) {
+			return STRAIGHT | (straightTop << TOP_SHIFT);
+		}
+		if (threes != 0) {
+			final int top = Tables.TOP[threes];
+			final int rest = pairs & ~(1 << top);
+			if (rest != 0) {
+				return FULL_HOUSE | (top << TOP_SHIFT)
+						| (Tables.TOP[rest] << SECOND_SHIFT);
+			}
+			return THREE_OF_A_KIND | (top << TOP_SHIFT)
+					| ((Tables.TOP_FIVE[values ^ threes] >>> 12) << THIRD_SHIFT);
+		}
+		if (pairs == 0) {
+			return HIGH_CARD | Tables.TOP_FIVE[values];
+		} else if ((pairs & (pairs - 1)) == 0) {
+			return PAIR | (Tables.TOP[pairs] << TOP_SHIFT)
+					| ((Tables.TOP_FIVE[values ^ pairs] >>> 8) << FOURTH_SHIFT);
+		}
+		return twoPair(values, pairs);
+	}
+
+	/**
+	 * Find a suit with 5 or more cards
+	 *
+	 * @return values held in the suit, or 0 if there is no flush
+	 */
+	private static int flushValues(int hearts, int diamonds, int spades,
+			int clubs) {
+		if (Integer.bitCount(hearts) >= 5) {
+			return hearts;
+		} else if (Integer.bitCount(diamonds) >= 5) {
+			return diamonds;
+		} else if (Integer.bitCount(spades) >= 5) {
+			return spades;
+		} else if (Integer.bitCount(clubs) >= 5) {
+			return clubs;
+		}
+		return 0;
+	}
+
+	/**
+	 * Find the values held in at least 3 suits
+	 */
+	private static int threeOfAKind(int hearts, int diamonds, int spades,
+			int clubs) {
+		return ((clubs & diamonds) | (hearts & spades))
+				& ((clubs & hearts) | (diamonds & spades));
+	}
+
+	/**
+	 * Value the top two of several pairs with the best remaining kicker
+	 */
+	private static int twoPair(int values, int pairs) {
+		final int top = Tables.TOP[pairs];
+		final int second = Tables.TOP[pairs & ~(1 << top)];
+		final int kickers = values & ~(1 << top) & ~(1 << second);
+		return TWO_PAIR | (top << TOP_SHIFT) | (second << SECOND_SHIFT)
+				| (Tables.TOP[kickers] << THIRD_SHIFT);
+	}
+
+	/**
+	 * Evaluate cards
+	 *
+	 * @param cards
+	 *            up to 7 cards
+	 * @return value of the best 5 card hand, higher is better
+	 */
+	public static int evaluate(Card[] cards) {
+		if (cards == null) {
+			throw new IllegalArgumentException("Must supply cards");
+		}
+		return evaluate(cards, 0, cards.length);
+	}
+
+	/**
+	 * Evaluate part of an array of cards
+	 *
+	 * @param cards
+	 * @param offset
+	 *            first card to evaluate
+	 * @param length
+	 *            number of cards, up to 7
+	 * @return value of the best 5 card hand, higher is better
+	 */
+	public static int evaluate(Card[] cards, int offset, int length) {
+		if (length > MAX_CARDS) {
+			throw new IllegalArgumentException("Too many cards");
+		}
+		final long mask = CardMask.of(cards, offset, length);
+		if (Long.bitCount(mask) != length) {
+			throw new IllegalArgumentException("Cards must be different");
+		}
+		return evaluate(mask);
+	}
+
+	/**
+	 * Evaluate part of an array of card indices
+	 *
+	 * @param indices
+	 *            card indices, see {@link Card#index()}
+	 * @param offset
+	 *            first card to evaluate
+	 * @param length
+	 *            number of cards, up to 7
+	 * @return value of the best 5 card hand, higher is better
+	 */
+	public static int evaluate(int indices[], int offset, int length) {
+		if (indices == null) {
+			throw new IllegalArgumentException("Must supply indices");
+		}
+		if (offset < 0 || length < 0 || offset > indices.length - length
+				|| length > MAX_CARDS) {
+			throw new IllegalArgumentException("Invalid offset or length");
+		}
+		long mask = 0;
+		for (int i = offset; i < offset + length; i++) {
+			final long bit = 1L << indices[i];
+			if (indices[i] < 0 || indices[i] >= 52 || (mask & bit) != 0) {
+				throw new IllegalArgumentException("Invalid card indices");
+			}
+			mask |= bit;
+		}
+		return evaluate(mask);
+	}
+
+	/**
+	 * Get the category of an evaluated hand
+	 *
+	 * @param value
+	 *            value returned by evaluate
+	 * @return the category
+	 */
+	public static HandCategory getCategory(int value) {
+		return CATEGORIES[value >>> CATEGORY_SHIFT];
+	}
+
+	/**
+	 * Get the lowest value of a category, which every hand of the category
+	 * and every better hand reaches
+	 *
+	 * @param category
+	 * @return the lowest value
+	 */
+	public static int getLowestValue(HandCategory category) {
+		return category.ordinal() << CATEGORY_SHIFT;
+	}
+}
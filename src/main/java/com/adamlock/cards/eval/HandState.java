@@ -0,0 +1,271 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.eval;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+
+/**
+ * A hand built up a card at a time, e.g. hole cards then the flop, turn and
+ * river as they arrive, which gives the value {@link HandEvaluator} would for
+ * the cards held so far.
+ * <p>
+ * Besides the values of each suit as the evaluator's 13 bit blocks, the state
+ * keeps the values held at least once, twice, three and four times and the
+ * suit, if any, which could make a flush. Adding a card updates each of these
+ * with a few bit operations, and the value is read from them with the
+ * evaluator's tables without looking at the suits again. The value is worked
+ * out when first asked for and kept until another card is added.
+ * <p>
+ * A state may be copied at any street and each copy carried down its own
+ * branch, see {@link #HandState(HandState)} and {@link #set(HandState)}. To
+ * try every river from a turn, {@link #evaluateWith(int)} values the state
+ * with one more card without changing it, by updating copies of the counts
+ * in registers, so each river costs one step rather than a copy or a full
+ * evaluation. States are not thread safe, give each thread its own.
+ *
+ * @author Adam Lock
+ */
+public final class HandState {
+
+	private static final int SUIT_SIZE = 13;
+
+	/** Values held in each 13 bit block of the mask, hearts first */
+	private final int blocks[] = new int[4];
+
+	/** Mask of the cards held, see {@link CardMask} */
+	private long mask;
+
+	private int numCards;
+
+	/** Values held at least once, twice, three and four times */
+	private int values;
+	private int pairs;
+	private int threes;
+	private int fours;
+
+	/** Block holding 4 or more cards, which could make a flush, or -1 */
+	private int suited = -1;
+
+	/** Values of the block holding 5 or more cards, or 0 */
+	private int flush;
+
+	/** Value of the cards held, or -1 if not yet worked out */
+	private int value = -1;
+
+	/**
+	 * Constructor, holding no cards
+	 */
+	public HandState() {
+	}
+
+	/**
+	 * Constructor, holding the cards of another state
+	 *
+	 * @param other
+	 *            state to copy
+	 */
+	public HandState(HandState other) {
+		set(other);
+	}
+
+	/**
+	 * Hold the cards of another state instead of this one's
+	 *
+	 * @param other
+	 *            state to copy
+	 * @return this state
+	 */
+	public HandState set(HandState other) {
+		if (other == null) {
+			throw new IllegalArgumentException("Must supply a state");
+		}
+		System.arraycopy(other.blocks, 0, blocks, 0, blocks.length);
+		mask = other.mask;
+		numCards = other.numCards;
+		values = other.values;
+		pairs = other.pairs;
+		threes = other.threes;
+		fours = other.fours;
+		suited = other.suited;
+		flush = other.flush;
+		value = other.value;
+		return this;
+	}
+
+	/**
+	 * Remove every card
+	 *
+	 * @return this state
+	 */
+	public HandState clear() {
+		blocks[0] = blocks[1] = blocks[2] = blocks[3] = 0;
+		mask = CardMask.EMPTY;
+		numCards = 0;
+		values = pairs = threes = fours = 0;
+		suited = -1;
+		flush = 0;
+		value = -1;
+		return this;
+	}
+
+	/**
+	 * Add a card
+	 *
+	 * @param card
+	 * @return this state
+	 */
+	public HandState add(Card card) {
+		if (card == null) {
+			throw new IllegalArgumentException("Must supply a card");
+		}
+		return add(card.index());
+	}
+
+	/**
+	 * Add a card by its index
+	 *
+	 * @param index
+	 *            card index, see {@link Card#index()}
+	 * @return this state
+	 */
+	public HandState add(int index) {
+		checkCard(index);
+		put(index);
+		value = -1;
+		return this;
+	}
+
+	/**
+	 * Hold a card, which has been checked
+	 */
+	private void put(int index) {
+		final int block = index / SUIT_SIZE;
+		final int bit = 1 << (index % SUIT_SIZE);
+		blocks[block] |= bit;
+		mask |= 1L << index;
+		numCards++;
+		fours |= threes & bit;
+		threes |= pairs & bit;
+		pairs |= values & bit;
+		values |= bit;
+		final int suitCards = Integer.bitCount(blocks[block]);
+		if (suitCards >= 4) {
+			suited = block;
+			if (suitCards >= 5) {
+				flush = blocks[block];
+			}
+		}
+	}
+
+	/**
+	 * Add the cards of a mask
+	 *
+	 * @param cards
+	 *            mask of cards, see {@link CardMask}
+	 * @return this state
+	 */
+	public HandState addAll(long cards) {
+		if ((cards & ~CardMask.FULL) != 0 || (cards & mask) != 0
+				|| numCards + Long.bitCount(cards) > HandEvaluator.MAX_CARDS) {
+			throw new IllegalArgumentException("Invalid cards");
+		}
+		for (long rest = cards; rest != 0; rest &= rest - 1) {
+			put(Long.numberOfTrailingZeros(rest));
+		}
+		value = -1;
+		return this;
+	}
+
+	private void checkCard(int index) {
+		if (index < 0 || index >= 52) {
+			throw new IllegalArgumentException("Invalid card index " + index);
+		}
+		if ((mask & (1L << index)) != 0) {
+			throw new IllegalArgumentException("Card is already held");
+		}
+		if (numCards == HandEvaluator.MAX_CARDS) {
+			throw new IllegalArgumentException("Too many cards");
+		}
+	}
+
+	/**
+	 * Get the value of the cards held
+	 *
+	 * @return value of the best 5 card hand, higher is better, the same as
+	 *         {@link HandEvaluator#evaluate(long)} gives
+	 */
+	public int evaluate() {
+		if (value == -1) {
+			value = HandEvaluator.evaluateValues(values, pairs, threes, fours,
+					flush);
+		}
+		return value;
+	}
+
+	/**
+	 * Get the value the cards held would have with one more card, leaving
+	 * the state as it is
+	 *
+	 * @param index
+	 *            card index of a card not held, see {@link Card#index()}
+	 * @return value of the best 5 card hand, higher is better
+	 */
+	public int evaluateWith(int index) {
+		checkCard(index);
+		final int block = index / SUIT_SIZE;
+		final int bit = 1 << (index % SUIT_SIZE);
+		// Only a suit already holding 4 cards can make a new flush
+		final int withFlush = block == suited ? blocks[block] | bit : flush;
+		return HandEvaluator.evaluateValues(values | bit, pairs
+				| (values & bit), threes | (pairs & bit), fours
+				| (threes & bit), withFlush);
+	}
+
+	/**
+	 * Get the category of the cards held
+	 *
+	 * @return the category
+	 */
+	public HandCategory getCategory() {
+		return HandEvaluator.getCategory(evaluate());
+	}
+
+	/**
+	 * Get the cards held
+	 *
+	 * @return mask of the cards, see {@link CardMask}
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Get the number of cards held
+	 *
+	 * @return number of cards
+	 */
+	public int size() {
+		return numCards;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		for (Card card : CardMask.toCards(mask)) {
+			if (sb.length() > 0) {
+				sb.append(' ');
+			}
+			sb.append(card);
+		}
+		return sb.toString();
+	}
+}
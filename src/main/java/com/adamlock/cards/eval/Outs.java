@@ -0,0 +1,225 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.eval;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.Deck;
+
+/**
+ * The outs of a hand, i.e. the undrawn cards which would each lift the hand
+ * past a target, e.g. an opponent's value or the best of the hand's own
+ * category, together with how many outs make each category.
+ * <p>
+ * The outs are found from masks rather than by dealing and replacing each
+ * card. Away from a suit which holds 4 or more of the cards, a card's suit
+ * can't make a flush, so every undrawn card of a value gives the same hand
+ * and one evaluation decides them all. Only the cards of a suit which could
+ * make a flush are evaluated one by one. A hand's outs therefore take at most
+ * 26 evaluations and usually 13, a few hundred nanoseconds.
+ *
+ * @author Adam Lock
+ */
+public final class Outs {
+
+	private static final int SUIT_SIZE = 13;
+
+	/** Mask of every card of a suit, for the suit in the lowest block */
+	private static final long SUIT = (1L << SUIT_SIZE) - 1;
+
+	/** Mask of every card of a value, for the two */
+	private static final long VALUE = 1L | (1L << SUIT_SIZE)
+			| (1L << (2 * SUIT_SIZE)) | (1L << (3 * SUIT_SIZE));
+
+	private static final HandCategory CATEGORIES[] = HandCategory.values();
+
+	/** Mask of the outs */
+	private final long mask;
+
+	/** Number of outs making each category */
+	private final int counts[];
+
+	private Outs(long mask, int counts[]) {
+		this.mask = mask;
+		this.counts = counts;
+	}
+
+	/**
+	 * Find the outs of a hand
+	 *
+	 * @param cards
+	 *            mask of the hole and board cards, from 1 to 6 cards, see
+	 *            {@link CardMask}
+	 * @param undrawn
+	 *            mask of the cards which could come, any of the hand's own
+	 *            cards are ignored
+	 * @param target
+	 *            value to beat, see {@link HandEvaluator}
+	 * @return the cards whose value with the hand is higher than the target
+	 */
+	public static Outs find(long cards, long undrawn, int target) {
+		final int numCards = Long.bitCount(cards);
+		if ((cards & ~CardMask.FULL) != 0 || numCards == 0
+				|| numCards >= HandEvaluator.MAX_CARDS) {
+			throw new IllegalArgumentException("Invalid cards");
+		}
+		final long candidates = undrawn & ~cards & CardMask.FULL;
+
+		// One more card of a suit holding 4 could make a flush, so these
+		// cards are evaluated one by one
+		long flushCards = 0;
+		for (int block = 0; block < 4; block++) {
+			final long suit = SUIT << (block * SUIT_SIZE);
+			if (Long.bitCount(cards & suit) >= 4) {
+				flushCards |= suit;
+			}
+		}
+		long outs = 0;
+		final int counts[] = new int[CATEGORIES.length];
+		for (long rest = candidates & flushCards; rest != 0; rest &= rest - 1) {
+			final long card = rest & -rest;
+			final int value = HandEvaluator.evaluate(cards | card);
+			if (value > target) {
+				outs |= card;
+				counts[HandEvaluator.getCategory(value).ordinal()]++;
+			}
+		}
+
+		// Every other card of a value gives the same hand whatever its suit
+		final long others = candidates & ~flushCards;
+		for (int value = 0; value < SUIT_SIZE; value++) {
+			final long same = others & (VALUE << value);
+			if (same == 0) {
+				continue;
+			}
+			final int handValue = HandEvaluator.evaluate(cards | (same & -same));
+			if (handValue > target) {
+				outs |= same;
+				counts[HandEvaluator.getCategory(handValue).ordinal()] += Long
+						.bitCount(same);
+			}
+		}
+		return new Outs(outs, counts);
+	}
+
+	/**
+	 * Find the outs of a hand among the undrawn cards of a deck
+	 *
+	 * @param holeCards
+	 * @param board
+	 *            board cards, may be null
+	 * @param deck
+	 *            deck the next card comes from
+	 * @param target
+	 *            value to beat, see {@link HandEvaluator}
+	 * @return the cards whose value with the hand is higher than the target
+	 */
+	public static Outs find(Card holeCards[], Card board[], Deck deck,
+			int target) {
+		if (holeCards == null || deck == null) {
+			throw new IllegalArgumentException(
+					"Must supply hole cards and a deck");
+		}
+		final long cards = CardMask.of(holeCards)
+				| (board != null ? CardMask.of(board) : 0);
+		if (Long.bitCount(cards) != holeCards.length
+				+ (board != null ? board.length : 0)) {
+			throw new IllegalArgumentException("Cards must be different");
+		}
+		return find(cards, deck.getUndrawnMask(), target);
+	}
+
+	/**
+	 * Find the outs which lift a hand into a better category than it holds,
+	 * e.g. a pair to two pair or better
+	 *
+	 * @param holeCards
+	 * @param board
+	 *            board cards, may be null
+	 * @param deck
+	 *            deck the next card comes from
+	 * @return the cards which make a better category
+	 */
+	public static Outs find(Card holeCards[], Card board[], Deck deck) {
+		if (holeCards == null) {
+			throw new IllegalArgumentException("Must supply hole cards");
+		}
+		final long cards = CardMask.of(holeCards)
+				| (board != null ? CardMask.of(board) : 0);
+		final int category = HandEvaluator.getCategory(
+				HandEvaluator.evaluate(cards)).ordinal();
+		if (category + 1 == CATEGORIES.length) {
+			return new Outs(CardMask.EMPTY, new int[CATEGORIES.length]);
+		}
+		return find(holeCards, board, deck,
+				HandEvaluator.getLowestValue(CATEGORIES[category + 1]) - 1);
+	}
+
+	/**
+	 * Get the outs
+	 *
+	 * @return mask of the outs, see {@link CardMask}
+	 */
+	public long getMask() {
+		return mask;
+	}
+
+	/**
+	 * Get the outs as cards
+	 *
+	 * @return the outs in ascending order
+	 */
+	public Card[] getCards() {
+		return CardMask.toCards(mask);
+	}
+
+	/**
+	 * Get the number of outs
+	 *
+	 * @return number of outs
+	 */
+	public int size() {
+		return Long.bitCount(mask);
+	}
+
+	/**
+	 * Test if a card is an out
+	 *
+	 * @param card
+	 * @return true if the card is an out
+	 */
+	public boolean contains(Card card) {
+		return CardMask.contains(mask, card);
+	}
+
+	/**
+	 * Get the number of outs which make a category
+	 *
+	 * @param category
+	 * @return number of outs
+	 */
+	public int getCount(HandCategory category) {
+		return counts[category.ordinal()];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder sb = new StringBuilder();
+		sb.append(size()).append(" outs");
+		for (int i = CATEGORIES.length - 1; i >= 0; i--) {
+			if (counts[i] > 0) {
+				sb.append(", ").append(CATEGORIES[i]).append(' ')
+						.append(counts[i]);
+			}
+		}
+		return sb.toString();
+	}
+}
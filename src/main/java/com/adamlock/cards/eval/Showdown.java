@@ -0,0 +1,226 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards.eval;
+
+import com.adamlock.cards.CardMask;
+
+/**
+ * Evaluates a board against the hole cards of every player at once and splits
+ * the pot between the best hands, a fraction each when they tie.
+ * <p>
+ * The hole cards are set once and kept, so a board, dealt or enumerated once
+ * for the whole table, is valued against each player by ORing it with their
+ * hole cards. The rest of a trial, such as shuffling and dealing the board,
+ * is shared by every player, so a trial costs the deal plus one evaluation a
+ * player.
+ * <p>
+ * Evaluating allocates nothing. A showdown keeps the values of the last board
+ * it evaluated, so it is not thread safe and each thread needs its own.
+ *
+ * @author Adam Lock
+ */
+public final class Showdown {
+
+	/** Mask of each player's hole cards */
+	private final long hands[];
+
+	/** Value of each player's hand on the last board */
+	private final int values[];
+
+	/** Best value on the last board */
+	private int best = -1;
+
+	/** Number of players holding the best value on the last board */
+	private int winners;
+
+	/**
+	 * Constructor
+	 *
+	 * @param players
+	 *            number of players, at least 1
+	 */
+	public Showdown(int players) {
+		if (players < 1) {
+			throw new IllegalArgumentException("Must have at least one player");
+		}
+		hands = new long[players];
+		values = new int[players];
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param hands
+	 *            mask of each player's hole cards, see {@link CardMask}
+	 */
+	public Showdown(long hands[]) {
+		this(hands != null ? hands.length : 0);
+		setHands(hands);
+	}
+
+	/**
+	 * Get the number of players
+	 *
+	 * @return number of players
+	 */
+	public int getPlayers() {
+		return hands.length;
+	}
+
+	/**
+	 * Set the hole cards of a player
+	 *
+	 * @param player
+	 * @param hand
+	 *            mask of the hole cards, see {@link CardMask}
+	 */
+	public void setHand(int player, long hand) {
+		if (player < 0 || player >= hands.length) {
+			throw new IllegalArgumentException("Invalid player " + player);
+		}
+		if ((hand & ~CardMask.FULL) != 0
+				|| Long.bitCount(hand) > HandEvaluator.MAX_CARDS) {
+			throw new IllegalArgumentException("Invalid hand");
+		}
+		hands[player] = hand;
+	}
+
+	/**
+	 * Set the hole cards of every player
+	 *
+	 * @param hands
+	 *            mask of each player's hole cards, see {@link CardMask}
+	 */
+	public void setHands(long hands[]) {
+		if (hands == null || hands.length != this.hands.length) {
+			throw new IllegalArgumentException("Must supply "
+					+ this.hands.length + " hands");
+		}
+		for (int player = 0; player < hands.length; player++) {
+			setHand(player, hands[player]);
+		}
+	}
+
+	/**
+	 * Get the hole cards of a player
+	 *
+	 * @param player
+	 * @return mask of the hole cards
+	 */
+	public long getHand(int player) {
+		return hands[player];
+	}
+
+	/**
+	 * Evaluate every player's hand on a board. The board must not hold any of
+	 * the hole cards and each hand with the board must be no more than 7
+	 * cards, which isn't checked.
+	 *
+	 * @param board
+	 *            mask of the board cards, see {@link CardMask}
+	 * @return number of players who share the pot, at least 1
+	 */
+	public int evaluate(long board) {
+		final long hands[] = this.hands;
+		final int values[] = this.values;
+		int best = -1;
+		int winners = 0;
+		for (int player = 0; player < hands.length; player++) {
+			final int value = HandEvaluator.evaluate(hands[player] | board);
+			values[player] = value;
+			if (value > best) {
+				best = value;
+				winners = 1;
+			} else if (value == best) {
+				winners++;
+			}
+		}
+		this.best = best;
+		this.winners = winners;
+		return winners;
+	}
+
+	/**
+	 * Evaluate several boards and add each player's share of each pot
+	 *
+	 * @param boards
+	 *            mask of each board, see {@link CardMask}
+	 * @param offset
+	 *            first board to evaluate
+	 * @param length
+	 *            number of boards
+	 * @param shares
+	 *            receives the sum of each player's share of the pots, added
+	 *            to what it already holds
+	 */
+	public void evaluate(long boards[], int offset, int length,
+			double shares[]) {
+		if (boards == null || offset < 0 || length < 0
+				|| offset > boards.length - length) {
+			throw new IllegalArgumentException("Invalid boards");
+		}
+		if (shares == null || shares.length != hands.length) {
+			throw new IllegalArgumentException("Must supply " + hands.length
+					+ " shares");
+		}
+		for (int i = offset; i < offset + length; i++) {
+			final double share = 1.0 / evaluate(boards[i]);
+			for (int player = 0; player < values.length; player++) {
+				if (values[player] == best) {
+					shares[player] += share;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the value of a player's hand on the last board
+	 *
+	 * @param player
+	 * @return value of the best 5 card hand, see {@link HandEvaluator}
+	 */
+	public int getValue(int player) {
+		return values[player];
+	}
+
+	/**
+	 * Get the best value on the last board
+	 *
+	 * @return value of the winning hand
+	 */
+	public int getBest() {
+		return best;
+	}
+
+	/**
+	 * Get the number of players sharing the pot on the last board
+	 *
+	 * @return number of winners
+	 */
+	public int getWinners() {
+		return winners;
+	}
+
+	/**
+	 * Test if a player won or shared the pot on the last board
+	 *
+	 * @param player
+	 * @return true if the player holds the best value
+	 */
+	public boolean isWinner(int player) {
+		return values[player] == best;
+	}
+
+	/**
+	 * Get a player's share of the pot on the last board
+	 *
+	 * @param player
+	 * @return 1 divided by the number of winners for a winner, otherwise 0
+	 */
+	public double getShare(int player) {
+		return values[player] == best ? 1.0 / winners : 0;
+	}
+}
@@ -0,0 +1,44 @@
+package com.adamlock.cards;
+
+import junit.framework.TestCase;
+
+public class AliasTableTest extends TestCase {
+
+	public void testSample() {
+		final double weights[] = { 1, 0, 2, 4, 0.5, 0.5 };
+		final AliasTable table = new AliasTable(weights);
+		assertEquals(6, table.size());
+		assertEquals(8.0, table.getTotalWeight(), 1e-9);
+
+		final Random random = new XoshiroRandom(1);
+		final int counts[] = new int[weights.length];
+		final int samples = 800000;
+		for (int i = 0; i < samples; i++) {
+			counts[table.sample(random)]++;
+		}
+		assertEquals(0, counts[1]);
+		for (int i = 0; i < weights.length; i++) {
+			assertEquals(weights[i] / 8, (double) counts[i] / samples, 0.005);
+		}
+	}
+
+	public void testSingle() {
+		final AliasTable table = new AliasTable(new double[] { 0, 0, 3 });
+		final Random random = new XoshiroRandom(2);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(2, table.sample(random));
+		}
+	}
+
+	public void testInvalid() {
+		final double invalid[][] = { null, {}, { 0, 0 }, { 1, -1 },
+				{ 1, Double.NaN }, { 1, Double.POSITIVE_INFINITY } };
+		for (double weights[] : invalid) {
+			try {
+				new AliasTable(weights);
+				fail("Weights should be invalid");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+}
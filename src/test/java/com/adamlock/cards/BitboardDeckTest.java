@@ -0,0 +1,68 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs the deck tests against BitboardDeck
+ */
+public class BitboardDeckTest extends DeckTest {
+
+	@Override
+	protected Deck createDeck() {
+		return new BitboardDeck();
+	}
+
+	@Override
+	protected void internalValidate(Deck d) {
+		((BitboardDeck) d).internalValidate();
+	}
+
+	public void testMasks() throws EmptyDeckException {
+		final BitboardDeck d = new BitboardDeck();
+		TestCase.assertEquals(CardMask.FULL, d.getUndrawnMask());
+		// An unshuffled deck deals in the same order as DeckImpl
+		TestCase.assertEquals(new DeckImpl().dealOne(), d.dealOne());
+		TestCase.assertEquals(CardMask.of(Card.ACE_CLUBS), d.getDrawnMask());
+		TestCase.assertEquals(51, d.size());
+		d.reset();
+		TestCase.assertEquals(52, d.size());
+	}
+
+	/**
+	 * Removes and replaces a few known cards over and over, as when setting up
+	 * the dead cards of a hand.
+	 */
+	private long removeReplacePerSecond(Deck d) {
+		final Card cards[] = { Card.ACE_HEARTS, Card.KING_SPADES,
+				Card.TWO_CLUBS, Card.TEN_DIAMONDS };
+		d.shuffle();
+		final long startTime = System.currentTimeMillis();
+		long count = 0;
+		long elapsed;
+		do {
+			for (int i = 0; i < 1000; i++) {
+				for (Card card : cards) {
+					d.removeCard(card);
+				}
+				for (Card card : cards) {
+					d.replaceCard(card);
+				}
+			}
+			count += 1000;
+			elapsed = System.currentTimeMillis() - startTime;
+		} while (elapsed < 1000);
+		return count * 1000 / elapsed;
+	}
+
+	public void testRemoveReplaceSpeed() {
+		System.out.println("DeckImpl remove/replace of 4 cards per sec = "
+				+ removeReplacePerSecond(new DeckImpl()));
+		System.out.println("BitboardDeck remove/replace of 4 cards per sec = "
+				+ removeReplacePerSecond(new BitboardDeck()));
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Runs the pattern tests against BitboardDeck
+ */
+public class BitboardPatternTest extends PatternTest {
+
+	@Override
+	protected Deck createDeck() {
+		return new BitboardDeck();
+	}
+}
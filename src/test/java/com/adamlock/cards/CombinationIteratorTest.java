@@ -0,0 +1,58 @@
+package com.adamlock.cards;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class CombinationIteratorTest extends TestCase {
+
+	public void testCombinations() {
+		final long cards = CardMask.of(new Card[] { Card.TWO_HEARTS,
+				Card.ACE_HEARTS, Card.TEN_DIAMONDS, Card.FIVE_SPADES,
+				Card.KING_CLUBS, Card.ACE_CLUBS, Card.TWO_CLUBS });
+		final CombinationIterator iterator = new CombinationIterator();
+		for (int size = 0; size <= 7; size++) {
+			iterator.reset(cards, size);
+			final Set<Long> seen = new HashSet<Long>();
+			while (iterator.next()) {
+				final long mask = iterator.getMask();
+				assertEquals(size, Long.bitCount(mask));
+				assertEquals(0, mask & ~cards);
+				assertTrue(seen.add(mask));
+			}
+			assertEquals(CombinationIterator.count(7, size), seen.size());
+			assertFalse(iterator.next());
+		}
+	}
+
+	public void testCount() {
+		assertEquals(1, CombinationIterator.count(52, 0));
+		assertEquals(52, CombinationIterator.count(52, 1));
+		assertEquals(2598960, CombinationIterator.count(52, 5));
+		assertEquals(1712304, CombinationIterator.count(48, 5));
+		assertEquals(133784560, CombinationIterator.count(52, 7));
+		assertEquals(0, CombinationIterator.count(4, 5));
+
+		long count = 0;
+		final CombinationIterator iterator = new CombinationIterator(
+				CardMask.FULL, 5);
+		while (iterator.next()) {
+			count++;
+		}
+		assertEquals(2598960, count);
+	}
+
+	public void testInvalid() {
+		try {
+			new CombinationIterator(CardMask.of(Card.ACE_CLUBS), 2);
+			fail("Not enough cards");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new CombinationIterator(CardMask.FULL, -1);
+			fail("Negative size");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+}
@@ -1,249 +1,502 @@
-/**
- * Copyright 2011. Adam Lock <locka99@gmail.com>
- *
- * Available as open source under the terms of LGPLv3
- */
-package com.adamlock.cards;
-
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
-
-import com.adamlock.cards.Card;
-import com.adamlock.cards.DeckImpl;
-import com.adamlock.cards.EmptyDeckException;
-import junit.framework.TestCase;
-
-/**
- * Tests for Deck class
- */
-public class DeckTest extends TestCase {
-	
-	private DeckImpl deck;
-
-	@Override
-	protected void setUp() throws Exception {
-		super.setUp();
-		deck = new DeckImpl();
-	}
-
-	private void validateDeck(DeckImpl d) {
-		Set<Card> found = new HashSet<Card>();
-
-		int cardsInDeck = d.size();
-		Card c;
-		try {
-			c = d.dealOne();
-			while (c != null) {
-				TestCase.assertFalse(found.contains(c));
-				found.add(c);
-				c = d.dealOne();
-			}
-		} catch (EmptyDeckException e) {
-			// Drop through
-		}
-		TestCase.assertEquals(cardsInDeck, found.size());
-	}
-
-	/**
-	 * Basic sanity test
-	 */
-	public void testBasicDeck() {
-		for (int i = 0; i < 2; i++) {
-			TestCase.assertEquals(52, deck.size());
-			try {
-				Card[] cards = deck.deal(52);
-				deck.internalValidate();
-				deck.replaceCard(cards);
-				deck.internalValidate();
-			} catch (EmptyDeckException e) {
-				TestCase.fail("deck is empty when it shouldn't be!");
-			}
-		}
-	}
-
-	/**
-	 * Class under test for Card dealOne(boolean)
-	 */
-	public void testDealOneboolean() {
-		try {
-			ArrayList<Card> v = new ArrayList<Card>();
-			for (int i = 0; i < 52; i++) {
-				Card c = deck.dealOne();
-				v.add(c);
-			}
-		} catch (EmptyDeckException e) {
-			TestCase.fail("deck is empty when it shouldn't be!");
-		}
-		if (!deck.isEmpty()) {
-			TestCase.fail("deck should be empty but it isn't!");
-		}
-	}
-
-	public void testDeal() {
-		int cards = 0;
-		try {
-			while (true) {
-				deck.dealOne();
-				cards++;
-			}
-		} catch (EmptyDeckException e) {
-			if (cards != 52)
-				TestCase.fail("deck only dealt " + Integer.toString(cards)
-						+ " cards");
-		}
-	}
-
-	public void testRemoveSingle() {
-		deck.shuffle();
-		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), false);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), true);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), false);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), false);
-		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), true);
-		deck.internalValidate();
-
-		validateDeck(deck);
-	}
-
-	public void testShuffleReplace() {
-		// Test remove / replace function even after deck is shuffled between
-		// deal & replace
-		for (int i = 0; i < 10000; i++) {
-			deck.shuffle();
-			try {
-				Card cards[] = deck.deal(5);
-				TestCase.assertEquals(deck.size(), 47);
-				deck.shuffle();
-				TestCase.assertEquals(deck.removeCard(cards), 0);
-				TestCase.assertEquals(deck.replaceCard(cards), 5);
-				deck.internalValidate();
-			} catch (EmptyDeckException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
-	}
-
-	public void testRemoveMultiple() {
-		deck.shuffle();
-		TestCase.assertEquals(
-				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
-				2);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), true);
-		deck.internalValidate();
-		TestCase.assertEquals(
-				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
-				1);
-		deck.internalValidate();
-		TestCase.assertEquals(
-				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
-				0);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.replaceCard(new Card[] { Card.FOUR_HEARTS,
-				Card.THREE_CLUBS }), 2);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
-		deck.internalValidate();
-		TestCase.assertEquals(deck.replaceCard(new Card[] { Card.FOUR_HEARTS,
-				Card.THREE_CLUBS }), 1);
-		deck.internalValidate();
-		TestCase.assertEquals(
-				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
-				2);
-		deck.internalValidate();
-
-		validateDeck(deck);
-	}
-
-	public void testShuffle() {
-		deck.shuffle();
-		try {
-			Card[] cards = deck.deal(52);
-			Card[] cardsSorted = Card.values();
-			int unsortedCount = 0;
-			for (int i = 0; i < cards.length; i++) {
-				if (cardsSorted[cards.length - 1 - i] == cards[i]) {
-					unsortedCount++;
-				} else {
-					unsortedCount = 0;
-				}
-				if (unsortedCount >= 10) {
-					TestCase.fail("Deck is probably not shuffled properly");
-				}
-			}
-			deck.replaceCard(cards);
-		} catch (EmptyDeckException e) {
-			TestCase.fail("Something went wrong");
-		}
-
-		validateDeck(deck);
-	}
-
-	public void testSpeed() {
-		long startTime = System.currentTimeMillis();
-		int gamesSimulated = 0;
-		while (System.currentTimeMillis() - startTime < 3000) {
-			DeckImpl d = new DeckImpl();
-			d.shuffle();
-			try {
-				d.replaceCard(d.deal(20));
-			} catch (EmptyDeckException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-			gamesSimulated++;
-			validateDeck(d);
-		}
-
-		System.out.println("Deck test time elapsed, games played = "
-				+ gamesSimulated);
-	}
-
-	public void testDealMany() {
-		deck.shuffle();
-		TestCase.assertEquals(deck.size(), 52);
-		Set<Card> dealtCards = new HashSet<Card>();
-
-		try {
-			for (int i = 0; i < 5; i++) {
-				Card[] cards = deck.deal(10);
-				for (Card c : cards) {
-					TestCase.assertNotNull(c);
-					TestCase.assertFalse(dealtCards.contains(c));
-					dealtCards.add(c);
-				}
-			}
-		} catch (EmptyDeckException e) {
-			TestCase.fail("Deck should not be empty #1");
-		}
-
-		try {
-			deck.deal(3);
-			TestCase.fail("Deck should not be able to deal 3 cards");
-		} catch (EmptyDeckException e) {
-
-		}
-
-		try {
-			deck.deal(2);
-		} catch (EmptyDeckException e) {
-			TestCase.fail("Deck should not be empty #2");
-		}
-
-		try {
-			deck.dealOne();
-			TestCase.fail("Deck should not be able to deal a card");
-		} catch (EmptyDeckException e) {
-
-		}
-	}
-}
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.Deck;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.EmptyDeckException;
+import junit.framework.TestCase;
+
+/**
+ * Tests for Deck class
+ */
+public class DeckTest extends TestCase {
+	
+	private Deck deck;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		deck = createDeck();
+	}
+
+	/**
+	 * Create the deck under test. Subclasses override this to run the tests
+	 * against other implementations.
+	 */
+	protected Deck createDeck() {
+		return new DeckImpl();
+	}
+
+	/**
+	 * Check the internal state of the deck under test
+	 */
+	protected void internalValidate(Deck d) {
+		((DeckImpl) d).internalValidate();
+	}
+
+	private void validateDeck(Deck d) {
+		Set<Card> found = new HashSet<Card>();
+
+		int cardsInDeck = d.size();
+		Card c;
+		try {
+			c = d.dealOne();
+			while (c != null) {
+				TestCase.assertFalse(found.contains(c));
+				found.add(c);
+				c = d.dealOne();
+			}
+		} catch (EmptyDeckException e) {
+			// Drop through
+		}
+		TestCase.assertEquals(cardsInDeck, found.size());
+	}
+
+	/**
+	 * Basic sanity test
+	 */
+	public void testBasicDeck() {
+		for (int i = 0; i < 2; i++) {
+			TestCase.assertEquals(52, deck.size());
+			try {
+				Card[] cards = deck.deal(52);
+				internalValidate(deck);
+				deck.replaceCard(cards);
+				internalValidate(deck);
+			} catch (EmptyDeckException e) {
+				TestCase.fail("deck is empty when it shouldn't be!");
+			}
+		}
+	}
+
+	/**
+	 * Class under test for Card dealOne(boolean)
+	 */
+	public void testDealOneboolean() {
+		try {
+			ArrayList<Card> v = new ArrayList<Card>();
+			for (int i = 0; i < 52; i++) {
+				Card c = deck.dealOne();
+				v.add(c);
+			}
+		} catch (EmptyDeckException e) {
+			TestCase.fail("deck is empty when it shouldn't be!");
+		}
+		if (!deck.isEmpty()) {
+			TestCase.fail("deck should be empty but it isn't!");
+		}
+	}
+
+	public void testDeal() {
+		int cards = 0;
+		try {
+			while (true) {
+				deck.dealOne();
+				cards++;
+			}
+		} catch (EmptyDeckException e) {
+			if (cards != 52)
+				TestCase.fail("deck only dealt " + Integer.toString(cards)
+						+ " cards");
+		}
+	}
+
+	public void testRemoveSingle() {
+		deck.shuffle();
+		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), false);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), true);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), false);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), false);
+		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), true);
+		internalValidate(deck);
+
+		validateDeck(deck);
+	}
+
+	public void testShuffleReplace() {
+		// Test remove / replace function even after deck is shuffled between
+		// deal & replace
+		for (int i = 0; i < 10000; i++) {
+			deck.shuffle();
+			try {
+				Card cards[] = deck.deal(5);
+				TestCase.assertEquals(deck.size(), 47);
+				deck.shuffle();
+				TestCase.assertEquals(deck.removeCard(cards), 0);
+				TestCase.assertEquals(deck.replaceCard(cards), 5);
+				internalValidate(deck);
+			} catch (EmptyDeckException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public void testIsUndrawn() throws EmptyDeckException {
+		deck.shuffle();
+		TestCase.assertTrue(deck.isUndrawn(Card.SIX_CLUBS));
+		deck.removeCard(Card.SIX_CLUBS);
+		TestCase.assertFalse(deck.isUndrawn(Card.SIX_CLUBS));
+		final Card card = deck.dealOne();
+		TestCase.assertFalse(deck.isUndrawn(card));
+		deck.replaceCard(new Card[] { card, Card.SIX_CLUBS });
+		TestCase.assertTrue(deck.isUndrawn(Card.SIX_CLUBS));
+		TestCase.assertTrue(deck.isUndrawn(card));
+		internalValidate(deck);
+	}
+
+	public void testRemoveMultiple() {
+		deck.shuffle();
+		TestCase.assertEquals(
+				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
+				2);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(Card.FOUR_HEARTS), true);
+		internalValidate(deck);
+		TestCase.assertEquals(
+				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
+				1);
+		internalValidate(deck);
+		TestCase.assertEquals(
+				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
+				0);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(new Card[] { Card.FOUR_HEARTS,
+				Card.THREE_CLUBS }), 2);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(new Card[] { Card.FOUR_HEARTS,
+				Card.THREE_CLUBS }), 1);
+		internalValidate(deck);
+		TestCase.assertEquals(
+				deck.removeCard(new Card[] { Card.FOUR_HEARTS, Card.THREE_CLUBS }),
+				2);
+		internalValidate(deck);
+
+		validateDeck(deck);
+	}
+
+	public void testRemoveReplaceRange() {
+		deck.shuffle();
+		final Card cards[] = { Card.ACE_HEARTS, Card.FOUR_HEARTS,
+				Card.THREE_CLUBS, null, Card.KING_SPADES };
+		TestCase.assertEquals(deck.removeCard(cards, 1, 3), 2);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.size(), 50);
+		TestCase.assertEquals(deck.removeCard(cards, 0, 2), 1);
+		TestCase.assertEquals(deck.removeCard(cards, 0, 0), 0);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(cards, 2, 3), 1);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.replaceCard(cards, 0, cards.length), 2);
+		internalValidate(deck);
+		TestCase.assertEquals(deck.size(), 52);
+		try {
+			deck.removeCard(cards, 3, 3);
+			TestCase.fail("Range is outside of the array");
+		} catch (IllegalArgumentException e) {
+		}
+		validateDeck(deck);
+	}
+
+	public void testDealIndices() throws EmptyDeckException {
+		deck.shuffle();
+		final Set<Card> found = new HashSet<Card>();
+		final int indices[] = new int[60];
+		found.add(Card.fromIndex(deck.dealIndex()));
+		TestCase.assertEquals(deck.dealIndices(10, indices, 2), 10);
+		TestCase.assertEquals(deck.size(), 41);
+		for (int i = 2; i < 12; i++) {
+			found.add(Card.fromIndex(indices[i]));
+		}
+		TestCase.assertEquals(deck.dealIndices(60, indices, 0), 41);
+		for (int i = 0; i < 41; i++) {
+			found.add(Card.fromIndex(indices[i]));
+		}
+		TestCase.assertEquals(found.size(), 52);
+		TestCase.assertEquals(deck.tryDealOne(), -1);
+		TestCase.assertEquals(deck.dealIndices(1, indices, 0), 0);
+		try {
+			deck.dealIndices(1, indices, 60);
+			TestCase.fail("Range is outside of the array");
+		} catch (IllegalArgumentException e) {
+		}
+		deck.reset();
+		TestCase.assertTrue(deck.tryDealOne() >= 0);
+		internalValidate(deck);
+	}
+
+	public void testShuffle() {
+		deck.shuffle();
+		try {
+			Card[] cards = deck.deal(52);
+			Card[] cardsSorted = Card.values();
+			int unsortedCount = 0;
+			for (int i = 0; i < cards.length; i++) {
+				if (cardsSorted[cards.length - 1 - i] == cards[i]) {
+					unsortedCount++;
+				} else {
+					unsortedCount = 0;
+				}
+				if (unsortedCount >= 10) {
+					TestCase.fail("Deck is probably not shuffled properly");
+				}
+			}
+			deck.replaceCard(cards);
+		} catch (EmptyDeckException e) {
+			TestCase.fail("Something went wrong");
+		}
+
+		validateDeck(deck);
+	}
+
+	private long undrawnMask(Deck d) {
+		long mask = 0L;
+		for (Card card : Card.values()) {
+			if (d.isUndrawn(card)) {
+				mask |= CardMask.of(card);
+			}
+		}
+		return mask;
+	}
+
+	public void testMarkRewind() throws EmptyDeckException {
+		deck.shuffle();
+		final int preflop = deck.mark();
+		final long preflopCards = undrawnMask(deck);
+		for (int i = 0; i < 100; i++) {
+			deck.deal(4);
+			deck.removeCard(Card.ACE_SPADES);
+			final int flop = deck.mark();
+			final int flopSize = deck.size();
+			final long flopCards = undrawnMask(deck);
+			for (int j = 0; j < 10; j++) {
+				final Card turn = deck.dealOne();
+				deck.dealRandom();
+				deck.replaceCard(turn);
+				deck.shuffle();
+				deck.deal(3);
+				deck.rewind(flop);
+				internalValidate(deck);
+				TestCase.assertEquals(deck.size(), flopSize);
+				TestCase.assertEquals(undrawnMask(deck), flopCards);
+			}
+			deck.rewind(preflop);
+			internalValidate(deck);
+			TestCase.assertEquals(deck.size(), 52);
+			TestCase.assertEquals(undrawnMask(deck), preflopCards);
+		}
+		try {
+			deck.rewind(preflop + 1);
+			TestCase.fail("Mark should have been released by the rewind");
+		} catch (IllegalArgumentException e) {
+		}
+		deck.release(preflop);
+		try {
+			deck.rewind(preflop);
+			TestCase.fail("Mark should have been released");
+		} catch (IllegalArgumentException e) {
+		}
+		validateDeck(deck);
+	}
+
+	/**
+	 * Rewinding must put the cards back in exactly the order they would have
+	 * been dealt in, whether or not the deck is lazily shuffled.
+	 */
+	public void testMarkRewindOrder() throws EmptyDeckException {
+		for (int pass = 0; pass < 2; pass++) {
+			final DeckImpl deck = pass == 0 ? new DeckImpl() : createLazyDeck();
+			deck.shuffle();
+			deck.dealOne();
+			final int outer = deck.mark();
+			final DeckImpl copy = (DeckImpl) deck.clone();
+			copy.setRandom(new XoshiroRandom(pass));
+			final Card expected[] = copy.deal(copy.size());
+			for (int i = 0; i < 50; i++) {
+				deck.deal(1 + i % 7);
+				final int inner = deck.mark();
+				final DeckImpl innerCopy = (DeckImpl) deck.clone();
+				deck.deal(5);
+				if (i % 3 == 0) {
+					deck.removeCard(Card.TWO_DIAMONDS);
+				}
+				if (i % 5 == 0) {
+					deck.shuffle();
+				}
+				deck.rewind(inner);
+				// Lazily shuffled cards are only put in order as they are
+				// dealt, so deal both with the same random numbers
+				deck.setRandom(new XoshiroRandom(i));
+				innerCopy.setRandom(new XoshiroRandom(i));
+				TestCase.assertEquals(
+						Arrays.asList(deck.deal(deck.size())),
+						Arrays.asList(innerCopy.deal(innerCopy.size())));
+				if (i % 2 == 0) {
+					deck.release(inner);
+				}
+				deck.rewind(outer);
+				deck.internalValidate();
+			}
+			deck.setRandom(new XoshiroRandom(pass));
+			TestCase.assertEquals(Arrays.asList(deck.deal(deck.size())),
+					Arrays.asList(expected));
+		}
+	}
+
+	private DeckImpl createLazyDeck() {
+		final DeckImpl lazyDeck = new DeckImpl();
+		lazyDeck.setLazyShuffle(true);
+		return lazyDeck;
+	}
+
+	public void testLazyShuffleReplace() {
+		final DeckImpl deck = createLazyDeck();
+		for (int i = 0; i < 10000; i++) {
+			deck.shuffle();
+			try {
+				Card cards[] = deck.deal(5);
+				TestCase.assertEquals(deck.size(), 47);
+				deck.internalValidate();
+				TestCase.assertEquals(deck.removeCard(cards), 0);
+				TestCase.assertEquals(deck.removeCard(deck.dealOne()), false);
+				TestCase.assertEquals(deck.replaceCard(cards), 5);
+				deck.internalValidate();
+				deck.reset();
+				TestCase.assertEquals(deck.size(), 52);
+			} catch (EmptyDeckException e) {
+				TestCase.fail("Something went wrong");
+			}
+		}
+		validateDeck(deck);
+	}
+
+	public void testLazyShuffleRemove() {
+		final DeckImpl deck = createLazyDeck();
+		deck.shuffle();
+		TestCase.assertEquals(deck.removeCard(Card.FOUR_HEARTS), true);
+		TestCase.assertEquals(deck.removeCard(new Card[] { Card.FOUR_HEARTS,
+				Card.THREE_CLUBS, Card.ACE_SPADES }), 2);
+		TestCase.assertEquals(deck.replaceCard(Card.THREE_CLUBS), true);
+		deck.internalValidate();
+		TestCase.assertEquals(deck.size(), 50);
+		try {
+			deck.dealRandom();
+			deck.deal(10);
+			TestCase.assertEquals(deck.dealIndices(5, new int[5], 0), 5);
+			deck.internalValidate();
+		} catch (EmptyDeckException e) {
+			TestCase.fail("Something went wrong");
+		}
+		deck.setLazyShuffle(false);
+		deck.internalValidate();
+		validateDeck(deck);
+	}
+
+	/**
+	 * The first card from a lazily shuffled deck must be any of the 52 cards
+	 * with equal odds, including when matching a pattern.
+	 */
+	public void testLazyShuffleDistribution() {
+		final DeckImpl deck = createLazyDeck();
+		final int trials = 52000;
+		final int counts[] = new int[52];
+		final int heartCounts[] = new int[13];
+		final CardPattern hearts = CardPattern.fromSuit(CardSuit.HEARTS);
+		try {
+			for (int i = 0; i < trials; i++) {
+				deck.reset();
+				deck.shuffle();
+				counts[deck.dealOne().ordinal()]++;
+				deck.reset();
+				deck.shuffle();
+				heartCounts[deck.dealOne(hearts).getValue().getOrdinal()]++;
+			}
+		} catch (EmptyDeckException e) {
+			TestCase.fail("Something went wrong");
+		}
+		for (int count : counts) {
+			TestCase.assertTrue(Math.abs(count - trials / 52) < trials / 200);
+		}
+		for (int count : heartCounts) {
+			TestCase.assertTrue(Math.abs(count - trials / 13) < trials / 50);
+		}
+	}
+
+	public void testSpeed() {
+		long startTime = System.currentTimeMillis();
+		int gamesSimulated = 0;
+		while (System.currentTimeMillis() - startTime < 3000) {
+			Deck d = createDeck();
+			d.shuffle();
+			try {
+				d.replaceCard(d.deal(20));
+			} catch (EmptyDeckException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+			gamesSimulated++;
+			validateDeck(d);
+		}
+
+		System.out.println(createDeck().getClass().getSimpleName()
+				+ " test time elapsed, games played = " + gamesSimulated);
+	}
+
+	public void testDealMany() {
+		deck.shuffle();
+		TestCase.assertEquals(deck.size(), 52);
+		Set<Card> dealtCards = new HashSet<Card>();
+
+		try {
+			for (int i = 0; i < 5; i++) {
+				Card[] cards = deck.deal(10);
+				for (Card c : cards) {
+					TestCase.assertNotNull(c);
+					TestCase.assertFalse(dealtCards.contains(c));
+					dealtCards.add(c);
+				}
+			}
+		} catch (EmptyDeckException e) {
+			TestCase.fail("Deck should not be empty #1");
+		}
+
+		try {
+			deck.deal(3);
+			TestCase.fail("Deck should not be able to deal 3 cards");
+		} catch (EmptyDeckException e) {
+
+		}
+
+		try {
+			deck.deal(2);
+		} catch (EmptyDeckException e) {
+			TestCase.fail("Deck should not be empty #2");
+		}
+
+		try {
+			deck.dealOne();
+			TestCase.fail("Deck should not be able to deal a card");
+		} catch (EmptyDeckException e) {
+
+		}
+	}
+}
@@ -0,0 +1,166 @@
+package com.adamlock.cards;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class HandIndexerTest extends TestCase {
+
+	public void testSizes() {
+		assertEquals(13, new HandIndexer(1).size());
+		assertEquals(169, new HandIndexer(2).size());
+		assertEquals(134459, new HandIndexer(5).size());
+		assertEquals(1286792, new HandIndexer(2, 3).size());
+		assertEquals(55190538, new HandIndexer(2, 3, 1).size());
+		assertEquals(2428287420L, new HandIndexer(2, 3, 1, 1).size());
+		assertEquals(13960050, new HandIndexer(2, 4).size());
+		assertEquals(123156254, new HandIndexer(2, 5).size());
+	}
+
+	public void testPreflop() {
+		final HandIndexer indexer = new HandIndexer(2);
+		final Set<Long> seen = new HashSet<Long>();
+		final CombinationIterator hands = new CombinationIterator(
+				CardMask.FULL, 2);
+		final long groups[] = new long[1];
+		while (hands.next()) {
+			groups[0] = hands.getMask();
+			final long index = indexer.index(groups);
+			assertTrue(index >= 0 && index < 169);
+			seen.add(index);
+		}
+		assertEquals(169, seen.size());
+
+		assertEquals(indexer.index(new Card[] { Card.ACE_HEARTS,
+				Card.KING_HEARTS }), indexer.index(new Card[] {
+				Card.KING_DIAMONDS, Card.ACE_DIAMONDS }));
+		assertFalse(indexer.index(new Card[] { Card.ACE_HEARTS,
+				Card.KING_HEARTS }) == indexer.index(new Card[] {
+				Card.ACE_HEARTS, Card.KING_DIAMONDS }));
+
+		// The canonical hand of each class is in clubs first
+		final Card cards[] = new Card[2];
+		for (long index = 0; index < 169; index++) {
+			indexer.unindex(index, cards);
+			assertEquals(index, indexer.index(cards));
+			assertTrue(cards[0].getSuit().isClubs()
+					|| cards[1].getSuit().isClubs());
+		}
+	}
+
+	public void testFlop() {
+		final HandIndexer indexer = new HandIndexer(2, 3);
+		final Card cards[] = new Card[5];
+		for (long index = 0; index < indexer.size(); index++) {
+			indexer.unindex(index, cards);
+			assertEquals(index, indexer.index(cards));
+		}
+
+		// The group a card is in matters
+		assertFalse(indexer.index(new Card[] { Card.ACE_HEARTS,
+				Card.KING_HEARTS, Card.QUEEN_HEARTS, Card.TWO_CLUBS,
+				Card.THREE_CLUBS }) == indexer.index(new Card[] {
+				Card.ACE_HEARTS, Card.QUEEN_HEARTS, Card.KING_HEARTS,
+				Card.TWO_CLUBS, Card.THREE_CLUBS }));
+		assertEquals(indexer.index(new Card[] { Card.ACE_HEARTS,
+				Card.KING_HEARTS, Card.QUEEN_HEARTS, Card.TWO_CLUBS,
+				Card.THREE_CLUBS }), indexer.index(new Card[] {
+				Card.KING_SPADES, Card.ACE_SPADES, Card.THREE_DIAMONDS,
+				Card.QUEEN_SPADES, Card.TWO_DIAMONDS }));
+	}
+
+	public void testRiver() {
+		final HandIndexer indexer = new HandIndexer(2, 3, 1, 1);
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final Card hand[] = new Card[7];
+		final int indices[] = new int[7];
+		final Card canonical[] = new Card[7];
+		for (int i = 0; i < 100000; i++) {
+			deck.reset();
+			deck.shuffle();
+			deck.dealIndices(7, indices, 0);
+			for (int j = 0; j < 7; j++) {
+				hand[j] = Card.fromIndex(indices[j]);
+			}
+			final long index = indexer.index(hand);
+			assertTrue(index >= 0 && index < indexer.size());
+			indexer.unindex(index, canonical);
+			assertEquals(index, indexer.index(canonical));
+
+			// The canonical hand is the same as the hand but for its suits
+			final long groups[] = groups(hand);
+			final long canonicalGroups[] = groups(canonical);
+			final SuitIsomorphism first = new SuitIsomorphism(groups);
+			final SuitIsomorphism second = new SuitIsomorphism(canonicalGroups);
+			for (int group = 0; group < groups.length; group++) {
+				assertEquals(first.map(groups[group]), second
+						.map(canonicalGroups[group]));
+			}
+		}
+	}
+
+	private static long[] groups(Card hand[]) {
+		return new long[] { CardMask.of(hand, 0, 2), CardMask.of(hand, 2, 3),
+				CardMask.of(hand, 5, 1), CardMask.of(hand, 6, 1) };
+	}
+
+	public void testInvalid() {
+		final int invalid[][] = { {}, { 0 }, { 2, 3, 1, 1, 1 }, { 7, 7 } };
+		for (int sizes[] : invalid) {
+			try {
+				new HandIndexer(sizes);
+				fail("Sizes should be invalid");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+		final HandIndexer indexer = new HandIndexer(2, 3);
+		try {
+			indexer.index(new Card[] { Card.ACE_HEARTS, Card.KING_HEARTS,
+					Card.ACE_HEARTS, Card.TWO_CLUBS, Card.THREE_CLUBS });
+			fail("Cards are the same");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			indexer.index(new Card[] { Card.ACE_HEARTS, Card.KING_HEARTS });
+			fail("Not enough cards");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			indexer.unindex(indexer.size(), new Card[5]);
+			fail("Index is too high");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSpeed() {
+		final HandIndexer indexer = new HandIndexer(2, 3, 1, 1);
+		final int numHands = 1 << 16;
+		final long hands[][] = new long[numHands][];
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final Card hand[] = new Card[7];
+		final int indices[] = new int[7];
+		for (int i = 0; i < numHands; i++) {
+			deck.reset();
+			deck.shuffle();
+			deck.dealIndices(7, indices, 0);
+			for (int j = 0; j < 7; j++) {
+				hand[j] = Card.fromIndex(indices[j]);
+			}
+			hands[i] = groups(hand);
+		}
+
+		long startTime = System.currentTimeMillis();
+		long count = 0;
+		long total = 0;
+		while (System.currentTimeMillis() - startTime < 2000) {
+			for (int i = 0; i < numHands; i++) {
+				total += indexer.index(hands[i]);
+			}
+			count += numHands;
+		}
+		final long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println("HandIndexer 7 card indices per second = "
+				+ (count * 1000 / elapsed) + " (" + total + ")");
+	}
+}
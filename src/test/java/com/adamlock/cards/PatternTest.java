@@ -1,144 +1,332 @@
-/**
- * Copyright 2011. Adam Lock <locka99@gmail.com>
- *
- * Available as open source under the terms of LGPLv3
- */
-package com.adamlock.cards;
-
-import junit.framework.TestCase;
-
-public class PatternTest extends TestCase {
-
-	public void testMatchExact() {
-		final CardPattern p = CardPattern.fromCard(Card.EIGHT_SPADES);
-
-		TestCase.assertNotNull(p);
-		TestCase.assertFalse(p.matches(null));
-
-		final DeckImpl d = new DeckImpl();
-		while (true) {
-			Card c;
-			try {
-				c = d.dealOne();
-			} catch (EmptyDeckException e) {
-				break;
-			}
-			TestCase.assertEquals(p.matches(c), c == Card.EIGHT_SPADES);
-		}
-	}
-
-	public void testDealOne() {
-		DeckImpl d = new DeckImpl();
-		d.shuffle();
-
-		final CardPattern p = CardPattern.fromCard(Card.EIGHT_SPADES);
-
-		try {
-			TestCase.assertEquals(d.dealOne(p), Card.EIGHT_SPADES);
-			TestCase.assertEquals(d.size(), 51);
-			TestCase.assertNull(d.dealOne(p));
-			TestCase.assertEquals(d.size(), 51);
-		} catch (EmptyDeckException e) {
-			TestCase.fail();
-		}
-	}
-
-	public void testDealMany() {
-		DeckImpl d = new DeckImpl();
-		d.shuffle();
-
-		final CardPattern p = CardPattern.fromSuit(CardSuit.HEARTS);
-
-		try {
-			final Card cards[] = d.deal(p, 13);
-			for (Card c : cards) {
-				TestCase.assertNotNull(c);
-				TestCase.assertEquals(c.getSuit(), CardSuit.HEARTS);
-			}
-		} catch (EmptyDeckException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-	}
-
-	public void testMatchAny() {
-		final CardPattern p = CardPattern.RANDOM;
-
-		TestCase.assertNotNull(p);
-		TestCase.assertFalse(p.matches(null));
-
-		final DeckImpl d = new DeckImpl();
-		while (true) {
-			Card c;
-			try {
-				c = d.dealOne();
-			} catch (EmptyDeckException e) {
-				break;
-			}
-			TestCase.assertTrue(p.matches(c));
-		}
-	}
-
-	public void testMatchSuit() {
-		final CardPattern p = CardPattern.fromSuit(CardSuit.HEARTS);
-
-		TestCase.assertNotNull(p);
-		TestCase.assertFalse(p.matches(null));
-
-		final DeckImpl d = new DeckImpl();
-		while (true) {
-			Card c;
-			try {
-				c = d.dealOne();
-			} catch (EmptyDeckException e) {
-				break;
-			}
-			TestCase.assertEquals(p.matches(c), c.getSuit() == CardSuit.HEARTS);
-		}
-	}
-
-	public void testMatchValue() {
-		final CardPattern p = CardPattern.fromValue(CardValue.JACK);
-
-		TestCase.assertNotNull(p);
-		TestCase.assertFalse(p.matches(null));
-
-		final DeckImpl d = new DeckImpl();
-		while (true) {
-			Card c;
-			try {
-				c = d.dealOne();
-			} catch (EmptyDeckException e) {
-				break;
-			}
-			TestCase.assertEquals(p.matches(c), c.getValue() == CardValue.JACK);
-		}
-	}
-
-	public void testMatchSet() {
-
-		Card inCards[] = { Card.EIGHT_CLUBS, Card.JACK_HEARTS, Card.TEN_CLUBS };
-		final CardPattern p = CardPattern.setPatternfromCards(inCards);
-
-		TestCase.assertNotNull(p);
-		TestCase.assertFalse(p.matches(null));
-
-		final DeckImpl d = new DeckImpl();
-		outer: while (true) {
-			Card c;
-			try {
-				c = d.dealOne();
-			} catch (EmptyDeckException e) {
-				break;
-			}
-			for (Card inCard : inCards) {
-				if (c == inCard) {
-					TestCase.assertTrue(p.matches(c));
-					break outer;
-				}
-			}
-			TestCase.assertFalse(p.matches(c));
-		}
-
-	}
-}
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class PatternTest extends TestCase {
+
+	/**
+	 * Create the deck under test. Subclasses override this to run the tests
+	 * against other implementations.
+	 */
+	protected Deck createDeck() {
+		return new DeckImpl();
+	}
+
+	public void testMatchExact() {
+		final CardPattern p = CardPattern.fromCard(Card.EIGHT_SPADES);
+
+		TestCase.assertNotNull(p);
+		TestCase.assertFalse(p.matches(null));
+
+		final Deck d = createDeck();
+		while (true) {
+			Card c;
+			try {
+				c = d.dealOne();
+			} catch (EmptyDeckException e) {
+				break;
+			}
+			TestCase.assertEquals(p.matches(c), c == Card.EIGHT_SPADES);
+		}
+	}
+
+	public void testDealOne() {
+		Deck d = createDeck();
+		d.shuffle();
+
+		final CardPattern p = CardPattern.fromCard(Card.EIGHT_SPADES);
+
+		try {
+			TestCase.assertEquals(d.dealOne(p), Card.EIGHT_SPADES);
+			TestCase.assertEquals(d.size(), 51);
+			TestCase.assertNull(d.dealOne(p));
+			TestCase.assertEquals(d.size(), 51);
+		} catch (EmptyDeckException e) {
+			TestCase.fail();
+		}
+	}
+
+	public void testDealMany() {
+		Deck d = createDeck();
+		d.shuffle();
+
+		final CardPattern p = CardPattern.fromSuit(CardSuit.HEARTS);
+
+		try {
+			final Card cards[] = d.deal(p, 13);
+			for (Card c : cards) {
+				TestCase.assertNotNull(c);
+				TestCase.assertEquals(c.getSuit(), CardSuit.HEARTS);
+			}
+		} catch (EmptyDeckException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+	}
+
+	public void testMatchAny() {
+		final CardPattern p = CardPattern.RANDOM;
+
+		TestCase.assertNotNull(p);
+		TestCase.assertFalse(p.matches(null));
+
+		final Deck d = createDeck();
+		while (true) {
+			Card c;
+			try {
+				c = d.dealOne();
+			} catch (EmptyDeckException e) {
+				break;
+			}
+			TestCase.assertTrue(p.matches(c));
+		}
+	}
+
+	public void testMatchSuit() {
+		final CardPattern p = CardPattern.fromSuit(CardSuit.HEARTS);
+
+		TestCase.assertNotNull(p);
+		TestCase.assertFalse(p.matches(null));
+
+		final Deck d = createDeck();
+		while (true) {
+			Card c;
+			try {
+				c = d.dealOne();
+			} catch (EmptyDeckException e) {
+				break;
+			}
+			TestCase.assertEquals(p.matches(c), c.getSuit() == CardSuit.HEARTS);
+		}
+	}
+
+	public void testMatchValue() {
+		final CardPattern p = CardPattern.fromValue(CardValue.JACK);
+
+		TestCase.assertNotNull(p);
+		TestCase.assertFalse(p.matches(null));
+
+		final Deck d = createDeck();
+		while (true) {
+			Card c;
+			try {
+				c = d.dealOne();
+			} catch (EmptyDeckException e) {
+				break;
+			}
+			TestCase.assertEquals(p.matches(c), c.getValue() == CardValue.JACK);
+		}
+	}
+
+	public void testMatchSet() {
+
+		Card inCards[] = { Card.EIGHT_CLUBS, Card.JACK_HEARTS, Card.TEN_CLUBS };
+		final CardPattern p = CardPattern.setPatternfromCards(inCards);
+
+		TestCase.assertNotNull(p);
+		TestCase.assertFalse(p.matches(null));
+
+		final Deck d = createDeck();
+		outer: while (true) {
+			Card c;
+			try {
+				c = d.dealOne();
+			} catch (EmptyDeckException e) {
+				break;
+			}
+			for (Card inCard : inCards) {
+				if (c == inCard) {
+					TestCase.assertTrue(p.matches(c));
+					break outer;
+				}
+			}
+			TestCase.assertFalse(p.matches(c));
+		}
+
+	}
+
+	public void testMask() {
+		TestCase.assertEquals(CardPattern.RANDOM.getMask(), CardMask.FULL);
+		TestCase.assertEquals(CardPattern.fromCard(Card.SIX_DIAMONDS)
+				.getMask(), CardMask.of(Card.SIX_DIAMONDS));
+		TestCase.assertEquals(CardPattern.fromSuit(CardSuit.SPADES).getMask(),
+				CardMask.of(Card.TWO_SPADES) * 0x1FFFL);
+		TestCase.assertEquals(CardMask.toCards(CardPattern.fromValue(
+				CardValue.QUEEN).getMask()).length, 4);
+		final Card inCards[] = { Card.EIGHT_CLUBS, null, Card.TEN_CLUBS };
+		TestCase.assertEquals(CardPattern.setPatternfromCards(inCards)
+				.getMask(), CardMask.of(inCards));
+	}
+
+	public void testInterned() {
+		TestCase.assertSame(CardPattern.fromCard(Card.TEN_SPADES),
+				CardPattern.fromCard(Card.TEN_SPADES));
+		TestCase.assertSame(CardPattern.fromCard(Card.TEN_SPADES),
+				CardPattern.fromCard(CardValue.TEN, CardSuit.SPADES));
+		TestCase.assertSame(CardPattern.fromSuit(CardSuit.CLUBS),
+				CardPattern.fromCard(CardValue.RANDOM, CardSuit.CLUBS));
+		TestCase.assertSame(CardPattern.fromValue(CardValue.TWO),
+				CardPattern.fromCard(CardValue.TWO, CardSuit.RANDOM));
+		TestCase.assertSame(CardPattern.RANDOM,
+				CardPattern.fromCard(CardValue.RANDOM, CardSuit.RANDOM));
+		TestCase.assertTrue(CardPattern.fromValue(CardValue.TWO).isAnySuit());
+		TestCase.assertTrue(CardPattern.fromSuit(CardSuit.CLUBS).isAnyValue());
+
+		// Set patterns are equal when they match the same cards
+		final CardPattern set1 = CardPattern.setPatternfromCards(new Card[] {
+				Card.ACE_CLUBS, Card.KING_CLUBS });
+		final CardPattern set2 = CardPattern.setPatternfromCards(new Card[] {
+				Card.KING_CLUBS, null, Card.ACE_CLUBS });
+		TestCase.assertEquals(set1, set2);
+		TestCase.assertEquals(set1.hashCode(), set2.hashCode());
+		TestCase.assertSame(set1, CardPattern.setPatternFromMask(set1
+				.getMask()));
+		TestCase.assertSame(set1, CardPattern.setPatternFromMask(set1
+				.getMask() | ~CardMask.FULL));
+		TestCase.assertEquals(set1.getCardPatterns().size(), 2);
+		TestCase.assertFalse(set1.equals(CardPattern.fromCard(Card.ACE_CLUBS)));
+		TestCase.assertFalse(CardPattern.setPatternFromMask(
+				CardMask.of(Card.ACE_CLUBS)).equals(
+				CardPattern.fromCard(Card.ACE_CLUBS)));
+	}
+
+	public void testNullPatterns() {
+		try {
+			CardPattern.fromSuit(null);
+			TestCase.fail("Suit can't be null");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			CardPattern.fromValue(null);
+			TestCase.fail("Value can't be null");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testCountDealMatching() throws EmptyDeckException {
+		final Deck d = createDeck();
+		d.shuffle();
+		final CardPattern hearts = CardPattern.fromSuit(CardSuit.HEARTS);
+		TestCase.assertEquals(d.countMatching(hearts), 13);
+		TestCase.assertEquals(d.countMatching(CardPattern.RANDOM), 52);
+		d.removeCard(Card.ACE_HEARTS);
+		TestCase.assertEquals(d.countMatching(hearts), 12);
+		TestCase.assertEquals(d.getUndrawnMask(), CardMask.FULL
+				& ~CardMask.of(Card.ACE_HEARTS));
+		for (int i = 12; i > 0; i--) {
+			final int cardIndex = d.dealMatching(hearts);
+			TestCase.assertEquals(Card.fromIndex(cardIndex).getSuit(),
+					CardSuit.HEARTS);
+			TestCase.assertFalse(d.isUndrawn(Card.fromIndex(cardIndex)));
+			TestCase.assertEquals(d.countMatching(hearts), i - 1);
+		}
+		TestCase.assertEquals(d.dealMatching(hearts), -1);
+		TestCase.assertNull(d.dealOne(hearts));
+		TestCase.assertEquals(d.size(), 39);
+	}
+
+	public void testDealRandomMatching() throws EmptyDeckException {
+		final CardPattern hearts = CardPattern.fromSuit(CardSuit.HEARTS);
+		final int counts[] = new int[52];
+		for (int i = 0; i < 1300; i++) {
+			final Deck d = createDeck();
+			final int cardIndex = d.dealRandomMatching(hearts);
+			TestCase.assertEquals(Card.fromIndex(cardIndex).getSuit(),
+					CardSuit.HEARTS);
+			counts[cardIndex]++;
+
+			// The rest of the deck is dealt in the same order as before
+			if (i % 100 == 0) {
+				final Deck other = createDeck();
+				other.removeCard(Card.fromIndex(cardIndex));
+				TestCase.assertTrue(Arrays.equals(d.deal(51), other.deal(51)));
+			}
+		}
+		// Every heart is picked, not just the top-most one
+		for (int i = 0; i < counts.length; i++) {
+			if (Card.fromIndex(i).getSuit() == CardSuit.HEARTS) {
+				TestCase.assertTrue(counts[i] > 50);
+			}
+		}
+
+		final Deck d = createDeck(Card.ACE_HEARTS, Card.KING_SPADES);
+		TestCase.assertEquals(d.dealRandomMatching(hearts),
+				Card.ACE_HEARTS.index());
+		TestCase.assertEquals(d.dealRandomMatching(hearts), -1);
+		TestCase.assertEquals(d.dealRandomMatching(CardPattern.RANDOM),
+				Card.KING_SPADES.index());
+		TestCase.assertEquals(d.dealRandomMatching(CardPattern.RANDOM), -1);
+	}
+
+	/**
+	 * Make a deck which only has the specified cards left
+	 */
+	private Deck createDeck(Card... cards) {
+		final Deck d = createDeck();
+		d.removeCard(CardMask.toCards(CardMask.FULL & ~CardMask.of(cards)));
+		return d;
+	}
+
+	public void testDealPatterns() throws Exception {
+		// Taking the top-most heart or king for the first two patterns would
+		// leave nothing for A?
+		final Deck d = createDeck(Card.ACE_HEARTS, Card.KING_HEARTS,
+				Card.KING_SPADES);
+		final CardPattern patterns[] = {
+				CardPattern.fromSuit(CardSuit.HEARTS), null,
+				CardPattern.fromValue(CardValue.KING),
+				CardPattern.fromValue(CardValue.ACE) };
+		final Card cards[] = d.deal(patterns);
+		TestCase.assertEquals(cards[0], Card.KING_HEARTS);
+		TestCase.assertNull(cards[1]);
+		TestCase.assertEquals(cards[2], Card.KING_SPADES);
+		TestCase.assertEquals(cards[3], Card.ACE_HEARTS);
+		TestCase.assertTrue(d.isEmpty());
+
+		// Nothing is dealt if the patterns can't all be matched
+		final Deck d2 = createDeck(Card.ACE_HEARTS, Card.KING_HEARTS);
+		try {
+			d2.deal(new CardPattern[] { CardPattern.fromSuit(CardSuit.HEARTS),
+					CardPattern.fromValue(CardValue.ACE),
+					CardPattern.fromValue(CardValue.ACE) });
+			TestCase.fail("Patterns can't all be matched");
+		} catch (InvalidCardException e) {
+		}
+		TestCase.assertEquals(d2.size(), 2);
+	}
+
+	/**
+	 * Every valid way of dealing the patterns should be equally likely
+	 */
+	public void testDealRandomPatterns() throws Exception {
+		final Deck d = createDeck(Card.ACE_HEARTS, Card.KING_HEARTS,
+				Card.ACE_SPADES);
+		final CardPattern patterns[] = { CardPattern.fromSuit(CardSuit.HEARTS),
+				CardPattern.fromValue(CardValue.ACE) };
+		final int mark = d.mark();
+		final int trials = 6000;
+		int kingAce = 0;
+		int aceAce = 0;
+		for (int i = 0; i < trials; i++) {
+			final Card cards[] = d.dealRandom(patterns);
+			TestCase.assertEquals(d.size(), 1);
+			if (cards[0] == Card.ACE_HEARTS) {
+				aceAce++;
+				TestCase.assertEquals(cards[1], Card.ACE_SPADES);
+			} else if (cards[1] == Card.ACE_HEARTS) {
+				kingAce++;
+			}
+			d.rewind(mark);
+		}
+		// Ah As, Kh Ah and Kh As each come up a third of the time
+		TestCase.assertTrue(Math.abs(aceAce - trials / 3) < trials / 20);
+		TestCase.assertTrue(Math.abs(kingAce - trials / 3) < trials / 20);
+	}
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the random sources
+ */
+public class RandomTest extends TestCase {
+
+	private static final int BENCHMARK_MILLIS = 500;
+
+	/**
+	 * Check the numbers from a source stay in range and are spread evenly
+	 */
+	private void validateSource(Random random) {
+		final int counts[] = new int[10];
+		final int trials = 100000;
+		for (int i = 0; i < trials; i++) {
+			final int n = random.nextInt(counts.length);
+			TestCase.assertTrue(n >= 0 && n < counts.length);
+			counts[n]++;
+		}
+		for (int count : counts) {
+			TestCase.assertTrue(Math.abs(count - trials / counts.length) < trials / 100);
+		}
+		for (int i = 0; i < 1000; i++) {
+			final double d = random.nextDouble();
+			TestCase.assertTrue(d >= 0 && d < 1);
+		}
+		final byte bytes[] = new byte[13];
+		random.next(bytes);
+		TestCase.assertTrue(random.getRandom().nextInt(5) < 5);
+	}
+
+	public void testDefault() {
+		validateSource(new Random());
+	}
+
+	public void testXoshiro() {
+		validateSource(new XoshiroRandom());
+	}
+
+	public void testSplittable() {
+		validateSource(new JdkSplittableRandom());
+		validateSource(new JdkSplittableRandom(42).split());
+	}
+
+	public void testThreadLocal() {
+		validateSource(JdkThreadLocalRandom.INSTANCE);
+	}
+
+	public void testSeeded() {
+		final Random r1 = new XoshiroRandom(99);
+		final Random r2 = new XoshiroRandom(99);
+		for (int i = 0; i < 100; i++) {
+			TestCase.assertEquals(r1.nextLong(), r2.nextLong());
+		}
+		TestCase.assertTrue(new XoshiroRandom().nextLong() != new XoshiroRandom()
+				.nextLong());
+	}
+
+	/**
+	 * Two decks with the same seeded source shuffle the same way
+	 */
+	public void testDeckRandom() throws EmptyDeckException {
+		final DeckImpl d1 = new DeckImpl(new XoshiroRandom(7));
+		final DeckImpl d2 = new DeckImpl(new XoshiroRandom(7));
+		d1.shuffle();
+		d2.shuffle();
+		TestCase.assertEquals(d1.dealRandom(), d2.dealRandom());
+		for (int i = 0; i < 51; i++) {
+			TestCase.assertEquals(d1.dealOne(), d2.dealOne());
+		}
+	}
+
+	/**
+	 * Shuffle on several threads at once, either with the shared default
+	 * source or with a source per deck.
+	 */
+	private long shufflesPerSecond(final int threads, final boolean ownSource)
+			throws InterruptedException {
+		final AtomicLong total = new AtomicLong();
+		final Thread workers[] = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			workers[t] = new Thread() {
+				@Override
+				public void run() {
+					final DeckImpl d = ownSource ? new DeckImpl(
+							new XoshiroRandom()) : new DeckImpl();
+					final long startTime = System.currentTimeMillis();
+					long shuffles = 0;
+					while (System.currentTimeMillis() - startTime < BENCHMARK_MILLIS) {
+						for (int i = 0; i < 1000; i++) {
+							d.shuffle();
+						}
+						shuffles += 1000;
+					}
+					total.addAndGet(shuffles);
+				}
+			};
+			workers[t].start();
+		}
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		return total.get() * 1000 / BENCHMARK_MILLIS;
+	}
+
+	public void testSpeed() throws InterruptedException {
+		final int threads = Runtime.getRuntime().availableProcessors();
+		System.out.println("Shared source, " + threads
+				+ " threads, shuffles/sec = "
+				+ shufflesPerSecond(threads, false));
+		System.out.println("Source per deck, " + threads
+				+ " threads, shuffles/sec = "
+				+ shufflesPerSecond(threads, true));
+	}
+}
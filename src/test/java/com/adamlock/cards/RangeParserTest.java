@@ -0,0 +1,145 @@
+package com.adamlock.cards;
+
+import junit.framework.TestCase;
+
+public class RangeParserTest extends TestCase {
+
+	public void testParsePattern() throws InvalidCardException {
+		assertSame(CardPattern.fromCard(Card.QUEEN_HEARTS),
+				RangeParser.parsePattern("Qh"));
+		assertSame(CardPattern.fromCard(Card.QUEEN_HEARTS),
+				RangeParser.parsePattern("hQ"));
+		assertSame(CardPattern.fromValue(CardValue.QUEEN),
+				RangeParser.parsePattern("Q?"));
+		assertSame(CardPattern.fromSuit(CardSuit.HEARTS),
+				RangeParser.parsePattern("?h"));
+		assertSame(CardPattern.RANDOM, RangeParser.parsePattern("??"));
+
+		final String invalid[] = { null, "", "Q", "Qhh", "Qq", "x?", "?x" };
+		for (String text : invalid) {
+			try {
+				RangeParser.parsePattern(text);
+				fail("Pattern " + text + " should be invalid");
+			} catch (InvalidCardException e) {
+			}
+		}
+	}
+
+	public void testParsePatterns() throws InvalidCardException {
+		final CardPattern patterns[] = RangeParser
+				.parsePatterns(" Ah, ?h Q? ?? ");
+		assertEquals(4, patterns.length);
+		assertSame(CardPattern.fromCard(Card.ACE_HEARTS), patterns[0]);
+		assertSame(CardPattern.fromSuit(CardSuit.HEARTS), patterns[1]);
+		assertSame(CardPattern.fromValue(CardValue.QUEEN), patterns[2]);
+		assertSame(CardPattern.RANDOM, patterns[3]);
+
+		// Changing the result must not change the cached patterns
+		patterns[0] = null;
+		assertNotNull(RangeParser.parsePatterns(" Ah, ?h Q? ?? ")[0]);
+		assertEquals(0, RangeParser.parsePatterns("").length);
+	}
+
+	public void testParseRange() throws InvalidCardException {
+		assertEquals(6, RangeParser.parseRange("AA").size());
+		assertEquals(4, RangeParser.parseRange("AKs").size());
+		assertEquals(12, RangeParser.parseRange("AKo").size());
+		assertEquals(16, RangeParser.parseRange("AK").size());
+		assertEquals(16, RangeParser.parseRange("KA").size());
+		assertEquals(30, RangeParser.parseRange("TT+").size());
+		assertEquals(6, RangeParser.parseRange("AA+").size());
+		assertEquals(16, RangeParser.parseRange("ATs+").size());
+		assertEquals(48, RangeParser.parseRange("ATo+").size());
+		assertEquals(16, RangeParser.parseRange("A2s-A5s").size());
+		assertEquals(16, RangeParser.parseRange("A5s-A2s").size());
+		assertEquals(24, RangeParser.parseRange("22-55").size());
+		assertEquals(1, RangeParser.parseRange("AhKd").size());
+		assertEquals(52 * 51 / 2, RangeParser.parseRange(
+				"22+,32+,42+,52+,62+,72+,82+,92+,T2+,J2+,Q2+,K2+,A2+").size());
+
+		// Repeated combos are only counted once
+		final HandRange range = RangeParser.parseRange("AA, AKs, AA, AhKh");
+		assertEquals(10, range.size());
+		assertEquals("AA, AKs, AA, AhKh", range.toString());
+		final long aceKing = CardMask.of(Card.ACE_HEARTS)
+				| CardMask.of(Card.KING_HEARTS);
+		assertTrue(range.contains(aceKing));
+		assertFalse(range.contains(CardMask.of(Card.ACE_HEARTS)
+				| CardMask.of(Card.KING_CLUBS)));
+		for (int i = 0; i < range.size(); i++) {
+			assertEquals(2, Long.bitCount(range.getCombo(i)));
+			final Card cards[] = range.getCards(i);
+			assertEquals(CardValue.ACE, cards[0].getValue());
+			assertEquals(range.getCombo(i), CardMask.of(cards));
+		}
+		assertEquals(CardMask.of(Card.ACE_HEARTS) | CardMask.of(Card.ACE_CLUBS)
+				| CardMask.of(Card.ACE_SPADES)
+				| CardMask.of(Card.ACE_DIAMONDS) | CardMask.of(Card.KING_HEARTS)
+				| CardMask.of(Card.KING_CLUBS) | CardMask.of(Card.KING_SPADES)
+				| CardMask.of(Card.KING_DIAMONDS), range.getMask());
+
+		// Removing the ace of hearts leaves 3 AA and 3 AKs
+		assertEquals(6, range.countAvailable(CardMask.of(Card.ACE_HEARTS)));
+		assertEquals(10, range.countAvailable(CardMask.of(Card.TWO_CLUBS)));
+
+		final String invalid[] = { null, "A", "AKx", "AAs", "AhAh", "A2s-K5s",
+				"22-A5s", "A2s-A5o", "AK,ZZ", "AKs++" };
+		for (String text : invalid) {
+			try {
+				RangeParser.parseRange(text);
+				fail("Range " + text + " should be invalid");
+			} catch (InvalidCardException e) {
+			}
+		}
+	}
+
+	public void testWeights() throws InvalidCardException {
+		final HandRange range = RangeParser.parseRange("AA, KK:0.5, KhKs:2");
+		assertEquals(12, range.size());
+		assertTrue(range.isWeighted());
+		double total = 0;
+		for (int i = 0; i < range.size(); i++) {
+			final long combo = range.getCombo(i);
+			final Card cards[] = range.getCards(i);
+			if (cards[0].getValue() == CardValue.ACE) {
+				assertEquals(1.0, range.getWeight(i), 1e-9);
+			} else if (combo == (CardMask.of(Card.KING_HEARTS) | CardMask
+					.of(Card.KING_SPADES))) {
+				assertEquals(2.0, range.getWeight(i), 1e-9);
+			} else {
+				assertEquals(0.5, range.getWeight(i), 1e-9);
+			}
+			total += range.getWeight(i);
+		}
+		assertEquals(6 + 2.5 + 2, total, 1e-9);
+
+		// A weight of 0 leaves combos out
+		assertEquals(6, RangeParser.parseRange("AA,KK:0").size());
+		assertFalse(RangeParser.parseRange("AA").isWeighted());
+		assertEquals(1.0, RangeParser.parseRange("AA").getWeight(0), 1e-9);
+
+		final String invalid[] = { "AA:", "AA:x", "AA:-1", "AA:NaN", ":1" };
+		for (String text : invalid) {
+			try {
+				RangeParser.parseRange(text);
+				fail("Range " + text + " should be invalid");
+			} catch (InvalidCardException e) {
+			}
+		}
+	}
+
+	public void testCache() throws InvalidCardException {
+		final HandRange range = RangeParser.parseRange("QQ+,AQs+");
+		assertSame(range, RangeParser.parseRange("QQ+,AQs+"));
+
+		// Fill the cache so the range is dropped
+		String padding = "";
+		for (int i = 0; i < RangeParser.CACHE_SIZE; i++) {
+			padding += " ";
+			RangeParser.parseRange("AA" + padding);
+		}
+		final HandRange reparsed = RangeParser.parseRange("QQ+,AQs+");
+		assertNotSame(range, reparsed);
+		assertEquals(range.size(), reparsed.size());
+	}
+}
@@ -0,0 +1,17 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+/**
+ * Runs the pattern tests against a single deck Shoe
+ */
+public class ShoePatternTest extends PatternTest {
+
+	@Override
+	protected Deck createDeck() {
+		return new Shoe(1);
+	}
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import junit.framework.TestCase;
+
+/**
+ * Runs the deck tests against a single deck Shoe, and tests shoes of several
+ * decks
+ */
+public class ShoeTest extends DeckTest {
+
+	@Override
+	protected Deck createDeck() {
+		return new Shoe(1);
+	}
+
+	@Override
+	protected void internalValidate(Deck d) {
+		((Shoe) d).internalValidate();
+	}
+
+	public void testCounts() throws EmptyDeckException {
+		final Shoe shoe = new Shoe(6, true);
+		TestCase.assertEquals(312, shoe.size());
+		TestCase.assertEquals(312, shoe.totalSize());
+		TestCase.assertEquals(6, shoe.count(Card.ACE_SPADES));
+		TestCase.assertEquals(24, shoe.count(CardValue.ACE));
+		int aces = 0;
+		for (Card card : shoe.deal(100)) {
+			if (card.getValue() == CardValue.ACE) {
+				aces++;
+			}
+		}
+		TestCase.assertEquals(24 - aces, shoe.count(CardValue.ACE));
+		shoe.internalValidate();
+		shoe.reset();
+		TestCase.assertEquals(24, shoe.count(CardValue.ACE));
+		shoe.internalValidate();
+	}
+
+	public void testDuplicates() throws EmptyDeckException {
+		final Shoe shoe = new Shoe(2);
+		shoe.shuffle();
+		final Card pair[] = { Card.ACE_SPADES, Card.ACE_SPADES,
+				Card.ACE_SPADES };
+		TestCase.assertEquals(2, shoe.removeCard(pair));
+		TestCase.assertFalse(shoe.isUndrawn(Card.ACE_SPADES));
+		TestCase.assertFalse(shoe.removeCard(Card.ACE_SPADES));
+		shoe.internalValidate();
+		TestCase.assertTrue(shoe.replaceCard(Card.ACE_SPADES));
+		TestCase.assertEquals(1, shoe.count(Card.ACE_SPADES));
+		TestCase.assertEquals(1, shoe.replaceCard(pair));
+		TestCase.assertFalse(shoe.replaceCard(Card.ACE_SPADES));
+		TestCase.assertEquals(2, shoe.count(Card.ACE_SPADES));
+		shoe.internalValidate();
+
+		// Removing a duplicated card takes the copy nearest the top
+		final Shoe copy = (Shoe) shoe.clone();
+		final Card top = copy.dealOne();
+		TestCase.assertTrue(shoe.removeCard(top));
+		shoe.internalValidate();
+		TestCase.assertEquals(shoe.dealOne(), copy.dealOne());
+	}
+
+	public void testBulkRemoveReplace() {
+		final Shoe shoe = new Shoe(8, true);
+		final Card cards[] = { Card.TWO_HEARTS, Card.KING_CLUBS,
+				Card.TWO_HEARTS, null, Card.SEVEN_DIAMONDS };
+		for (int i = 0; i < 1000; i++) {
+			TestCase.assertEquals(4, shoe.removeCard(cards));
+			shoe.internalValidate();
+			if (i % 2 == 0) {
+				shoe.shuffle();
+			}
+			TestCase.assertEquals(4, shoe.replaceCard(cards));
+			shoe.internalValidate();
+		}
+		TestCase.assertEquals(416, shoe.size());
+	}
+
+	public void testDealPatternsWithDuplicates() throws Exception {
+		final Shoe shoe = new Shoe(2, true);
+		final Card others[] = CardMask.toCards(CardMask.FULL
+				& ~CardMask.of(Card.ACE_HEARTS) & ~CardMask.of(Card.KING_HEARTS));
+		shoe.removeCard(others);
+		shoe.removeCard(others);
+		shoe.removeCard(Card.KING_HEARTS);
+		final CardPattern patterns[] = { CardPattern.fromSuit(CardSuit.HEARTS),
+				CardPattern.fromValue(CardValue.ACE),
+				CardPattern.fromValue(CardValue.ACE) };
+		final int mark = shoe.mark();
+		for (int i = 0; i < 2; i++) {
+			final Card cards[] = i == 0 ? shoe.deal(patterns) : shoe
+					.dealRandom(patterns);
+			TestCase.assertEquals(Card.KING_HEARTS, cards[0]);
+			TestCase.assertEquals(Card.ACE_HEARTS, cards[1]);
+			TestCase.assertEquals(Card.ACE_HEARTS, cards[2]);
+			TestCase.assertTrue(shoe.isEmpty());
+			shoe.internalValidate();
+			shoe.rewind(mark);
+		}
+	}
+
+	public void testCutCard() throws EmptyDeckException {
+		final Shoe shoe = new Shoe(6, true);
+		shoe.setPenetration(0.75);
+		TestCase.assertEquals(78, shoe.getCutCard());
+		shoe.deal(233);
+		TestCase.assertFalse(shoe.isCutCardReached());
+		shoe.dealOne();
+		TestCase.assertTrue(shoe.isCutCardReached());
+		shoe.reset();
+		TestCase.assertFalse(shoe.isCutCardReached());
+		try {
+			shoe.setCutCard(313);
+			TestCase.fail("Cut card is outside the shoe");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testShoeMarkRewind() throws EmptyDeckException {
+		final Shoe shoe = new Shoe(6, true);
+		final int round = shoe.mark();
+		final Shoe copy = (Shoe) shoe.clone();
+		for (int i = 0; i < 100; i++) {
+			shoe.deal(10);
+			final int inner = shoe.mark();
+			shoe.removeCard(Card.FIVE_HEARTS);
+			shoe.deal(5);
+			shoe.rewind(inner);
+			shoe.internalValidate();
+			if (i % 3 == 0) {
+				shoe.shuffle();
+			}
+			shoe.rewind(round);
+			shoe.internalValidate();
+		}
+		TestCase.assertEquals(shoe.toString(), copy.toString());
+	}
+
+	public void testMarkResetRewind() throws EmptyDeckException {
+		final Shoe shoe = new Shoe(6, true);
+		shoe.shuffle();
+		shoe.deal(10);
+		final int aces = shoe.count(CardValue.ACE);
+		final int mark = shoe.mark();
+		shoe.reset();
+		shoe.deal(5);
+		shoe.rewind(mark);
+		shoe.internalValidate();
+		TestCase.assertEquals(302, shoe.size());
+		TestCase.assertEquals(aces, shoe.count(CardValue.ACE));
+		int total = 0;
+		for (Card card : Card.values()) {
+			total += shoe.count(card);
+		}
+		TestCase.assertEquals(302, total);
+	}
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2011. Adam Lock <locka99@gmail.com>
+ *
+ * Available as open source under the terms of LGPLv3
+ */
+package com.adamlock.cards;
+
+import java.lang.management.ManagementFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests and benchmarks for the shufflers
+ */
+public class ShuffleTest extends TestCase {
+
+	private static final int BENCHMARK_MILLIS = 1000;
+
+	/**
+	 * Every card must still be present once after a shuffle
+	 */
+	private void validateShuffle(Shuffler shuffler) {
+		final int cards[] = new int[52];
+		for (int i = 0; i < cards.length; i++) {
+			cards[i] = i;
+		}
+		for (int i = 0; i < 1000; i++) {
+			shuffler.shuffle(cards, cards.length, ShuffleInfo.RANDOM);
+			boolean found[] = new boolean[cards.length];
+			for (int card : cards) {
+				TestCase.assertFalse(found[card]);
+				found[card] = true;
+			}
+		}
+	}
+
+	public void testFisherYates() {
+		validateShuffle(FisherYatesShuffler.INSTANCE);
+	}
+
+	public void testSort() {
+		validateShuffle(SortShuffler.INSTANCE);
+	}
+
+	/**
+	 * Shuffle part of an array and check the rest is left alone
+	 */
+	public void testPartialShuffle() {
+		final int cards[] = new int[52];
+		for (int i = 0; i < cards.length; i++) {
+			cards[i] = i;
+		}
+		FisherYatesShuffler.INSTANCE.shuffle(cards, 30, ShuffleInfo.RANDOM);
+		for (int i = 30; i < cards.length; i++) {
+			TestCase.assertEquals(i, cards[i]);
+		}
+	}
+
+	/**
+	 * Shuffle 3 cards many times and check that each of the 6 orderings turns
+	 * up roughly as often as the others.
+	 */
+	public void testFisherYatesDistribution() {
+		final Random random = new Random(new java.util.Random(1234));
+		final int counts[] = new int[6];
+		final int trials = 60000;
+		final int cards[] = new int[3];
+		for (int i = 0; i < trials; i++) {
+			cards[0] = 0;
+			cards[1] = 1;
+			cards[2] = 2;
+			FisherYatesShuffler.INSTANCE.shuffle(cards, 3, random);
+			// Turn the ordering into 0..5
+			final int order = cards[0] * 2 + (cards[1] > cards[2] ? 1 : 0);
+			counts[order]++;
+		}
+		for (int count : counts) {
+			TestCase.assertTrue(Math.abs(count - trials / 6) < trials / 60);
+		}
+	}
+
+	/**
+	 * Report how many bytes the current thread has allocated, or -1 if the VM
+	 * can't say.
+	 */
+	private static long allocatedBytes() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory
+				.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean)
+					.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	private void benchmark(String name, Shuffler shuffler) {
+		final DeckImpl d = new DeckImpl(shuffler);
+
+		// Warm up
+		for (int i = 0; i < 10000; i++) {
+			d.shuffle();
+		}
+
+		final long startBytes = allocatedBytes();
+		final long startTime = System.currentTimeMillis();
+		long shuffles = 0;
+		long elapsed;
+		do {
+			for (int i = 0; i < 1000; i++) {
+				d.shuffle();
+			}
+			shuffles += 1000;
+			elapsed = System.currentTimeMillis() - startTime;
+		} while (elapsed < BENCHMARK_MILLIS);
+		final long endBytes = allocatedBytes();
+
+		System.out.println(name + " shuffles/sec = "
+				+ (shuffles * 1000 / elapsed) + ", bytes/shuffle = "
+				+ (startBytes < 0 ? "unknown" : Long
+						.toString((endBytes - startBytes) / shuffles)));
+	}
+
+	public void testSpeed() {
+		benchmark("Sort shuffler", SortShuffler.INSTANCE);
+		benchmark("Fisher-Yates shuffler", FisherYatesShuffler.INSTANCE);
+	}
+}
@@ -0,0 +1,117 @@
+package com.adamlock.cards;
+
+import junit.framework.TestCase;
+
+public class SuitIsomorphismTest extends TestCase {
+
+	private static long mask(Card... cards) {
+		return CardMask.of(cards);
+	}
+
+	public void testCanonical() {
+		final SuitIsomorphism first = new SuitIsomorphism(mask(
+				Card.ACE_HEARTS, Card.KING_DIAMONDS), mask(Card.QUEEN_SPADES,
+				Card.QUEEN_CLUBS));
+		final SuitIsomorphism second = new SuitIsomorphism(mask(
+				Card.ACE_CLUBS, Card.KING_SPADES), mask(Card.QUEEN_HEARTS,
+				Card.QUEEN_DIAMONDS));
+		assertEquals(first.map(mask(Card.ACE_HEARTS, Card.KING_DIAMONDS)),
+				second.map(mask(Card.ACE_CLUBS, Card.KING_SPADES)));
+		assertEquals(first.map(mask(Card.QUEEN_SPADES, Card.QUEEN_CLUBS)),
+				second.map(mask(Card.QUEEN_HEARTS, Card.QUEEN_DIAMONDS)));
+
+		// The suit with the highest card of the first group becomes clubs
+		assertEquals(CardSuit.CLUBS, first.map(CardSuit.HEARTS));
+		assertEquals(CardSuit.SPADES, first.map(CardSuit.DIAMONDS));
+		assertEquals(Card.ACE_CLUBS, first.map(Card.ACE_HEARTS));
+
+		final SuitIsomorphism suited = new SuitIsomorphism(mask(
+				Card.ACE_DIAMONDS, Card.KING_DIAMONDS));
+		assertEquals(mask(Card.ACE_CLUBS, Card.KING_CLUBS), suited.map(mask(
+				Card.ACE_DIAMONDS, Card.KING_DIAMONDS)));
+
+		// Every suit goes somewhere different
+		long suits = 0;
+		for (CardSuit suit : new CardSuit[] { CardSuit.CLUBS,
+				CardSuit.SPADES, CardSuit.HEARTS, CardSuit.DIAMONDS }) {
+			suits |= 1L << first.map(suit).ordinal();
+		}
+		assertEquals(15, suits);
+		assertEquals(CardMask.FULL, first.map(CardMask.FULL));
+
+		try {
+			first.map(CardSuit.RANDOM);
+			fail("Random isn't a suit");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new SuitIsomorphism(-1L);
+			fail("Mask is invalid");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSymmetries() {
+		assertEquals(24, new SuitIsomorphism().getSymmetries());
+		assertEquals(6, new SuitIsomorphism(mask(Card.ACE_HEARTS))
+				.getSymmetries());
+		assertEquals(4, new SuitIsomorphism(mask(Card.ACE_HEARTS,
+				Card.ACE_SPADES), mask(Card.KING_HEARTS, Card.KING_SPADES))
+				.getSymmetries());
+		assertEquals(2, new SuitIsomorphism(mask(Card.ACE_HEARTS,
+				Card.KING_DIAMONDS), mask(Card.QUEEN_SPADES,
+				Card.QUEEN_CLUBS)).getSymmetries());
+		assertEquals(1, new SuitIsomorphism(mask(Card.ACE_HEARTS,
+				Card.KING_DIAMONDS), mask(Card.QUEEN_SPADES,
+				Card.JACK_CLUBS)).getSymmetries());
+
+		final SuitIsomorphism pairs = new SuitIsomorphism(mask(
+				Card.ACE_HEARTS, Card.ACE_SPADES));
+		assertTrue(pairs.isSymmetric(CardSuit.HEARTS, CardSuit.SPADES));
+		assertTrue(pairs.isSymmetric(CardSuit.CLUBS, CardSuit.DIAMONDS));
+		assertTrue(pairs.isSymmetric(CardSuit.CLUBS, CardSuit.CLUBS));
+		assertFalse(pairs.isSymmetric(CardSuit.HEARTS, CardSuit.CLUBS));
+	}
+
+	/**
+	 * Count the classes of combinations of cards and check their sizes add
+	 * up to the number of combinations
+	 */
+	private static void assertClasses(SuitIsomorphism isomorphism,
+			long cards, int size, int classes) {
+		final CombinationIterator iterator = new CombinationIterator(cards,
+				size);
+		int found = 0;
+		long total = 0;
+		while (iterator.next()) {
+			final int classSize = isomorphism.getClassSize(iterator.getMask());
+			if (classSize > 0) {
+				found++;
+				total += classSize;
+			}
+		}
+		assertEquals(classes, found);
+		assertEquals(CombinationIterator.count(Long.bitCount(cards), size),
+				total);
+	}
+
+	public void testClassSize() {
+		final SuitIsomorphism none = new SuitIsomorphism();
+		assertClasses(none, CardMask.FULL, 1, 13);
+		assertClasses(none, CardMask.FULL, 2, 169);
+		assertClasses(none, CardMask.FULL, 3, 1755);
+
+		final long hands = mask(Card.ACE_HEARTS, Card.ACE_SPADES,
+				Card.KING_HEARTS, Card.KING_SPADES);
+		final SuitIsomorphism aces = new SuitIsomorphism(mask(
+				Card.ACE_HEARTS, Card.ACE_SPADES), mask(Card.KING_HEARTS,
+				Card.KING_SPADES));
+		final CombinationIterator iterator = new CombinationIterator(
+				CardMask.FULL & ~hands, 3);
+		long total = 0;
+		while (iterator.next()) {
+			total += aces.getClassSize(iterator.getMask());
+		}
+		assertEquals(CombinationIterator.count(48, 3), total);
+	}
+}
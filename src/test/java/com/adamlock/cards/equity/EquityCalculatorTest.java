@@ -0,0 +1,505 @@
+package com.adamlock.cards.equity;
+
+import junit.framework.TestCase;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.CardPattern;
+import com.adamlock.cards.CardValue;
+import com.adamlock.cards.Deck;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.CombinationIterator;
+import com.adamlock.cards.HandRange;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.RangeParser;
+import com.adamlock.cards.XoshiroRandom;
+import com.adamlock.cards.eval.HandEvaluator;
+
+public class EquityCalculatorTest extends TestCase {
+
+	private EquityCalculator calculator;
+
+	@Override
+	protected void setUp() throws Exception {
+		calculator = new EquityCalculator();
+		calculator.setSeed(1);
+	}
+
+	private static void assertSums(EquityResult result) {
+		double equity = 0;
+		for (int player = 0; player < result.getPlayers(); player++) {
+			equity += result.getEquity(player);
+			assertEquals(1.0, result.getWin(player) + result.getTie(player)
+					+ result.getLoss(player), 1e-9);
+		}
+		assertEquals(1.0, equity, 1e-9);
+	}
+
+	public void testAcesVersusKings() throws InvalidCardException {
+		calculator.setTrials(200000);
+		final EquityResult result = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.KING_DIAMONDS, Card.KING_CLUBS } }, null, null);
+		assertEquals(200000, result.getTrials());
+		assertEquals(0.82, result.getEquity(0), 0.01);
+		assertEquals(0.18, result.getEquity(1), 0.01);
+		assertSums(result);
+	}
+
+	public void testCompleteBoard() throws InvalidCardException {
+		calculator.setTrials(1000);
+		calculator.setEnumerationLimit(0);
+		final EquityResult result = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.ACE_DIAMONDS, Card.KING_DIAMONDS },
+				{ Card.FIVE_HEARTS, Card.TEN_DIAMONDS } }, new Card[] {
+				Card.TWO_CLUBS, Card.THREE_CLUBS, Card.FOUR_SPADES,
+				Card.EIGHT_SPADES, Card.NINE_DIAMONDS }, null);
+		assertEquals(1000, result.getTies(0));
+		assertEquals(1000, result.getTies(1));
+		assertEquals(0, result.getWins(0));
+		assertEquals(0.5, result.getEquity(0), 1e-9);
+		assertEquals(0.5, result.getEquity(1), 1e-9);
+		assertEquals(1000, result.getLosses(2));
+		assertSums(result);
+	}
+
+	public void testPatterns() throws InvalidCardException {
+		calculator.setTrials(50000);
+		final CardPattern random[] = { CardPattern.RANDOM, CardPattern.RANDOM };
+		EquityResult result = calculator.calculate(new CardPattern[][] {
+				random, random, random }, null, null);
+		for (int player = 0; player < 3; player++) {
+			assertEquals(1.0 / 3, result.getEquity(player), 0.02);
+		}
+		assertSums(result);
+
+		// Any pair of aces against known kings
+		final CardPattern ace = CardPattern.fromValue(CardValue.ACE);
+		result = calculator.calculate(new CardPattern[][] {
+				{ ace, ace },
+				{ CardPattern.fromCard(Card.KING_DIAMONDS),
+						CardPattern.fromCard(Card.KING_CLUBS) } }, null,
+				new Card[] { Card.ACE_CLUBS });
+		assertEquals(0.82, result.getEquity(0), 0.02);
+
+		try {
+			calculator.calculate(new CardPattern[][] { { ace, ace },
+					{ ace, ace }, { ace, CardPattern.RANDOM } }, null, null);
+			fail("There are only four aces");
+		} catch (InvalidCardException e) {
+		}
+	}
+
+	public void testEnumerate() throws InvalidCardException {
+		// Nine hearts make a flush and six cards make a higher pair on the
+		// river
+		final Card hands[][] = { { Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.TEN_CLUBS, Card.TEN_SPADES } };
+		final Card turn[] = { Card.TWO_HEARTS, Card.NINE_HEARTS,
+				Card.JACK_CLUBS, Card.THREE_DIAMONDS };
+		EquityResult result = calculator.enumerate(hands, turn, null);
+		assertEquals(44, result.getTrials());
+		assertEquals(15, result.getWins(0));
+		assertEquals(29, result.getWins(1));
+		assertSums(result);
+
+		// The undrawn cards of a deck are the possible rivers
+		final Deck deck = new DeckImpl();
+		deck.removeCard(turn);
+		deck.removeCard(Card.FIVE_HEARTS);
+		result = calculator.enumerate(deck, hands, turn);
+		assertEquals(43, result.getTrials());
+		assertEquals(14, result.getWins(0));
+		deck.removeCard(hands[0]);
+		deck.removeCard(hands[1]);
+		result = calculator.calculate(deck, hands, turn);
+		assertEquals(43, result.getTrials());
+		assertEquals(14, result.getWins(0));
+
+		// A flop has few enough boards to enumerate rather than sample
+		calculator.setTrials(50000);
+		result = calculator.calculate(hands, new Card[] { Card.TWO_HEARTS,
+				Card.NINE_HEARTS, Card.JACK_CLUBS }, null);
+		assertEquals(990, result.getTrials());
+
+		// Every preflop board
+		result = calculator.enumerate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.KING_DIAMONDS, Card.KING_CLUBS } }, null, null);
+		assertEquals(1712304, result.getTrials());
+		assertEquals(0.82, result.getEquity(0), 0.01);
+		assertSums(result);
+
+		try {
+			calculator.enumerate(new Card[][] { { Card.ACE_HEARTS, null },
+					{ Card.TEN_CLUBS, Card.TEN_SPADES } }, turn, null);
+			fail("Hole cards can't be null");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Evaluate every board the slow way and check the calculator, which only
+	 * evaluates one board of each class of boards the same but for their
+	 * suits, gets the same counts
+	 */
+	private void assertEnumeration(Card hands[][], Card board[], Card dead[])
+			throws InvalidCardException {
+		final long first = CardMask.of(hands[0]);
+		final long second = CardMask.of(hands[1]);
+		final long known = CardMask.of(board) | CardMask.of(dead);
+		long wins = 0;
+		long ties = 0;
+		long trials = 0;
+		final CombinationIterator boards = new CombinationIterator(
+				CardMask.FULL & ~(first | second | known), 5 - board.length);
+		while (boards.next()) {
+			final long full = boards.getMask() | CardMask.of(board);
+			final int value0 = HandEvaluator.evaluate(first | full);
+			final int value1 = HandEvaluator.evaluate(second | full);
+			trials++;
+			if (value0 > value1) {
+				wins++;
+			} else if (value0 == value1) {
+				ties++;
+			}
+		}
+		final EquityResult result = calculator.enumerate(hands, board, dead);
+		assertEquals(trials, result.getTrials());
+		assertEquals(wins, result.getWins(0));
+		assertEquals(ties, result.getTies(0));
+		assertSums(result);
+	}
+
+	public void testSymmetricEnumeration() throws InvalidCardException {
+		assertEnumeration(new Card[][] { { Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.KING_DIAMONDS, Card.KING_CLUBS } }, new Card[0],
+				new Card[0]);
+		assertEnumeration(new Card[][] {
+				{ Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.SEVEN_SPADES, Card.SEVEN_CLUBS } }, new Card[] {
+				Card.TWO_DIAMONDS, Card.NINE_HEARTS, Card.JACK_DIAMONDS },
+				new Card[0]);
+		// A dead card tells the suits apart
+		assertEnumeration(new Card[][] {
+				{ Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.SEVEN_SPADES, Card.SEVEN_CLUBS } }, new Card[] {
+				Card.TWO_DIAMONDS, Card.NINE_HEARTS, Card.JACK_DIAMONDS },
+				new Card[] { Card.THREE_SPADES });
+	}
+
+	public void testRanges() throws InvalidCardException {
+		calculator.setTrials(100000);
+		EquityResult result = calculator.calculate(new HandRange[] {
+				RangeParser.parseRange("AA"), RangeParser.parseRange("KK") },
+				null, null);
+		assertEquals(0.82, result.getEquity(0), 0.01);
+		assertSums(result);
+
+		// Aces are three times as likely as deuces
+		result = calculator.calculate(new HandRange[] {
+				RangeParser.parseRange("AA:3,22"),
+				RangeParser.parseRange("KK") }, null, null);
+		assertEquals(0.75 * 0.82 + 0.25 * 0.19, result.getEquity(0), 0.02);
+
+		// AhAs can never be dealt with AhKs, so it must always be deuces
+		calculator.setTrials(200000);
+		result = calculator.calculate(new HandRange[] {
+				RangeParser.parseRange("AhAs,2c2d"),
+				RangeParser.parseRange("AhKs") }, null, null);
+		final EquityResult exact = calculator.enumerate(new Card[][] {
+				{ Card.TWO_CLUBS, Card.TWO_DIAMONDS },
+				{ Card.ACE_HEARTS, Card.KING_SPADES } }, null, null);
+		assertEquals(exact.getEquity(0), result.getEquity(0), 0.01);
+
+		calculator.setTrials(20000);
+		result = calculator.calculate(new HandRange[] {
+				RangeParser.parseRange("TT+,AQs+"),
+				RangeParser.parseRange("AK,KQs"),
+				RangeParser.parseRange("22-99") }, new Card[] {
+				Card.ACE_HEARTS, Card.SEVEN_CLUBS, Card.TWO_DIAMONDS }, null);
+		assertEquals(20000, result.getTrials());
+		assertSums(result);
+
+		try {
+			calculator.calculate(new HandRange[] {
+					RangeParser.parseRange("AhAs"),
+					RangeParser.parseRange("AhAs,AhKh") }, new Card[] {
+					Card.KING_HEARTS }, null);
+			fail("Ranges can't be dealt together");
+		} catch (InvalidCardException e) {
+		}
+		try {
+			calculator.calculate(new HandRange[] {
+					RangeParser.parseRange("AhAs"),
+					RangeParser.parseRange("KK") }, new Card[] {
+					Card.ACE_SPADES }, null);
+			fail("First range has nothing left");
+		} catch (InvalidCardException e) {
+		}
+	}
+
+	/**
+	 * Check three ranges are dealt as often as their combos occur together.
+	 * Of the 5 deals which don't clash, 2 give the first player aces, where
+	 * dealing the first player alone would give them aces half the time.
+	 */
+	public void testMultiwayRanges() throws InvalidCardException {
+		final RangeSituation situation = new RangeSituation(new HandRange[] {
+				RangeParser.parseRange("AhAs,2c2d"),
+				RangeParser.parseRange("AhKh,3c3d"),
+				RangeParser.parseRange("KhQh,4c4d") }, null, null);
+		final XoshiroRandom random = new XoshiroRandom(1);
+		final long aces = CardMask.of(new Card[] { Card.ACE_HEARTS,
+				Card.ACE_SPADES });
+		final long hands[] = new long[3];
+		int dealt = 0;
+		for (int i = 0; i < 100000; i++) {
+			situation.deal(hands, random);
+			assertEquals(0, hands[0] & hands[1]);
+			assertEquals(0, (hands[0] | hands[1]) & hands[2]);
+			if (hands[0] == aces) {
+				dealt++;
+			}
+		}
+		assertEquals(0.4, dealt / 100000.0, 0.01);
+
+		// No three players can all hold aces, however many deals are tried
+		try {
+			new RangeSituation(new HandRange[] { RangeParser.parseRange("AA"),
+					RangeParser.parseRange("AA"), RangeParser.parseRange("AA") },
+					null, null);
+			fail("Ranges can't be dealt together");
+		} catch (InvalidCardException e) {
+		}
+	}
+
+	public void testRangesSeldomDealt() throws InvalidCardException {
+		// Only AhAd leaves both other players kings, but it's always dealt
+		final RangeSituation situation = new RangeSituation(new HandRange[] {
+				RangeParser.parseRange("KK,AhAd:0.0000001"),
+				RangeParser.parseRange("KK"), RangeParser.parseRange("KK") },
+				null, null);
+		final XoshiroRandom random = new XoshiroRandom(1);
+		final long aces = CardMask.of(new Card[] { Card.ACE_HEARTS,
+				Card.ACE_DIAMONDS });
+		final long hands[] = new long[3];
+		for (int i = 0; i < 10000; i++) {
+			situation.deal(hands, random);
+			assertEquals(aces, hands[0]);
+		}
+		calculator.setTrials(10000);
+		assertEquals(10000, calculator.calculate(new HandRange[] {
+				RangeParser.parseRange("KK,AhAd:0.0000001"),
+				RangeParser.parseRange("KK"), RangeParser.parseRange("KK") },
+				null, null).getTrials());
+
+		// More players are dealt in turn when their combos clash
+		final String any = "22+,A2+,K2+,Q2+,J2+,T2+,92+,82+,72+,62+,52+,42+,32";
+		final RangeSituation four = new RangeSituation(new HandRange[] {
+				RangeParser.parseRange("KK,AhAd:0.0000001"),
+				RangeParser.parseRange("KK"), RangeParser.parseRange("KK"),
+				RangeParser.parseRange(any) }, null, null);
+		final long fourHands[] = new long[4];
+		for (int i = 0; i < 10000; i++) {
+			four.deal(fourHands, random);
+			assertEquals(aces, fourHands[0]);
+			assertEquals(0, fourHands[3] & (fourHands[0] | fourHands[1]
+					| fourHands[2]));
+		}
+	}
+
+	public void testRangesNeverDealt() throws InvalidCardException {
+		final String any = "22+,A2+,K2+,Q2+,J2+,T2+,92+,82+,72+,62+,52+,42+,32";
+		final String tables[][] = { { any, any, "AA", "AA", "AA" },
+				{ any, any, any, "AA", "AA", "AA" },
+				{ "AhAs,KK", "AhAs,KK", "AhAs,KK", "AhAs,KK", "QQ" } };
+		for (String table[] : tables) {
+			final HandRange ranges[] = new HandRange[table.length];
+			for (int i = 0; i < table.length; i++) {
+				ranges[i] = RangeParser.parseRange(table[i]);
+			}
+			try {
+				new RangeSituation(ranges, null, null);
+				fail("Ranges can't be dealt together");
+			} catch (InvalidCardException e) {
+			}
+		}
+
+		// Four players can share the kings when one holds aces
+		final RangeSituation situation = new RangeSituation(new HandRange[] {
+				RangeParser.parseRange("AhAs,KK"),
+				RangeParser.parseRange("AhAs,KK"),
+				RangeParser.parseRange("AhAs,KK"), RangeParser.parseRange("QQ") },
+				null, null);
+		final long hands[] = new long[4];
+		final XoshiroRandom random = new XoshiroRandom(1);
+		for (int i = 0; i < 1000; i++) {
+			situation.deal(hands, random);
+			assertEquals(6, Long.bitCount(hands[0] | hands[1] | hands[2]));
+			assertEquals(8, Long.bitCount(hands[0] | hands[1] | hands[2]
+					| hands[3]));
+		}
+	}
+
+	public void testRangeSpeed() throws InvalidCardException {
+		calculator.setTrials(0);
+		calculator.setTimeLimit(3000);
+		final EquityResult result = calculator.calculate(new HandRange[] {
+				RangeParser.parseRange("TT+,AQs+,AK"),
+				RangeParser.parseRange("22+,A2s+,KTs+,QJs,AJo+") }, null, null);
+		System.out.println("EquityCalculator range trials per second = "
+				+ result.getTrials() / 3);
+	}
+
+	public void testSeed() throws InvalidCardException {
+		calculator.setTrials(20000);
+		calculator.setEnumerationLimit(0);
+		final Card hands[][] = { { Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.TEN_CLUBS, Card.TEN_SPADES } };
+		final Card flop[] = { Card.TWO_HEARTS, Card.NINE_HEARTS,
+				Card.JACK_CLUBS };
+		final EquityResult first = calculator.calculate(hands, flop, null);
+		final EquityResult second = calculator.calculate(hands, flop, null);
+		assertEquals(first.getWins(0), second.getWins(0));
+		assertEquals(first.getTies(0), second.getTies(0));
+	}
+
+	public void testTimeLimit() throws InvalidCardException {
+		calculator.setTrials(0);
+		calculator.setTimeLimit(200);
+		final long start = System.currentTimeMillis();
+		final EquityResult result = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.TEN_CLUBS, Card.TEN_SPADES } }, null, null);
+		assertTrue(result.getTrials() > 0);
+		assertTrue(System.currentTimeMillis() - start < 2000);
+		assertSums(result);
+
+		calculator.setTimeLimit(0);
+		try {
+			calculator.calculate(new Card[][] {
+					{ Card.ACE_HEARTS, Card.KING_HEARTS },
+					{ Card.TEN_CLUBS, Card.TEN_SPADES } }, null, null);
+			fail("There is no budget");
+		} catch (IllegalStateException e) {
+		}
+	}
+
+	public void testPrecision() throws InvalidCardException {
+		calculator.setTrials(0);
+		calculator.setPrecision(0.005);
+		final EquityResult result = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.KING_CLUBS, Card.KING_DIAMONDS } }, null, null);
+		assertSums(result);
+		assertFalse(result.isExact());
+		assertTrue(result.getTrials() >= Budget.MIN_TRIALS);
+		// About 23000 trials are needed for AA against KK
+		assertTrue(result.getTrials() < 100000);
+		for (int player = 0; player < 2; player++) {
+			assertTrue(result.getErrorBound(player) <= 0.005);
+		}
+		assertEquals(0.82, result.getEquity(0), 0.02);
+
+		// A lopsided hand needs fewer trials than a coin flip
+		final EquityResult lopsided = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.SEVEN_CLUBS, Card.TWO_DIAMONDS } }, null, null);
+		final EquityResult flip = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.KING_SPADES },
+				{ Card.QUEEN_CLUBS, Card.QUEEN_DIAMONDS } }, null, null);
+		assertTrue(lopsided.getTrials() < flip.getTrials());
+
+		// The trials still cap a calculation which can't reach the precision
+		calculator.setPrecision(0.0001);
+		calculator.setTrials(5000);
+		assertEquals(5000, calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.KING_CLUBS, Card.KING_DIAMONDS } }, null, null)
+				.getTrials());
+
+		try {
+			calculator.setPrecision(-1);
+			fail("Precision is invalid");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			calculator.setConfidence(1);
+			fail("Confidence is invalid");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testErrorBounds() throws InvalidCardException {
+		assertEquals(1.959964, EquityResult.zScore(0.95), 1e-6);
+		assertEquals(2.575829, EquityResult.zScore(0.99), 1e-6);
+		assertEquals(0.674490, EquityResult.zScore(0.5), 1e-6);
+
+		final Card hands[][] = { { Card.ACE_HEARTS, Card.ACE_SPADES },
+				{ Card.KING_CLUBS, Card.KING_DIAMONDS } };
+		final EquityResult result = calculator.calculate(hands, null, null);
+		for (int player = 0; player < 2; player++) {
+			final double win = result.getWin(player);
+			assertTrue(result.getWinLower(player) < win);
+			assertTrue(result.getWinUpper(player) > win);
+			assertTrue(result.getWinLower(player) >= 0);
+			assertTrue(result.getWinUpper(player) <= 1);
+			// Nearly every trial is a win or a loss, so the error is close to
+			// that of a coin with the player's chance of winning
+			final double binomial = Math.sqrt(win * (1 - win)
+					/ result.getTrials());
+			assertEquals(binomial, result.getStandardError(player),
+					binomial * 0.05);
+			assertEquals(1.96 * result.getStandardError(player),
+					result.getErrorBound(player), 0.001);
+		}
+
+		calculator.setConfidence(0.99);
+		final EquityResult wider = calculator.calculate(hands, null, null);
+		assertTrue(wider.getErrorBound(0) > result.getErrorBound(0));
+
+		final EquityResult exact = calculator.enumerate(hands, new Card[] {
+				Card.TWO_CLUBS, Card.SEVEN_HEARTS, Card.NINE_DIAMONDS }, null);
+		assertTrue(exact.isExact());
+		assertEquals(0.0, exact.getErrorBound(0));
+		assertEquals(exact.getWin(0), exact.getWinLower(0));
+		assertEquals(exact.getWin(0), exact.getWinUpper(0));
+	}
+
+	public void testInvalid() throws InvalidCardException {
+		final Card invalid[][][] = {
+				{ { Card.ACE_HEARTS, Card.KING_HEARTS } },
+				{ { Card.ACE_HEARTS, Card.KING_HEARTS },
+						{ Card.ACE_HEARTS, Card.TEN_SPADES } },
+				{ { Card.ACE_HEARTS, Card.KING_HEARTS, Card.TWO_CLUBS },
+						{ Card.TEN_CLUBS, Card.TEN_SPADES } }, null };
+		for (Card hands[][] : invalid) {
+			try {
+				calculator.calculate(hands, null, null);
+				fail("Hands should be invalid");
+			} catch (IllegalArgumentException e) {
+			}
+		}
+		try {
+			calculator.calculate(new Card[][] {
+					{ Card.ACE_HEARTS, Card.KING_HEARTS },
+					{ Card.TEN_CLUBS, Card.TEN_SPADES } },
+					new Card[] { Card.TEN_CLUBS }, null);
+			fail("Board card is in a hand");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSpeed() throws InvalidCardException {
+		calculator.setTrials(0);
+		calculator.setTimeLimit(3000);
+		final EquityResult result = calculator.calculate(new Card[][] {
+				{ Card.ACE_HEARTS, Card.KING_HEARTS },
+				{ Card.TEN_CLUBS, Card.TEN_SPADES },
+				{ Card.SEVEN_DIAMONDS, Card.EIGHT_DIAMONDS } }, null, null);
+		System.out.println("EquityCalculator trials per second = "
+				+ result.getTrials() / 3);
+	}
+}
@@ -0,0 +1,177 @@
+package com.adamlock.cards.equity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.CombinationIterator;
+import com.adamlock.cards.HandIndexer;
+
+public class PreflopEquityTableTest extends TestCase {
+
+	private File file;
+
+	@Override
+	protected void setUp() throws Exception {
+		file = File.createTempFile("equity", ".table");
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		file.delete();
+	}
+
+	public void testClasses() {
+		final HandIndexer indexer = new HandIndexer(2);
+		final CombinationIterator hands = new CombinationIterator(
+				CardMask.FULL, 2);
+		final long groups[] = new long[1];
+		while (hands.next()) {
+			groups[0] = hands.getMask();
+			final Card cards[] = CardMask.toCards(groups[0]);
+			assertEquals(indexer.index(groups), PreflopEquityTable
+					.getHandClass(cards[0], cards[1]));
+			assertEquals(indexer.index(groups), PreflopEquityTable
+					.getHandClass(cards[1], cards[0]));
+		}
+
+		final Set<String> names = new HashSet<String>();
+		int pairs = 0;
+		int suited = 0;
+		for (int i = 0; i < PreflopEquityTable.CLASSES; i++) {
+			final String name = PreflopEquityTable.getClassName(i);
+			assertTrue(names.add(name));
+			if (name.length() == 2) {
+				pairs++;
+			} else if (name.endsWith("s")) {
+				suited++;
+			}
+		}
+		assertEquals(13, pairs);
+		assertEquals(78, suited);
+		assertEquals("AA", PreflopEquityTable
+				.getClassName(PreflopEquityTable.getHandClass(
+						Card.ACE_HEARTS, Card.ACE_SPADES)));
+		assertEquals("AKs", PreflopEquityTable
+				.getClassName(PreflopEquityTable.getHandClass(
+						Card.KING_DIAMONDS, Card.ACE_DIAMONDS)));
+		assertEquals("72o", PreflopEquityTable
+				.getClassName(PreflopEquityTable.getHandClass(
+						Card.TWO_CLUBS, Card.SEVEN_HEARTS)));
+
+		try {
+			PreflopEquityTable.getHandClass(Card.TWO_CLUBS, Card.TWO_CLUBS);
+			fail("Cards are the same");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testHeadsUp() throws IOException {
+		final EquityCalculator calculator = new EquityCalculator();
+		calculator.setSeed(1);
+		calculator.setTrials(200);
+		new PreflopEquityGenerator(calculator).write(2, file);
+		assertEquals(PreflopEquityTable.HEADER_SIZE + 169 * 169 * 4, file
+				.length());
+
+		final PreflopEquityTable table = PreflopEquityTable.open(file);
+		assertEquals(2, table.getPlayers());
+		assertEquals(200, table.getTrials());
+		for (int hand = 0; hand < PreflopEquityTable.CLASSES; hand++) {
+			for (int opponent = 0; opponent < PreflopEquityTable.CLASSES; opponent++) {
+				assertEquals(1.0, table.getEquity(hand, opponent)
+						+ table.getEquity(opponent, hand), 1e-6);
+			}
+		}
+		final int aces = PreflopEquityTable.getHandClass(Card.ACE_HEARTS,
+				Card.ACE_SPADES);
+		final int kings = PreflopEquityTable.getHandClass(Card.KING_HEARTS,
+				Card.KING_SPADES);
+		assertEquals(0.82, table.getEquity(aces, kings), 0.1);
+		assertEquals(0.5, table.getEquity(aces, aces), 1e-6);
+		assertEquals(table.getEquity(aces, kings), table
+				.getEquity(new Card[][] {
+						{ Card.ACE_CLUBS, Card.ACE_DIAMONDS },
+						{ Card.KING_CLUBS, Card.KING_DIAMONDS } }));
+		assertEquals(table.getEquity(aces, kings), table
+				.getEquity(new int[] { aces, kings }));
+
+		long startTime = System.nanoTime();
+		PreflopEquityTable.open(file);
+		System.out.println("PreflopEquityTable opened in "
+				+ (System.nanoTime() - startTime) / 1000 + "us");
+	}
+
+	public void testMultiway() throws IOException {
+		// Entries which are their own position show the order of the file
+		final float entries[] = new float[169 * 169 * 169];
+		for (int i = 0; i < entries.length; i++) {
+			entries[i] = i;
+		}
+		PreflopEquityGenerator.write(3, 10, entries, file);
+		final PreflopEquityTable table = PreflopEquityTable.open(file);
+		assertEquals(3, table.getPlayers());
+		assertEquals(5 + 7 * 169 + 11 * 169 * 169, table.getEquity(new int[] {
+				5, 7, 11 }), 0);
+		try {
+			table.getEquity(5, 7);
+			fail("Table is not heads up");
+		} catch (IllegalStateException e) {
+		}
+		try {
+			table.getEquity(new int[] { 5, 7, 169 });
+			fail("Class is invalid");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	private void corrupt(long position, int value) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(position);
+			raf.writeInt(value);
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void assertInvalid() {
+		try {
+			PreflopEquityTable.open(file);
+			fail("Table is invalid");
+		} catch (IOException e) {
+		}
+	}
+
+	public void testInvalid() throws IOException {
+		final float entries[] = new float[169 * 169];
+		PreflopEquityGenerator.write(2, 1, entries, file);
+		PreflopEquityTable.open(file);
+
+		corrupt(PreflopEquityTable.HEADER_SIZE + 400, 1);
+		assertInvalid();
+		PreflopEquityGenerator.write(2, 1, entries, file);
+		corrupt(0, 0);
+		assertInvalid();
+		PreflopEquityGenerator.write(2, 1, entries, file);
+		corrupt(4, PreflopEquityTable.VERSION + 1);
+		assertInvalid();
+		PreflopEquityGenerator.write(2, 1, entries, file);
+		corrupt(8, 3);
+		assertInvalid();
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.setLength(10);
+		} finally {
+			raf.close();
+		}
+		assertInvalid();
+	}
+}
@@ -0,0 +1,184 @@
+package com.adamlock.cards.eval;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.XoshiroRandom;
+
+public class HandEvaluatorTest extends TestCase {
+
+	private static int evaluate(String cards) throws InvalidCardException {
+		final String tokens[] = cards.split(" ");
+		final Card hand[] = new Card[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			hand[i] = Card.fromString(tokens[i]);
+		}
+		return HandEvaluator.evaluate(hand);
+	}
+
+	private static HandCategory category(String cards)
+			throws InvalidCardException {
+		return HandEvaluator.getCategory(evaluate(cards));
+	}
+
+	public void testCategories() throws InvalidCardException {
+		assertEquals(HandCategory.STRAIGHT_FLUSH,
+				category("Ah Kh Qh Jh Th 2c 2d"));
+		assertEquals(HandCategory.STRAIGHT_FLUSH, category("5d 4d 3d 2d Ad"));
+		assertEquals(HandCategory.FOUR_OF_A_KIND,
+				category("9c 9d 9h 9s Ah Kh Qh"));
+		assertEquals(HandCategory.FULL_HOUSE, category("9c 9d 9h 2s 2h"));
+		assertEquals(HandCategory.FULL_HOUSE, category("9c 9d 9h 2s 2h 2c Ad"));
+		assertEquals(HandCategory.FLUSH, category("Ah 9h 7h 5h 3h 3c 3d"));
+		assertEquals(HandCategory.STRAIGHT, category("Ah 2c 3d 4s 5h 5c 5d"));
+		assertEquals(HandCategory.THREE_OF_A_KIND, category("5h 5c 5d Ah 9c"));
+		assertEquals(HandCategory.TWO_PAIR, category("5h 5c 9d 9h Ac Ad Kh"));
+		assertEquals(HandCategory.PAIR, category("5h 5c 9d Th Ac 2d Kh"));
+		assertEquals(HandCategory.HIGH_CARD, category("5h 4c 9d Th Ac 2d Kh"));
+	}
+
+	public void testOrdering() throws InvalidCardException {
+		// Six high straight beats the wheel
+		assertTrue(evaluate("6h 5c 4d 3s 2h") > evaluate("5h 4c 3d 2s Ah"));
+		// Kickers
+		assertTrue(evaluate("Ah Ac Kd 7s 2h") > evaluate("Ad As Qd Js Th"));
+		assertTrue(evaluate("Ah Ac Kd 7s 3h") > evaluate("Ad As Kh 7c 2c"));
+		assertEquals(evaluate("Ah Ac Kd 7s 3h"), evaluate("Ad As Kh 7c 3c"));
+		// Best two of three pairs with the best kicker
+		assertEquals(evaluate("Ah Ac Kd Ks Qh Qc 2d"),
+				evaluate("Ad As Kh Kc Qs 3d 2c"));
+		// The higher trips make the full house
+		assertTrue(evaluate("9c 9d 9h 2s 2h 2c") > evaluate("8c 8d 8h As Ah"));
+		assertTrue(evaluate("9c 9d 9h 3s 3h 2c 2d") > evaluate("9c 9d 9h 2s 2h"));
+		// Only the top 5 flush cards count
+		assertEquals(evaluate("Ah Kh 9h 7h 5h 3h 2h"), evaluate("Ah Kh 9h 7h 5h"));
+		assertTrue(evaluate("2h 3h 4h 5h 7h") > evaluate("Ac Kd Qs Jh 9c"));
+	}
+
+	public void testInputs() {
+		final int indices[] = { 99, 0, 12, 25, 51, 30, 40, 7 };
+		final long mask = (1L << 0) | (1L << 12) | (1L << 25) | (1L << 51)
+				| (1L << 30) | (1L << 40) | (1L << 7);
+		final int value = HandEvaluator.evaluate(mask);
+		assertEquals(value, HandEvaluator.evaluate(indices, 1, 7));
+		assertEquals(value, HandEvaluator.evaluate(CardMask.toCards(mask)));
+		assertEquals(value, HandEvaluator.evaluate(CardMask.toCards(mask), 0, 7));
+
+		try {
+			HandEvaluator.evaluate(indices, 0, 7);
+			fail("Index 99 is not a card");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			HandEvaluator.evaluate(new int[] { 1, 1, 2, 3, 4 }, 0, 5);
+			fail("Cards must be different");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			HandEvaluator.evaluate(CardMask.toCards(CardMask.FULL));
+			fail("Too many cards");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	/**
+	 * Check the number of hands in each category over every 5 card hand
+	 */
+	public void testAllFiveCardHands() {
+		final int counts[] = new int[HandCategory.values().length];
+		final Set<Integer> distinct = new HashSet<Integer>();
+		for (int a = 4; a < 52; a++) {
+			for (int b = 3; b < a; b++) {
+				for (int c = 2; c < b; c++) {
+					for (int d = 1; d < c; d++) {
+						for (int e = 0; e < d; e++) {
+							final int value = HandEvaluator.evaluate((1L << a)
+									| (1L << b) | (1L << c) | (1L << d)
+									| (1L << e));
+							counts[HandEvaluator.getCategory(value).ordinal()]++;
+							distinct.add(value);
+						}
+					}
+				}
+			}
+		}
+		final int expected[] = { 1302540, 1098240, 123552, 54912, 10200, 5108,
+				3744, 624, 40 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(HandCategory.values()[i].toString(), expected[i],
+					counts[i]);
+		}
+		// Every different 5 card hand rank has a different value
+		assertEquals(7462, distinct.size());
+	}
+
+	/**
+	 * Check the number of hands in each category over every 7 card hand
+	 */
+	public void testAllSevenCardHands() {
+		final int counts[] = new int[HandCategory.values().length];
+		for (int a = 6; a < 52; a++) {
+			final long ma = 1L << a;
+			for (int b = 5; b < a; b++) {
+				final long mb = ma | (1L << b);
+				for (int c = 4; c < b; c++) {
+					final long mc = mb | (1L << c);
+					for (int d = 3; d < c; d++) {
+						final long md = mc | (1L << d);
+						for (int e = 2; e < d; e++) {
+							final long me = md | (1L << e);
+							for (int f = 1; f < e; f++) {
+								final long mf = me | (1L << f);
+								for (int g = 0; g < f; g++) {
+									counts[HandEvaluator.evaluate(mf
+											| (1L << g)) >>> 24]++;
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		final int expected[] = { 23294460, 58627800, 31433400, 6461620,
+				6180020, 4047644, 3473184, 224848, 41584 };
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(HandCategory.values()[i].toString(), expected[i],
+					counts[i]);
+		}
+	}
+
+	public void testSpeed() {
+		// Deal the hands up front so only evaluation is timed
+		final int numHands = 1 << 16;
+		final long hands[] = new long[numHands];
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final int indices[] = new int[7];
+		for (int i = 0; i < numHands; i++) {
+			deck.reset();
+			deck.shuffle();
+			deck.dealIndices(7, indices, 0);
+			for (int index : indices) {
+				hands[i] |= 1L << index;
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		long evaluations = 0;
+		int total = 0;
+		while (System.currentTimeMillis() - startTime < 3000) {
+			for (int i = 0; i < numHands; i++) {
+				total += HandEvaluator.evaluate(hands[i]);
+			}
+			evaluations += numHands;
+		}
+		final long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println("HandEvaluator 7 card evaluations per second = "
+				+ (evaluations * 1000 / elapsed) + " (" + total + ")");
+	}
+}
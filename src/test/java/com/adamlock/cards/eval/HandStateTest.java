@@ -0,0 +1,140 @@
+package com.adamlock.cards.eval;
+
+import junit.framework.TestCase;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.XoshiroRandom;
+
+public class HandStateTest extends TestCase {
+
+	/**
+	 * Check each street gives the same value as evaluating the cards afresh
+	 */
+	public void testStreets() {
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final int indices[] = new int[7];
+		for (int deal = 0; deal < 10000; deal++) {
+			deck.reset();
+			deck.shuffle();
+			deck.dealIndices(7, indices, 0);
+			final HandState state = new HandState();
+			long mask = 0;
+			for (int i = 0; i < indices.length; i++) {
+				if (i > 0) {
+					assertEquals(HandEvaluator.evaluate(mask | (1L << indices[i])),
+							state.evaluateWith(indices[i]));
+				}
+				if (i % 2 == 0) {
+					state.add(indices[i]);
+				} else {
+					state.add(Card.fromIndex(indices[i]));
+				}
+				mask |= 1L << indices[i];
+				assertEquals(i + 1, state.size());
+				assertEquals(mask, state.getMask());
+				assertEquals(HandEvaluator.evaluate(mask), state.evaluate());
+			}
+		}
+	}
+
+	/**
+	 * Check every river from a turn, and that branches don't affect each other
+	 */
+	public void testBranches() throws InvalidCardException {
+		final HandState turn = new HandState();
+		for (String card : "Ah Kh Qh 2c 2d Jh".split(" ")) {
+			turn.add(Card.fromString(card));
+		}
+		final int turnValue = turn.evaluate();
+		for (int river = 0; river < 52; river++) {
+			if (CardMask.contains(turn.getMask(), Card.fromIndex(river))) {
+				continue;
+			}
+			final int expected = HandEvaluator.evaluate(turn.getMask()
+					| (1L << river));
+			assertEquals(expected, turn.evaluateWith(river));
+			assertEquals(expected, new HandState(turn).add(river).evaluate());
+		}
+		assertEquals(6, turn.size());
+		assertEquals(turnValue, turn.evaluate());
+
+		final HandState branch = new HandState().set(turn).add(
+				Card.fromString("Th"));
+		assertEquals(HandCategory.STRAIGHT_FLUSH, branch.getCategory());
+		assertEquals(HandCategory.PAIR, turn.getCategory());
+		assertEquals(HandCategory.STRAIGHT_FLUSH,
+				new HandState().addAll(branch.getMask()).getCategory());
+		assertEquals(0, branch.clear().size());
+	}
+
+	public void testInvalid() throws InvalidCardException {
+		final HandState state = new HandState().add(Card.fromString("Ah"));
+		try {
+			state.add(Card.fromString("Ah"));
+			fail("Card is already held");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			state.evaluateWith(Card.fromString("Ah").index());
+			fail("Card is already held");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			state.add(52);
+			fail("Index 52 is not a card");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new HandState().addAll(CardMask.FULL);
+			fail("Too many cards");
+		} catch (IllegalArgumentException e) {
+		}
+		state.clear();
+		for (int i = 0; i < HandEvaluator.MAX_CARDS; i++) {
+			state.add(i);
+		}
+		try {
+			state.evaluateWith(HandEvaluator.MAX_CARDS);
+			fail("Too many cards");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSpeed() {
+		// Every river from a set of turns
+		final int numTurns = 1 << 10;
+		final HandState turns[] = new HandState[numTurns];
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final int indices[] = new int[6];
+		for (int i = 0; i < numTurns; i++) {
+			deck.reset();
+			deck.shuffle();
+			deck.dealIndices(6, indices, 0);
+			turns[i] = new HandState();
+			for (int index : indices) {
+				turns[i].add(index);
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		long evaluations = 0;
+		int total = 0;
+		while (System.currentTimeMillis() - startTime < 2000) {
+			for (HandState turn : turns) {
+				final long mask = turn.getMask();
+				for (int river = 0; river < 52; river++) {
+					if ((mask & (1L << river)) == 0) {
+						total += turn.evaluateWith(river);
+					}
+				}
+			}
+			evaluations += numTurns * 46;
+		}
+		final long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println("HandState river evaluations per second = "
+				+ (evaluations * 1000 / elapsed) + " (" + total + ")");
+	}
+}
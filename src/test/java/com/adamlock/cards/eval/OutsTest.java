@@ -0,0 +1,143 @@
+package com.adamlock.cards.eval;
+
+import junit.framework.TestCase;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.XoshiroRandom;
+
+public class OutsTest extends TestCase {
+
+	private static Card[] cards(String cards) throws InvalidCardException {
+		final String tokens[] = cards.split(" ");
+		final Card result[] = new Card[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			result[i] = Card.fromString(tokens[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Check random hands against evaluating every undrawn card
+	 */
+	public void testRandomHands() {
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final int indices[] = new int[9];
+		for (int deal = 0; deal < 5000; deal++) {
+			deck.reset();
+			deck.shuffle();
+			final int numCards = 2 + deal % 5;
+			deck.dealIndices(numCards + 2, indices, 0);
+			long cards = 0;
+			for (int i = 0; i < numCards; i++) {
+				cards |= 1L << indices[i];
+			}
+			// Beat an opponent holding the last two cards with the same board
+			final long hole = (1L << indices[0]) | (1L << indices[1]);
+			final long opponent = (cards & ~hole) | (1L << indices[numCards])
+					| (1L << indices[numCards + 1]);
+			final int target = deal % 2 == 0 ? HandEvaluator.evaluate(cards)
+					: HandEvaluator.evaluate(opponent);
+			final long undrawn = deck.getUndrawnMask();
+
+			final Outs outs = Outs.find(cards, undrawn, target);
+			long expected = 0;
+			final int counts[] = new int[HandCategory.values().length];
+			for (long rest = undrawn; rest != 0; rest &= rest - 1) {
+				final long card = rest & -rest;
+				final int value = HandEvaluator.evaluate(cards | card);
+				if (value > target) {
+					expected |= card;
+					counts[HandEvaluator.getCategory(value).ordinal()]++;
+				}
+			}
+			assertEquals(expected, outs.getMask());
+			int total = 0;
+			for (HandCategory category : HandCategory.values()) {
+				assertEquals(counts[category.ordinal()], outs.getCount(category));
+				total += outs.getCount(category);
+			}
+			assertEquals(outs.size(), total);
+		}
+	}
+
+	public void testDraws() throws InvalidCardException {
+		// A flush draw with two overcards improves on 9 hearts and on any
+		// card pairing the hand
+		final DeckImpl deck = new DeckImpl();
+		Outs outs = Outs.find(cards("Ah Kh"), cards("7h 2h 9c"), deck);
+		assertEquals(9, outs.getCount(HandCategory.FLUSH));
+		assertEquals(14, outs.getCount(HandCategory.PAIR));
+		assertEquals(23, outs.size());
+		assertTrue(outs.contains(Card.fromString("9h")));
+		assertFalse(outs.contains(Card.fromString("Ah")));
+		assertEquals("23 outs, Flush 9, Pair 14", outs.toString());
+
+		// Cards already dealt from the deck aren't outs
+		deck.removeCard(cards("Qh 3h As"));
+		outs = Outs.find(cards("Ah Kh"), cards("7h 2h 9c"), deck);
+		assertEquals(7, outs.getCount(HandCategory.FLUSH));
+		assertEquals(13, outs.getCount(HandCategory.PAIR));
+
+		// An open ended straight draw beats a set with its 8 straight cards
+		// but can't beat a flush
+		final int set = HandEvaluator.evaluate(cards("Qs Qd Qc 9d 8s 2c"));
+		outs = Outs.find(CardMask.of(cards("Jc Td 9d 8s 2c")),
+				new DeckImpl().getUndrawnMask(), set);
+		assertEquals(8, outs.getCount(HandCategory.STRAIGHT));
+		assertEquals(8, outs.size());
+		outs = Outs.find(cards("Jc Td"), cards("9d 8s 2c"), new DeckImpl(),
+				HandEvaluator.getLowestValue(HandCategory.FLUSH));
+		assertEquals(0, outs.size());
+	}
+
+	public void testInvalid() throws InvalidCardException {
+		try {
+			Outs.find(0, CardMask.FULL, 0);
+			fail("Must hold cards");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			Outs.find(CardMask.of(cards("Ah Kh 2c 3c 4c 5c 6c")), CardMask.FULL,
+					0);
+			fail("Too many cards");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			Outs.find(cards("Ah Kh"), cards("Ah"), new DeckImpl(), 0);
+			fail("Cards must be different");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSpeed() {
+		final int numHands = 1 << 10;
+		final long hands[] = new long[numHands];
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final int indices[] = new int[6];
+		for (int i = 0; i < numHands; i++) {
+			deck.reset();
+			deck.shuffle();
+			deck.dealIndices(5 + i % 2, indices, 0);
+			for (int j = 0; j < 5 + i % 2; j++) {
+				hands[i] |= 1L << indices[j];
+			}
+		}
+
+		long startTime = System.currentTimeMillis();
+		long count = 0;
+		int total = 0;
+		while (System.currentTimeMillis() - startTime < 1000) {
+			for (long hand : hands) {
+				total += Outs.find(hand, CardMask.FULL,
+						HandEvaluator.evaluate(hand)).size();
+			}
+			count += numHands;
+		}
+		final long elapsed = System.currentTimeMillis() - startTime;
+		System.out.println("Outs found in " + (elapsed * 1000000L / count)
+				+ "ns a hand (" + total + ")");
+	}
+}
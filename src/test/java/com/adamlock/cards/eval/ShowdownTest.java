@@ -0,0 +1,163 @@
+package com.adamlock.cards.eval;
+
+import junit.framework.TestCase;
+
+import com.adamlock.cards.Card;
+import com.adamlock.cards.CardMask;
+import com.adamlock.cards.DeckImpl;
+import com.adamlock.cards.InvalidCardException;
+import com.adamlock.cards.XoshiroRandom;
+
+public class ShowdownTest extends TestCase {
+
+	private static long mask(String cards) throws InvalidCardException {
+		long mask = 0;
+		for (String card : cards.split(" ")) {
+			mask |= CardMask.of(Card.fromString(card));
+		}
+		return mask;
+	}
+
+	/**
+	 * Check random deals against evaluating each hand on its own, including
+	 * short boards and single hole cards
+	 */
+	public void testRandomDeals() {
+		final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+		final int indices[] = new int[2];
+		for (int deal = 0; deal < 20000; deal++) {
+			deck.reset();
+			deck.shuffle();
+			final int players = 2 + deal % 9;
+			final long hands[] = new long[players];
+			for (int player = 0; player < players; player++) {
+				final int holeSize = (deal + player) % 7 == 0 ? 1 : 2;
+				deck.dealIndices(holeSize, indices, 0);
+				for (int i = 0; i < holeSize; i++) {
+					hands[player] |= 1L << indices[i];
+				}
+			}
+			final int boardIndices[] = new int[5];
+			final int boardSize = 3 + deal % 3;
+			deck.dealIndices(boardSize, boardIndices, 0);
+			long board = 0;
+			for (int i = 0; i < boardSize; i++) {
+				board |= 1L << boardIndices[i];
+			}
+
+			final Showdown showdown = new Showdown(hands);
+			final int winners = showdown.evaluate(board);
+			int best = -1;
+			for (long hand : hands) {
+				best = Math.max(best, HandEvaluator.evaluate(hand | board));
+			}
+			int expectedWinners = 0;
+			double totalShare = 0;
+			for (int player = 0; player < players; player++) {
+				final int value = HandEvaluator.evaluate(hands[player] | board);
+				assertEquals(value, showdown.getValue(player));
+				assertEquals(value == best, showdown.isWinner(player));
+				if (value == best) {
+					expectedWinners++;
+				}
+				totalShare += showdown.getShare(player);
+			}
+			assertEquals(best, showdown.getBest());
+			assertEquals(expectedWinners, winners);
+			assertEquals(winners, showdown.getWinners());
+			assertEquals(1.0, totalShare, 1e-9);
+		}
+	}
+
+	public void testSplitPots() throws InvalidCardException {
+		// The board plays for everyone
+		final Showdown showdown = new Showdown(new long[] { mask("2c 3d"),
+				mask("4c 5d"), mask("6c 7d") });
+		assertEquals(3, showdown.evaluate(mask("Ah Kh Qh Jh Th")));
+		for (int player = 0; player < 3; player++) {
+			assertEquals(1.0 / 3, showdown.getShare(player), 1e-12);
+		}
+
+		// Two of three share the pot with the same straight, and the
+		// third's flush needs three suited cards on the board
+		showdown.setHand(0, mask("9c 8d"));
+		showdown.setHand(1, mask("9d 8c"));
+		showdown.setHand(2, mask("2s 3s"));
+		assertEquals(2, showdown.evaluate(mask("7h 6h 5s Kd Qc")));
+		assertEquals(0.5, showdown.getShare(0), 1e-12);
+		assertEquals(0.5, showdown.getShare(1), 1e-12);
+		assertEquals(0.0, showdown.getShare(2), 1e-12);
+		assertEquals(1, showdown.evaluate(mask("7s 6h 5s Kd Qs")));
+		assertEquals(HandCategory.FLUSH,
+				HandEvaluator.getCategory(showdown.getValue(2)));
+		assertEquals(1.0, showdown.getShare(2), 1e-12);
+	}
+
+	public void testBatch() throws InvalidCardException {
+		final long hands[] = { mask("Ah As"), mask("Kh Ks"), mask("7c 2d") };
+		final long boards[] = { mask("2c 3c 4c 9d Td"), mask("Kc 3c 4c 9d Td"),
+				mask("7h 7s 2h 9d Td"), mask("Qc Jc Tc 9c 8c") };
+		final Showdown showdown = new Showdown(hands);
+		final double shares[] = new double[3];
+		showdown.evaluate(boards, 1, 3, shares);
+		final double expected[] = new double[3];
+		for (int i = 1; i < 4; i++) {
+			showdown.evaluate(boards[i]);
+			for (int player = 0; player < 3; player++) {
+				expected[player] += showdown.getShare(player);
+			}
+		}
+		for (int player = 0; player < 3; player++) {
+			assertEquals(expected[player], shares[player], 1e-12);
+		}
+		assertEquals(1.0 / 3, shares[0], 1e-12);
+
+		try {
+			showdown.evaluate(boards, 2, 3, shares);
+			fail("Too many boards");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			new Showdown(2).setHand(2, 0);
+			fail("Invalid player");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	public void testSpeed() {
+		// Boards are dealt up front so only the showdown is timed
+		final int numBoards = 1 << 14;
+		for (int players : new int[] { 2, 6, 10 }) {
+			final DeckImpl deck = new DeckImpl(new XoshiroRandom(1));
+			final long hands[] = new long[players];
+			final int indices[] = new int[5];
+			for (int player = 0; player < players; player++) {
+				deck.dealIndices(2, indices, 0);
+				hands[player] = (1L << indices[0]) | (1L << indices[1]);
+			}
+			final int mark = deck.mark();
+			final long boards[] = new long[numBoards];
+			for (int i = 0; i < numBoards; i++) {
+				deck.rewind(mark);
+				deck.shuffle();
+				deck.dealIndices(5, indices, 0);
+				for (int index : indices) {
+					boards[i] |= 1L << index;
+				}
+			}
+
+			final Showdown showdown = new Showdown(hands);
+			final double shares[] = new double[players];
+			long startTime = System.currentTimeMillis();
+			long count = 0;
+			while (System.currentTimeMillis() - startTime < 1000) {
+				showdown.evaluate(boards, 0, numBoards, shares);
+				count += numBoards;
+			}
+			final long elapsed = System.currentTimeMillis() - startTime;
+			System.out.println("Showdown " + players + " players "
+					+ (elapsed * 1000000L / count) + "ns a board (" + shares[0]
+					+ ")");
+		}
+	}
+}